@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.service.ReferenceDataService;
+
+import java.util.Map;
+
+/**
+ * Контроллер служебных операций
+ */
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+@RequiredArgsConstructor
+public class AdminController {
+    private final ReferenceDataService referenceDataService;
+
+    /**
+     * Перезагрузка справочников рейтингов MPA и жанров
+     *
+     * @return количество загруженных рейтингов MPA и жанров
+     */
+    @PostMapping("/reference-data/reload")
+    public Map<String, Integer> reloadReferenceData() {
+        log.info("Получен запрос POST /admin/reference-data/reload");
+        return referenceDataService.reload();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+
+/**
+ * Ответы на условные запросы по версиям данных (ETag и Last-Modified)
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    /**
+     * Проверка, что у клиента актуальные данные. Устанавливает заголовки ETag и Last-Modified,
+     * а если присланный тег (или время, если тег не прислан) совпадает с версией, - статус 304.
+     * Версию нужно получать до загрузки данных: изменение между ними приведет только к лишней
+     * загрузке при следующем запросе, а не к устаревшим данным под новым тегом.
+     * <p>
+     * Last-Modified передается с точностью до секунды, поэтому время изменения округляется вверх,
+     * а пока эта секунда не прошла, заголовок не устанавливается и проверяется только тег:
+     * следующее изменение в ту же секунду получило бы то же время, и клиент с If-Modified-Since
+     * остался бы со старыми данными.
+     *
+     * @param request запрос
+     * @param version текущая версия данных ответа
+     * @return true, если можно ответить 304 без тела и не загружать данные
+     */
+    static boolean isNotModified(WebRequest request, DataVersion version) {
+        long lastModified = (version.getLastModified() + 999) / 1000 * 1000;
+        if (lastModified >= System.currentTimeMillis()) {
+            return request.checkNotModified(version.getETag());
+        }
+        return request.checkNotModified(version.getETag(), lastModified);
+    }
+}
@@ -1,14 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Контроллер для работы с фильмами
@@ -19,27 +30,69 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Получение списка всех фильмов
+     * Получение списка фильмов.
+     * Без параметров возвращает все фильмы. При указании limit или cursor возвращает одну страницу,
+     * а курсор следующей страницы передает в заголовке X-Next-Cursor.
+     * При указании условий отбора или порядка возвращает страницу подходящих фильмов.
      *
+     * @param limit    размер страницы
+     * @param cursor   курсор, полученный с предыдущей страницей
+     * @param genre    идентификаторы жанров через запятую (фильм подходит, если у него есть любой из них)
+     * @param mpa      идентификаторы рейтингов MPA через запятую
+     * @param yearFrom наименьший год выхода
+     * @param yearTo   наибольший год выхода
+     * @param sort     порядок: id (по умолчанию) или popular
      * @return список фильмов
      */
     @GetMapping
-    public ResponseEntity<List<Film>> getAllFilms() {
-        log.info("Получен запрос на получение всех фильмов");
-        return ResponseEntity.ok(filmService.getAllFilms());
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Set<Integer> genre,
+                                                  @RequestParam(required = false) Set<Integer> mpa,
+                                                  @RequestParam(required = false) Integer yearFrom,
+                                                  @RequestParam(required = false) Integer yearTo,
+                                                  @RequestParam(required = false) String sort) {
+        if (genre != null || mpa != null || yearFrom != null || yearTo != null || sort != null) {
+            FilmFilter filter = filmFilter(genre, mpa, yearFrom, yearTo, sort);
+            log.info("Получен запрос на отбор фильмов: {}, limit={}, cursor={}", filter, limit, cursor);
+            return PageResponses.of(filmService.findFilms(filter, cursor, PageResponses.limitOrDefault(limit)));
+        }
+        if (limit == null && cursor == null) {
+            log.info("Получен запрос на получение всех фильмов");
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        log.info("Получен запрос на получение страницы фильмов: limit={}, cursor={}", limit, cursor);
+        Page<Film> page = filmService.getFilmsPage(cursor, PageResponses.limitOrDefault(limit));
+        return PageResponses.of(page);
+    }
+
+    /**
+     * Потоковая выгрузка всех фильмов в формате NDJSON (один фильм на строку)
+     *
+     * @return поток фильмов
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Получен запрос на выгрузку всех фильмов");
+        return NdjsonResponses.stream(objectMapper, filmService::exportFilms);
     }
 
     /**
      * Получение фильма по идентификатору
      *
-     * @param id идентификатор фильма
-     * @return фильм
+     * @param id      идентификатор фильма
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return фильм или пустой ответ 304, если фильм не изменился
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Film> getFilmById(@PathVariable int id) {
+    public ResponseEntity<Film> getFilmById(@PathVariable int id, WebRequest request) {
         log.info("Получен запрос на получение фильма с id: {}", id);
+        if (ConditionalResponses.isNotModified(request, filmService.getFilmVersion(id))) {
+            return null;
+        }
         return ResponseEntity.ok(filmService.getFilmById(id));
     }
 
@@ -55,6 +108,19 @@ public class FilmController {
         return ResponseEntity.ok(filmService.addFilm(film));
     }
 
+    /**
+     * Пакетное добавление фильмов.
+     * Фильмы проверяются по отдельности: некорректные отклоняются, остальные добавляются.
+     *
+     * @param films список фильмов
+     * @return идентификаторы добавленных фильмов в порядке запроса и ошибки по отклоненным фильмам
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResult> addFilms(@RequestBody List<Film> films) {
+        log.info("Получен запрос на пакетное добавление фильмов. Количество: {}", films.size());
+        return ResponseEntity.ok(filmService.addFilms(films));
+    }
+
     /**
      * Обновление существующего фильма
      *
@@ -94,14 +160,115 @@ public class FilmController {
     }
 
     /**
-     * Получение списка популярных фильмов
+     * Автодополнение названий фильмов для строки поиска
      *
+     * @param prefix введенное начало названия
+     * @param count  количество вариантов (по умолчанию 10)
+     * @return варианты по убыванию количества лайков, затем варианты с опечатками
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<TitleSuggestion>> autocompleteTitles(@RequestParam(defaultValue = "") String prefix,
+                                                                    @RequestParam(defaultValue = "10") int count) {
+        log.debug("Получен запрос на автодополнение {} названий по началу '{}'", count, prefix);
+        return ResponseEntity.ok(filmService.autocompleteTitles(prefix, count));
+    }
+
+    /**
+     * Полнотекстовый поиск фильмов по названию и описанию
+     *
+     * @param q     текст запроса
      * @param count количество фильмов (по умолчанию 10)
-     * @return список популярных фильмов
+     * @return найденные фильмы по убыванию релевантности
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Film>> searchFilms(@RequestParam(defaultValue = "") String q,
+                                                  @RequestParam(defaultValue = "10") int count) {
+        log.info("Получен запрос на поиск {} фильмов по запросу '{}'", count, q);
+        return ResponseEntity.ok(filmService.searchFilms(q, count));
+    }
+
+    /**
+     * Получение фильмов, которые чаще всего нравились тем же пользователям
+     *
+     * @param id    идентификатор фильма
+     * @param count количество фильмов (по умолчанию 10)
+     * @return список похожих фильмов
+     */
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<Film>> getRelatedFilms(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Получен запрос на получение {} фильмов, похожих на фильм с id {}", count, id);
+        return ResponseEntity.ok(filmService.getRelatedFilms(id, count));
+    }
+
+    /**
+     * Получение фильмов с похожей аудиторией
+     *
+     * @param id    идентификатор фильма
+     * @param count количество фильмов (по умолчанию 10)
+     * @return список фильмов с оценкой схожести аудитории
+     */
+    @GetMapping("/{id}/similar-audience")
+    public ResponseEntity<List<FilmSimilarity>> getSimilarAudienceFilms(@PathVariable int id,
+                                                                        @RequestParam(defaultValue = "10") int count) {
+        log.info("Получен запрос на получение {} фильмов с аудиторией, похожей на аудиторию фильма с id {}", count, id);
+        return ResponseEntity.ok(filmService.getSimilarAudienceFilms(id, count));
+    }
+
+    /**
+     * Получение списка популярных фильмов
+     *
+     * @param count   количество фильмов (по умолчанию 10)
+     * @param genreId идентификатор жанра (необязательный)
+     * @param mpaId   идентификатор рейтинга MPA (необязательный)
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return список популярных фильмов или пустой ответ 304, если фильмы не изменились
      */
     @GetMapping("/popular")
-    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        log.info("Получен запрос на получение {} популярных фильмов", count);
-        return ResponseEntity.ok(filmService.getPopularFilms(count));
+    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                      @RequestParam(required = false) Integer genreId,
+                                                      @RequestParam(required = false) Integer mpaId,
+                                                      WebRequest request) {
+        log.info("Получен запрос на получение {} популярных фильмов жанра {} и рейтинга {}", count, genreId, mpaId);
+        if (ConditionalResponses.isNotModified(request, filmService.getPopularFilmsVersion())) {
+            return null;
+        }
+        return ResponseEntity.ok(filmService.getPopularFilms(count, genreId, mpaId));
+    }
+
+    /**
+     * Получение фильмов, набирающих популярность: больше всего лайков за последнее время
+     *
+     * @param window окно времени: 1h, 24h (по умолчанию) или 7d
+     * @param count  количество фильмов (по умолчанию 10)
+     * @param decay  учитывать свежие лайки с большим весом, чем давние (по умолчанию нет)
+     * @return список фильмов
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<Film>> getTrendingFilms(@RequestParam(required = false) String window,
+                                                       @RequestParam(defaultValue = "10") int count,
+                                                       @RequestParam(defaultValue = "false") boolean decay) {
+        log.info("Получен запрос на получение {} фильмов, набирающих популярность за окно {}", count, window);
+        return ResponseEntity.ok(filmService.getTrendingFilms(TrendingWindow.parse(window), decay, count));
+    }
+
+    /**
+     * Сборка условий отбора из параметров запроса
+     *
+     * @param genre    идентификаторы жанров
+     * @param mpa      идентификаторы рейтингов MPA
+     * @param yearFrom наименьший год выхода
+     * @param yearTo   наибольший год выхода
+     * @param sort     порядок: id (по умолчанию) или popular
+     * @return условия отбора
+     */
+    private FilmFilter filmFilter(Set<Integer> genre, Set<Integer> mpa, Integer yearFrom, Integer yearTo,
+                                  String sort) {
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(genre != null ? genre : Set.of());
+        filter.setMpaIds(mpa != null ? mpa : Set.of());
+        filter.setYearFrom(yearFrom);
+        filter.setYearTo(yearTo);
+        filter.setSort(FilmFilter.Sort.parse(sort));
+        return filter;
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -24,11 +25,15 @@ public class GenreController {
     /**
      * Получение списка всех жанров
      *
-     * @return список жанров
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return список жанров или пустой ответ 304, если справочник не изменился
      */
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
         log.info("Получен запрос GET /genres");
+        if (ConditionalResponses.isNotModified(request, genreService.getVersion())) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 
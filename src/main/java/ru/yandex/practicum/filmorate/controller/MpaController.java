@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -24,11 +25,15 @@ public class MpaController {
     /**
      * Получение списка всех рейтингов MPA
      *
-     * @return список рейтингов
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return список рейтингов или пустой ответ 304, если справочник не изменился
      */
     @GetMapping
-    public List<Mpa> getAllMpa() {
+    public List<Mpa> getAllMpa(WebRequest request) {
         log.info("Получен запрос GET /mpa");
+        if (ConditionalResponses.isNotModified(request, mpaService.getVersion())) {
+            return null;
+        }
         return mpaService.getAllMpa();
     }
 
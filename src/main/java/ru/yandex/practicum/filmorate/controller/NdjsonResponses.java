@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Формирование потоковых ответов в формате NDJSON (один JSON-объект на строку)
+ */
+final class NdjsonResponses {
+    /**
+     * Через сколько записанных объектов сбрасывать буфер ответа клиенту
+     */
+    private static final int FLUSH_INTERVAL = 100;
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * Создание потокового ответа. Объекты сериализуются и отправляются по мере получения от источника,
+     * первый объект отправляется клиенту сразу.
+     *
+     * @param objectMapper сериализатор JSON
+     * @param source       источник, передающий объекты переданному ему обработчику
+     * @param <T>          тип объектов
+     * @return ответ с телом, записываемым в поток
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            try {
+                source.accept(item -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(item));
+                        out.write('\n');
+                        if (written[0]++ % FLUSH_INTERVAL == 0) {
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.List;
+
+/**
+ * Ответы с постраничным (keyset) обходом: размер страницы по умолчанию и курсор следующей страницы в заголовке
+ */
+final class PageResponses {
+    /**
+     * Заголовок с курсором следующей страницы
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Размер страницы, если клиент его не указал
+     */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    private PageResponses() {
+    }
+
+    /**
+     * Размер страницы из запроса
+     *
+     * @param limit размер, указанный клиентом, или null
+     * @return указанный размер или размер по умолчанию
+     */
+    static int limitOrDefault(Integer limit) {
+        return limit != null ? limit : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Формирование ответа со страницей и курсором следующей страницы
+     *
+     * @param page страница
+     * @param <T>  тип элементов страницы
+     * @return ответ со списком элементов страницы
+     */
+    static <T> ResponseEntity<List<T>> of(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
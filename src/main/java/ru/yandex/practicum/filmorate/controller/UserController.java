@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
@@ -19,27 +27,54 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final RecommendationService recommendationService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Получение списка всех пользователей
+     * Получение списка пользователей.
+     * Без параметров возвращает всех пользователей. При указании limit или cursor возвращает одну страницу,
+     * а курсор следующей страницы передает в заголовке X-Next-Cursor.
      *
+     * @param limit  размер страницы
+     * @param cursor курсор, полученный с предыдущей страницей
      * @return список пользователей
      */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        log.info("Получен запрос на получение всех пользователей");
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String cursor) {
+        if (limit == null && cursor == null) {
+            log.info("Получен запрос на получение всех пользователей");
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        log.info("Получен запрос на получение страницы пользователей: limit={}, cursor={}", limit, cursor);
+        Page<User> page = userService.getUsersPage(cursor, PageResponses.limitOrDefault(limit));
+        return PageResponses.of(page);
+    }
+
+    /**
+     * Потоковая выгрузка всех пользователей в формате NDJSON (один пользователь на строку)
+     *
+     * @return поток пользователей
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Получен запрос на выгрузку всех пользователей");
+        return NdjsonResponses.stream(objectMapper, userService::exportUsers);
     }
 
     /**
      * Получение пользователя по идентификатору
      *
-     * @param id идентификатор пользователя
-     * @return пользователь
+     * @param id      идентификатор пользователя
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return пользователь или пустой ответ 304, если пользователь не изменился
      */
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable int id) {
+    public ResponseEntity<User> getUserById(@PathVariable int id, WebRequest request) {
         log.info("Получен запрос на получение пользователя с id: {}", id);
+        if (ConditionalResponses.isNotModified(request, userService.getUserVersion(id))) {
+            return null;
+        }
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
@@ -96,13 +131,29 @@ public class UserController {
     /**
      * Получение списка друзей пользователя
      *
-     * @param id идентификатор пользователя
+     * @param id          идентификатор пользователя
+     * @param withFriends включать ли в ответ множества друзей самих друзей (по умолчанию да)
      * @return список друзей
      */
     @GetMapping("/{id}/friends")
-    public ResponseEntity<List<User>> getFriends(@PathVariable int id) {
+    public ResponseEntity<List<User>> getFriends(@PathVariable int id,
+                                                 @RequestParam(defaultValue = "true") boolean withFriends) {
         log.info("Получен запрос на получение списка друзей пользователя с id {}", id);
-        return ResponseEntity.ok(userService.getFriends(id));
+        return ResponseEntity.ok(userService.getFriends(id, withFriends));
+    }
+
+    /**
+     * Получение рекомендаций в друзья: пользователей с наибольшим количеством общих друзей
+     *
+     * @param id    идентификатор пользователя
+     * @param limit максимальное количество рекомендаций
+     * @return рекомендации по убыванию количества общих друзей
+     */
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<List<FriendSuggestion>> getFriendSuggestions(@PathVariable int id,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получен запрос на получение рекомендаций в друзья для пользователя с id {}", id);
+        return ResponseEntity.ok(userService.getFriendSuggestions(id, limit));
     }
 
     /**
@@ -117,4 +168,18 @@ public class UserController {
         log.info("Получен запрос на получение списка общих друзей пользователей с id {} и {}", id, otherId);
         return ResponseEntity.ok(userService.getCommonFriends(id, otherId));
     }
-}
\ No newline at end of file
+
+    /**
+     * Получение рекомендованных фильмов: фильмов, которые понравились пользователям с похожими лайками
+     *
+     * @param id    идентификатор пользователя
+     * @param limit максимальное количество фильмов
+     * @return рекомендованные фильмы
+     */
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Film>> getRecommendations(@PathVariable int id,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получен запрос на получение рекомендаций фильмов для пользователя с id {}", id);
+        return ResponseEntity.ok(recommendationService.getRecommendations(id, limit));
+    }
+}
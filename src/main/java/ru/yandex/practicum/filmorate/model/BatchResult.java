@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Результат пакетной операции.
+ * Идентификаторы перечислены в порядке элементов запроса, для отклоненных элементов - null.
+ * Причины отклонения перечислены в ошибках с указанием позиции элемента в запросе.
+ */
+@Data
+public class BatchResult {
+    /**
+     * Идентификаторы созданных объектов в порядке элементов запроса
+     */
+    private final List<Integer> ids;
+
+    /**
+     * Ошибки по отклоненным элементам
+     */
+    private final List<ItemError> errors = new ArrayList<>();
+
+    /**
+     * Создание результата для пакета заданного размера, в котором пока нет обработанных элементов
+     *
+     * @param size количество элементов в пакете
+     */
+    public BatchResult(int size) {
+        ids = Arrays.asList(new Integer[size]);
+    }
+
+    /**
+     * Отметка элемента как успешно обработанного
+     *
+     * @param index позиция элемента в запросе
+     * @param id    идентификатор созданного объекта
+     */
+    public void accept(int index, int id) {
+        ids.set(index, id);
+    }
+
+    /**
+     * Отметка элемента как отклоненного
+     *
+     * @param index позиция элемента в запросе
+     * @param error причина отклонения
+     */
+    public void reject(int index, String error) {
+        ids.set(index, null);
+        errors.add(new ItemError(index, error));
+    }
+
+    /**
+     * Упорядочивание ошибок по позиции элемента в запросе
+     */
+    public void sortErrors() {
+        errors.sort(Comparator.comparingInt(ItemError::getIndex));
+    }
+
+    /**
+     * Ошибка обработки одного элемента пакета
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ItemError {
+        /**
+         * Позиция элемента в запросе
+         */
+        private int index;
+
+        /**
+         * Причина отклонения
+         */
+        private String error;
+    }
+}
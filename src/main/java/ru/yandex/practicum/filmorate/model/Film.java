@@ -1,17 +1,18 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.IntSet;
 import ru.yandex.practicum.filmorate.validation.ReleaseDateConstraint;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Модель данных фильма
@@ -62,7 +63,8 @@ public class Film {
     /**
      * Множество идентификаторов пользователей, поставивших лайк фильму
      */
-    private Set<Integer> likes = new HashSet<>();
+    @JsonDeserialize(as = IntHashSet.class)
+    private IntSet likes = new IntHashSet();
 
     /**
      * Добавить лайк от пользователя
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Условия отбора фильмов по жанру, рейтингу MPA и году выхода.
+ * Несколько значений одного условия объединяются по «или», разные условия - по «и».
+ * Незаданное условие не ограничивает выборку.
+ */
+@Data
+public class FilmFilter {
+    /**
+     * Идентификаторы жанров: фильм подходит, если у него есть хотя бы один из них
+     */
+    private Set<Integer> genreIds = Set.of();
+
+    /**
+     * Идентификаторы рейтингов MPA
+     */
+    private Set<Integer> mpaIds = Set.of();
+
+    /**
+     * Наименьший год выхода включительно
+     */
+    private Integer yearFrom;
+
+    /**
+     * Наибольший год выхода включительно
+     */
+    private Integer yearTo;
+
+    /**
+     * Порядок фильмов в результате
+     */
+    private Sort sort = Sort.ID;
+
+    /**
+     * Порядок отобранных фильмов
+     */
+    public enum Sort {
+        /**
+         * По возрастанию идентификатора, с постраничным обходом по курсору
+         */
+        ID,
+
+        /**
+         * По убыванию количества лайков, как в списке популярных фильмов
+         */
+        POPULAR;
+
+        /**
+         * Разбор порядка из параметра запроса без учета регистра
+         *
+         * @param value значение параметра или null для порядка по умолчанию
+         * @return порядок
+         * @throws ValidationException если порядок неизвестен
+         */
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Неизвестный порядок сортировки: " + value);
+            }
+        }
+    }
+}
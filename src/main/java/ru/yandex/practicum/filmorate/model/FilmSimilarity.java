@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Фильм с похожей аудиторией
+ */
+@Data
+@AllArgsConstructor
+public class FilmSimilarity {
+    /**
+     * Похожий фильм
+     */
+    private Film film;
+
+    /**
+     * Оценка меры Жаккара множеств пользователей, которым понравились фильмы, от 0 до 1
+     */
+    private double similarity;
+}
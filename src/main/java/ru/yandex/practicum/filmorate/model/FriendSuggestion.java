@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Рекомендация добавить пользователя в друзья
+ */
+@Data
+@AllArgsConstructor
+public class FriendSuggestion {
+    /**
+     * Рекомендуемый пользователь
+     */
+    private User user;
+
+    /**
+     * Количество общих друзей с пользователем, которому дается рекомендация
+     */
+    private int mutualFriends;
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Страница результатов при постраничном (keyset) обходе.
+ * Курсор непрозрачен для клиента и указывает на последний элемент страницы.
+ *
+ * @param <T> тип элементов страницы
+ */
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    private static final String CURSOR_PREFIX = "id:";
+
+    /**
+     * Элементы страницы
+     */
+    private List<T> items;
+
+    /**
+     * Курсор следующей страницы или null, если страница последняя
+     */
+    private String nextCursor;
+
+    /**
+     * Кодирование курсора по идентификатору последнего элемента страницы
+     *
+     * @param lastId идентификатор последнего элемента
+     * @return непрозрачный курсор
+     */
+    public static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирование курсора
+     *
+     * @param cursor курсор или null для первой страницы
+     * @return идентификатор, после которого начинается страница
+     * @throws ValidationException если курсор некорректен
+     */
+    public static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new ValidationException("Некорректный курсор: " + cursor);
+            }
+            return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Вариант автодополнения названия фильма
+ */
+@Data
+@AllArgsConstructor
+public class TitleSuggestion {
+    /**
+     * Идентификатор фильма
+     */
+    private int filmId;
+
+    /**
+     * Название фильма
+     */
+    private String name;
+
+    /**
+     * Количество лайков фильма
+     */
+    private int likes;
+}
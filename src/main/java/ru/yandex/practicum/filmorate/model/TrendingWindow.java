@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Окно времени, за которое считаются лайки в списке набирающих популярность фильмов.
+ * Набор окон фиксирован: для каждого из них рейтинг поддерживается в памяти при каждом лайке.
+ */
+@Getter
+public enum TrendingWindow {
+    /**
+     * Последний час
+     */
+    HOUR("1h", 60),
+
+    /**
+     * Последние сутки
+     */
+    DAY("24h", 24 * 60),
+
+    /**
+     * Последняя неделя
+     */
+    WEEK("7d", 7 * 24 * 60);
+
+    /**
+     * Обозначение окна в параметре запроса
+     */
+    private final String code;
+
+    /**
+     * Длина окна в минутах
+     */
+    private final int minutes;
+
+    TrendingWindow(String code, int minutes) {
+        this.code = code;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Разбор окна из параметра запроса без учета регистра
+     *
+     * @param value значение параметра или null для окна по умолчанию (сутки)
+     * @return окно
+     * @throws ValidationException если окно не поддерживается
+     */
+    public static TrendingWindow parse(String value) {
+        if (value == null || value.isBlank()) {
+            return DAY;
+        }
+        for (TrendingWindow window : values()) {
+            if (window.code.equalsIgnoreCase(value.trim())) {
+                return window;
+            }
+        }
+        throw new ValidationException("Неизвестное окно: " + value + ". Допустимые значения: "
+                + Arrays.stream(values()).map(TrendingWindow::getCode).collect(Collectors.joining(", ")));
+    }
+}
@@ -1,11 +1,12 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Модель данных пользователя
@@ -46,7 +47,8 @@ public class User {
     /**
      * Множество идентификаторов друзей пользователя
      */
-    private Set<Integer> friends = new HashSet<>();
+    @JsonDeserialize(as = IntHashSet.class)
+    private IntSet friends = new IntHashSet();
 
     /**
      * Добавить друга
@@ -73,7 +75,7 @@ public class User {
      *
      * @return множество идентификаторов друзей
      */
-    public Set<Integer> getFriends() {
+    public IntSet getFriends() {
         return friends;
     }
 
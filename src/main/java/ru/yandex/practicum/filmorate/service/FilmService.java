@@ -1,15 +1,31 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с фильмами
@@ -18,12 +34,43 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class FilmService {
+    /**
+     * Максимальное количество фильмов в одном пакете при пакетном добавлении
+     */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * Максимальное количество фильмов с похожей аудиторией в ответе
+     */
+    public static final int MAX_SIMILAR_AUDIENCE_FILMS = 100;
+
+    /**
+     * Максимальное количество фильмов в результатах поиска
+     */
+    public static final int MAX_SEARCH_RESULTS = 100;
+
+    /**
+     * Максимальное количество вариантов автодополнения в ответе
+     */
+    public static final int MAX_AUTOCOMPLETE_SUGGESTIONS = 50;
+
+    /**
+     * Максимальное количество фильмов в списке набирающих популярность
+     */
+    public static final int MAX_TRENDING_FILMS = 100;
+
     @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
 
     @Qualifier("userDbStorage")
     private final UserStorage userStorage;
 
+    private final Validator validator;
+
+    private final RecommendationService recommendationService;
+
+    private final DataVersions dataVersions;
+
     /**
      * Получение списка всех фильмов
      *
@@ -33,6 +80,69 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    /**
+     * Получение страницы фильмов по курсору
+     *
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой страницы
+     * @param limit  размер страницы
+     * @return страница фильмов с курсором следующей страницы
+     * @throws ValidationException если курсор или размер страницы некорректны
+     */
+    public Page<Film> getFilmsPage(String cursor, int limit) {
+        PageLimits.validatePageLimit(limit);
+        // Запрашиваем на один элемент больше, чтобы узнать, есть ли следующая страница
+        List<Film> films = filmStorage.getFilmsPage(Page.decodeCursor(cursor), limit + 1);
+        String nextCursor = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            nextCursor = Page.encodeCursor(films.get(limit - 1).getId());
+        }
+        log.info("Получена страница фильмов. Количество: {}", films.size());
+        return new Page<>(films, nextCursor);
+    }
+
+    /**
+     * Отбор фильмов по жанрам, рейтингам MPA и годам выхода.
+     * При порядке по идентификатору поддерживается постраничный обход по курсору,
+     * при порядке по популярности возвращается только первая страница.
+     *
+     * @param filter условия отбора и порядок
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой страницы
+     * @param limit  размер страницы
+     * @return страница фильмов с курсором следующей страницы
+     * @throws ValidationException если диапазон лет, курсор или размер страницы некорректны
+     */
+    public Page<Film> findFilms(FilmFilter filter, String cursor, int limit) {
+        PageLimits.validatePageLimit(limit);
+        if (filter.getYearFrom() != null && filter.getYearTo() != null && filter.getYearFrom() > filter.getYearTo()) {
+            log.warn("Некорректный диапазон лет: {} - {}", filter.getYearFrom(), filter.getYearTo());
+            throw new ValidationException("Начальный год не может быть больше конечного");
+        }
+        if (filter.getSort() == FilmFilter.Sort.POPULAR) {
+            List<Film> films = filmStorage.findFilms(filter, 0, limit);
+            log.info("Отобрано популярных фильмов: {}", films.size());
+            return new Page<>(films, null);
+        }
+        List<Film> films = filmStorage.findFilms(filter, Page.decodeCursor(cursor), limit + 1);
+        String nextCursor = null;
+        if (films.size() > limit) {
+            films = films.subList(0, limit);
+            nextCursor = Page.encodeCursor(films.get(limit - 1).getId());
+        }
+        log.info("Отобрано фильмов: {}", films.size());
+        return new Page<>(films, nextCursor);
+    }
+
+    /**
+     * Последовательная выгрузка всех фильмов
+     *
+     * @param action действие, выполняемое для каждого фильма
+     */
+    public void exportFilms(Consumer<Film> action) {
+        log.info("Выгрузка всех фильмов");
+        filmStorage.forEachFilm(action);
+    }
+
     /**
      * Добавление нового фильма
      *
@@ -43,6 +153,52 @@ public class FilmService {
         return filmStorage.addFilm(film);
     }
 
+    /**
+     * Пакетное добавление фильмов.
+     * Каждый фильм проверяется отдельно: некорректные фильмы отклоняются с описанием ошибки,
+     * остальные добавляются.
+     *
+     * @param films список фильмов
+     * @return идентификаторы добавленных фильмов в порядке пакета и ошибки по отклоненным фильмам
+     * @throws ValidationException если пакет пуст или превышает MAX_BATCH_SIZE
+     */
+    public BatchResult addFilms(List<Film> films) {
+        if (films == null || films.isEmpty()) {
+            throw new ValidationException("Пакет фильмов не может быть пустым");
+        }
+        if (films.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пакет не может содержать больше " + MAX_BATCH_SIZE + " фильмов");
+        }
+
+        BatchResult result = new BatchResult(films.size());
+        List<Film> validFilms = new ArrayList<>(films.size());
+        List<Integer> validIndexes = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            String error = validateFilm(films.get(i));
+            if (error != null) {
+                result.reject(i, error);
+            } else {
+                validFilms.add(films.get(i));
+                validIndexes.add(i);
+            }
+        }
+
+        // Позиции в ответе хранилища относятся к списку корректных фильмов, переводим их в позиции пакета
+        if (!validFilms.isEmpty()) {
+            BatchResult stored = filmStorage.addFilms(validFilms);
+            for (int i = 0; i < validFilms.size(); i++) {
+                Integer id = stored.getIds().get(i);
+                if (id != null) {
+                    result.accept(validIndexes.get(i), id);
+                }
+            }
+            stored.getErrors().forEach(error -> result.reject(validIndexes.get(error.getIndex()), error.getError()));
+            result.sortErrors();
+        }
+        log.info("Пакетное добавление фильмов. Всего: {}, отклонено: {}", films.size(), result.getErrors().size());
+        return result;
+    }
+
     /**
      * Обновление существующего фильма
      *
@@ -65,6 +221,25 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Фильм с id " + id + " не найден"));
     }
 
+    /**
+     * Версия фильма для условных запросов без обращения к базе данных.
+     * Учитывает справочники, так как названия жанров и рейтинга входят в ответ с фильмом.
+     *
+     * Наличие фильма проверяется по индексам в памяти: у неизвестного фильма нет своей версии,
+     * и начальная версия совпала бы с тегом любого другого фильма, не менявшегося с запуска.
+     *
+     * @param id идентификатор фильма
+     * @return версия
+     */
+    public DataVersion getFilmVersion(int id) {
+        if (!filmStorage.filmExists(id)) {
+            log.warn("Фильм с id {} не найден", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+        return DataVersion.latest(dataVersions.of(Table.FILM, id),
+                dataVersions.of(Table.GENRE), dataVersions.of(Table.MPA));
+    }
+
     /**
      * Добавление лайка фильму
      *
@@ -74,20 +249,14 @@ public class FilmService {
      * @throws NotFoundException если фильм или пользователь не найден
      */
     public Film addLike(int filmId, int userId) {
-        Film film = filmStorage.getFilmById(filmId)
-                .orElseThrow(() -> new NotFoundException("Фильм с id " + filmId + " не найден"));
+        checkLikeParticipants(filmId, userId);
 
-        // Проверяем, существует ли пользователь
-        if (!userStorage.userExists(userId)) {
-            log.warn("Пользователь с id {} не найден", userId);
-            throw new NotFoundException("Пользователь с id " + userId + " не найден");
+        // Записываем только один лайк, не перезаписывая остальные
+        if (filmStorage.addLike(filmId, userId)) {
+            recommendationService.onLikeAdded(filmId, userId);
         }
-
-        film.addLike(userId);
-        // Сохраняем изменения в базе данных
-        filmStorage.updateFilm(film);
         log.info("Пользователь с id {} поставил лайк фильму с id {}", userId, filmId);
-        return film;
+        return getFilmById(filmId);
     }
 
     /**
@@ -99,24 +268,56 @@ public class FilmService {
      * @throws NotFoundException если фильм или пользователь не найден
      */
     public Film removeLike(int filmId, int userId) {
-        Film film = filmStorage.getFilmById(filmId)
-                .orElseThrow(() -> new NotFoundException("Фильм с id " + filmId + " не найден"));
+        checkLikeParticipants(filmId, userId);
+
+        if (filmStorage.removeLike(filmId, userId)) {
+            recommendationService.onLikeRemoved(filmId, userId);
+        } else {
+            log.warn("Пользователь с id {} не ставил лайк фильму с id {}", userId, filmId);
+            // Не выбрасываем исключение, если пользователь не ставил лайк
+        }
+
+        log.info("Пользователь с id {} удалил лайк у фильма с id {}", userId, filmId);
+        return getFilmById(filmId);
+    }
 
-        // Проверяем, существует ли пользователь
+    /**
+     * Проверка существования фильма и пользователя перед изменением лайка.
+     * Фильм не загружается: в ответ возвращается его состояние после изменения.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @throws NotFoundException если фильм или пользователь не найден
+     */
+    private void checkLikeParticipants(int filmId, int userId) {
+        if (!filmStorage.filmExists(filmId)) {
+            log.warn("Фильм с id {} не найден", filmId);
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
         if (!userStorage.userExists(userId)) {
             log.warn("Пользователь с id {} не найден", userId);
             throw new NotFoundException("Пользователь с id " + userId + " не найден");
         }
+    }
 
-        if (!film.removeLike(userId)) {
-            log.warn("Пользователь с id {} не ставил лайк фильму с id {}", userId, filmId);
-            // Не выбрасываем исключение, если пользователь не ставил лайк
+    /**
+     * Проверка ограничений модели фильма
+     *
+     * @param film фильм
+     * @return описание нарушенных ограничений или null, если фильм корректен
+     */
+    private String validateFilm(Film film) {
+        if (film == null) {
+            return "Фильм не может быть пустым";
         }
-
-        // Сохраняем изменения в базе данных
-        filmStorage.updateFilm(film);
-        log.info("Пользователь с id {} удалил лайк у фильма с id {}", userId, filmId);
-        return film;
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
     }
 
     /**
@@ -133,4 +334,132 @@ public class FilmService {
         log.info("Получен список популярных фильмов. Количество: {}", popularFilms.size());
         return popularFilms;
     }
-}
\ No newline at end of file
+
+    /**
+     * Получение списка популярных фильмов жанра и (или) рейтинга MPA
+     *
+     * @param count   количество фильмов
+     * @param genreId идентификатор жанра или null
+     * @param mpaId   идентификатор рейтинга MPA или null
+     * @return список популярных фильмов
+     */
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId) {
+        if (genreId == null && mpaId == null) {
+            return getPopularFilms(count);
+        }
+        List<Film> popularFilms = filmStorage.getPopularFilms(count, genreId, mpaId);
+
+        log.info("Получен список популярных фильмов жанра {} и рейтинга {}. Количество: {}",
+                genreId, mpaId, popularFilms.size());
+        return popularFilms;
+    }
+
+    /**
+     * Версия списков популярных фильмов для условных запросов без обращения к базе данных.
+     * Меняется при изменении любого фильма: лайк может поменять порядок во всех списках.
+     *
+     * @return версия
+     */
+    public DataVersion getPopularFilmsVersion() {
+        return DataVersion.latest(dataVersions.of(Table.FILM),
+                dataVersions.of(Table.GENRE), dataVersions.of(Table.MPA));
+    }
+
+    /**
+     * Получение фильмов, набравших больше всего лайков за окно времени
+     *
+     * @param window окно времени
+     * @param decay  упорядочить по оценке с затуханием веса лайков вместо их количества за окно
+     * @param count  количество фильмов
+     * @return список фильмов
+     * @throws ValidationException если количество вне допустимого диапазона
+     */
+    public List<Film> getTrendingFilms(TrendingWindow window, boolean decay, int count) {
+        PageLimits.validatePageLimit(count, MAX_TRENDING_FILMS, "Количество фильмов должно быть");
+        List<Film> films = filmStorage.getTrendingFilms(window, decay, count);
+        log.info("Получен список фильмов, набирающих популярность за окно {}. Количество: {}",
+                window.getCode(), films.size());
+        return films;
+    }
+
+    /**
+     * Получение фильмов, которые чаще всего нравились тем же пользователям, что и заданный фильм
+     *
+     * @param filmId идентификатор фильма
+     * @param count  количество фильмов
+     * @return похожие фильмы по убыванию количества совместных лайков
+     * @throws ValidationException если количество вне допустимого диапазона
+     * @throws NotFoundException   если фильм не найден
+     */
+    public List<Film> getRelatedFilms(int filmId, int count) {
+        PageLimits.validatePageLimit(count, FilmStorage.MAX_RELATED_FILMS, "Количество похожих фильмов должно быть");
+        if (!filmStorage.filmExists(filmId)) {
+            log.warn("Фильм с id {} не найден", filmId);
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
+        List<Film> relatedFilms = filmStorage.getRelatedFilms(filmId, count);
+        log.info("Получен список фильмов, похожих на фильм с id {}. Количество: {}", filmId, relatedFilms.size());
+        return relatedFilms;
+    }
+
+    /**
+     * Получение фильмов с похожей аудиторией: множества пользователей, которым понравились фильмы,
+     * близки по мере Жаккара
+     *
+     * @param filmId идентификатор фильма
+     * @param count  количество фильмов
+     * @return фильмы с оценкой схожести аудитории по убыванию оценки
+     * @throws ValidationException если количество вне допустимого диапазона
+     * @throws NotFoundException   если фильм не найден
+     */
+    public List<FilmSimilarity> getSimilarAudienceFilms(int filmId, int count) {
+        PageLimits.validatePageLimit(count, MAX_SIMILAR_AUDIENCE_FILMS, "Количество фильмов должно быть");
+        if (!filmStorage.filmExists(filmId)) {
+            log.warn("Фильм с id {} не найден", filmId);
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
+        List<FilmSimilarity> similarFilms = filmStorage.getSimilarAudienceFilms(filmId, count);
+        log.info("Получен список фильмов с аудиторией, похожей на аудиторию фильма с id {}. Количество: {}",
+                filmId, similarFilms.size());
+        return similarFilms;
+    }
+
+    /**
+     * Полнотекстовый поиск фильмов по названию и описанию
+     *
+     * @param query текст запроса
+     * @param count количество фильмов
+     * @return найденные фильмы по убыванию релевантности
+     * @throws ValidationException если запрос пуст или количество вне допустимого диапазона
+     */
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            log.warn("Пустой поисковый запрос");
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        PageLimits.validatePageLimit(count, MAX_SEARCH_RESULTS, "Количество результатов поиска должно быть");
+        List<Film> films = filmStorage.searchFilms(query, count);
+        log.info("По запросу '{}' найдено фильмов: {}", query, films.size());
+        return films;
+    }
+
+    /**
+     * Автодополнение названий фильмов по введенному началу
+     *
+     * @param prefix начало названия
+     * @param count  количество вариантов
+     * @return варианты по убыванию количества лайков, затем варианты с опечатками
+     * @throws ValidationException если начало названия пусто или количество вне допустимого диапазона
+     */
+    public List<TitleSuggestion> autocompleteTitles(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            log.warn("Пустое начало названия для автодополнения");
+            throw new ValidationException("Начало названия не может быть пустым");
+        }
+        PageLimits.validatePageLimit(count, MAX_AUTOCOMPLETE_SUGGESTIONS,
+                "Количество вариантов автодополнения должно быть");
+        List<TitleSuggestion> suggestions = filmStorage.autocompleteTitles(prefix, count);
+        log.debug("Для начала названия '{}' найдено вариантов: {}", prefix, suggestions.size());
+        return suggestions;
+    }
+}
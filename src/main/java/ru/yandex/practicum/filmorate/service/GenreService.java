@@ -6,6 +6,9 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
 
 import java.util.List;
 
@@ -17,6 +20,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreStorage genreStorage;
+    private final DataVersions dataVersions;
 
     /**
      * Получение списка всех жанров
@@ -40,4 +44,13 @@ public class GenreService {
         return genreStorage.getGenreById(id)
                 .orElseThrow(() -> new NotFoundException("Жанр с id " + id + " не найден"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Версия справочника жанров для условных запросов
+     *
+     * @return версия
+     */
+    public DataVersion getVersion() {
+        return dataVersions.of(Table.GENRE);
+    }
+}
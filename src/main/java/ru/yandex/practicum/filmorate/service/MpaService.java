@@ -6,6 +6,9 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
 
 import java.util.List;
 
@@ -17,6 +20,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaService {
     private final MpaStorage mpaStorage;
+    private final DataVersions dataVersions;
 
     /**
      * Получение списка всех рейтингов MPA
@@ -40,4 +44,13 @@ public class MpaService {
         return mpaStorage.getMpaById(id)
                 .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id " + id + " не найден"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Версия справочника рейтингов MPA для условных запросов
+     *
+     * @return версия
+     */
+    public DataVersion getVersion() {
+        return dataVersions.of(Table.MPA);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Проверка запрошенного размера страницы и количества элементов в ответе
+ */
+@Slf4j
+final class PageLimits {
+    /**
+     * Максимальный размер страницы при постраничном получении фильмов и пользователей
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private PageLimits() {
+    }
+
+    /**
+     * Проверка размера страницы при постраничном обходе
+     *
+     * @param limit размер страницы
+     * @throws ValidationException если размер страницы вне допустимого диапазона
+     */
+    static void validatePageLimit(int limit) {
+        validatePageLimit(limit, MAX_PAGE_SIZE, "Размер страницы должен быть");
+    }
+
+    /**
+     * Проверка количества элементов в ответе
+     *
+     * @param limit   запрошенное количество
+     * @param max     наибольшее допустимое количество
+     * @param message начало сообщения об ошибке, к которому добавляется допустимый диапазон
+     * @throws ValidationException если количество вне диапазона от 1 до max
+     */
+    static void validatePageLimit(int limit, int max, String message) {
+        if (limit < 1 || limit > max) {
+            log.warn("Некорректное количество элементов: {}. {} от 1 до {}", limit, message, max);
+            throw new ValidationException(message + " от 1 до " + max);
+        }
+    }
+}
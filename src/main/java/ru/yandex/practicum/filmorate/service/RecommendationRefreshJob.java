@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Фоновое обновление соседей пользователей для рекомендаций фильмов
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RecommendationRefreshJob {
+    private final RecommendationService recommendationService;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Запуск загрузки индекса схожести в потоке планировщика после старта приложения,
+     * чтобы запуск не ждал вычисления соседей всех пользователей
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpAfterStart() {
+        taskScheduler.schedule(this::warmUp, Instant.now());
+    }
+
+    /**
+     * Загрузка лайков и вычисление соседей всех пользователей
+     */
+    public void warmUp() {
+        log.info("Запуск загрузки индекса схожести пользователей");
+        recommendationService.warmUpSimilarityIndex();
+    }
+
+    /**
+     * Пересчет соседей пользователей, поставивших или удаливших лайки с прошлого запуска
+     *
+     * @return количество пересчитанных пользователей
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-delay-ms:30000}")
+    public int refreshStale() {
+        int refreshed = recommendationService.refreshStaleNeighbours();
+        if (refreshed > 0) {
+            log.debug("Пересчитаны соседи пользователей: {}", refreshed);
+        }
+        return refreshed;
+    }
+
+    /**
+     * Полный пересчет соседей: учитывает и изменения у тех пользователей, которые сами лайков не ставили
+     *
+     * @return количество пересчитанных пользователей
+     */
+    @Scheduled(cron = "${filmorate.recommendations.full-refresh-cron:0 30 4 * * *}")
+    public int refreshAll() {
+        log.info("Запуск полного пересчета соседей пользователей");
+        int refreshed = recommendationService.refreshAllNeighbours();
+        log.info("Полный пересчет соседей пользователей завершен. Количество пользователей: {}", refreshed);
+        return refreshed;
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис рекомендаций фильмов на основе лайков похожих пользователей
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RecommendationService {
+    /**
+     * Максимальное количество рекомендованных фильмов в одном ответе
+     */
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    @Qualifier("filmDbStorage")
+    private final FilmStorage filmStorage;
+
+    @Qualifier("userDbStorage")
+    private final UserStorage userStorage;
+
+    private final UserSimilarityIndex similarityIndex = new UserSimilarityIndex();
+
+    /**
+     * Изменения лайков, пришедшие во время загрузки матрицы: {filmId, userId, 1 - добавлен, 0 - удален}.
+     * После загрузки применяются в порядке поступления и сбрасываются в null.
+     */
+    private List<int[]> likesDuringWarmUp = new ArrayList<>();
+
+    /**
+     * Признак завершения загрузки: до него рекомендации пусты, а пересчет устаревших соседей не выполняется
+     */
+    private volatile boolean warmedUp;
+
+    /**
+     * Загрузка лайков из хранилища и вычисление соседей всех пользователей.
+     * На больших данных занимает десятки секунд, поэтому выполняется в фоне после запуска приложения;
+     * до ее завершения рекомендации пусты. Лайки, поставленные и удаленные во время загрузки,
+     * применяются после нее в порядке поступления, поэтому чтение таблицы лайков не затирает их.
+     */
+    public void warmUpSimilarityIndex() {
+        filmStorage.forEachLike(similarityIndex::addLike);
+        synchronized (this) {
+            likesDuringWarmUp.forEach(this::applyLikeChange);
+            likesDuringWarmUp = null;
+        }
+        int users = similarityIndex.refreshAll();
+        warmedUp = true;
+        log.info("Индекс схожести пользователей загружен. Количество пользователей: {}", users);
+    }
+
+    /**
+     * Проверка завершения загрузки индекса
+     *
+     * @return true, если соседи всех пользователей вычислены
+     */
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    /**
+     * Получение рекомендованных фильмов для пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество фильмов
+     * @return фильмы, которые понравились похожим пользователям, по убыванию оценки
+     * @throws ValidationException если количество фильмов некорректно
+     * @throws NotFoundException   если пользователь не найден
+     */
+    public List<Film> getRecommendations(int userId, int limit) {
+        PageLimits.validatePageLimit(limit, MAX_RECOMMENDATIONS, "Количество рекомендаций должно быть");
+        if (!userStorage.userExists(userId)) {
+            log.warn("Пользователь с id {} не найден", userId);
+            throw new NotFoundException("Пользователь с id " + userId + " не найден");
+        }
+        List<Film> films = filmStorage.getFilmsByIds(similarityIndex.recommend(userId, limit));
+
+        log.info("Получены рекомендации фильмов для пользователя с id {}. Количество: {}", userId, films.size());
+        return films;
+    }
+
+    /**
+     * Учет нового лайка: соседи пользователя будут пересчитаны при следующем обновлении
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void onLikeAdded(int filmId, int userId) {
+        onLikeChanged(new int[]{filmId, userId, 1});
+    }
+
+    /**
+     * Учет удаленного лайка: соседи пользователя будут пересчитаны при следующем обновлении
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void onLikeRemoved(int filmId, int userId) {
+        onLikeChanged(new int[]{filmId, userId, 0});
+    }
+
+    /**
+     * Пересчет соседей пользователей, лайки которых изменились
+     *
+     * @return количество пересчитанных пользователей
+     */
+    public int refreshStaleNeighbours() {
+        return warmedUp ? similarityIndex.refreshStale() : 0;
+    }
+
+    /**
+     * Пересчет соседей всех пользователей
+     *
+     * @return количество пересчитанных пользователей
+     */
+    public int refreshAllNeighbours() {
+        return warmedUp ? similarityIndex.refreshAll() : 0;
+    }
+
+    private void onLikeChanged(int[] change) {
+        if (!warmedUp) {
+            synchronized (this) {
+                if (likesDuringWarmUp != null) {
+                    likesDuringWarmUp.add(change);
+                    return;
+                }
+            }
+        }
+        applyLikeChange(change);
+    }
+
+    private void applyLikeChange(int[] change) {
+        if (change[2] == 1) {
+            similarityIndex.addLike(change[0], change[1]);
+        } else {
+            similarityIndex.removeLike(change[0], change[1]);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
+
+import java.util.Map;
+
+/**
+ * Сервис для управления кэшем справочников
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReferenceDataService {
+    private final ReferenceDataCache referenceDataCache;
+    private final DataVersions dataVersions;
+
+    /**
+     * Перезагрузка справочников рейтингов MPA и жанров из базы данных
+     *
+     * @return количество загруженных рейтингов MPA и жанров
+     */
+    public Map<String, Integer> reload() {
+        log.info("Перезагрузка справочников");
+        referenceDataCache.reload();
+        // Названия жанров и рейтингов могли измениться, поэтому выданные теги справочников и фильмов устаревают
+        dataVersions.changed(Table.GENRE);
+        dataVersions.changed(Table.MPA);
+        return Map.of(
+                "mpa", referenceDataCache.getAllMpa().size(),
+                "genres", referenceDataCache.getAllGenres().size());
+    }
+}
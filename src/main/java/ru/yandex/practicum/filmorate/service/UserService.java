@@ -4,15 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 
 /**
  * Сервис для работы с пользователями
@@ -21,9 +24,16 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 @Slf4j
 @RequiredArgsConstructor
 public class UserService {
+    /**
+     * Максимальное количество рекомендаций в друзья в одном ответе
+     */
+    public static final int MAX_SUGGESTIONS = 100;
+
     @Qualifier("userDbStorage")
     private final UserStorage userStorage;
 
+    private final DataVersions dataVersions;
+
     /**
      * Получение списка всех пользователей
      *
@@ -33,6 +43,37 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    /**
+     * Получение страницы пользователей по курсору
+     *
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой страницы
+     * @param limit  размер страницы
+     * @return страница пользователей с курсором следующей страницы
+     * @throws ValidationException если курсор или размер страницы некорректны
+     */
+    public Page<User> getUsersPage(String cursor, int limit) {
+        PageLimits.validatePageLimit(limit);
+        // Запрашиваем на один элемент больше, чтобы узнать, есть ли следующая страница
+        List<User> users = userStorage.getUsersPage(Page.decodeCursor(cursor), limit + 1);
+        String nextCursor = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            nextCursor = Page.encodeCursor(users.get(limit - 1).getId());
+        }
+        log.info("Получена страница пользователей. Количество: {}", users.size());
+        return new Page<>(users, nextCursor);
+    }
+
+    /**
+     * Последовательная выгрузка всех пользователей
+     *
+     * @param action действие, выполняемое для каждого пользователя
+     */
+    public void exportUsers(Consumer<User> action) {
+        log.info("Выгрузка всех пользователей");
+        userStorage.forEachUser(action);
+    }
+
     /**
      * Создание нового пользователя
      *
@@ -65,6 +106,22 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + id + " не найден"));
     }
 
+    /**
+     * Версия пользователя для условных запросов без загрузки пользователя.
+     * Наличие проверяется запросом по первичному ключу: у неизвестного пользователя нет своей версии,
+     * и начальная версия совпала бы с тегом любого другого пользователя, не менявшегося с запуска.
+     *
+     * @param id идентификатор пользователя
+     * @return версия
+     */
+    public DataVersion getUserVersion(int id) {
+        if (!userStorage.userExists(id)) {
+            log.warn("Пользователь с id {} не найден", id);
+            throw new NotFoundException("Пользователь с id " + id + " не найден");
+        }
+        return dataVersions.of(Table.USER, id);
+    }
+
     /**
      * Добавление в друзья (односторонняя дружба)
      *
@@ -77,14 +134,14 @@ public class UserService {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
         // Проверяем, что друг существует
-        userStorage.getUserById(friendId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + friendId + " не найден"));
+        if (!userStorage.userExists(friendId)) {
+            throw new NotFoundException("Пользователь с id " + friendId + " не найден");
+        }
 
+        // В хранилище меняется только одна связь, остальные друзья не перезаписываются
+        userStorage.addFriend(userId, friendId);
         user.addFriend(friendId);
 
-        // Обновляем пользователя в хранилище
-        userStorage.updateUser(user);
-
         log.info("Пользователь с id {} добавил в друзья пользователя с id {}", userId, friendId);
         return user;
     }
@@ -101,41 +158,74 @@ public class UserService {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
         // Проверяем, что друг существует
-        userStorage.getUserById(friendId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + friendId + " не найден"));
+        if (!userStorage.userExists(friendId)) {
+            throw new NotFoundException("Пользователь с id " + friendId + " не найден");
+        }
 
+        // В хранилище меняется только одна связь, остальные друзья не перезаписываются
+        userStorage.removeFriend(userId, friendId);
         user.removeFriend(friendId);
 
-        // Обновляем пользователя в хранилище
-        userStorage.updateUser(user);
-
         log.info("Пользователь с id {} удалил из друзей пользователя с id {}", userId, friendId);
         return user;
     }
 
     /**
-     * Получение списка друзей пользователя
+     * Получение списка друзей пользователя вместе с их множествами друзей
      *
      * @param userId идентификатор пользователя
      * @return список друзей
      * @throws NotFoundException если пользователь не найден
      */
     public List<User> getFriends(int userId) {
-        User user = userStorage.getUserById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
-        List<User> friends = new ArrayList<>();
+        return getFriends(userId, true);
+    }
 
-        for (Integer friendId : user.getFriends()) {
-            userStorage.getUserById(friendId)
-                    .ifPresent(friends::add);
+    /**
+     * Получение списка друзей пользователя.
+     * Друзья загружаются из хранилища одним запросом независимо от их количества.
+     *
+     * @param userId         идентификатор пользователя
+     * @param withFriendSets загружать ли множества друзей самих друзей
+     * @return список друзей
+     * @throws NotFoundException если пользователь не найден
+     */
+    public List<User> getFriends(int userId, boolean withFriendSets) {
+        if (!userStorage.userExists(userId)) {
+            log.warn("Пользователь с id {} не найден", userId);
+            throw new NotFoundException("Пользователь с id " + userId + " не найден");
         }
+        List<User> friends = userStorage.getFriends(userId, withFriendSets);
 
         log.info("Получен список друзей пользователя с id {}. Количество: {}", userId, friends.size());
         return friends;
     }
 
     /**
-     * Получение списка общих друзей
+     * Получение рекомендаций в друзья по количеству общих друзей
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество рекомендаций
+     * @return рекомендации по убыванию количества общих друзей
+     * @throws ValidationException если количество рекомендаций некорректно
+     * @throws NotFoundException   если пользователь не найден
+     */
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int limit) {
+        PageLimits.validatePageLimit(limit, MAX_SUGGESTIONS, "Количество рекомендаций должно быть");
+        if (!userStorage.userExists(userId)) {
+            log.warn("Пользователь с id {} не найден", userId);
+            throw new NotFoundException("Пользователь с id " + userId + " не найден");
+        }
+        List<FriendSuggestion> suggestions = userStorage.getFriendSuggestions(userId, limit);
+
+        log.info("Получены рекомендации в друзья для пользователя с id {}. Количество: {}",
+                userId, suggestions.size());
+        return suggestions;
+    }
+
+    /**
+     * Получение списка общих друзей.
+     * Пересечение списков друзей выполняет хранилище, сервис только проверяет существование пользователей.
      *
      * @param userId    идентификатор первого пользователя
      * @param otherId   идентификатор второго пользователя
@@ -143,21 +233,16 @@ public class UserService {
      * @throws NotFoundException если пользователь не найден
      */
     public List<User> getCommonFriends(int userId, int otherId) {
-        User user = userStorage.getUserById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
-        User otherUser = userStorage.getUserById(otherId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id " + otherId + " не найден"));
-
-        Set<Integer> commonFriendsIds = new HashSet<>(user.getFriends());
-        commonFriendsIds.retainAll(otherUser.getFriends());
-
-        List<User> commonFriends = commonFriendsIds.stream()
-                .map(id -> userStorage.getUserById(id)
-                        .orElseThrow(() -> new NotFoundException("Пользователь с id " + id + " не найден")))
-                .collect(Collectors.toList());
+        for (int id : new int[]{userId, otherId}) {
+            if (!userStorage.userExists(id)) {
+                log.warn("Пользователь с id {} не найден", id);
+                throw new NotFoundException("Пользователь с id " + id + " не найден");
+            }
+        }
+        List<User> commonFriends = userStorage.getCommonFriends(userId, otherId);
 
         log.info("Получен список общих друзей пользователей с id {} и {}. Количество: {}",
                 userId, otherId, commonFriends.size());
         return commonFriends;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.TopIds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс совместных лайков фильмов для подбора похожих фильмов.
+ * Для каждого фильма хранится ограниченный список фильмов, которые чаще всего нравились тем же
+ * пользователям. Список обновляется при каждом добавлении и удалении лайка, поэтому запрос похожих
+ * фильмов сводится к сортировке нескольких десятков счетчиков.
+ * <p>
+ * Память ограничена: у фильма не больше CAPACITY счетчиков (вытеснение по алгоритму Space-Saving -
+ * новый фильм занимает место счетчика с наименьшим значением и наследует его), а у пользователя хранится
+ * выборка не больше чем из MAX_LIKES_PER_USER его фильмов. Поэтому значения счетчиков приближенные,
+ * но фильмы с большим числом совместных лайков из списка не вытесняются.
+ * <p>
+ * В выборку попадают фильмы с наименьшим значением хеша идентификатора. Принадлежность фильма выборке
+ * не зависит от того, сколько еще фильмов у пользователя, поэтому счетчики пар увеличиваются и уменьшаются
+ * для одних и тех же фильмов: каждый счетчик равен числу пользователей, в выборке которых есть оба фильма.
+ */
+public class CoLikeIndex {
+    /**
+     * Количество счетчиков на фильм. Запас относительно FilmStorage.MAX_RELATED_FILMS нужен, чтобы вытеснение
+     * затрагивало только хвост списка.
+     */
+    static final int CAPACITY = 128;
+
+    /**
+     * Максимальный размер выборки фильмов пользователя, с которыми сопоставляются его лайки
+     */
+    static final int MAX_LIKES_PER_USER = 500;
+
+    private final Map<Integer, IntHashSet> sampleByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, TopCounts> relatedByFilm = new ConcurrentHashMap<>();
+
+    /**
+     * Полное построение индекса по лайкам всех пользователей.
+     * Для каждого фильма совместные лайки считаются точно в примитивной таблице по пользователям,
+     * которым он понравился, и в индекс попадают CAPACITY наибольших счетчиков. Фильмы обрабатываются
+     * параллельно, каждый - в своей таблице, поэтому построение не требует блокировок.
+     *
+     * @param likes множества фильмов, которые понравились пользователям, по идентификаторам пользователей
+     */
+    public void rebuild(Map<Integer, IntHashSet> likes) {
+        Map<Integer, int[]> samples = new HashMap<>();
+        IntCountMap likeCounts = new IntCountMap();
+        likes.forEach((userId, films) -> {
+            int[] sample = sample(films.toIntArray());
+            samples.put(userId, sample);
+            for (int filmId : sample) {
+                likeCounts.increment(filmId);
+            }
+        });
+        // Пользователи каждого фильма в плоских массивах, размер которых известен заранее
+        Map<Integer, int[]> usersByFilm = new HashMap<>();
+        likeCounts.forEach((filmId, count) -> usersByFilm.put(filmId, new int[count]));
+        IntCountMap filled = new IntCountMap(usersByFilm.size());
+        samples.forEach((userId, sample) -> {
+            for (int filmId : sample) {
+                int position = filled.get(filmId);
+                usersByFilm.get(filmId)[position] = userId;
+                filled.increment(filmId);
+            }
+        });
+
+        sampleByUser.clear();
+        relatedByFilm.clear();
+        samples.forEach((userId, sample) -> {
+            IntHashSet films = new IntHashSet(sample.length);
+            for (int filmId : sample) {
+                films.add(filmId);
+            }
+            sampleByUser.put(userId, films);
+        });
+        usersByFilm.entrySet().parallelStream().forEach(entry -> {
+            int filmId = entry.getKey();
+            IntCountMap coLikes = new IntCountMap();
+            for (int userId : entry.getValue()) {
+                for (int otherId : samples.get(userId)) {
+                    if (otherId != filmId) {
+                        coLikes.increment(otherId);
+                    }
+                }
+            }
+            if (coLikes.size() > 0) {
+                relatedByFilm.put(filmId, TopCounts.of(coLikes));
+            }
+        });
+    }
+
+    /**
+     * Учет лайка: счетчики совместных лайков фильма с остальными фильмами выборки пользователя увеличиваются.
+     * Если выборка заполнена, фильм попадает в нее только вместо фильма с наибольшим хешем,
+     * и счетчики вытесненного фильма уменьшаются.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void addLike(int filmId, int userId) {
+        IntHashSet sample = sampleByUser.computeIfAbsent(userId, key -> new IntHashSet());
+        int[] others;
+        int evictedId;
+        // Снимок выборки берется вместе с ее изменением, чтобы параллельные лайки одного
+        // пользователя учли пару ровно один раз
+        synchronized (sample) {
+            if (sample.contains(filmId)) {
+                return;
+            }
+            others = sample.toIntArray();
+            if (others.length < MAX_LIKES_PER_USER) {
+                sample.add(filmId);
+                evictedId = filmId;
+            } else {
+                evictedId = others[0];
+                for (int otherId : others) {
+                    if (rank(otherId) > rank(evictedId)) {
+                        evictedId = otherId;
+                    }
+                }
+                if (rank(filmId) > rank(evictedId)) {
+                    return;
+                }
+                sample.remove(evictedId);
+                sample.add(filmId);
+            }
+        }
+        if (evictedId != filmId) {
+            adjust(evictedId, others, -1);
+            // Новый фильм сопоставляется с той же выборкой, но без вытесненного фильма
+            for (int i = 0; i < others.length; i++) {
+                if (others[i] == evictedId) {
+                    others[i] = filmId;
+                }
+            }
+        }
+        adjust(filmId, others, 1);
+    }
+
+    /**
+     * Учет удаления лайка: если фильм был в выборке пользователя, счетчики его совместных лайков
+     * с остальными фильмами выборки уменьшаются
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void removeLike(int filmId, int userId) {
+        IntHashSet sample = sampleByUser.get(userId);
+        if (sample == null) {
+            return;
+        }
+        int[] others;
+        synchronized (sample) {
+            if (!sample.remove(filmId)) {
+                return;
+            }
+            others = sample.toIntArray();
+        }
+        adjust(filmId, others, -1);
+    }
+
+    /**
+     * Получение фильмов, чаще всего нравившихся вместе с заданным
+     *
+     * @param filmId идентификатор фильма
+     * @param count  максимальное количество фильмов
+     * @return идентификаторы фильмов по убыванию количества совместных лайков, при равенстве - по возрастанию id
+     */
+    public List<Integer> getRelated(int filmId, int count) {
+        TopCounts counts = relatedByFilm.get(filmId);
+        return counts == null ? new ArrayList<>() : counts.top(Math.min(count, FilmStorage.MAX_RELATED_FILMS));
+    }
+
+    /**
+     * Количество фильмов, для которых есть хотя бы один счетчик
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        return relatedByFilm.size();
+    }
+
+    private void adjust(int filmId, int[] others, int delta) {
+        for (int otherId : others) {
+            if (otherId == filmId) {
+                continue;
+            }
+            counts(filmId).add(otherId, delta);
+            counts(otherId).add(filmId, delta);
+        }
+    }
+
+    /**
+     * Выборка фильмов пользователя, с которыми сопоставляются его лайки
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы фильмов по возрастанию
+     */
+    int[] sampleOf(int userId) {
+        IntHashSet sample = sampleByUser.get(userId);
+        if (sample == null) {
+            return new int[0];
+        }
+        synchronized (sample) {
+            return sample.toSortedArray();
+        }
+    }
+
+    /**
+     * Выборка из MAX_LIKES_PER_USER фильмов с наименьшим хешем
+     */
+    private static int[] sample(int[] films) {
+        if (films.length <= MAX_LIKES_PER_USER) {
+            return films;
+        }
+        long[] ranks = new long[films.length];
+        for (int i = 0; i < films.length; i++) {
+            ranks[i] = rank(films[i]);
+        }
+        Arrays.sort(ranks);
+        long threshold = ranks[MAX_LIKES_PER_USER - 1];
+        int[] sample = new int[MAX_LIKES_PER_USER];
+        int size = 0;
+        for (int filmId : films) {
+            if (rank(filmId) <= threshold) {
+                sample[size++] = filmId;
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Хеш идентификатора фильма для выборки (финализатор MurmurHash3).
+     * Отображение взаимно однозначное, поэтому у разных фильмов хеши не совпадают.
+     */
+    private static long rank(int filmId) {
+        long h = filmId;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB93FE1A85B9L;
+        return h ^ (h >>> 33);
+    }
+
+    private TopCounts counts(int filmId) {
+        return relatedByFilm.computeIfAbsent(filmId, key -> new TopCounts());
+    }
+
+    /**
+     * Ограниченный набор счетчиков совместных лайков одного фильма.
+     * Массивы растут по мере заполнения до CAPACITY элементов, поиск счетчика - линейный.
+     */
+    private static final class TopCounts {
+        private int[] ids = new int[8];
+        private int[] counts = new int[8];
+        private int size;
+
+        /**
+         * Создание набора из CAPACITY наибольших точных счетчиков
+         *
+         * @param coLikes количество совместных лайков по идентификаторам фильмов
+         * @return набор счетчиков
+         */
+        static TopCounts of(IntCountMap coLikes) {
+            long[] ranks = new long[coLikes.size()];
+            int[] position = {0};
+            coLikes.forEach((id, count) -> ranks[position[0]++] = TopIds.rank(id, count));
+            Arrays.sort(ranks);
+            TopCounts top = new TopCounts();
+            int size = Math.min(ranks.length, CAPACITY);
+            top.ids = new int[Math.max(size, 1)];
+            top.counts = new int[top.ids.length];
+            for (int i = 0; i < size; i++) {
+                long rank = ranks[ranks.length - 1 - i];
+                top.ids[i] = TopIds.idOf(rank);
+                top.counts[i] = TopIds.countOf(rank);
+            }
+            top.size = size;
+            return top;
+        }
+
+        synchronized void add(int id, int delta) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    counts[i] += delta;
+                    if (counts[i] <= 0) {
+                        // На место удаленного счетчика переносится последний
+                        size--;
+                        ids[i] = ids[size];
+                        counts[i] = counts[size];
+                    }
+                    return;
+                }
+            }
+            if (delta <= 0) {
+                return;
+            }
+            if (size < CAPACITY) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.min(Math.max(size * 2, 8), CAPACITY));
+                    counts = Arrays.copyOf(counts, ids.length);
+                }
+                ids[size] = id;
+                counts[size] = delta;
+                size++;
+                return;
+            }
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            ids[min] = id;
+            counts[min] += delta;
+        }
+
+        synchronized List<Integer> top(int count) {
+            long[] ranks = new long[size];
+            for (int i = 0; i < size; i++) {
+                ranks[i] = TopIds.rank(ids[i], counts[i]);
+            }
+            Arrays.sort(ranks);
+            List<Integer> top = new ArrayList<>(Math.min(count, size));
+            for (int i = ranks.length - 1; i >= 0 && top.size() < count; i--) {
+                top.add(TopIds.idOf(ranks[i]));
+            }
+            return top;
+        }
+    }
+}
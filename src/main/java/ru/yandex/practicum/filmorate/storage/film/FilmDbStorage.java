@@ -1,23 +1,52 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Реализация хранилища фильмов в базе данных
@@ -27,45 +56,250 @@ import java.util.Set;
 @Slf4j
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final String SELECT_FILMS = "SELECT f.* FROM film f ";
+    private static final String MERGE_SIGNATURE = "MERGE INTO film_minhash (film_id, signature) KEY (film_id) " +
+            "VALUES (?, ?)";
+    private static final String INSERT_FILM = "INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
     private final GenreStorage genreStorage;
     private final MpaStorage mpaStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersions dataVersions;
+    private final FilmIndexes indexes = new FilmIndexes();
+
+    /**
+     * Прогрев индексов фильмов в памяти по таблицам film, film_genre, likes и film_minhash.
+     * Таблицы читаются курсором с заданным fetch size.
+     */
+    @PostConstruct
+    public void warmUpIndexes() {
+        indexes.warmUp(new FilmIndexes.Source() {
+            @Override
+            public void forEachFilm(FilmIndexes.FilmRowConsumer action) {
+                String sql = SELECT_FILMS + "ORDER BY f.film_id";
+                queryStreaming(sql, rs -> {
+                    action.accept(mapRowToFilm(rs, 0), rs.getInt("like_count"));
+                });
+            }
+
+            @Override
+            public void forEachFilmGenre(BiConsumer<Integer, Integer> action) {
+                jdbcTemplate.query("SELECT film_id, genre_id FROM film_genre", rs -> {
+                    action.accept(rs.getInt("film_id"), rs.getInt("genre_id"));
+                });
+            }
+
+            @Override
+            public void forEachLike(LikeConsumer action) {
+                FilmDbStorage.this.forEachLike(action);
+            }
+
+            @Override
+            public void forEachLikeSince(long since, TrendingIndex.TimedLikeConsumer action) {
+                // Читаются только строки окна по индексу на времени лайка
+                jdbcTemplate.query("SELECT film_id, liked_at FROM likes WHERE liked_at > ?", rs -> {
+                    action.accept(rs.getInt("film_id"), rs.getTimestamp("liked_at").getTime());
+                }, new Timestamp(since));
+            }
+
+            @Override
+            public void forEachSignature(BiConsumer<Integer, int[]> action) {
+                jdbcTemplate.query("SELECT film_id, signature FROM film_minhash", rs -> {
+                    byte[] bytes = rs.getBytes("signature");
+                    if (bytes.length == MinHashIndex.HASHES * Integer.BYTES) {
+                        action.accept(rs.getInt("film_id"), fromBytes(bytes));
+                    }
+                });
+            }
+
+            @Override
+            public Map<Integer, IntHashSet> getLikes(Collection<Integer> filmIds) {
+                Map<Integer, IntHashSet> usersByFilm = new HashMap<>();
+                jdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id = ANY(?)", rs -> {
+                    usersByFilm.computeIfAbsent(rs.getInt("film_id"), key -> new IntHashSet())
+                            .add(rs.getInt("user_id"));
+                }, (Object) filmIds.toArray(new Integer[0]));
+                return usersByFilm;
+            }
+
+            @Override
+            public void saveSignatures(Map<Integer, int[]> signatures) {
+                jdbcTemplate.batchUpdate(MERGE_SIGNATURE, new ArrayList<>(signatures.entrySet()), signatures.size(),
+                        (ps, entry) -> {
+                            ps.setInt(1, entry.getKey());
+                            ps.setBytes(2, toBytes(entry.getValue()));
+                        });
+            }
+        });
+    }
+
+    /**
+     * Удаление из поискового индекса прежних версий обновленных фильмов
+     *
+     * @return true, если уплотнение выполнено
+     */
+    public boolean compactSearchIndex() {
+        return indexes.compactSearchIndex();
+    }
 
     @Override
     public List<Film> getAllFilms() {
-        String sql = "SELECT * FROM film";
+        String sql = SELECT_FILMS + "ORDER BY f.film_id";
         log.debug("Получение списка всех фильмов");
-        return jdbcTemplate.query(sql, this::mapRowToFilm);
+        return loadFilms(sql);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        String sql = SELECT_FILMS + "WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?";
+        log.debug("Получение страницы фильмов после id {} размером {}", afterId, limit);
+        return loadFilms(sql, afterId, limit);
     }
 
     /**
-     * Получение списка популярных фильмов
+     * Потоковый обход всех фильмов.
+     * Строки читаются курсором с заданным fetch size, жанры и лайки догружаются пачками по
+     * EXPORT_CHUNK_SIZE фильмов, поэтому расход памяти не зависит от размера каталога.
+     *
+     * @param action действие, выполняемое для каждого фильма в порядке возрастания идентификатора
+     */
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        String sql = SELECT_FILMS + "ORDER BY f.film_id";
+        List<Film> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        log.debug("Потоковый обход всех фильмов");
+        queryStreaming(sql, rs -> {
+            chunk.add(mapRowToFilm(rs, 0));
+            if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                emitChunk(chunk, action);
+            }
+        });
+        emitChunk(chunk, action);
+    }
+
+    /**
+     * Потоковый обход таблицы likes курсором с заданным fetch size
+     *
+     * @param action действие, выполняемое для каждого лайка
+     */
+    @Override
+    public void forEachLike(LikeConsumer action) {
+        String sql = "SELECT film_id, user_id FROM likes";
+        log.debug("Потоковый обход всех лайков");
+        queryStreaming(sql, rs -> {
+            action.accept(rs.getInt("film_id"), rs.getInt("user_id"));
+        });
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        log.debug("Получение {} фильмов по списку идентификаторов", filmIds.size());
+        return loadFilmsByIds(filmIds);
+    }
+
+    /**
+     * Получение списка популярных фильмов.
+     * Порядок берется из индекса популярности в памяти, из базы загружаются только сами фильмы.
+     *
      * @param count количество фильмов
      * @return список популярных фильмов
      */
+    @Override
     public List<Film> getPopularFilms(int count) {
-        String sql = "SELECT f.*, " +
-                "COUNT(l.user_id) as like_count " +
-                "FROM film f " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY like_count DESC, f.film_id DESC " +
-                "LIMIT ?";
+        return loadFilmsByIds(indexes.getPopular(count));
+    }
 
-        return jdbcTemplate.query(sql, this::mapRowToFilm, count);
+    /**
+     * Получение популярных фильмов жанра и (или) рейтинга MPA из таблиц лидеров в памяти
+     *
+     * @param count   количество фильмов
+     * @param genreId идентификатор жанра или null
+     * @param mpaId   идентификатор рейтинга MPA или null
+     * @return список популярных фильмов
+     */
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId) {
+        return loadFilmsByIds(indexes.getPopular(count, genreId, mpaId));
     }
 
+    /**
+     * Получение фильмов, набирающих популярность, из индекса в памяти без обращения к таблице likes
+     *
+     * @param window окно времени
+     * @param decay  упорядочить по оценке с затуханием вместо количества лайков за окно
+     * @param count  количество фильмов
+     * @return список фильмов
+     */
+    @Override
+    public List<Film> getTrendingFilms(TrendingWindow window, boolean decay, int count) {
+        return loadFilmsByIds(indexes.getTrending(window, decay, count));
+    }
+
+    @Override
+    public List<Film> getRelatedFilms(int filmId, int count) {
+        log.debug("Получение {} фильмов, похожих на фильм с id {}", count, filmId);
+        return loadFilmsByIds(indexes.getRelated(filmId, count));
+    }
+
+    /**
+     * Полнотекстовый поиск фильмов.
+     * Порядок берется из поискового индекса в памяти, из базы загружаются только найденные фильмы.
+     *
+     * @param query текст запроса
+     * @param count максимальное количество фильмов
+     * @return найденные фильмы по убыванию релевантности
+     */
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        log.debug("Поиск не более {} фильмов по запросу '{}'", count, query);
+        return loadFilmsByIds(indexes.search(query, count));
+    }
+
+    /**
+     * Отбор фильмов по жанрам, рейтингам MPA и годам выхода.
+     * Идентификаторы отбираются по битовым индексам в памяти, из базы загружаются только фильмы страницы.
+     */
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int afterId, int limit) {
+        log.debug("Отбор не более {} фильмов по условиям {} после id {}", limit, filter, afterId);
+        return loadFilmsByIds(indexes.find(filter, afterId, limit));
+    }
+
+    @Override
+    public List<TitleSuggestion> autocompleteTitles(String prefix, int count) {
+        log.debug("Автодополнение не более {} названий по началу '{}'", count, prefix);
+        return indexes.autocomplete(prefix, count);
+    }
+
+    @Override
+    public List<FilmSimilarity> getSimilarAudienceFilms(int filmId, int count) {
+        log.debug("Получение {} фильмов с аудиторией, похожей на аудиторию фильма с id {}", count, filmId);
+        return loadFilmsByIds(indexes.findSimilarAudience(filmId, count)).stream()
+                .map(film -> new FilmSimilarity(film, indexes.audienceSimilarity(filmId, film.getId())))
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * Добавление фильма. Рейтинг MPA и жанры проверяются по кэшу справочников до записи,
+     * а фильм и его жанры записываются в одной транзакции: иначе ошибка в жанрах оставила бы
+     * в базе фильм, которого нет в индексах.
+     */
     @Override
+    @Transactional
     public Film addFilm(Film film) {
-        // Проверяем существование рейтинга MPA перед добавлением фильма
-        Optional<ru.yandex.practicum.filmorate.model.Mpa> mpaOptional = mpaStorage.getMpaById(film.getMpa().getId());
-        if (mpaOptional.isEmpty()) {
-            throw new NotFoundException("Рейтинг MPA с id " + film.getMpa().getId() + " не найден");
+        String error = resolveReferences(film);
+        if (error != null) {
+            throw new NotFoundException(error);
         }
 
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("film")
+                .usingColumns("name", "description", "release_date", "duration", "mpa_id")
                 .usingGeneratedKeyColumns("film_id");
 
         Map<String, Object> values = Map.of(
@@ -80,23 +314,57 @@ public class FilmDbStorage implements FilmStorage {
         film.setId(key.intValue());
 
         // Добавляем жанры фильма
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+        if (!film.getGenres().isEmpty()) {
             genreStorage.addGenresToFilm(film.getId(), film.getGenres());
         }
-
-        // Загружаем полную информацию о рейтинге MPA
-        film.setMpa(mpaOptional.get());
+        afterCommit(List.of(film.getId()), () -> indexes.filmAdded(film, new IntHashSet()));
 
         log.debug("Фильм успешно добавлен: {}", film);
         return film;
     }
 
+    /**
+     * Пакетное добавление фильмов.
+     * Рейтинги MPA и жанры проверяются по кэшу справочников без обращения к базе данных.
+     * Корректные фильмы записываются частями по IMPORT_CHUNK_SIZE: каждая часть - отдельная
+     * транзакция из одного пакетного INSERT фильмов и одного пакетного INSERT жанров.
+     * Ошибка записи части отклоняет только фильмы этой части.
+     *
+     * @param films список фильмов
+     * @return результат с идентификаторами в порядке фильмов пакета
+     */
     @Override
+    public BatchResult addFilms(List<Film> films) {
+        BatchResult result = new BatchResult(films.size());
+        List<Integer> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        for (int i = 0; i < films.size(); i++) {
+            String error = resolveReferences(films.get(i));
+            if (error != null) {
+                result.reject(i, error);
+                continue;
+            }
+            chunk.add(i);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(films, chunk, result);
+            }
+        }
+        importChunk(films, chunk, result);
+        result.sortErrors();
+        log.debug("Пакетное добавление фильмов завершено. Добавлено: {}, отклонено: {}",
+                films.size() - result.getErrors().size(), result.getErrors().size());
+        return result;
+    }
+
+    /**
+     * Обновление фильма. Как и при добавлении, ссылки на справочники проверяются до записи,
+     * а строка фильма и его жанры меняются в одной транзакции.
+     */
+    @Override
+    @Transactional
     public Film updateFilm(Film film) {
-        // Проверяем существование рейтинга MPA перед обновлением фильма
-        Optional<ru.yandex.practicum.filmorate.model.Mpa> mpaOptional = mpaStorage.getMpaById(film.getMpa().getId());
-        if (mpaOptional.isEmpty()) {
-            throw new NotFoundException("Рейтинг MPA с id " + film.getMpa().getId() + " не найден");
+        String error = resolveReferences(film);
+        if (error != null) {
+            throw new NotFoundException(error);
         }
 
         String sql = "UPDATE film SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE film_id = ?";
@@ -115,78 +383,403 @@ public class FilmDbStorage implements FilmStorage {
 
         // Обновляем жанры фильма
         genreStorage.deleteGenresFromFilm(film.getId());
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+        if (!film.getGenres().isEmpty()) {
             genreStorage.addGenresToFilm(film.getId(), film.getGenres());
         }
+        afterCommit(List.of(film.getId()), () -> indexes.filmUpdated(film));
 
-        // Обновляем лайки
-        updateLikes(film);
-
-        // Загружаем полную информацию о рейтинге MPA
-        film.setMpa(mpaOptional.get());
-
-        // Загружаем жанры
-        film.setGenres(genreStorage.getGenresByFilmId(film.getId()));
+        // Лайки изменяются только через addLike/removeLike, поэтому возвращаем актуальное состояние фильма
+        Film updatedFilm = getFilmById(film.getId())
+                .orElseThrow(() -> new NotFoundException("Фильм с id " + film.getId() + " не найден"));
 
-        log.debug("Фильм успешно обновлен: {}", film);
-        return film;
+        log.debug("Фильм успешно обновлен: {}", updatedFilm);
+        return updatedFilm;
     }
 
     @Override
     public Optional<Film> getFilmById(int id) {
-        String sql = "SELECT * FROM film WHERE film_id = ?";
-        try {
-            Film film = jdbcTemplate.queryForObject(sql, this::mapRowToFilm, id);
-            if (film != null) {
-                // Загружаем жанры
-                film.setGenres(genreStorage.getGenresByFilmId(id));
-            }
-            return Optional.ofNullable(film);
-        } catch (Exception e) {
+        String sql = SELECT_FILMS + "WHERE f.film_id = ?";
+        List<Film> films = loadFilms(sql, id);
+        if (films.isEmpty()) {
             log.warn("Фильм с id {} не найден", id);
             return Optional.empty();
         }
+        return Optional.of(films.get(0));
     }
 
+    /**
+     * Проверка существования фильма по индексу популярности без обращения к базе данных:
+     * в индекс попадает каждый фильм при прогреве и при добавлении
+     */
     @Override
     public boolean filmExists(int id) {
-        String sql = "SELECT COUNT(*) FROM film WHERE film_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        return count != null && count > 0;
+        return indexes.contains(id);
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        String sql = "INSERT INTO likes (film_id, user_id, liked_at) " +
+                "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        long likedAt = indexes.now();
+        boolean added;
+        try {
+            added = jdbcTemplate.update(sql, filmId, userId, new Timestamp(likedAt), filmId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос успел добавить тот же лайк
+            added = false;
+        }
+        if (added) {
+            jdbcTemplate.update("UPDATE film SET like_count = like_count + 1 WHERE film_id = ?", filmId);
+            // Строка фильма заблокирована обновлением счетчика до конца транзакции, поэтому сигнатура
+            // читается и записывается без гонки с другими лайками этого фильма
+            int[] signature = MinHashIndex.withUser(loadSignature(filmId), userId);
+            if (signature != null) {
+                saveSignature(filmId, signature);
+            }
+            afterCommit(List.of(filmId), () -> indexes.likeAdded(filmId, userId, likedAt));
+        }
+        log.debug("Лайк пользователя с id {} фильму с id {}: {}", userId, filmId, added ? "добавлен" : "уже был");
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
+        // Время лайка нужно, чтобы вычесть его из той минуты, в которую он учтен в окнах
+        List<Timestamp> likedAt = jdbcTemplate.queryForList(
+                "SELECT liked_at FROM likes WHERE film_id = ? AND user_id = ?", Timestamp.class, filmId, userId);
+        String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+        boolean removed = !likedAt.isEmpty() && jdbcTemplate.update(sql, filmId, userId) > 0;
+        if (removed) {
+            jdbcTemplate.update("UPDATE film SET like_count = like_count - 1 WHERE film_id = ?", filmId);
+            // Сигнатура пересчитывается по оставшимся лайкам, только если удаленный лайк давал один из минимумов
+            if (MinHashIndex.holdsMinimum(loadSignature(filmId), userId)) {
+                saveSignature(filmId, MinHashIndex.signatureOf(likedUserIds(filmId)));
+            }
+            long removedAt = likedAt.get(0).getTime();
+            // Сигнатура в памяти пересчитывается по зафиксированным лайкам
+            afterCommit(List.of(filmId),
+                    () -> indexes.likeRemoved(filmId, userId, removedAt, () -> likedUserIds(filmId)));
+        }
+        log.debug("Лайк пользователя с id {} у фильма с id {}: {}", userId, filmId, removed ? "удален" : "отсутствовал");
+        return removed;
     }
 
     /**
-     * Загрузка лайков фильма
+     * Пересчет счетчиков лайков по таблице likes.
+     * Исправляет только фильмы, у которых счетчик разошелся с фактическим количеством лайков.
+     * Строки этих фильмов блокируются до обновления, поэтому разница между прежним и исправленным
+     * счетчиком не зависит от параллельных лайков; после фиксации индексы сдвигаются на эту разницу.
      *
-     * @param film фильм
+     * @return количество фильмов с расхождением счетчика
      */
-    private void loadLikes(Film film) {
-        String sql = "SELECT user_id FROM likes WHERE film_id = ?";
-        List<Integer> userIds = jdbcTemplate.query(sql,
-                (rs, rowNum) -> rs.getInt("user_id"),
-                film.getId());
+    @Transactional
+    public int reconcileLikeCounts() {
+        String driftSql = "SELECT f.film_id, f.like_count, COALESCE(l.actual_count, 0) AS actual_count " +
+                "FROM film f " +
+                "LEFT JOIN (SELECT film_id, COUNT(*) AS actual_count FROM likes GROUP BY film_id) l " +
+                "ON l.film_id = f.film_id " +
+                "WHERE f.like_count <> COALESCE(l.actual_count, 0)";
+        List<Integer> driftedFilmIds = jdbcTemplate.query(driftSql, (rs, rowNum) -> {
+            log.warn("Счетчик лайков фильма с id {} разошелся: {} вместо {}",
+                    rs.getInt("film_id"), rs.getInt("like_count"), rs.getInt("actual_count"));
+            return rs.getInt("film_id");
+        });
+        if (driftedFilmIds.isEmpty()) {
+            return 0;
+        }
 
-        Set<Integer> likes = new HashSet<>(userIds);
-        film.setLikes(likes);
+        Object filmIds = driftedFilmIds.toArray(new Integer[0]);
+        Map<Integer, Integer> corrections = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, like_count FROM film WHERE film_id = ANY(?) FOR UPDATE", rs -> {
+            corrections.put(rs.getInt("film_id"), -rs.getInt("like_count"));
+        }, filmIds);
+        String updateSql = "UPDATE film SET like_count = (SELECT COUNT(*) FROM likes WHERE film_id = ?) " +
+                "WHERE film_id = ?";
+        jdbcTemplate.batchUpdate(updateSql, driftedFilmIds, driftedFilmIds.size(), (ps, filmId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, filmId);
+        });
+        jdbcTemplate.query("SELECT film_id, like_count FROM film WHERE film_id = ANY(?)", rs -> {
+            corrections.merge(rs.getInt("film_id"), rs.getInt("like_count"), Integer::sum);
+        }, filmIds);
+        afterCommit(driftedFilmIds, () -> indexes.likeCountsCorrected(corrections));
+        return driftedFilmIds.size();
     }
 
     /**
-     * Обновление лайков фильма
+     * Загрузка фильмов вместе с рейтингом MPA, жанрами и лайками.
+     * Количество запросов не зависит от размера выборки: один запрос на фильмы,
+     * один на жанры и один на лайки. Рейтинги MPA и жанры берутся из кэша справочников.
+     *
+     * @param sql  запрос на выборку фильмов
+     * @param args параметры запроса
+     * @return список фильмов в порядке, заданном запросом
+     */
+    private List<Film> loadFilms(String sql, Object... args) {
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, args);
+        loadGenresAndLikes(films);
+        return films;
+    }
+
+    /**
+     * Загрузка жанров и лайков для набора фильмов: по одному запросу на жанры и на лайки
+     *
+     * @param films фильмы
+     */
+    private void loadGenresAndLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Film> filmsById = new LinkedHashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+
+        Map<Integer, List<Genre>> genres = genreStorage.getGenresByFilmIds(filmsById.keySet());
+        genres.forEach((filmId, filmGenres) -> filmsById.get(filmId).setGenres(filmGenres));
+
+        loadLikes(filmsById);
+    }
+
+    /**
+     * Догрузка жанров и лайков для пачки фильмов, передача фильмов обработчику и очистка пачки
+     *
+     * @param chunk  пачка фильмов
+     * @param action обработчик фильмов
+     */
+    private void emitChunk(List<Film> chunk, Consumer<Film> action) {
+        loadGenresAndLikes(chunk);
+        chunk.forEach(action);
+        chunk.clear();
+    }
+
+    /**
+     * Загрузка фильмов по списку идентификаторов с сохранением порядка списка
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return найденные фильмы в порядке следования идентификаторов
+     */
+    private List<Film> loadFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = SELECT_FILMS + "WHERE f.film_id = ANY(?)";
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : loadFilms(sql, (Object) filmIds.toArray(new Integer[0]))) {
+            filmsById.put(film.getId(), film);
+        }
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    /**
+     * Загрузка сохраненной MinHash-сигнатуры фильма
+     *
+     * @param filmId идентификатор фильма
+     * @return сигнатура или пустая сигнатура, если она не сохранена
+     */
+    private int[] loadSignature(int filmId) {
+        List<byte[]> signatures = jdbcTemplate.queryForList("SELECT signature FROM film_minhash WHERE film_id = ?",
+                byte[].class, filmId);
+        if (signatures.isEmpty() || signatures.get(0).length != MinHashIndex.HASHES * Integer.BYTES) {
+            return MinHashIndex.signatureOf(new int[0]);
+        }
+        return fromBytes(signatures.get(0));
+    }
+
+    /**
+     * Сохранение MinHash-сигнатуры фильма; пустая сигнатура удаляется
+     *
+     * @param filmId    идентификатор фильма
+     * @param signature сигнатура
+     */
+    private void saveSignature(int filmId, int[] signature) {
+        if (MinHashIndex.isEmpty(signature)) {
+            jdbcTemplate.update("DELETE FROM film_minhash WHERE film_id = ?", filmId);
+        } else {
+            jdbcTemplate.update(MERGE_SIGNATURE, filmId, toBytes(signature));
+        }
+    }
+
+    /**
+     * Изменение индексов и версий фильмов после фиксации текущей транзакции или сразу, если транзакции нет.
+     * Версии меняются в том же действии после индексов: иначе параллельный запрос мог бы получить
+     * новый тег раньше нового порядка в индексах и закэшировать под ним устаревшие данные.
+     *
+     * @param filmIds     идентификаторы измененных фильмов
+     * @param indexUpdate изменение индексов
+     */
+    private void afterCommit(Collection<Integer> filmIds, Runnable indexUpdate) {
+        afterCommit(() -> {
+            indexUpdate.run();
+            dataVersions.committed(Table.FILM, filmIds);
+        });
+    }
+
+    /**
+     * Выполнение действия после фиксации текущей транзакции или сразу, если транзакции нет.
+     * Индексы в памяти изменяются только после фиксации: иначе параллельный запрос увидел бы в них
+     * незафиксированные данные, а при откате индексы разошлись бы с базой данных.
+     *
+     * @param action действие
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Чтение строк запроса курсором с заданным fetch size
+     *
+     * @param sql     запрос
+     * @param handler обработчик строки
+     */
+    private void queryStreaming(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    private int[] likedUserIds(int filmId) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM likes WHERE film_id = ?", Integer.class, filmId)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    private static int[] fromBytes(byte[] bytes) {
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    /**
+     * Загрузка лайков для набора фильмов одним запросом
+     *
+     * @param filmsById фильмы, индексированные по идентификатору
+     */
+    private void loadLikes(Map<Integer, Film> filmsById) {
+        String sql = "SELECT film_id, user_id FROM likes WHERE film_id = ANY(?)";
+        jdbcTemplate.query(sql, rs -> {
+            filmsById.get(rs.getInt("film_id")).addLike(rs.getInt("user_id"));
+        }, (Object) filmsById.keySet().toArray(new Integer[0]));
+    }
+
+    /**
+     * Проверка рейтинга MPA и жанров фильма по справочникам.
+     * Ссылки заменяются экземплярами из справочников, повторяющиеся жанры удаляются.
      *
      * @param film фильм
+     * @return описание ошибки или null, если ссылки корректны
      */
-    private void updateLikes(Film film) {
-        // Удаляем все текущие лайки
-        String deleteSql = "DELETE FROM likes WHERE film_id = ?";
-        jdbcTemplate.update(deleteSql, film.getId());
+    private String resolveReferences(Film film) {
+        int mpaId = film.getMpa().getId();
+        Optional<Mpa> mpa = mpaStorage.getMpaById(mpaId);
+        if (mpa.isEmpty()) {
+            return "Рейтинг MPA с id " + mpaId + " не найден";
+        }
+        Map<Integer, Genre> genres = new LinkedHashMap<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                Optional<Genre> resolved = genreStorage.getGenreById(genre.getId());
+                if (resolved.isEmpty()) {
+                    return "Жанр с id " + genre.getId() + " не найден";
+                }
+                genres.putIfAbsent(genre.getId(), resolved.get());
+            }
+        }
+        film.setMpa(mpa.get());
+        film.setGenres(new ArrayList<>(genres.values()));
+        return null;
+    }
 
-        // Добавляем новые лайки
-        if (film.getLikes() != null && !film.getLikes().isEmpty()) {
-            String insertSql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-            for (Integer userId : film.getLikes()) {
-                jdbcTemplate.update(insertSql, film.getId(), userId);
+    /**
+     * Запись части пакета в отдельной транзакции
+     *
+     * @param films   все фильмы пакета
+     * @param chunk   позиции записываемых фильмов в пакете (очищается после записи)
+     * @param result  результат пакетной операции
+     */
+    private void importChunk(List<Film> films, List<Integer> chunk, BatchResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Film> batch = chunk.stream().map(films::get).collect(Collectors.toList());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertFilms(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                int filmId = batch.get(i).getId();
+                result.accept(chunk.get(i), filmId);
+                indexes.filmAdded(batch.get(i), new IntHashSet());
+            }
+            dataVersions.changed(Table.FILM, batch.stream().map(Film::getId).collect(Collectors.toList()));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать часть пакета из {} фильмов: {}", batch.size(), e.getMessage());
+            String error = "Ошибка записи фильма: " + e.getMostSpecificCause().getMessage();
+            batch.forEach(film -> film.setId(0));
+            chunk.forEach(index -> result.reject(index, error));
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Пакетная запись фильмов и их жанров в текущей транзакции
+     *
+     * @param batch фильмы с проверенными ссылками на справочники
+     */
+    private void insertFilms(List<Film> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_FILM, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = batch.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        Map<Integer, List<Genre>> genresByFilm = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Film film = batch.get(i);
+            film.setId(((Number) keys.get(i).get("film_id")).intValue());
+            if (!film.getGenres().isEmpty()) {
+                genresByFilm.put(film.getId(), film.getGenres());
             }
         }
+        genreStorage.addGenresToFilms(genresByFilm);
     }
 
     /**
@@ -205,14 +798,10 @@ public class FilmDbStorage implements FilmStorage {
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
 
-        // Загружаем рейтинг MPA
+        // Рейтинг MPA берется из кэша справочников без обращения к базе данных
         int mpaId = rs.getInt("mpa_id");
         film.setMpa(mpaStorage.getMpaById(mpaId)
                 .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id " + mpaId + " не найден")));
-
-        // Загружаем лайки
-        loadLikes(film);
-
         return film;
     }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.util.RoaringIntSet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Вторичные индексы фильмов по жанру, рейтингу MPA и году выхода.
+ * Для каждого значения хранится сжатое битовое множество идентификаторов фильмов ({@link RoaringIntSet}),
+ * поэтому отбор по нескольким условиям сводится к объединению и пересечению множеств
+ * без соединения таблиц film и film_genre в базе данных.
+ */
+public class FilmFilterIndex {
+    private final Map<Integer, RoaringIntSet> filmsByGenre = new HashMap<>();
+    private final Map<Integer, RoaringIntSet> filmsByMpa = new HashMap<>();
+    private final NavigableMap<Integer, RoaringIntSet> filmsByYear = new TreeMap<>();
+    private final RoaringIntSet allFilms = new RoaringIntSet();
+    private final Map<Integer, Attributes> attributesByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавление фильма или замена его жанров, рейтинга и года выхода по данным фильма
+     *
+     * @param film фильм с идентификатором, рейтингом MPA, датой выхода и жанрами
+     */
+    public void put(Film film) {
+        List<Integer> genreIds = film.getGenres() == null ? List.of()
+                : film.getGenres().stream().map(Genre::getId).collect(Collectors.toList());
+        put(film.getId(), film.getMpa() != null ? film.getMpa().getId() : null,
+                film.getReleaseDate() != null ? film.getReleaseDate().getYear() : null, genreIds);
+    }
+
+    /**
+     * Добавление фильма или замена его жанров, рейтинга и года выхода
+     *
+     * @param filmId   идентификатор фильма
+     * @param mpaId    идентификатор рейтинга MPA или null, если рейтинг не указан
+     * @param year     год выхода или null, если дата выхода не указана
+     * @param genreIds идентификаторы жанров
+     */
+    public void put(int filmId, Integer mpaId, Integer year, Collection<Integer> genreIds) {
+        int[] genres = genreIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+        lock.writeLock().lock();
+        try {
+            Attributes previous = attributesByFilm.put(filmId, new Attributes(mpaId, year, genres));
+            if (previous != null) {
+                remove(filmsByMpa, previous.mpaId, filmId);
+                remove(filmsByYear, previous.year, filmId);
+                for (int genreId : previous.genreIds) {
+                    remove(filmsByGenre, genreId, filmId);
+                }
+            }
+            allFilms.add(filmId);
+            if (mpaId != null) {
+                filmsByMpa.computeIfAbsent(mpaId, key -> new RoaringIntSet()).add(filmId);
+            }
+            if (year != null) {
+                filmsByYear.computeIfAbsent(year, key -> new RoaringIntSet()).add(filmId);
+            }
+            for (int genreId : genres) {
+                filmsByGenre.computeIfAbsent(genreId, key -> new RoaringIntSet()).add(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление жанра уже проиндексированному фильму (используется при построении индекса по таблице film_genre)
+     *
+     * @param filmId  идентификатор фильма
+     * @param genreId идентификатор жанра
+     */
+    public void addGenre(int filmId, int genreId) {
+        lock.writeLock().lock();
+        try {
+            Attributes attributes = attributesByFilm.get(filmId);
+            if (attributes == null || !filmsByGenre.computeIfAbsent(genreId, key -> new RoaringIntSet()).add(filmId)) {
+                return;
+            }
+            attributes.genreIds = Arrays.copyOf(attributes.genreIds, attributes.genreIds.length + 1);
+            attributes.genreIds[attributes.genreIds.length - 1] = genreId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Отбор фильмов по условиям
+     *
+     * @param filter условия отбора
+     * @return новое множество идентификаторов подходящих фильмов
+     */
+    public RoaringIntSet filter(FilmFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringIntSet result = null;
+            if (!filter.getGenreIds().isEmpty()) {
+                result = intersect(result, union(filter.getGenreIds().stream()
+                        .map(filmsByGenre::get)
+                        .collect(Collectors.toList())));
+            }
+            if (!filter.getMpaIds().isEmpty()) {
+                result = intersect(result, union(filter.getMpaIds().stream()
+                        .map(filmsByMpa::get)
+                        .collect(Collectors.toList())));
+            }
+            if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+                int from = filter.getYearFrom() != null ? filter.getYearFrom() : Integer.MIN_VALUE;
+                int to = filter.getYearTo() != null ? filter.getYearTo() : Integer.MAX_VALUE;
+                result = intersect(result, from > to ? new RoaringIntSet() : union(filmsByYear.subMap(from, true, to, true).values()));
+            }
+            return result != null ? result : union(List.of(allFilms));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверка, подходит ли фильм под условия отбора
+     *
+     * @param filmId идентификатор фильма
+     * @param filter условия отбора
+     * @return true, если фильм есть в индексе и удовлетворяет всем условиям
+     */
+    public boolean matches(int filmId, FilmFilter filter) {
+        lock.readLock().lock();
+        try {
+            Attributes attributes = attributesByFilm.get(filmId);
+            if (attributes == null) {
+                return false;
+            }
+            if (!filter.getGenreIds().isEmpty()
+                    && Arrays.stream(attributes.genreIds).noneMatch(filter.getGenreIds()::contains)) {
+                return false;
+            }
+            if (!filter.getMpaIds().isEmpty()
+                    && (attributes.mpaId == null || !filter.getMpaIds().contains(attributes.mpaId))) {
+                return false;
+            }
+            if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+                return attributes.year != null
+                        && (filter.getYearFrom() == null || attributes.year >= filter.getYearFrom())
+                        && (filter.getYearTo() == null || attributes.year <= filter.getYearTo());
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Идентификаторы отобранных фильмов в порядке, заданном условиями
+     *
+     * @param filter          условия отбора
+     * @param afterId         идентификатор, после которого начинается страница (для порядка по идентификатору)
+     * @param limit           максимальное количество фильмов
+     * @param popularityIndex индекс популярности для порядка по количеству лайков
+     * @return идентификаторы фильмов
+     */
+    public List<Integer> find(FilmFilter filter, int afterId, int limit, PopularityIndex popularityIndex) {
+        RoaringIntSet matches = filter(filter);
+        if (filter.getSort() == FilmFilter.Sort.POPULAR) {
+            return popularityIndex.getTop(limit, matches);
+        }
+        return Arrays.stream(matches.range(afterId, limit)).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Полная очистка индекса перед построением
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            filmsByGenre.clear();
+            filmsByMpa.clear();
+            filmsByYear.clear();
+            allFilms.clear();
+            attributesByFilm.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Количество фильмов в индексе
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        return allFilms.size();
+    }
+
+    /**
+     * Объединение множеств; отсутствующие значения (null) пропускаются.
+     * Результат всегда новый объект, поэтому его можно читать после снятия блокировки.
+     */
+    private static RoaringIntSet union(Collection<RoaringIntSet> sets) {
+        return RoaringIntSet.or(sets.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    private static RoaringIntSet intersect(RoaringIntSet result, RoaringIntSet set) {
+        return result == null ? set : RoaringIntSet.and(result, set);
+    }
+
+    private static void remove(Map<Integer, RoaringIntSet> filmsByValue, Integer value, int filmId) {
+        RoaringIntSet films = value != null ? filmsByValue.get(value) : null;
+        if (films != null && films.remove(filmId) && films.isEmpty()) {
+            filmsByValue.remove(value);
+        }
+    }
+
+    /**
+     * Проиндексированные значения фильма, нужные для его удаления из множеств при изменении
+     */
+    private static final class Attributes {
+        final Integer mpaId;
+        final Integer year;
+        int[] genreIds;
+
+        Attributes(Integer mpaId, Integer year, int[] genreIds) {
+            this.mpaId = mpaId;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+    }
+}
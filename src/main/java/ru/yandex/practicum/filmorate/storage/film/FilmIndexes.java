@@ -0,0 +1,335 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Индексы фильмов в памяти: популярность, таблицы лидеров, тренды, совместные лайки, MinHash-сигнатуры,
+ * полнотекстовый поиск, автодополнение названий и отбор по жанрам, рейтингам и годам.
+ * Хранилище сообщает индексам об изменениях фильмов и лайков и берет из них порядок выдачи,
+ * а само отвечает только за данные.
+ * <p>
+ * Индексы зависят друг от друга (автодополнение и таблицы лидеров берут количество лайков из индекса
+ * популярности, таблицы лидеров - жанры и рейтинги из индекса отбора), поэтому они строятся одним
+ * прогревом в фиксированном порядке: фильмы и жанры, совместные лайки, тренды, MinHash-сигнатуры.
+ */
+@Slf4j
+class FilmIndexes {
+    /**
+     * Количество фильмов, лайки которых загружаются одним запросом при вычислении недостающих сигнатур
+     */
+    private static final int SIGNATURE_CHUNK_SIZE = 500;
+
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final CoLikeIndex coLikeIndex = new CoLikeIndex();
+    private final MinHashIndex minHashIndex = new MinHashIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final TitleAutocompleteIndex titleIndex = new TitleAutocompleteIndex(popularityIndex::getLikes);
+    private final FilmFilterIndex filterIndex = new FilmFilterIndex();
+    private final LeaderboardIndex leaderboards = new LeaderboardIndex(popularityIndex, filterIndex);
+    private final TrendingIndex trendingIndex = new TrendingIndex();
+
+    /**
+     * Источник данных для прогрева индексов
+     */
+    interface Source {
+        /**
+         * Обход всех фильмов без жанров и лайков
+         *
+         * @param action обработчик фильма и количества его лайков
+         */
+        void forEachFilm(FilmRowConsumer action);
+
+        /**
+         * Обход жанров всех фильмов
+         *
+         * @param action обработчик идентификаторов фильма и жанра
+         */
+        void forEachFilmGenre(BiConsumer<Integer, Integer> action);
+
+        /**
+         * Обход всех лайков
+         *
+         * @param action обработчик лайка
+         */
+        void forEachLike(FilmStorage.LikeConsumer action);
+
+        /**
+         * Обход лайков, поставленных позже заданного времени
+         *
+         * @param since  время в миллисекундах
+         * @param action обработчик лайка со временем
+         */
+        void forEachLikeSince(long since, TrendingIndex.TimedLikeConsumer action);
+
+        /**
+         * Обход сохраненных MinHash-сигнатур
+         *
+         * @param action обработчик идентификатора фильма и сигнатуры
+         */
+        void forEachSignature(BiConsumer<Integer, int[]> action);
+
+        /**
+         * Загрузка пользователей, которым понравились фильмы
+         *
+         * @param filmIds идентификаторы фильмов
+         * @return множества пользователей по идентификаторам фильмов (фильмы без лайков отсутствуют)
+         */
+        Map<Integer, IntHashSet> getLikes(Collection<Integer> filmIds);
+
+        /**
+         * Сохранение вычисленных MinHash-сигнатур
+         *
+         * @param signatures сигнатуры по идентификаторам фильмов
+         */
+        void saveSignatures(Map<Integer, int[]> signatures);
+    }
+
+    /**
+     * Обработчик фильма при прогреве
+     */
+    @FunctionalInterface
+    interface FilmRowConsumer {
+        /**
+         * Обработка фильма
+         *
+         * @param film      фильм без жанров и лайков
+         * @param likeCount количество лайков фильма
+         */
+        void accept(Film film, int likeCount);
+    }
+
+    /**
+     * Построение всех индексов по данным источника
+     *
+     * @param source источник данных
+     */
+    void warmUp(Source source) {
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        List<Integer> filmIds = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        filterIndex.clear();
+        source.forEachFilm((film, likeCount) -> {
+            likeCounts.put(film.getId(), likeCount);
+            filmIds.add(film.getId());
+            names.add(film.getName());
+            searchIndex.put(film.getId(), film.getName(), film.getDescription());
+            filterIndex.put(film);
+        });
+        source.forEachFilmGenre(filterIndex::addGenre);
+        popularityIndex.rebuild(likeCounts);
+        titleIndex.rebuild(filmIds.stream().mapToInt(Integer::intValue).toArray(), names.toArray(new String[0]));
+        leaderboards.clear();
+        log.info("Индексы фильмов загружены. Количество фильмов: {}, в поисковом индексе: {}, в автодополнении: {}",
+                popularityIndex.size(), searchIndex.size(), titleIndex.size());
+
+        Map<Integer, IntHashSet> filmsByUser = new HashMap<>();
+        source.forEachLike((filmId, userId) -> filmsByUser.computeIfAbsent(userId, key -> new IntHashSet()).add(filmId));
+        coLikeIndex.rebuild(filmsByUser);
+        log.info("Индекс совместных лайков загружен. Количество фильмов: {}", coLikeIndex.size());
+
+        // Читаются только лайки за самое широкое окно
+        long since = trendingIndex.now() - TrendingWindow.WEEK.getMinutes() * 60_000L;
+        trendingIndex.rebuild(action -> source.forEachLikeSince(since, action));
+        log.info("Индекс набирающих популярность фильмов загружен. Количество фильмов: {}", trendingIndex.size());
+
+        warmUpSignatures(source, likeCounts);
+    }
+
+    /**
+     * Загрузка MinHash-сигнатур. Сигнатуры вычисляются по лайкам только для фильмов, у которых есть лайки,
+     * но нет сохраненной сигнатуры (например, в базе, созданной до появления таблицы сигнатур);
+     * вычисленные сигнатуры сохраняются.
+     */
+    private void warmUpSignatures(Source source, Map<Integer, Integer> likeCounts) {
+        source.forEachSignature(minHashIndex::put);
+        List<Integer> missing = new ArrayList<>();
+        likeCounts.forEach((filmId, count) -> {
+            if (count > 0 && !minHashIndex.contains(filmId)) {
+                missing.add(filmId);
+            }
+        });
+        for (int from = 0; from < missing.size(); from += SIGNATURE_CHUNK_SIZE) {
+            Map<Integer, IntHashSet> usersByFilm =
+                    source.getLikes(missing.subList(from, Math.min(from + SIGNATURE_CHUNK_SIZE, missing.size())));
+            Map<Integer, int[]> signatures = new HashMap<>();
+            usersByFilm.forEach((filmId, users) -> {
+                int[] signature = MinHashIndex.signatureOf(users.toIntArray());
+                minHashIndex.put(filmId, signature);
+                signatures.put(filmId, signature);
+            });
+            source.saveSignatures(signatures);
+        }
+        log.info("Индекс MinHash загружен. Количество фильмов: {}, вычислено заново: {}",
+                minHashIndex.size(), missing.size());
+    }
+
+    /**
+     * Учет исправленных счетчиков лайков после сверки. Меняются только исправленные фильмы,
+     * и на разницу между старым и новым значением счетчика: лайки, учтенные параллельно со сверкой,
+     * при этом не теряются, в каком бы порядке ни применялись изменения.
+     *
+     * @param corrections разница счетчиков по идентификаторам фильмов
+     */
+    void likeCountsCorrected(Map<Integer, Integer> corrections) {
+        corrections.forEach((filmId, delta) -> {
+            popularityIndex.add(filmId, delta);
+            titleIndex.likesChanged(filmId);
+            leaderboards.update(filmId);
+        });
+    }
+
+    /**
+     * Учет нового фильма
+     *
+     * @param film  фильм с идентификатором
+     * @param likes пользователи, которым фильм уже понравился
+     */
+    void filmAdded(Film film, IntSet likes) {
+        popularityIndex.put(film.getId(), likes.size());
+        searchIndex.put(film.getId(), film.getName(), film.getDescription());
+        titleIndex.put(film.getId(), film.getName());
+        filterIndex.put(film);
+        leaderboards.update(film.getId());
+        if (likes.size() > 0) {
+            likes.forEachInt(userId -> coLikeIndex.addLike(film.getId(), userId));
+            minHashIndex.put(film.getId(), MinHashIndex.signatureOf(likes.toIntArray()));
+        }
+    }
+
+    /**
+     * Учет изменения названия, описания, рейтинга, даты выхода или жанров фильма
+     *
+     * @param film фильм с новыми данными
+     */
+    void filmUpdated(Film film) {
+        searchIndex.put(film.getId(), film.getName(), film.getDescription());
+        titleIndex.put(film.getId(), film.getName());
+        filterIndex.put(film);
+        leaderboards.update(film.getId());
+    }
+
+    /**
+     * Учет лайка
+     *
+     * @param filmId  идентификатор фильма
+     * @param userId  идентификатор пользователя
+     * @param likedAt время лайка в миллисекундах
+     */
+    void likeAdded(int filmId, int userId, long likedAt) {
+        popularityIndex.increment(filmId);
+        titleIndex.likesChanged(filmId);
+        leaderboards.update(filmId);
+        trendingIndex.addLike(filmId, likedAt);
+        coLikeIndex.addLike(filmId, userId);
+        minHashIndex.addLike(filmId, userId);
+    }
+
+    /**
+     * Учет удаления лайка
+     *
+     * @param filmId         идентификатор фильма
+     * @param userId         идентификатор пользователя
+     * @param likedAt        время удаленного лайка в миллисекундах или null, если оно неизвестно
+     *                       (тогда из трендов вычитается самый поздний учтенный лайк фильма)
+     * @param remainingUsers поставщик пользователей, которым фильм нравится после удаления лайка
+     */
+    void likeRemoved(int filmId, int userId, Long likedAt, Supplier<int[]> remainingUsers) {
+        popularityIndex.decrement(filmId);
+        titleIndex.likesChanged(filmId);
+        leaderboards.update(filmId);
+        if (likedAt != null) {
+            trendingIndex.removeLike(filmId, likedAt);
+        } else {
+            trendingIndex.removeLatestLike(filmId);
+        }
+        coLikeIndex.removeLike(filmId, userId);
+        minHashIndex.removeLike(filmId, userId, remainingUsers);
+    }
+
+    /**
+     * Удаление из поискового индекса прежних версий обновленных фильмов
+     *
+     * @return true, если уплотнение выполнено
+     */
+    boolean compactSearchIndex() {
+        return searchIndex.compact();
+    }
+
+    /**
+     * Уплотнение поискового индекса, если прежних версий фильмов в нем больше, чем актуальных
+     */
+    void compactSearchIndexIfBloated() {
+        if (searchIndex.deletedCount() > searchIndex.size()) {
+            searchIndex.compact();
+        }
+    }
+
+    /**
+     * Текущее время часов индекса трендов
+     *
+     * @return время в миллисекундах
+     */
+    long now() {
+        return trendingIndex.now();
+    }
+
+    /**
+     * Проверка наличия фильма: в индекс популярности попадает каждый фильм
+     *
+     * @param filmId идентификатор фильма
+     * @return true, если фильм есть в индексах
+     */
+    boolean contains(int filmId) {
+        return popularityIndex.contains(filmId);
+    }
+
+    List<Integer> getPopular(int count) {
+        return popularityIndex.getTop(count);
+    }
+
+    List<Integer> getPopular(int count, Integer genreId, Integer mpaId) {
+        return leaderboards.getTop(count, genreId, mpaId);
+    }
+
+    List<Integer> getTrending(TrendingWindow window, boolean decay, int count) {
+        return trendingIndex.getTop(window, decay, count);
+    }
+
+    List<Integer> getRelated(int filmId, int count) {
+        return coLikeIndex.getRelated(filmId, count);
+    }
+
+    List<Integer> search(String query, int count) {
+        return searchIndex.search(query, count);
+    }
+
+    List<Integer> find(FilmFilter filter, int afterId, int limit) {
+        return filterIndex.find(filter, afterId, limit, popularityIndex);
+    }
+
+    List<TitleSuggestion> autocomplete(String prefix, int count) {
+        return titleIndex.complete(prefix, count);
+    }
+
+    List<Integer> findSimilarAudience(int filmId, int count) {
+        return minHashIndex.findSimilar(filmId, count);
+    }
+
+    double audienceSimilarity(int filmId, int otherId) {
+        return minHashIndex.similarity(filmId, otherId);
+    }
+}
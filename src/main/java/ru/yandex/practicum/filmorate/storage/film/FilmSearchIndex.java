@@ -0,0 +1,476 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Инвертированный индекс для полнотекстового поиска фильмов по названию и описанию.
+ * <p>
+ * Текст приводится к нижнему регистру, диакритические знаки удаляются (ё совпадает с е, é - с e),
+ * словами считаются последовательности букв и цифр, поэтому кириллица и латиница обрабатываются одинаково.
+ * Слова названия весят NAME_WEIGHT слов описания. Результаты упорядочены по BM25.
+ * <p>
+ * Каждой версии фильма выдается новый внутренний номер документа, поэтому списки документов терминов
+ * только дописываются в порядке возрастания номеров и хранятся сжатыми: разность с предыдущим номером
+ * и частота термина записываются числами переменной длины. Прежняя версия обновленного фильма помечается
+ * удаленной и пропускается при поиске; метод {@link #compact()} перекодирует списки без удаленных документов.
+ */
+public class FilmSearchIndex {
+    /**
+     * Вес слова из названия относительно слова из описания
+     */
+    static final int NAME_WEIGHT = 3;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> postings = new HashMap<>();
+    private int[] docFilmIds = new int[INITIAL_CAPACITY];
+    private int[] docLengths = new int[INITIAL_CAPACITY];
+    private int docCount;
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+    private long totalLength;
+
+    /**
+     * Номер документа текущей версии фильма, увеличенный на единицу (ноль - фильма нет в индексе)
+     */
+    private int[] docByFilm = new int[INITIAL_CAPACITY];
+
+    /**
+     * Фильмы, добавленные во время уплотнения, в порядке добавления, или null вне уплотнения
+     */
+    private List<Document> journal;
+
+    /**
+     * Разбиение текста на нормализованные слова
+     *
+     * @param text текст, может быть null
+     * @return слова в порядке следования
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Приведение текста к нижнему регистру без диакритических знаков.
+     * Текст только из латиницы и основной кириллицы обрабатывается заменой символов без разложения
+     * Unicode; остальной текст раскладывается, и из него удаляются диакритические знаки.
+     *
+     * @param text текст
+     * @return нормализованный текст
+     */
+    static String normalize(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                chars[i] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            } else if (c >= 'А' && c <= 'я') {
+                char lower = Character.toLowerCase(c);
+                chars[i] = lower == 'й' ? 'и' : lower;
+            } else if (c == 'ё' || c == 'Ё') {
+                chars[i] = 'е';
+            } else {
+                return MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                        .replaceAll("");
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Добавление фильма в индекс или замена его прежней версии
+     *
+     * @param filmId      идентификатор фильма
+     * @param name        название
+     * @param description описание, может быть null
+     */
+    public void put(int filmId, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(name)) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(description)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        Document document = new Document(filmId, frequencies);
+
+        lock.writeLock().lock();
+        try {
+            insert(document);
+            if (journal != null) {
+                journal.add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск фильмов по словам запроса. Фильм находится, если содержит хотя бы одно слово;
+     * фильмы с большим числом редких слов запроса получают более высокую оценку.
+     *
+     * @param query текст запроса
+     * @param count максимальное количество фильмов
+     * @return идентификаторы фильмов по убыванию оценки BM25, при равенстве - по возрастанию id
+     */
+    public List<Integer> search(String query, int count) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        lock.readLock().lock();
+        try {
+            int liveDocs = docCount - deletedCount;
+            if (liveDocs == 0 || count <= 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / liveDocs);
+            List<Cursor> cursors = new ArrayList<>();
+            for (String term : terms) {
+                Postings termPostings = postings.get(term);
+                if (termPostings != null) {
+                    int documentFrequency = Math.min(termPostings.docCount, liveDocs);
+                    double idf = Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                    cursors.add(new Cursor(termPostings, idf));
+                }
+            }
+
+            // Обход документов в порядке номеров сразу по всем спискам терминов
+            PriorityQueue<ScoredFilm> top = new PriorityQueue<>(ScoredFilm.ORDER);
+            for (Cursor cursor : cursors) {
+                cursor.next();
+            }
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (Cursor cursor : cursors) {
+                    doc = Math.min(doc, cursor.doc);
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                double score = 0;
+                double lengthNorm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                for (Cursor cursor : cursors) {
+                    if (cursor.doc == doc) {
+                        score += cursor.idf * cursor.frequency * (K1 + 1) / (cursor.frequency + lengthNorm);
+                        cursor.next();
+                    }
+                }
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                ScoredFilm candidate = new ScoredFilm(docFilmIds[doc], score);
+                if (top.size() < count) {
+                    top.add(candidate);
+                } else if (ScoredFilm.ORDER.compare(candidate, top.peek()) > 0) {
+                    top.poll();
+                    top.add(candidate);
+                }
+            }
+            Integer[] filmIds = new Integer[top.size()];
+            for (int i = filmIds.length - 1; i >= 0; i--) {
+                filmIds[i] = top.poll().filmId;
+            }
+            return List.of(filmIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Перекодирование списков документов без удаленных версий фильмов.
+     * Под блокировкой чтения запоминаются только границы списков: уже записанные байты списков
+     * и элементы массивов документов не меняются, поэтому новые списки строятся без блокировки,
+     * и ни поиск, ни запись не простаивают на время построения. Фильмы, добавленные во время
+     * построения, записываются в журнал и под блокировкой записи добавляются в новые списки,
+     * поэтому уплотнение выполняется и при непрерывном потоке записи.
+     *
+     * @return true, если уплотнение выполнено
+     */
+    public synchronized boolean compact() {
+        int snapshotDocCount;
+        BitSet snapshotDeleted;
+        int[] snapshotFilmIds;
+        int[] snapshotLengths;
+        int filmCapacity;
+        long liveLength;
+        Map<String, Cursor> snapshotPostings = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (deletedCount == 0) {
+                return false;
+            }
+            snapshotDocCount = docCount;
+            snapshotDeleted = (BitSet) deleted.clone();
+            snapshotFilmIds = docFilmIds;
+            snapshotLengths = docLengths;
+            filmCapacity = docByFilm.length;
+            liveLength = totalLength;
+            postings.forEach((term, termPostings) -> snapshotPostings.put(term, new Cursor(termPostings, 0)));
+            // Запись ждет снятия блокировки чтения, поэтому все фильмы после снимка попадут в журнал
+            journal = new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Postings> compactedPostings = null;
+        int liveDocs = 0;
+        int[] compactedFilmIds = null;
+        int[] compactedLengths = null;
+        int[] compactedDocByFilm = null;
+        try {
+            int[] renumbered = new int[snapshotDocCount];
+            liveDocs = snapshotDocCount - snapshotDeleted.cardinality();
+            compactedFilmIds = new int[Math.max(liveDocs, INITIAL_CAPACITY)];
+            compactedLengths = new int[compactedFilmIds.length];
+            compactedDocByFilm = new int[filmCapacity];
+            int next = 0;
+            for (int doc = 0; doc < snapshotDocCount; doc++) {
+                if (snapshotDeleted.get(doc)) {
+                    renumbered[doc] = -1;
+                    continue;
+                }
+                renumbered[doc] = next;
+                compactedFilmIds[next] = snapshotFilmIds[doc];
+                compactedLengths[next] = snapshotLengths[doc];
+                compactedDocByFilm[snapshotFilmIds[doc]] = next + 1;
+                next++;
+            }
+            Map<String, Postings> built = new HashMap<>();
+            snapshotPostings.forEach((term, cursor) -> {
+                Postings compacted = new Postings();
+                for (cursor.next(); cursor.doc != Integer.MAX_VALUE; cursor.next()) {
+                    if (renumbered[cursor.doc] >= 0) {
+                        compacted.append(renumbered[cursor.doc], cursor.frequency);
+                    }
+                }
+                if (compacted.docCount > 0) {
+                    compacted.trim();
+                    built.put(term, compacted);
+                }
+            });
+            compactedPostings = built;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<Document> added = journal;
+                journal = null;
+                if (compactedPostings != null) {
+                    postings = compactedPostings;
+                    docCount = liveDocs;
+                    docFilmIds = compactedFilmIds;
+                    docLengths = compactedLengths;
+                    docByFilm = compactedDocByFilm;
+                    deleted = new BitSet();
+                    deletedCount = 0;
+                    totalLength = liveLength;
+                    added.forEach(this::insert);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Количество фильмов в индексе
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество прежних версий фильмов, ожидающих уплотнения
+     *
+     * @return количество удаленных документов
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Запись новой версии фильма. Вызывается под блокировкой записи.
+     */
+    private void insert(Document document) {
+        int filmId = document.filmId;
+        int length = document.length;
+        delete(filmId);
+        int doc = docCount++;
+        if (doc == docFilmIds.length) {
+            docFilmIds = Arrays.copyOf(docFilmIds, doc * 2);
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        docFilmIds[doc] = filmId;
+        docLengths[doc] = length;
+        totalLength += length;
+        if (filmId >= docByFilm.length) {
+            docByFilm = Arrays.copyOf(docByFilm, Math.max(filmId + 1, docByFilm.length * 2));
+        }
+        docByFilm[filmId] = doc + 1;
+        document.frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new Postings())
+                .append(doc, frequency));
+    }
+
+    /**
+     * Пометка текущей версии фильма удаленной. Вызывается под блокировкой записи.
+     */
+    private void delete(int filmId) {
+        if (filmId >= docByFilm.length || docByFilm[filmId] == 0) {
+            return;
+        }
+        int doc = docByFilm[filmId] - 1;
+        deleted.set(doc);
+        deletedCount++;
+        totalLength -= docLengths[doc];
+        docByFilm[filmId] = 0;
+    }
+
+    /**
+     * Версия фильма, подготовленная для записи в индекс: частоты терминов и длина документа
+     */
+    private static final class Document {
+        final int filmId;
+        final Map<String, Integer> frequencies;
+        final int length;
+
+        Document(int filmId, Map<String, Integer> frequencies) {
+            this.filmId = filmId;
+            this.frequencies = frequencies;
+            this.length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    /**
+     * Сжатый список документов термина: разности номеров и частоты в виде чисел переменной длины
+     * (по 7 бит в байте, старший бит - признак продолжения)
+     */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int lastDoc = -1;
+        private int docCount;
+
+        void append(int doc, int frequency) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            docCount++;
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, size);
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Последовательное чтение списка документов термина
+     */
+    private static final class Cursor {
+        private final byte[] data;
+        private final int size;
+        private final double idf;
+        private int position;
+        private int doc = -1;
+        private int frequency;
+
+        Cursor(Postings postings, double idf) {
+            this.data = postings.data;
+            this.size = postings.size;
+            this.idf = idf;
+        }
+
+        /**
+         * Переход к следующему документу; после последнего номер документа равен Integer.MAX_VALUE
+         */
+        void next() {
+            if (position >= size) {
+                doc = Integer.MAX_VALUE;
+                return;
+            }
+            doc += readVarInt();
+            frequency = readVarInt();
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Фильм с оценкой; порядок - по возрастанию оценки, при равенстве - по убыванию id,
+     * поэтому в вершине очереди находится худший из отобранных фильмов
+     */
+    private static final class ScoredFilm {
+        static final Comparator<ScoredFilm> ORDER = Comparator.<ScoredFilm>comparingDouble(film -> film.score)
+                .thenComparing(film -> film.filmId, Comparator.reverseOrder());
+
+        final int filmId;
+        final double score;
+
+        ScoredFilm(int filmId, double score) {
+            this.filmId = filmId;
+            this.score = score;
+        }
+    }
+}
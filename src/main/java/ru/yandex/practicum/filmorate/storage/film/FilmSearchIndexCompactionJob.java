@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодическое удаление прежних версий обновленных фильмов из поискового индекса
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndexCompactionJob {
+    private final FilmDbStorage filmDbStorage;
+
+    /**
+     * Уплотнение поискового индекса, если с прошлого запуска фильмы обновлялись
+     *
+     * @return true, если уплотнение выполнено
+     */
+    @Scheduled(fixedDelayString = "${filmorate.search.compact-delay-ms:300000}")
+    public boolean compact() {
+        boolean compacted = filmDbStorage.compactSearchIndex();
+        if (compacted) {
+            log.debug("Поисковый индекс фильмов уплотнен");
+        }
+        return compacted;
+    }
+}
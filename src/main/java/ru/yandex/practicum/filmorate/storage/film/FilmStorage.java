@@ -1,14 +1,25 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс хранилища фильмов
  */
 public interface FilmStorage {
+    /**
+     * Максимальное количество похожих фильмов, которое возвращает getRelatedFilms
+     */
+    int MAX_RELATED_FILMS = 50;
+
     /**
      * Получение списка всех фильмов
      *
@@ -16,8 +27,52 @@ public interface FilmStorage {
      */
     List<Film> getAllFilms();
 
+    /**
+     * Получение страницы фильмов в порядке возрастания идентификатора
+     *
+     * @param afterId идентификатор, после которого начинается страница (0 для первой страницы)
+     * @param limit   максимальное количество фильмов на странице
+     * @return список фильмов
+     */
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    /**
+     * Последовательный обход всех фильмов без загрузки каталога в память целиком
+     *
+     * @param action действие, выполняемое для каждого фильма в порядке возрастания идентификатора
+     */
+    void forEachFilm(Consumer<Film> action);
+
+    /**
+     * Получение списка популярных фильмов в порядке убывания количества лайков,
+     * при равенстве - в порядке убывания идентификатора
+     *
+     * @param count количество фильмов
+     * @return список популярных фильмов
+     */
     List<Film> getPopularFilms(int count);
 
+    /**
+     * Получение популярных фильмов заданного жанра и (или) рейтинга MPA в том же порядке
+     *
+     * @param count   количество фильмов
+     * @param genreId идентификатор жанра или null, если жанр не важен
+     * @param mpaId   идентификатор рейтинга MPA или null, если рейтинг не важен
+     * @return список популярных фильмов
+     */
+    List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId);
+
+    /**
+     * Получение фильмов, набравших больше всего лайков за окно времени
+     *
+     * @param window окно времени
+     * @param decay  true - упорядочить по оценке, в которой вес лайка затухает с его возрастом,
+     *               false - по количеству лайков за окно
+     * @param count  количество фильмов
+     * @return список фильмов
+     */
+    List<Film> getTrendingFilms(TrendingWindow window, boolean decay, int count);
+
     /**
      * Добавление нового фильма
      *
@@ -26,6 +81,15 @@ public interface FilmStorage {
      */
     Film addFilm(Film film);
 
+    /**
+     * Пакетное добавление фильмов.
+     * Фильм с некорректными данными отклоняется, остальные фильмы пакета добавляются.
+     *
+     * @param films список фильмов
+     * @return результат с идентификаторами в порядке фильмов пакета и ошибками по отклоненным фильмам
+     */
+    BatchResult addFilms(List<Film> films);
+
     /**
      * Обновление существующего фильма
      *
@@ -49,4 +113,102 @@ public interface FilmStorage {
      * @return true, если фильм существует, иначе false
      */
     boolean filmExists(int id);
+
+    /**
+     * Добавление лайка фильму от пользователя.
+     * Повторный лайк от того же пользователя ничего не меняет.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true, если лайк был добавлен, false если пользователь уже поставил лайк
+     */
+    boolean addLike(int filmId, int userId);
+
+    /**
+     * Удаление лайка пользователя у фильма.
+     * Удаление отсутствующего лайка ничего не меняет.
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true, если лайк был удален, false если пользователь не ставил лайк
+     */
+    boolean removeLike(int filmId, int userId);
+
+    /**
+     * Получение фильмов по списку идентификаторов.
+     * Отсутствующие идентификаторы пропускаются.
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return фильмы в порядке идентификаторов в списке
+     */
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
+    /**
+     * Последовательный обход всех лайков без загрузки их в память целиком
+     *
+     * @param action действие, выполняемое для каждого лайка
+     */
+    void forEachLike(LikeConsumer action);
+
+    /**
+     * Получение фильмов, которые чаще всего нравились тем же пользователям, что и заданный фильм.
+     * Порядок берется из индекса совместных лайков в памяти.
+     *
+     * @param filmId идентификатор фильма
+     * @param count  максимальное количество фильмов
+     * @return похожие фильмы по убыванию количества совместных лайков, при равенстве - по возрастанию id
+     */
+    List<Film> getRelatedFilms(int filmId, int count);
+
+    /**
+     * Полнотекстовый поиск фильмов по названию и описанию
+     *
+     * @param query текст запроса
+     * @param count максимальное количество фильмов
+     * @return найденные фильмы по убыванию релевантности
+     */
+    List<Film> searchFilms(String query, int count);
+
+    /**
+     * Отбор фильмов по жанрам, рейтингам MPA и годам выхода
+     *
+     * @param filter  условия отбора и порядок
+     * @param afterId идентификатор, после которого начинается страница при порядке по идентификатору
+     * @param limit   максимальное количество фильмов
+     * @return подходящие фильмы по возрастанию идентификатора или по убыванию популярности
+     */
+    List<Film> findFilms(FilmFilter filter, int afterId, int limit);
+
+    /**
+     * Автодополнение названий фильмов по введенному началу с исправлением небольших опечаток
+     *
+     * @param prefix начало названия
+     * @param count  максимальное количество вариантов
+     * @return варианты по убыванию количества лайков; варианты с опечатками следуют за точными совпадениями
+     */
+    List<TitleSuggestion> autocompleteTitles(String prefix, int count);
+
+    /**
+     * Получение фильмов, множество лайкнувших пользователей которых близко к множеству заданного фильма.
+     * Кандидаты берутся из индекса MinHash-сигнатур в памяти без попарного сравнения всех фильмов.
+     *
+     * @param filmId идентификатор фильма
+     * @param count  максимальное количество фильмов
+     * @return фильмы по убыванию оценки схожести аудитории, при равенстве - по возрастанию id
+     */
+    List<FilmSimilarity> getSimilarAudienceFilms(int filmId, int count);
+
+    /**
+     * Обработчик лайка
+     */
+    @FunctionalInterface
+    interface LikeConsumer {
+        /**
+         * Обработка лайка
+         *
+         * @param filmId идентификатор фильма
+         * @param userId идентификатор пользователя
+         */
+        void accept(int filmId, int userId);
+    }
 }
\ No newline at end of file
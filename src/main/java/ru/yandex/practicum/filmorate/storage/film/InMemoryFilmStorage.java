@@ -1,28 +1,74 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.util.IntSetType;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
- * Реализация хранилища фильмов в памяти
+ * Реализация хранилища фильмов в памяти.
+ * Хранилище потокобезопасно: фильмы лежат в конкурентной упорядоченной карте, идентификаторы
+ * выдаются атомарным счетчиком, а лайки изменяются под блокировкой из фиксированного набора,
+ * выбираемой по идентификатору фильма. Множества лайков (IntSet) сами потокобезопасны,
+ * их представление задается настройкой filmorate.storage.in-memory.id-set.
  */
 @Component
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int nextId = 1;
+    private static final int LIKE_LOCK_STRIPES = 64;
+
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final FilmIndexes indexes = new FilmIndexes();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Блокировки изменения лайков, распределенные по фильмам по остатку от деления идентификатора.
+     * Изменение множества лайков и индекса популярности выполняется под одной блокировкой,
+     * чтобы параллельные добавление и удаление лайка не рассогласовали счетчик в индексе.
+     */
+    private final Lock[] likeLocks = new Lock[LIKE_LOCK_STRIPES];
+
+    private final IntSetType likeSetType;
+
+    public InMemoryFilmStorage() {
+        this(IntSetType.HASH);
+    }
+
+    /**
+     * Создание хранилища с заданным представлением множеств лайков
+     *
+     * @param likeSetType представление множеств лайков
+     */
+    @Autowired
+    public InMemoryFilmStorage(@Value("${filmorate.storage.in-memory.id-set:HASH}") IntSetType likeSetType) {
+        this.likeSetType = likeSetType;
+        for (int i = 0; i < likeLocks.length; i++) {
+            likeLocks[i] = new ReentrantLock();
+        }
+    }
 
     @Override
     public List<Film> getAllFilms() {
@@ -30,42 +76,119 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        log.debug("Получение страницы фильмов после id {} размером {}", afterId, limit);
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer action) {
+        films.values().forEach(film -> film.getLikes().forEachInt(userId -> action.accept(film.getId(), userId)));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<Film> getPopularFilms(int count) {
-        return films.values().stream()
-                .sorted((f1, f2) -> {
-                    // Сначала сортируем по количеству лайков (по убыванию)
-                    int likesCompare = Integer.compare(f2.getLikesCount(), f1.getLikesCount());
-                    if (likesCompare != 0) {
-                        return likesCompare;
-                    }
-                    // При равном количестве лайков сортируем по id (по убыванию)
-                    return Integer.compare(f2.getId(), f1.getId());
-                })
-                .limit(count)
+        // Порядок по количеству лайков и затем по id (оба по убыванию) поддерживает индекс популярности
+        return indexes.getPopular(count).stream()
+                .map(films::get)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId) {
+        return getFilmsByIds(indexes.getPopular(count, genreId, mpaId));
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(TrendingWindow window, boolean decay, int count) {
+        return getFilmsByIds(indexes.getTrending(window, decay, count));
+    }
+
+    @Override
+    public List<Film> getRelatedFilms(int filmId, int count) {
+        return getFilmsByIds(indexes.getRelated(filmId, count));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return getFilmsByIds(indexes.search(query, count));
+    }
+
+    @Override
+    public List<Film> findFilms(FilmFilter filter, int afterId, int limit) {
+        return getFilmsByIds(indexes.find(filter, afterId, limit));
+    }
+
+    @Override
+    public List<TitleSuggestion> autocompleteTitles(String prefix, int count) {
+        return indexes.autocomplete(prefix, count);
+    }
+
+    @Override
+    public List<FilmSimilarity> getSimilarAudienceFilms(int filmId, int count) {
+        return getFilmsByIds(indexes.findSimilarAudience(filmId, count)).stream()
+                .map(film -> new FilmSimilarity(film, indexes.audienceSimilarity(filmId, film.getId())))
+                .collect(Collectors.toList());
+    }
 
     @Override
     public Film addFilm(Film film) {
         log.debug("Добавление фильма: {}", film);
         validateFilm(film);
-        film.setId(nextId++);
+        film.setId(nextId.getAndIncrement());
+        film.setLikes(likeSetType.copyOf(film.getLikes()));
         films.put(film.getId(), film);
+        indexes.filmAdded(film, film.getLikes());
         log.debug("Фильм успешно добавлен: {}", film);
         return film;
     }
 
+    @Override
+    public BatchResult addFilms(List<Film> films) {
+        BatchResult result = new BatchResult(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                result.accept(i, addFilm(films.get(i)).getId());
+            } catch (ValidationException e) {
+                result.reject(i, e.getMessage());
+            }
+        }
+        return result;
+    }
+
     @Override
     public Film updateFilm(Film film) {
         log.debug("Обновление фильма: {}", film);
         validateFilm(film);
-        if (!films.containsKey(film.getId())) {
+        // Лайки изменяются только через addLike/removeLike. Замена выполняется атомарно,
+        // поэтому лайк, поставленный во время обновления, не теряется
+        Film updatedFilm = films.computeIfPresent(film.getId(), (id, existingFilm) -> {
+            film.setLikes(existingFilm.getLikes());
+            return film;
+        });
+        if (updatedFilm == null) {
             log.warn("Фильм с id {} не найден", film.getId());
             throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
         }
-        films.put(film.getId(), film);
+        indexes.filmUpdated(film);
+        // Прежние версии фильмов удаляются из поискового индекса, когда их становится больше, чем актуальных
+        indexes.compactSearchIndexIfBloated();
         log.debug("Фильм успешно обновлен: {}", film);
         return film;
     }
@@ -73,11 +196,11 @@ public class InMemoryFilmStorage implements FilmStorage {
     @Override
     public Optional<Film> getFilmById(int id) {
         log.debug("Получение фильма по id: {}", id);
-        if (!films.containsKey(id)) {
+        Film film = films.get(id);
+        if (film == null) {
             log.warn("Фильм с id {} не найден", id);
-            return Optional.empty();
         }
-        return Optional.of(films.get(id));
+        return Optional.ofNullable(film);
     }
 
     @Override
@@ -85,6 +208,59 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.containsKey(id);
     }
 
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        Film film = getExistingFilm(filmId);
+        Lock lock = likeLock(filmId);
+        lock.lock();
+        try {
+            boolean added = film.addLike(userId);
+            if (added) {
+                indexes.likeAdded(filmId, userId, indexes.now());
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        Film film = getExistingFilm(filmId);
+        Lock lock = likeLock(filmId);
+        lock.lock();
+        try {
+            boolean removed = film.removeLike(userId);
+            if (removed) {
+                // Время лайков здесь не хранится, поэтому из трендов вычитается самый поздний учтенный лайк фильма
+                indexes.likeRemoved(filmId, userId, null, () -> film.getLikes().toIntArray());
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock likeLock(int filmId) {
+        return likeLocks[Math.floorMod(filmId, LIKE_LOCK_STRIPES)];
+    }
+
+    /**
+     * Получение фильма, который должен существовать в хранилище
+     *
+     * @param id идентификатор фильма
+     * @return фильм
+     * @throws NotFoundException если фильм не найден
+     */
+    private Film getExistingFilm(int id) {
+        Film film = films.get(id);
+        if (film == null) {
+            log.warn("Фильм с id {} не найден", id);
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+        return film;
+    }
+
     /**
      * Валидация данных фильма
      *
@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.util.RoaringIntSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таблицы лидеров по популярности для каждого жанра и рейтинга MPA.
+ * Таблица хранит не более capacity лучших фильмов своей категории и обновляется при каждом изменении
+ * количества лайков или жанров фильма, поэтому выдача "топа комедий" не требует отбора по всему каталогу.
+ * <p>
+ * При уменьшении лайков или удалении фильма из категории в таблицу может не попасть фильм, который
+ * теперь сильнее ее последних строк. Поэтому таблица помнит порог: все фильмы категории вне таблицы
+ * имеют ключ популярности меньше порога, и достоверными считаются только строки не ниже него.
+ * Если достоверных строк не хватает, таблица заново заполняется из индекса популярности.
+ * Таблицы заполняются при первом запросе и хранятся только для непустых категорий.
+ */
+public class LeaderboardIndex {
+    /**
+     * Количество фильмов в одной таблице лидеров
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * Порог таблицы, вне которой нет фильмов ее категории
+     */
+    private static final long NONE_OUTSIDE = Long.MIN_VALUE;
+
+    private final PopularityIndex popularityIndex;
+    private final FilmFilterIndex filterIndex;
+    private final int capacity;
+    private final Map<Integer, Board> boardsByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, Board> boardsByMpa = new ConcurrentHashMap<>();
+
+    public LeaderboardIndex(PopularityIndex popularityIndex, FilmFilterIndex filterIndex) {
+        this(popularityIndex, filterIndex, DEFAULT_CAPACITY);
+    }
+
+    public LeaderboardIndex(PopularityIndex popularityIndex, FilmFilterIndex filterIndex, int capacity) {
+        this.popularityIndex = popularityIndex;
+        this.filterIndex = filterIndex;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Получение идентификаторов самых популярных фильмов жанра и (или) рейтинга MPA.
+     * Если заданы оба условия, просматривается таблица жанра с проверкой рейтинга;
+     * если ее достоверных строк не хватает, выполняется отбор по индексам.
+     *
+     * @param count   количество фильмов
+     * @param genreId идентификатор жанра или null
+     * @param mpaId   идентификатор рейтинга MPA или null
+     * @return идентификаторы фильмов в порядке убывания популярности
+     */
+    public List<Integer> getTop(int count, Integer genreId, Integer mpaId) {
+        if (genreId == null && mpaId == null) {
+            return popularityIndex.getTop(count);
+        }
+        FilmFilter filter = new FilmFilter();
+        if (genreId != null) {
+            filter.setGenreIds(Set.of(genreId));
+        }
+        if (mpaId != null) {
+            filter.setMpaIds(Set.of(mpaId));
+        }
+        if (count <= 0) {
+            return List.of();
+        }
+        if (count <= capacity) {
+            Map<Integer, Board> boards = genreId != null ? boardsByGenre : boardsByMpa;
+            int categoryId = genreId != null ? genreId : mpaId;
+            Board board = boards.computeIfAbsent(categoryId,
+                    id -> new Board(genreId != null ? genreFilter(id) : mpaFilter(id)));
+            List<Integer> top = board.top(count, genreId != null && mpaId != null ? filter : null);
+            if (board.isEmpty()) {
+                // Таблицы пустых категорий не хранятся, чтобы запросы с несуществующими id не занимали память
+                boards.remove(categoryId, board);
+            }
+            if (top != null) {
+                return top;
+            }
+        }
+        return popularityIndex.getTop(count, filterIndex.filter(filter));
+    }
+
+    /**
+     * Учет изменения фильма: количества лайков, жанров или рейтинга MPA.
+     * Вызывается после обновления индекса популярности и индекса отбора.
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void update(int filmId) {
+        boardsByGenre.values().forEach(board -> board.update(filmId));
+        boardsByMpa.values().forEach(board -> board.update(filmId));
+    }
+
+    /**
+     * Удаление всех таблиц (при перестроении индексов, по которым они заполняются)
+     */
+    public void clear() {
+        boardsByGenre.clear();
+        boardsByMpa.clear();
+    }
+
+    /**
+     * Количество созданных таблиц лидеров
+     *
+     * @return количество таблиц
+     */
+    public int size() {
+        return boardsByGenre.size() + boardsByMpa.size();
+    }
+
+    private static FilmFilter genreFilter(int genreId) {
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(Set.of(genreId));
+        return filter;
+    }
+
+    private static FilmFilter mpaFilter(int mpaId) {
+        FilmFilter filter = new FilmFilter();
+        filter.setMpaIds(Set.of(mpaId));
+        return filter;
+    }
+
+    /**
+     * Таблица лидеров одной категории
+     */
+    private final class Board {
+        final FilmFilter filter;
+        final NavigableSet<Long> ranking = new TreeSet<>();
+        final Map<Integer, Long> keyByFilm = new HashMap<>();
+        /**
+         * Все фильмы категории вне таблицы имеют ключ меньше порога
+         */
+        long threshold = NONE_OUTSIDE;
+        /**
+         * Таблица заполняется при первом запросе, до этого изменения фильмов ее не затрагивают
+         */
+        boolean loaded;
+
+        Board(FilmFilter filter) {
+            this.filter = filter;
+        }
+
+        synchronized List<Integer> top(int count, FilmFilter extra) {
+            if (!loaded) {
+                load();
+            }
+            for (int attempt = 0; ; attempt++) {
+                List<Integer> filmIds = new ArrayList<>(count);
+                boolean untrusted = false;
+                Iterator<Long> iterator = ranking.descendingIterator();
+                while (filmIds.size() < count && iterator.hasNext()) {
+                    long key = iterator.next();
+                    if (key < threshold) {
+                        untrusted = true;
+                        break;
+                    }
+                    int filmId = PopularityIndex.filmId(key);
+                    if (extra == null || filterIndex.matches(filmId, extra)) {
+                        filmIds.add(filmId);
+                    }
+                }
+                if (filmIds.size() == count || threshold == NONE_OUTSIDE) {
+                    return filmIds;
+                }
+                // Перезаполнение поможет, только если таблица потеряла строки или часть их недостоверна
+                if (attempt > 0 || (!untrusted && ranking.size() == capacity)) {
+                    return null;
+                }
+                load();
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return ranking.isEmpty() && threshold == NONE_OUTSIDE;
+        }
+
+        synchronized void update(int filmId) {
+            if (!loaded) {
+                return;
+            }
+            Long previous = keyByFilm.remove(filmId);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+            if (!filterIndex.matches(filmId, filter)) {
+                return;
+            }
+            long key = PopularityIndex.key(filmId, popularityIndex.getLikes(filmId));
+            if (previous == null && ranking.size() == capacity && key < ranking.first()) {
+                threshold = Math.max(threshold, key + 1);
+                return;
+            }
+            add(filmId, key);
+            if (ranking.size() > capacity) {
+                long evicted = ranking.pollFirst();
+                keyByFilm.remove(PopularityIndex.filmId(evicted));
+                threshold = Math.max(threshold, evicted + 1);
+            }
+        }
+
+        void load() {
+            ranking.clear();
+            keyByFilm.clear();
+            RoaringIntSet films = filterIndex.filter(filter);
+            for (int filmId : popularityIndex.getTop(capacity, films)) {
+                add(filmId, PopularityIndex.key(filmId, popularityIndex.getLikes(filmId)));
+            }
+            threshold = films.size() > ranking.size() && !ranking.isEmpty() ? ranking.first() : NONE_OUTSIDE;
+            loaded = true;
+        }
+
+        private void add(int filmId, long key) {
+            ranking.add(key);
+            keyByFilm.put(filmId, key);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодическая сверка счетчиков лайков фильмов с таблицей likes
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+    private final FilmDbStorage filmDbStorage;
+
+    /**
+     * Пересчет разошедшихся счетчиков лайков
+     *
+     * @return количество исправленных фильмов
+     */
+    @Scheduled(cron = "${filmorate.likes.reconcile-cron:0 0 4 * * *}")
+    public int reconcile() {
+        log.info("Запуск сверки счетчиков лайков");
+        int drifted = filmDbStorage.reconcileLikeCounts();
+        if (drifted > 0) {
+            log.warn("Сверка счетчиков лайков: исправлено фильмов с расхождением: {}", drifted);
+        } else {
+            log.info("Сверка счетчиков лайков: расхождений не найдено");
+        }
+        return drifted;
+    }
+}
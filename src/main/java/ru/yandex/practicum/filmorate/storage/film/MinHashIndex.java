@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.util.TopIds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Индекс MinHash-сигнатур множеств лайков фильмов для поиска фильмов с похожей аудиторией.
+ * Сигнатура фильма - минимумы HASHES независимых хеш-функций по пользователям, которым понравился фильм.
+ * Доля совпавших позиций двух сигнатур оценивает меру Жаккара множеств лайков.
+ * <p>
+ * Кандидаты ищутся без перебора всех пар фильмов: сигнатура делится на BANDS полос по ROWS позиций
+ * (LSH), и фильмы с хотя бы одной полностью совпавшей полосой попадают в общую корзину. При 16 полосах
+ * по 4 позиции кандидатами с вероятностью больше половины становятся фильмы со схожестью от 0.5.
+ * <p>
+ * Добавление лайка только уменьшает минимумы, поэтому сигнатура обновляется за HASHES операций.
+ * Удаление лайка меняет сигнатуру, лишь если пользователь давал один из минимумов; тогда она
+ * пересчитывается по оставшимся лайкам фильма вне блокировки и заменяется сравнением с прежней. Сигнатуры неизменяемы: при изменении фильм получает
+ * новый массив, поэтому читатели не видят частично обновленную сигнатуру.
+ */
+public class MinHashIndex {
+    /**
+     * Количество хеш-функций (длина сигнатуры)
+     */
+    public static final int HASHES = 64;
+
+    /**
+     * Количество полос LSH
+     */
+    static final int BANDS = 16;
+
+    /**
+     * Количество позиций сигнатуры в одной полосе
+     */
+    static final int ROWS = HASHES / BANDS;
+
+    /**
+     * Значение позиции сигнатуры для пустого множества
+     */
+    private static final int EMPTY = Integer.MAX_VALUE;
+
+    /**
+     * Зерно хеш-функций. Сигнатуры хранятся в базе данных, поэтому функции не должны меняться между запусками.
+     */
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final long[] SALTS = new SplittableRandom(SEED).longs(HASHES).toArray();
+
+    private final Map<Integer, int[]> signatures = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Вычисление сигнатуры множества пользователей
+     *
+     * @param userIds идентификаторы пользователей
+     * @return сигнатура из HASHES позиций
+     */
+    public static int[] signatureOf(int[] userIds) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, EMPTY);
+        for (int userId : userIds) {
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(i, userId));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Сигнатура после добавления пользователя к множеству
+     *
+     * @param signature сигнатура множества
+     * @param userId    идентификатор пользователя
+     * @return новая сигнатура или null, если добавление ее не меняет
+     */
+    public static int[] withUser(int[] signature, int userId) {
+        int[] updated = null;
+        for (int i = 0; i < HASHES; i++) {
+            int hash = hash(i, userId);
+            if (hash < signature[i]) {
+                if (updated == null) {
+                    updated = signature.clone();
+                }
+                updated[i] = hash;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Проверка, дает ли пользователь один из минимумов сигнатуры. Только в этом случае удаление
+     * пользователя из множества меняет сигнатуру и требует ее пересчета по оставшимся пользователям.
+     *
+     * @param signature сигнатура множества
+     * @param userId    идентификатор пользователя
+     * @return true, если хотя бы одна позиция сигнатуры равна хешу пользователя
+     */
+    public static boolean holdsMinimum(int[] signature, int userId) {
+        for (int i = 0; i < HASHES; i++) {
+            if (signature[i] == hash(i, userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Установка сигнатуры фильма, например загруженной из базы данных
+     *
+     * @param filmId    идентификатор фильма
+     * @param signature сигнатура из HASHES позиций
+     */
+    public void put(int filmId, int[] signature) {
+        if (signature.length != HASHES) {
+            throw new IllegalArgumentException("Длина сигнатуры должна быть " + HASHES);
+        }
+        int[] copy = signature.clone();
+        signatures.compute(filmId, (id, previous) -> replace(id, previous, copy));
+    }
+
+    /**
+     * Учет лайка в сигнатуре фильма
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     * @return true, если сигнатура изменилась
+     */
+    public boolean addLike(int filmId, int userId) {
+        boolean[] changed = {false};
+        signatures.compute(filmId, (id, previous) -> {
+            int[] updated = withUser(previous == null ? signatureOf(new int[0]) : previous, userId);
+            if (updated == null) {
+                return previous;
+            }
+            changed[0] = true;
+            return replace(id, previous, updated);
+        });
+        return changed[0];
+    }
+
+    /**
+     * Учет удаления лайка в сигнатуре фильма
+     *
+     * @param filmId         идентификатор фильма
+     * @param userId         идентификатор пользователя
+     * @param remainingUsers поставщик пользователей, которым фильм нравится после удаления лайка;
+     *                       вызывается, только если удаленный лайк давал один из минимумов
+     * @return true, если сигнатура изменилась
+     */
+    public boolean removeLike(int filmId, int userId, Supplier<int[]> remainingUsers) {
+        while (true) {
+            int[] previous = signatures.get(filmId);
+            if (previous == null || !holdsMinimum(previous, userId)) {
+                return false;
+            }
+            // Оставшиеся лайки загружаются вне блокировки записи фильма в карте: поставщик может обращаться
+            // к базе данных. Сигнатура заменяется, только если за это время ее никто не изменил, иначе
+            // проверка повторяется с новой сигнатурой.
+            int[] updated = signatureOf(remainingUsers.get());
+            if (Arrays.equals(previous, updated)) {
+                return false;
+            }
+            boolean[] replaced = {false};
+            signatures.computeIfPresent(filmId, (id, current) -> {
+                if (current != previous) {
+                    return current;
+                }
+                replaced[0] = true;
+                return replace(id, current, updated);
+            });
+            if (replaced[0]) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Получение сигнатуры фильма
+     *
+     * @param filmId идентификатор фильма
+     * @return копия сигнатуры или пустая сигнатура, если у фильма нет лайков
+     */
+    public int[] signature(int filmId) {
+        int[] signature = signatures.get(filmId);
+        return signature == null ? signatureOf(new int[0]) : signature.clone();
+    }
+
+    /**
+     * Проверка наличия сигнатуры фильма в индексе
+     *
+     * @param filmId идентификатор фильма
+     * @return true, если у фильма есть непустая сигнатура
+     */
+    public boolean contains(int filmId) {
+        return signatures.containsKey(filmId);
+    }
+
+    /**
+     * Признак пустой сигнатуры (у фильма нет лайков)
+     *
+     * @param signature сигнатура
+     * @return true, если сигнатура соответствует пустому множеству
+     */
+    public static boolean isEmpty(int[] signature) {
+        return signature[0] == EMPTY;
+    }
+
+    /**
+     * Поиск фильмов с похожей аудиторией среди кандидатов из общих корзин LSH
+     *
+     * @param filmId идентификатор фильма
+     * @param count  максимальное количество фильмов
+     * @return идентификаторы фильмов по убыванию оценки схожести, при равенстве - по возрастанию id
+     */
+    public List<Integer> findSimilar(int filmId, int count) {
+        int[] signature = signatures.get(filmId);
+        if (signature == null || isEmpty(signature) || count <= 0) {
+            return new ArrayList<>();
+        }
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            candidates.addAll(buckets.getOrDefault(bucketKey(signature, band), Set.of()));
+        }
+        candidates.remove(filmId);
+
+        // Место кандидата определяется количеством совпавших позиций сигнатур
+        TopIds top = new TopIds(count);
+        for (int candidateId : candidates) {
+            int matches = matches(signature, signatures.get(candidateId));
+            if (matches > 0) {
+                top.offer(candidateId, matches);
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Оценка меры Жаккара множеств лайков двух фильмов по сигнатурам
+     *
+     * @param filmId  идентификатор фильма
+     * @param otherId идентификатор другого фильма
+     * @return доля совпавших позиций сигнатур от 0 до 1
+     */
+    public double similarity(int filmId, int otherId) {
+        return (double) matches(signatures.get(filmId), signatures.get(otherId)) / HASHES;
+    }
+
+    /**
+     * Количество фильмов с непустой сигнатурой
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        return signatures.size();
+    }
+
+    /**
+     * Замена сигнатуры фильма с переносом его между корзинами LSH
+     *
+     * @return новая сигнатура или null, если она пуста и фильм удаляется из индекса
+     */
+    private int[] replace(int filmId, int[] previous, int[] updated) {
+        for (int band = 0; band < BANDS; band++) {
+            long key = bucketKey(updated, band);
+            if (previous != null && !isEmpty(previous)) {
+                long previousKey = bucketKey(previous, band);
+                if (previousKey == key) {
+                    continue;
+                }
+                buckets.computeIfPresent(previousKey, (k, films) -> {
+                    films.remove(filmId);
+                    return films.isEmpty() ? null : films;
+                });
+            }
+            if (!isEmpty(updated)) {
+                buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(filmId);
+            }
+        }
+        return isEmpty(updated) ? null : updated;
+    }
+
+    private static int matches(int[] signature, int[] other) {
+        if (signature == null || other == null || isEmpty(signature) || isEmpty(other)) {
+            return 0;
+        }
+        int matches = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signature[i] == other[i]) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Ключ корзины полосы: номер полосы в старших битах, хеш позиций полосы в младших.
+     * Совпадение хешей разных полос дает лишнего кандидата, который отсеивается при сравнении сигнатур.
+     */
+    private static long bucketKey(int[] signature, int band) {
+        int hash = 1;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = 31 * hash + signature[i];
+        }
+        return ((long) band << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Значение i-й хеш-функции для пользователя (финализатор MurmurHash3 с солью функции)
+     */
+    private static int hash(int i, int userId) {
+        long h = userId * 0x9E3779B97F4A7C15L + SALTS[i];
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB93FE1A85B9L;
+        h ^= h >>> 33;
+        // Неотрицательные значения меньше EMPTY
+        return (int) (h >>> 34);
+    }
+}
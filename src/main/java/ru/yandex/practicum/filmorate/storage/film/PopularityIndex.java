@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.util.RoaringIntSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс популярности фильмов.
+ * Фильмы упорядочены по количеству лайков, а при равенстве - по идентификатору (оба по убыванию).
+ * Изменение количества лайков стоит O(log n), выборка первых count фильмов - O(log n + count),
+ * без сортировки всего каталога.
+ */
+public class PopularityIndex {
+    /**
+     * Ключи упорядоченного множества: количество лайков в старших 32 битах, идентификатор фильма в младших.
+     * Обратный порядок чисел совпадает с порядком популярности.
+     */
+    private final NavigableSet<Long> ranking = new TreeSet<>();
+    private final Map<Integer, Integer> likesByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Установка количества лайков фильма (добавляет фильм в индекс, если его там нет)
+     *
+     * @param filmId идентификатор фильма
+     * @param likes  количество лайков
+     */
+    public void put(int filmId, int likes) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = likesByFilm.put(filmId, likes);
+            if (previous != null) {
+                ranking.remove(key(filmId, previous));
+            }
+            ranking.add(key(filmId, likes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Увеличение количества лайков фильма на единицу
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void increment(int filmId) {
+        add(filmId, 1);
+    }
+
+    /**
+     * Уменьшение количества лайков фильма на единицу
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void decrement(int filmId) {
+        add(filmId, -1);
+    }
+
+    /**
+     * Изменение количества лайков фильма на заданную величину (количество не становится отрицательным).
+     * В отличие от put, приращения от разных источников складываются независимо от порядка применения.
+     *
+     * @param filmId идентификатор фильма
+     * @param delta  приращение
+     */
+    public void add(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            int previous = likesByFilm.getOrDefault(filmId, 0);
+            int likes = Math.max(previous + delta, 0);
+            likesByFilm.put(filmId, likes);
+            ranking.remove(key(filmId, previous));
+            ranking.add(key(filmId, likes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Получение количества лайков фильма
+     *
+     * @param filmId идентификатор фильма
+     * @return количество лайков или 0, если фильма нет в индексе
+     */
+    public int getLikes(int filmId) {
+        lock.readLock().lock();
+        try {
+            return likesByFilm.getOrDefault(filmId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверка наличия фильма в индексе
+     *
+     * @param filmId идентификатор фильма
+     * @return true, если фильм есть в индексе
+     */
+    public boolean contains(int filmId) {
+        lock.readLock().lock();
+        try {
+            return likesByFilm.containsKey(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение идентификаторов самых популярных фильмов
+     *
+     * @param count количество фильмов
+     * @return идентификаторы фильмов в порядке убывания популярности
+     */
+    public List<Integer> getTop(int count) {
+        lock.readLock().lock();
+        try {
+            List<Integer> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), ranking.size()));
+            Iterator<Long> iterator = ranking.descendingIterator();
+            while (filmIds.size() < count && iterator.hasNext()) {
+                filmIds.add(filmId(iterator.next()));
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение идентификаторов самых популярных фильмов из заданного множества.
+     * Если подходящих фильмов много, порядок популярности обходится с начала с проверкой принадлежности
+     * множеству: до count-го подходящего фильма просматривается около count * n / m фильмов.
+     * Если их мало, лучшие count из них отбираются по количеству лайков в куче за O(m log count).
+     *
+     * @param count количество фильмов
+     * @param among множество идентификаторов подходящих фильмов
+     * @return идентификаторы фильмов в порядке убывания популярности
+     */
+    public List<Integer> getTop(int count, RoaringIntSet among) {
+        lock.readLock().lock();
+        try {
+            int matches = among.size();
+            List<Integer> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), matches));
+            if ((long) matches * matches > (long) count * ranking.size()) {
+                Iterator<Long> iterator = ranking.descendingIterator();
+                while (filmIds.size() < count && iterator.hasNext()) {
+                    int filmId = filmId(iterator.next());
+                    if (among.contains(filmId)) {
+                        filmIds.add(filmId);
+                    }
+                }
+                return filmIds;
+            }
+            // Куча из count лучших ключей, на вершине - худший из отобранных
+            PriorityQueue<Long> best = new PriorityQueue<>();
+            for (int filmId : among.toSortedArray()) {
+                Integer likes = likesByFilm.get(filmId);
+                if (likes == null) {
+                    continue;
+                }
+                long key = key(filmId, likes);
+                if (best.size() < count) {
+                    best.add(key);
+                } else if (count > 0 && key > best.peek()) {
+                    best.poll();
+                    best.add(key);
+                }
+            }
+            while (!best.isEmpty()) {
+                filmIds.add(filmId(best.poll()));
+            }
+            Collections.reverse(filmIds);
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Полная замена содержимого индекса
+     *
+     * @param likes количество лайков по идентификаторам фильмов
+     */
+    public void rebuild(Map<Integer, Integer> likes) {
+        lock.writeLock().lock();
+        try {
+            ranking.clear();
+            likesByFilm.clear();
+            likes.forEach((filmId, count) -> {
+                likesByFilm.put(filmId, count);
+                ranking.add(key(filmId, count));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Количество фильмов в индексе
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return likesByFilm.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ключ популярности фильма: больший ключ соответствует более популярному фильму
+     */
+    static long key(int filmId, int likes) {
+        return ((long) likes << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    static int filmId(long key) {
+        return (int) key;
+    }
+}
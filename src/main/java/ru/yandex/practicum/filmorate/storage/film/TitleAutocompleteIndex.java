@@ -0,0 +1,612 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс автодополнения названий фильмов с упорядочиванием по популярности и исправлением опечаток.
+ * <p>
+ * Нормализованные названия (см. {@link FilmSearchIndex#normalize(String)}, знаки препинания заменены пробелами)
+ * хранятся в отсортированном массиве, и названия с заданным началом занимают в нем непрерывный диапазон,
+ * который находится двоичным поиском. Над массивом построено дерево отрезков с максимумом количества лайков,
+ * поэтому самые популярные фильмы диапазона извлекаются за O(count * log n) без перебора диапазона.
+ * Новые и переименованные фильмы попадают в небольшой упорядоченный буфер, который вливается в массив,
+ * когда превышает 1/16 его размера; прежняя позиция переименованного фильма помечается удаленной.
+ * <p>
+ * Если точных совпадений меньше, чем нужно, кандидаты с опечатками ищутся по индексу триграмм начала
+ * названия и проверяются расстоянием Левенштейна между введенным текстом и началом названия:
+ * одна правка для ввода от 4 символов, две - от 8.
+ */
+public class TitleAutocompleteIndex {
+    /**
+     * Количество начальных символов названия, триграммы которых индексируются
+     */
+    static final int TRIGRAM_PREFIX = 24;
+
+    /**
+     * Максимальное количество кандидатов с опечатками, проверяемых расстоянием Левенштейна
+     */
+    static final int MAX_FUZZY_CANDIDATES = 500;
+
+    private static final int MIN_BUFFER_LIMIT = 1024;
+    private static final int DEAD = -1;
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.<Entry, String>comparing(entry -> entry.title)
+            .thenComparingInt(entry -> entry.filmId);
+    private static final Comparator<Entry> RANKING = Comparator.<Entry>comparingInt(entry -> -entry.likes)
+            .thenComparing(ENTRY_ORDER);
+
+    private final IntUnaryOperator likesOf;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] titles = new String[0];
+    private int[] filmIds = new int[0];
+    private int leaves = 1;
+    private int[] tree = {DEAD, DEAD};
+    private IntCountMap trigramOffsets = new IntCountMap();
+    private IntCountMap trigramCounts = new IntCountMap();
+    private int[] trigramPositions = new int[0];
+
+    private final NavigableSet<Entry> buffer = new TreeSet<>(ENTRY_ORDER);
+    private final Map<Integer, Set<Entry>> bufferTrigrams = new HashMap<>();
+    private String[] nameByFilm = new String[0];
+
+    /**
+     * Позиция фильма в отсортированном массиве, увеличенная на единицу (ноль - фильм в буфере или отсутствует)
+     */
+    private int[] positionByFilm = new int[0];
+
+    /**
+     * Создание индекса
+     *
+     * @param likesOf функция, возвращающая текущее количество лайков фильма
+     */
+    public TitleAutocompleteIndex(IntUnaryOperator likesOf) {
+        this.likesOf = likesOf;
+    }
+
+    /**
+     * Приведение названия к виду для сравнения начал: нижний регистр без диакритики,
+     * последовательности знаков препинания и пробелов заменены одним пробелом
+     *
+     * @param name название
+     * @return нормализованное название
+     */
+    static String normalizeTitle(String name) {
+        return name == null ? "" : String.join(" ", FilmSearchIndex.tokenize(name));
+    }
+
+    /**
+     * Полное построение индекса по всем фильмам
+     *
+     * @param ids   идентификаторы фильмов
+     * @param names названия фильмов в порядке идентификаторов
+     */
+    public void rebuild(int[] ids, String[] names) {
+        lock.writeLock().lock();
+        try {
+            buffer.clear();
+            nameByFilm = new String[0];
+            positionByFilm = new int[0];
+            for (int i = 0; i < ids.length; i++) {
+                ensureCapacity(ids[i]);
+                nameByFilm[ids[i]] = names[i];
+                buffer.add(new Entry(normalizeTitle(names[i]), ids[i]));
+            }
+            titles = new String[0];
+            filmIds = new int[0];
+            merge();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление фильма или замена его названия
+     *
+     * @param filmId идентификатор фильма
+     * @param name   название
+     */
+    public void put(int filmId, String name) {
+        String title = normalizeTitle(name);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(filmId);
+            if (positionByFilm[filmId] > 0) {
+                setLikes(positionByFilm[filmId] - 1, DEAD);
+                positionByFilm[filmId] = 0;
+            } else if (nameByFilm[filmId] != null) {
+                removeFromBuffer(new Entry(normalizeTitle(nameByFilm[filmId]), filmId));
+            }
+            nameByFilm[filmId] = name;
+            addToBuffer(new Entry(title, filmId));
+            if (buffer.size() > Math.max(MIN_BUFFER_LIMIT, titles.length / 16)) {
+                merge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Обновление количества лайков фильма в дереве отрезков
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void likesChanged(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (filmId < positionByFilm.length && positionByFilm[filmId] > 0) {
+                setLikes(positionByFilm[filmId] - 1, likesOf.applyAsInt(filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перечитывание количества лайков всех фильмов, например после сверки счетчиков
+     */
+    public void refreshLikes() {
+        lock.writeLock().lock();
+        try {
+            for (int position = 0; position < filmIds.length; position++) {
+                if (tree[leaves + position] != DEAD) {
+                    tree[leaves + position] = likesOf.applyAsInt(filmIds[position]);
+                }
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Варианты автодополнения: фильмы, название которых начинается с введенного текста, по убыванию
+     * количества лайков, при равенстве - по алфавиту; если их меньше count, за ними следуют названия,
+     * начало которых отличается от введенного текста не более чем на допустимое число правок
+     *
+     * @param prefix введенный текст
+     * @param count  максимальное количество вариантов
+     * @return варианты автодополнения
+     */
+    public List<TitleSuggestion> complete(String prefix, int count) {
+        String query = normalizeTitle(prefix);
+        List<TitleSuggestion> suggestions = new ArrayList<>();
+        if (query.isEmpty() || count <= 0) {
+            return suggestions;
+        }
+        lock.readLock().lock();
+        try {
+            Set<Integer> found = new HashSet<>();
+            for (Entry entry : exactMatches(query, count)) {
+                suggestions.add(suggestion(entry.filmId));
+                found.add(entry.filmId);
+            }
+            int maxEdits = query.length() < 4 ? 0 : query.length() < 8 ? 1 : 2;
+            if (suggestions.size() < count && maxEdits > 0) {
+                for (int filmId : fuzzyMatches(query, maxEdits, found, count - suggestions.size())) {
+                    suggestions.add(suggestion(filmId));
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество фильмов в индексе
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            int live = buffer.size();
+            for (int position = 0; position < filmIds.length; position++) {
+                if (tree[leaves + position] != DEAD) {
+                    live++;
+                }
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Самые популярные фильмы с заданным началом названия из массива и буфера
+     */
+    private List<Entry> exactMatches(String query, int count) {
+        String upper = query + Character.MAX_VALUE;
+        int from = lowerBound(query);
+        int to = lowerBound(upper);
+
+        // Узлы дерева, покрывающие диапазон, упорядочены по максимуму лайков, затем по началу отрезка:
+        // отрезки не пересекаются, поэтому лист извлекается в порядке «лайки по убыванию, название по алфавиту»
+        PriorityQueue<int[]> nodes = new PriorityQueue<>(Comparator.<int[]>comparingInt(node -> -node[1])
+                .thenComparingInt(node -> node[2]));
+        for (int left = from + leaves, right = to + leaves; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                offerNode(nodes, left++);
+            }
+            if ((right & 1) == 1) {
+                offerNode(nodes, --right);
+            }
+        }
+        List<Entry> fromArray = new ArrayList<>(count);
+        while (!nodes.isEmpty() && fromArray.size() < count) {
+            int node = nodes.poll()[0];
+            if (node >= leaves) {
+                int position = node - leaves;
+                fromArray.add(new Entry(titles[position], filmIds[position], tree[node]));
+            } else {
+                offerNode(nodes, 2 * node);
+                offerNode(nodes, 2 * node + 1);
+            }
+        }
+
+        // Буфер упорядочен по названию, а не по лайкам, поэтому его диапазон просматривается целиком
+        // с отбором count лучших в куче, где на вершине худший из отобранных
+        PriorityQueue<Entry> best = new PriorityQueue<>(RANKING.reversed());
+        best.addAll(fromArray);
+        for (Entry entry : buffer.subSet(new Entry(query, Integer.MIN_VALUE), true,
+                new Entry(upper, Integer.MIN_VALUE), false)) {
+            int likes = likesOf.applyAsInt(entry.filmId);
+            if (best.size() == count && likes < best.peek().likes) {
+                continue;
+            }
+            best.add(new Entry(entry.title, entry.filmId, likes));
+            if (best.size() > count) {
+                best.poll();
+            }
+        }
+        List<Entry> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+        return matches;
+    }
+
+    /**
+     * Фильмы, начало названия которых отличается от введенного текста не более чем на maxEdits правок,
+     * по возрастанию расстояния, затем по убыванию лайков и по алфавиту
+     */
+    private List<Integer> fuzzyMatches(String query, int maxEdits, Set<Integer> exclude, int count) {
+        // Каждая правка портит не больше трех триграмм, поэтому у подходящего названия остается хотя бы
+        // minShared общих триграмм с вводом, и хотя бы одна из них - среди probes самых редких триграмм ввода.
+        // Кандидаты набираются только по редким спискам, остальные списки проверяются двоичным поиском.
+        // Слишком частые триграммы (например, общее начало многих названий) кандидатов не порождают:
+        // это может потерять часть совпадений, но не дает одной подсказке перебрать весь каталог.
+        int[] queryTrigrams = distinct(trigrams(query));
+        int minShared = Math.max(1, queryTrigrams.length - 3 * maxEdits);
+        int[][] lists = new int[queryTrigrams.length][];
+        for (int i = 0; i < queryTrigrams.length; i++) {
+            int offset = trigramOffsets.get(queryTrigrams[i]);
+            lists[i] = new int[]{offset, offset + trigramCounts.get(queryTrigrams[i])};
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list[1] - list[0]));
+        int stopLimit = stopLimit(titles.length);
+        int rare = 0;
+        while (rare < Math.min(lists.length, queryTrigrams.length - minShared + 1)
+                && lists[rare][1] - lists[rare][0] <= stopLimit) {
+            rare++;
+        }
+        int probes = rare;
+
+        IntCountMap shared = new IntCountMap();
+        for (int i = 0; i < probes; i++) {
+            for (int j = lists[i][0]; j < lists[i][1]; j++) {
+                shared.increment(trigramPositions[j]);
+            }
+        }
+        long[][] candidates = {new long[16]};
+        int[] candidateCount = {0};
+        shared.forEach((position, sharedCount) -> {
+            if (tree[leaves + position] == DEAD) {
+                return;
+            }
+            int total = sharedCount;
+            for (int i = probes; i < lists.length && total < minShared; i++) {
+                if (Arrays.binarySearch(trigramPositions, lists[i][0], lists[i][1], position) >= 0) {
+                    total++;
+                }
+            }
+            if (total >= minShared) {
+                if (candidateCount[0] == candidates[0].length) {
+                    candidates[0] = Arrays.copyOf(candidates[0], candidateCount[0] * 2);
+                }
+                candidates[0][candidateCount[0]++] = ((long) total << 32) | position;
+            }
+        });
+        long[] ranked = Arrays.copyOf(candidates[0], candidateCount[0]);
+        Arrays.sort(ranked);
+
+        List<Entry> matches = new ArrayList<>();
+        for (int i = ranked.length - 1; i >= Math.max(0, ranked.length - MAX_FUZZY_CANDIDATES); i--) {
+            int position = (int) ranked[i];
+            addIfClose(matches, query, maxEdits, exclude, titles[position], filmIds[position], tree[leaves + position]);
+        }
+        Set<Entry> bufferCandidates = new HashSet<>();
+        Arrays.stream(queryTrigrams)
+                .mapToObj(trigram -> bufferTrigrams.getOrDefault(trigram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .limit(queryTrigrams.length - minShared + 1)
+                .takeWhile(entries -> entries.size() <= stopLimit(buffer.size()))
+                .forEach(bufferCandidates::addAll);
+        bufferCandidates.stream().limit(MAX_FUZZY_CANDIDATES).forEach(entry -> addIfClose(matches, query, maxEdits,
+                exclude, entry.title, entry.filmId, likesOf.applyAsInt(entry.filmId)));
+        matches.sort(Comparator.<Entry>comparingInt(entry -> entry.distance).thenComparing(RANKING));
+        return matches.stream().limit(count).map(entry -> entry.filmId).collect(Collectors.toList());
+    }
+
+    private static int stopLimit(int size) {
+        return Math.max(MAX_FUZZY_CANDIDATES, size / 64);
+    }
+
+    private static void addIfClose(List<Entry> matches, String query, int maxEdits, Set<Integer> exclude,
+                                   String title, int filmId, int likes) {
+        if (exclude.contains(filmId)) {
+            return;
+        }
+        int distance = prefixDistance(query, title, maxEdits);
+        if (distance <= maxEdits) {
+            Entry entry = new Entry(title, filmId, likes);
+            entry.distance = distance;
+            matches.add(entry);
+        }
+    }
+
+    /**
+     * Наименьшее расстояние Левенштейна между строкой и началами другой строки
+     *
+     * @param query    строка
+     * @param title    строка, начала которой сравниваются
+     * @param maxEdits допустимое количество правок
+     * @return расстояние или maxEdits + 1, если оно больше допустимого
+     */
+    static int prefixDistance(String query, String title, int maxEdits) {
+        int columns = Math.min(title.length(), query.length() + maxEdits);
+        int[] previous = new int[columns + 1];
+        int[] current = new int[columns + 1];
+        for (int j = 0; j <= columns; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= columns; j++) {
+                int substitution = previous[j - 1] + (query.charAt(i - 1) == title.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int distance = maxEdits + 1;
+        for (int j = 0; j <= columns; j++) {
+            distance = Math.min(distance, previous[j]);
+        }
+        return distance;
+    }
+
+    /**
+     * Ключи триграмм начала строки, дополненной двумя пробелами слева.
+     * Ключ - хеш трех символов; совпадение хешей разных триграмм дает лишнего кандидата,
+     * который отсеивается проверкой расстояния.
+     */
+    private static int[] trigrams(String title) {
+        String padded = "  " + title.substring(0, Math.min(title.length(), TRIGRAM_PREFIX));
+        int[] keys = new int[Math.max(0, padded.length() - 2)];
+        for (int i = 0; i < keys.length; i++) {
+            long packed = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            packed *= 0x9E3779B97F4A7C15L;
+            keys[i] = (int) (packed ^ (packed >>> 32));
+        }
+        return keys;
+    }
+
+    private void offerNode(PriorityQueue<int[]> nodes, int node) {
+        if (tree[node] == DEAD) {
+            return;
+        }
+        int start = node;
+        while (start < leaves) {
+            start = 2 * start;
+        }
+        nodes.add(new int[]{node, tree[node], start});
+    }
+
+    private void addToBuffer(Entry entry) {
+        buffer.add(entry);
+        for (int trigram : trigrams(entry.title)) {
+            bufferTrigrams.computeIfAbsent(trigram, key -> new HashSet<>()).add(entry);
+        }
+    }
+
+    private void removeFromBuffer(Entry entry) {
+        buffer.remove(entry);
+        for (int trigram : trigrams(entry.title)) {
+            Set<Entry> entries = bufferTrigrams.get(trigram);
+            if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+                bufferTrigrams.remove(trigram);
+            }
+        }
+    }
+
+    private void setLikes(int position, int likes) {
+        int node = leaves + position;
+        tree[node] = likes;
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = titles.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (titles[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private TitleSuggestion suggestion(int filmId) {
+        return new TitleSuggestion(filmId, nameByFilm[filmId], likesOf.applyAsInt(filmId));
+    }
+
+    private void ensureCapacity(int filmId) {
+        if (filmId >= nameByFilm.length) {
+            int capacity = Math.max(filmId + 1, nameByFilm.length * 2);
+            nameByFilm = Arrays.copyOf(nameByFilm, capacity);
+            positionByFilm = Arrays.copyOf(positionByFilm, capacity);
+        }
+    }
+
+    /**
+     * Слияние буфера с отсортированным массивом без удаленных позиций и построение дерева отрезков
+     * и индекса триграмм. Вызывается под блокировкой записи.
+     */
+    private void merge() {
+        List<Entry> merged = new ArrayList<>(titles.length + buffer.size());
+        int position = 0;
+        for (Entry entry : buffer) {
+            while (position < titles.length && ENTRY_ORDER.compare(entryAt(position), entry) < 0) {
+                addLive(merged, position++);
+            }
+            merged.add(entry);
+        }
+        while (position < titles.length) {
+            addLive(merged, position++);
+        }
+        buffer.clear();
+        bufferTrigrams.clear();
+
+        int size = merged.size();
+        titles = new String[size];
+        filmIds = new int[size];
+        leaves = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        tree = new int[2 * leaves];
+        Arrays.fill(tree, DEAD);
+        for (int i = 0; i < size; i++) {
+            Entry entry = merged.get(i);
+            titles[i] = entry.title;
+            filmIds[i] = entry.filmId;
+            positionByFilm[entry.filmId] = i + 1;
+            tree[leaves + i] = likesOf.applyAsInt(entry.filmId);
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+        buildTrigrams();
+    }
+
+    private Entry entryAt(int position) {
+        return new Entry(titles[position], filmIds[position]);
+    }
+
+    private void addLive(List<Entry> merged, int position) {
+        if (tree[leaves + position] != DEAD) {
+            merged.add(new Entry(titles[position], filmIds[position]));
+        }
+    }
+
+    /**
+     * Построение списков позиций по триграммам в одном плоском массиве: первый проход считает
+     * длины списков, второй раскладывает позиции по смещениям
+     */
+    private void buildTrigrams() {
+        IntCountMap counts = new IntCountMap();
+        int total = 0;
+        for (String title : titles) {
+            for (int trigram : distinct(trigrams(title))) {
+                counts.increment(trigram);
+                total++;
+            }
+        }
+        IntCountMap offsets = new IntCountMap(counts.size());
+        int[] next = {0};
+        counts.forEach((trigram, count) -> {
+            offsets.add(trigram, next[0]);
+            next[0] += count;
+        });
+        int[] positions = new int[total];
+        IntCountMap filled = new IntCountMap(counts.size());
+        for (int position = 0; position < titles.length; position++) {
+            for (int trigram : distinct(trigrams(titles[position]))) {
+                positions[offsets.get(trigram) + filled.get(trigram)] = position;
+                filled.increment(trigram);
+            }
+        }
+        trigramOffsets = offsets;
+        trigramCounts = counts;
+        trigramPositions = positions;
+    }
+
+    private static int[] distinct(int[] keys) {
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * Нормализованное название фильма с количеством лайков и расстоянием до введенного текста
+     */
+    private static final class Entry {
+        final String title;
+        final int filmId;
+        final int likes;
+        int distance;
+
+        Entry(String title, int filmId) {
+            this(title, filmId, 0);
+        }
+
+        Entry(String title, int filmId, int likes) {
+            this.title = title;
+            this.filmId = filmId;
+            this.likes = likes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry other && filmId == other.filmId && title.equals(other.title);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * title.hashCode() + filmId;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Индекс фильмов, набирающих популярность, по лайкам за скользящее окно времени.
+ * Лайки раскладываются по поминутным корзинам в кольцевом буфере длиной в самое широкое окно.
+ * Для каждого окна из {@link TrendingWindow} поддерживаются счетчики лайков фильмов и рейтинг по ним:
+ * новый лайк увеличивает счетчики, а корзина, вышедшая за границу окна, вычитается из них
+ * при наступлении очередной минуты. Поэтому запрос рейтинга не пересчитывает лайки.
+ * <p>
+ * Кроме количества лайков за окно, поддерживается оценка с экспоненциальным затуханием:
+ * вес лайка уменьшается вдвое за каждую {@value #HALF_LIVES_PER_WINDOW}-ю часть окна.
+ * Веса хранятся растущими от опорной минуты (2^((минута - опора) / полураспад)), поэтому старые оценки
+ * не приходится пересчитывать с течением времени: общий множитель не меняет порядок фильмов.
+ */
+public class TrendingIndex {
+    /**
+     * Количество периодов полураспада веса лайка в окне при оценке с затуханием
+     */
+    public static final int HALF_LIVES_PER_WINDOW = 4;
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    /**
+     * Длина кольцевого буфера в минутах - самое широкое окно
+     */
+    private static final int RING_MINUTES = Arrays.stream(TrendingWindow.values())
+            .mapToInt(TrendingWindow::getMinutes).max().orElseThrow();
+
+    /**
+     * Количество периодов полураспада от опорной минуты, после которого веса приводятся к новой опоре
+     */
+    private static final int REBASE_HALF_LIVES = 256;
+
+    private static final long NO_MINUTE = Long.MIN_VALUE;
+
+    private final LongSupplier clock;
+    private final IntCountMap[] buckets = new IntCountMap[RING_MINUTES];
+    private final long[] bucketMinutes = new long[RING_MINUTES];
+    private final Map<TrendingWindow, Tally> tallies = new EnumMap<>(TrendingWindow.class);
+    private long currentMinute;
+
+    public TrendingIndex() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock источник текущего времени в миллисекундах
+     */
+    public TrendingIndex(LongSupplier clock) {
+        this.clock = clock;
+        currentMinute = minuteOf(clock.getAsLong());
+        for (TrendingWindow window : TrendingWindow.values()) {
+            tallies.put(window, new Tally(window, currentMinute));
+        }
+        Arrays.fill(bucketMinutes, NO_MINUTE);
+    }
+
+    /**
+     * Текущее время по часам индекса - время, которым отмечается новый лайк
+     *
+     * @return время в миллисекундах
+     */
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Учет лайка, поставленного в заданное время. Лайки старше самого широкого окна не учитываются.
+     *
+     * @param filmId  идентификатор фильма
+     * @param likedAt время лайка в миллисекундах
+     */
+    public synchronized void addLike(int filmId, long likedAt) {
+        advance();
+        long minute = Math.min(minuteOf(likedAt), currentMinute);
+        if (minute <= currentMinute - RING_MINUTES) {
+            return;
+        }
+        bucketFor(minute).increment(filmId);
+        for (Tally tally : tallies.values()) {
+            if (minute > currentMinute - tally.window.getMinutes()) {
+                tally.add(filmId, 1, minute);
+            }
+        }
+    }
+
+    /**
+     * Полное построение индекса по лайкам из источника.
+     * Лайки сначала раскладываются по корзинам, затем лайки каждого фильма суммируются по окнам
+     * и фильм попадает в рейтинги один раз - это намного быстрее учета лайков по одному.
+     *
+     * @param source источник, передающий обработчику все лайки за самое широкое окно
+     */
+    public synchronized void rebuild(Consumer<TimedLikeConsumer> source) {
+        clear();
+        source.accept((filmId, likedAt) -> {
+            long minute = Math.min(minuteOf(likedAt), currentMinute);
+            if (minute > currentMinute - RING_MINUTES) {
+                bucketFor(minute).increment(filmId);
+            }
+        });
+        for (Tally tally : tallies.values()) {
+            for (long minute = currentMinute - tally.window.getMinutes() + 1; minute <= currentMinute; minute++) {
+                IntCountMap bucket = bucket(minute);
+                if (bucket != null) {
+                    long likedMinute = minute;
+                    bucket.forEach((filmId, count) -> tally.accumulate(filmId, count, likedMinute));
+                }
+            }
+            tally.rank();
+        }
+    }
+
+    /**
+     * Отмена лайка, поставленного в заданное время
+     *
+     * @param filmId  идентификатор фильма
+     * @param likedAt время отменяемого лайка в миллисекундах
+     */
+    public synchronized void removeLike(int filmId, long likedAt) {
+        advance();
+        removeAt(filmId, Math.min(minuteOf(likedAt), currentMinute));
+    }
+
+    /**
+     * Отмена самого позднего учтенного лайка фильма, если время отменяемого лайка неизвестно
+     *
+     * @param filmId идентификатор фильма
+     */
+    public synchronized void removeLatestLike(int filmId) {
+        advance();
+        if (!tallies.get(TrendingWindow.WEEK).trends.containsKey(filmId)) {
+            return;
+        }
+        for (long minute = currentMinute; minute > currentMinute - RING_MINUTES; minute--) {
+            if (removeAt(filmId, minute)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Получение идентификаторов фильмов с наибольшим количеством лайков за окно
+     *
+     * @param window окно времени
+     * @param decay  true - упорядочить по оценке с затуханием, false - по количеству лайков за окно
+     * @param count  количество фильмов
+     * @return идентификаторы фильмов по убыванию; при равенстве - по убыванию идентификатора
+     */
+    public synchronized List<Integer> getTop(TrendingWindow window, boolean decay, int count) {
+        advance();
+        Tally tally = tallies.get(window);
+        List<Integer> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), tally.trends.size()));
+        if (decay) {
+            Iterator<Trend> iterator = tally.byScore.descendingIterator();
+            while (filmIds.size() < count && iterator.hasNext()) {
+                filmIds.add(iterator.next().filmId);
+            }
+        } else {
+            Iterator<Long> iterator = tally.byLikes.descendingIterator();
+            while (filmIds.size() < count && iterator.hasNext()) {
+                filmIds.add(PopularityIndex.filmId(iterator.next()));
+            }
+        }
+        return filmIds;
+    }
+
+    /**
+     * Количество лайков фильма за окно
+     *
+     * @param window окно времени
+     * @param filmId идентификатор фильма
+     * @return количество лайков
+     */
+    public synchronized int getLikes(TrendingWindow window, int filmId) {
+        advance();
+        Trend trend = tallies.get(window).trends.get(filmId);
+        return trend != null ? trend.likes : 0;
+    }
+
+    /**
+     * Полная очистка индекса перед построением
+     */
+    public synchronized void clear() {
+        currentMinute = minuteOf(clock.getAsLong());
+        Arrays.fill(buckets, null);
+        Arrays.fill(bucketMinutes, NO_MINUTE);
+        tallies.replaceAll((window, tally) -> new Tally(window, currentMinute));
+    }
+
+    /**
+     * Количество фильмов с лайками за самое широкое окно
+     *
+     * @return количество фильмов
+     */
+    public synchronized int size() {
+        advance();
+        return tallies.get(TrendingWindow.WEEK).trends.size();
+    }
+
+    /**
+     * Сдвиг окон к текущей минуте: лайки из корзин, вышедших за границу окна, вычитаются из его счетчиков
+     */
+    private void advance() {
+        long now = minuteOf(clock.getAsLong());
+        if (now <= currentMinute) {
+            return;
+        }
+        if (now - currentMinute >= RING_MINUTES) {
+            // Все учтенные лайки вышли за границы окон
+            clear();
+            return;
+        }
+        for (long minute = currentMinute + 1; minute <= now; minute++) {
+            for (Tally tally : tallies.values()) {
+                long expired = minute - tally.window.getMinutes();
+                IntCountMap bucket = bucket(expired);
+                if (bucket != null) {
+                    bucket.forEach((filmId, count) -> {
+                        if (count > 0) {
+                            tally.add(filmId, -count, expired);
+                        }
+                    });
+                }
+            }
+            // Ячейка самой старой минуты переходит к наступившей
+            int slot = slot(minute);
+            bucketMinutes[slot] = minute;
+            buckets[slot] = null;
+        }
+        currentMinute = now;
+        tallies.values().forEach(tally -> tally.rebase(now));
+    }
+
+    private boolean removeAt(int filmId, long minute) {
+        IntCountMap bucket = bucket(minute);
+        if (bucket == null || bucket.get(filmId) <= 0) {
+            return false;
+        }
+        bucket.add(filmId, -1);
+        for (Tally tally : tallies.values()) {
+            if (minute > currentMinute - tally.window.getMinutes()) {
+                tally.add(filmId, -1, minute);
+            }
+        }
+        return true;
+    }
+
+    private IntCountMap bucketFor(long minute) {
+        int slot = slot(minute);
+        if (bucketMinutes[slot] != minute || buckets[slot] == null) {
+            bucketMinutes[slot] = minute;
+            buckets[slot] = new IntCountMap();
+        }
+        return buckets[slot];
+    }
+
+    private IntCountMap bucket(long minute) {
+        int slot = slot(minute);
+        return bucketMinutes[slot] == minute ? buckets[slot] : null;
+    }
+
+    private static int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) RING_MINUTES);
+    }
+
+    private static long minuteOf(long millis) {
+        return Math.floorDiv(millis, MINUTE_MILLIS);
+    }
+
+    /**
+     * Счетчики и рейтинги фильмов одного окна
+     */
+    private static final class Tally {
+        private static final Comparator<Trend> SCORE_ORDER = Comparator.<Trend>comparingDouble(trend -> trend.score)
+                .thenComparingInt(trend -> trend.filmId);
+
+        final TrendingWindow window;
+        final long halfLifeMinutes;
+        final Map<Integer, Trend> trends = new HashMap<>();
+        final NavigableSet<Long> byLikes = new TreeSet<>();
+        final NavigableSet<Trend> byScore = new TreeSet<>(SCORE_ORDER);
+        long baseMinute;
+
+        Tally(TrendingWindow window, long baseMinute) {
+            this.window = window;
+            this.halfLifeMinutes = window.getMinutes() / HALF_LIVES_PER_WINDOW;
+            this.baseMinute = baseMinute;
+        }
+
+        void add(int filmId, int delta, long minute) {
+            Trend trend = trends.get(filmId);
+            if (trend == null) {
+                if (delta <= 0) {
+                    return;
+                }
+                trend = new Trend(filmId);
+                trends.put(filmId, trend);
+            } else {
+                byLikes.remove(PopularityIndex.key(filmId, trend.likes));
+                byScore.remove(trend);
+            }
+            trend.likes += delta;
+            trend.score += delta * weight(minute);
+            if (trend.likes <= 0) {
+                trends.remove(filmId);
+                return;
+            }
+            byLikes.add(PopularityIndex.key(filmId, trend.likes));
+            byScore.add(trend);
+        }
+
+        /**
+         * Суммирование лайков фильма при построении, без изменения рейтингов
+         */
+        void accumulate(int filmId, int count, long minute) {
+            Trend trend = trends.computeIfAbsent(filmId, Trend::new);
+            trend.likes += count;
+            trend.score += count * weight(minute);
+        }
+
+        /**
+         * Заполнение рейтингов по накопленным счетчикам
+         */
+        void rank() {
+            for (Trend trend : trends.values()) {
+                byLikes.add(PopularityIndex.key(trend.filmId, trend.likes));
+                byScore.add(trend);
+            }
+        }
+
+        private double weight(long minute) {
+            return Math.pow(2, (double) (minute - baseMinute) / halfLifeMinutes);
+        }
+
+        /**
+         * Перенос опоры весов ближе к текущей минуте, пока веса новых лайков не вышли за пределы double.
+         * Опора сдвигается на целое число периодов полураспада, поэтому все оценки делятся на одну
+         * степень двойки без погрешности и их порядок в рейтинге не меняется.
+         */
+        void rebase(long currentMinute) {
+            long halfLives = (currentMinute - baseMinute) / halfLifeMinutes;
+            if (halfLives < REBASE_HALF_LIVES) {
+                return;
+            }
+            baseMinute += halfLives * halfLifeMinutes;
+            for (Trend trend : trends.values()) {
+                trend.score = Math.scalb(trend.score, (int) -halfLives);
+            }
+        }
+    }
+
+    /**
+     * Обработчик лайка со временем его записи
+     */
+    @FunctionalInterface
+    public interface TimedLikeConsumer {
+        /**
+         * Обработка лайка
+         *
+         * @param filmId  идентификатор фильма
+         * @param likedAt время лайка в миллисекундах
+         */
+        void accept(int filmId, long likedAt);
+    }
+
+    /**
+     * Лайки фильма за окно и их оценка с затуханием
+     */
+    private static final class Trend {
+        final int filmId;
+        int likes;
+        double score;
+
+        Trend(int filmId) {
+            this.filmId = filmId;
+        }
+    }
+}
@@ -5,13 +5,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Реализация хранилища жанров в базе данных
@@ -22,72 +29,86 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public List<Genre> getAllGenres() {
-        String sql = "SELECT * FROM genre ORDER BY genre_id";
         log.debug("Получение списка всех жанров");
-        return jdbcTemplate.query(sql, this::mapRowToGenre);
+        return referenceDataCache.getAllGenres();
     }
 
     @Override
     public Optional<Genre> getGenreById(int id) {
-        String sql = "SELECT * FROM genre WHERE genre_id = ?";
-        try {
-            Genre genre = jdbcTemplate.queryForObject(sql, this::mapRowToGenre, id);
-            return Optional.ofNullable(genre);
-        } catch (Exception e) {
+        Optional<Genre> genre = referenceDataCache.getGenre(id);
+        if (genre.isEmpty()) {
             log.warn("Жанр с id {} не найден", id);
-            return Optional.empty();
         }
+        return genre;
     }
 
     @Override
     public List<Genre> getGenresByFilmId(int filmId) {
-        String sql = "SELECT g.genre_id, g.name FROM genre g " +
-                "JOIN film_genre fg ON g.genre_id = fg.genre_id " +
-                "WHERE fg.film_id = ? " +
-                "ORDER BY g.genre_id";
+        String sql = "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id";
         log.debug("Получение списка жанров для фильма с id {}", filmId);
         return jdbcTemplate.query(sql, this::mapRowToGenre, filmId);
     }
 
+    @Override
+    public Map<Integer, List<Genre>> getGenresByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, List<Genre>> genresByFilm = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genresByFilm;
+        }
+
+        String sql = "SELECT film_id, genre_id FROM film_genre " +
+                "WHERE film_id = ANY(?) " +
+                "ORDER BY film_id, genre_id";
+        log.debug("Получение жанров для {} фильмов", filmIds.size());
+        jdbcTemplate.query(sql, rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                    .add(mapRowToGenre(rs, 0));
+        }, (Object) filmIds.toArray(new Integer[0]));
+        return genresByFilm;
+    }
+
     @Override
     public void addGenresToFilm(int filmId, List<Genre> genres) {
         if (genres == null || genres.isEmpty()) {
             return;
         }
+        addGenresToFilms(Map.of(filmId, genres));
+    }
 
-        // Удаляем дубликаты жанров по id
-        List<Genre> uniqueGenres = new ArrayList<>();
-        for (Genre genre : genres) {
-            boolean isDuplicate = false;
-            for (Genre uniqueGenre : uniqueGenres) {
-                if (uniqueGenre.getId() == genre.getId()) {
-                    isDuplicate = true;
-                    break;
-                }
+    @Override
+    public void addGenresToFilms(Map<Integer, List<Genre>> genresByFilm) {
+        List<Object[]> rows = new ArrayList<>();
+        genresByFilm.forEach((filmId, genres) -> {
+            if (genres == null) {
+                return;
             }
-            if (!isDuplicate) {
-                uniqueGenres.add(genre);
+            // Удаляем дубликаты жанров по id, сохраняя порядок
+            Set<Integer> genreIds = new LinkedHashSet<>();
+            for (Genre genre : genres) {
+                genreIds.add(genre.getId());
             }
-        }
 
-        // Проверяем существование жанров перед добавлением
-        for (Genre genre : uniqueGenres) {
-            // Проверяем, существует ли жанр с таким id
-            String checkSql = "SELECT COUNT(*) FROM genre WHERE genre_id = ?";
-            Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, genre.getId());
-            if (count == null || count == 0) {
-                throw new ru.yandex.practicum.filmorate.exception.NotFoundException("Жанр с id " + genre.getId() + " не найден");
+            // Проверяем существование всех жанров по справочнику без обращения к базе данных
+            for (Integer genreId : genreIds) {
+                if (referenceDataCache.getGenre(genreId).isEmpty()) {
+                    log.warn("Жанр с id {} не найден", genreId);
+                    throw new NotFoundException("Жанр с id " + genreId + " не найден");
+                }
+                rows.add(new Object[]{filmId, genreId});
             }
+        });
+        if (rows.isEmpty()) {
+            return;
         }
 
+        // Записываем все связи фильмов с жанрами одним пакетом
         String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-        for (Genre genre : uniqueGenres) {
-            jdbcTemplate.update(sql, filmId, genre.getId());
-            log.debug("Добавлен жанр с id {} для фильма с id {}", genre.getId(), filmId);
-        }
+        jdbcTemplate.batchUpdate(sql, rows);
+        log.debug("Добавлено {} связей с жанрами для {} фильмов", rows.size(), genresByFilm.size());
     }
 
     @Override
@@ -98,17 +119,17 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     /**
-     * Маппинг строки результата запроса в объект Genre
+     * Маппинг строки результата запроса в объект Genre.
+     * Возвращает копию жанра из кэша справочников.
      *
-     * @param rs     результат запроса
+     * @param rs     результат запроса, содержащий колонку genre_id
      * @param rowNum номер строки
      * @return объект Genre
      * @throws SQLException при ошибке доступа к данным
      */
     private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(
-                rs.getInt("genre_id"),
-                rs.getString("name")
-        );
+        int genreId = rs.getInt("genre_id");
+        return referenceDataCache.getGenre(genreId)
+                .orElseThrow(() -> new NotFoundException("Жанр с id " + genreId + " не найден"));
     }
 }
\ No newline at end of file
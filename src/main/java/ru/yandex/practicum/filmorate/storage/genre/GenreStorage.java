@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -32,6 +34,14 @@ public interface GenreStorage {
      */
     List<Genre> getGenresByFilmId(int filmId);
 
+    /**
+     * Получение жанров для набора фильмов одним запросом
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return жанры, сгруппированные по идентификатору фильма
+     */
+    Map<Integer, List<Genre>> getGenresByFilmIds(Collection<Integer> filmIds);
+
     /**
      * Добавление жанров для фильма
      *
@@ -40,6 +50,13 @@ public interface GenreStorage {
      */
     void addGenresToFilm(int filmId, List<Genre> genres);
 
+    /**
+     * Добавление жанров для нескольких фильмов одним пакетом
+     *
+     * @param genresByFilm списки жанров по идентификаторам фильмов
+     */
+    void addGenresToFilms(Map<Integer, List<Genre>> genresByFilm);
+
     /**
      * Удаление всех жанров у фильма
      *
@@ -3,56 +3,36 @@ package ru.yandex.practicum.filmorate.storage.mpa;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 
 /**
- * Реализация хранилища рейтингов MPA в базе данных
+ * Реализация хранилища рейтингов MPA в базе данных.
+ * Чтение выполняется из кэша справочников без обращения к базе данных.
  */
 @Repository
 @Primary
 @Slf4j
 @RequiredArgsConstructor
 public class MpaDbStorage implements MpaStorage {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public List<Mpa> getAllMpa() {
-        String sql = "SELECT * FROM mpa ORDER BY mpa_id";
         log.debug("Получение списка всех рейтингов MPA");
-        return jdbcTemplate.query(sql, this::mapRowToMpa);
+        return referenceDataCache.getAllMpa();
     }
 
     @Override
     public Optional<Mpa> getMpaById(int id) {
-        String sql = "SELECT * FROM mpa WHERE mpa_id = ?";
-        try {
-            Mpa mpa = jdbcTemplate.queryForObject(sql, this::mapRowToMpa, id);
-            return Optional.ofNullable(mpa);
-        } catch (Exception e) {
+        Optional<Mpa> mpa = referenceDataCache.getMpa(id);
+        if (mpa.isEmpty()) {
             log.warn("Рейтинг MPA с id {} не найден", id);
-            return Optional.empty();
         }
+        return mpa;
     }
-
-    /**
-     * Маппинг строки результата запроса в объект Mpa
-     *
-     * @param rs     результат запроса
-     * @param rowNum номер строки
-     * @return объект Mpa
-     * @throws SQLException при ошибке доступа к данным
-     */
-    private Mpa mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return new Mpa(
-                rs.getInt("mpa_id"),
-                rs.getString("name")
-        );
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш справочников рейтингов MPA и жанров.
+ * Справочники содержат несколько строк и не меняются во время работы приложения, поэтому
+ * загружаются целиком в неизменяемый снимок с доступом по индексу массива. Чтение не обращается
+ * к базе данных. Снимок хранит неизменяемые значения, а наружу выдаются новые экземпляры Mpa и Genre:
+ * они изменяемы и попадают в модели фильмов, поэтому общий экземпляр мог бы изменить справочник
+ * для всех. Перезагрузка строит новый снимок и атомарно подменяет им текущий.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(List.of(), List.of());
+
+    /**
+     * Загрузка справочников из базы данных и замена текущего снимка
+     */
+    @PostConstruct
+    public void reload() {
+        List<Item> mpa = jdbcTemplate.query("SELECT mpa_id, name FROM mpa ORDER BY mpa_id",
+                (rs, rowNum) -> new Item(rs.getInt("mpa_id"), rs.getString("name")));
+        List<Item> genres = jdbcTemplate.query("SELECT genre_id, name FROM genre ORDER BY genre_id",
+                (rs, rowNum) -> new Item(rs.getInt("genre_id"), rs.getString("name")));
+        snapshot = new Snapshot(mpa, genres);
+        log.info("Справочники загружены. Рейтингов MPA: {}, жанров: {}", mpa.size(), genres.size());
+    }
+
+    /**
+     * Получение всех рейтингов MPA в порядке возрастания идентификатора
+     *
+     * @return список копий рейтингов
+     */
+    public List<Mpa> getAllMpa() {
+        return snapshot.allMpa.stream()
+                .map(Item::toMpa)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Получение рейтинга MPA по идентификатору
+     *
+     * @param id идентификатор рейтинга
+     * @return Optional, содержащий рейтинг, или пустой Optional, если рейтинг не найден
+     */
+    public Optional<Mpa> getMpa(int id) {
+        return snapshot.mpa(id).map(Item::toMpa);
+    }
+
+    /**
+     * Получение всех жанров в порядке возрастания идентификатора
+     *
+     * @return список копий жанров
+     */
+    public List<Genre> getAllGenres() {
+        return snapshot.allGenres.stream()
+                .map(Item::toGenre)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Получение жанра по идентификатору
+     *
+     * @param id идентификатор жанра
+     * @return Optional, содержащий жанр, или пустой Optional, если жанр не найден
+     */
+    public Optional<Genre> getGenre(int id) {
+        return snapshot.genre(id).map(Item::toGenre);
+    }
+
+    /**
+     * Неизменяемая строка справочника
+     */
+    private static final class Item {
+        private final int id;
+        private final String name;
+
+        private Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private Mpa toMpa() {
+            return new Mpa(id, name);
+        }
+
+        private Genre toGenre() {
+            return new Genre(id, name);
+        }
+    }
+
+    /**
+     * Неизменяемый снимок справочников
+     */
+    private static final class Snapshot {
+        private final List<Item> allMpa;
+        private final Item[] mpaById;
+        private final List<Item> allGenres;
+        private final Item[] genreById;
+
+        private Snapshot(List<Item> mpa, List<Item> genres) {
+            allMpa = List.copyOf(mpa);
+            mpaById = byId(mpa);
+            allGenres = List.copyOf(genres);
+            genreById = byId(genres);
+        }
+
+        private Optional<Item> mpa(int id) {
+            return id >= 0 && id < mpaById.length ? Optional.ofNullable(mpaById[id]) : Optional.empty();
+        }
+
+        private Optional<Item> genre(int id) {
+            return id >= 0 && id < genreById.length ? Optional.ofNullable(genreById[id]) : Optional.empty();
+        }
+
+        private static Item[] byId(List<Item> items) {
+            Item[] byId = new Item[items.stream().mapToInt(item -> item.id).max().orElse(-1) + 1];
+            items.forEach(item -> byId[item.id] = item);
+            return byId;
+        }
+    }
+}
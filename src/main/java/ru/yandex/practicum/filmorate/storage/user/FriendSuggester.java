@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+import ru.yandex.practicum.filmorate.util.TopIds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Подбор рекомендаций в друзья по количеству общих друзей.
+ * Обходит два шага графа дружбы: друзей пользователя и друзей этих друзей. Число ребер на каждом шаге
+ * ограничено, поэтому время ответа не растет неограниченно для пользователей с огромным числом друзей.
+ * Подсчет второго шага выполняется параллельно в общем пуле fork-join в примитивных счетчиках.
+ */
+final class FriendSuggester {
+    /**
+     * Максимальное количество друзей пользователя, через которых ищутся кандидаты
+     */
+    static final int MAX_FRIENDS = 2_000;
+
+    /**
+     * Максимальное количество друзей одного друга, учитываемых при подсчете
+     */
+    static final int MAX_FRIENDS_OF_FRIEND = 1_000;
+
+    /**
+     * Минимальное количество друзей, обрабатываемых одной подзадачей.
+     * Объединение счетчиков стоит дороже их заполнения, поэтому подзадач не больше, чем потоков в пуле.
+     */
+    private static final int MIN_TASK_SIZE = 128;
+
+    private FriendSuggester() {
+    }
+
+    /**
+     * Подбор пользователей, не являющихся друзьями, с наибольшим количеством общих друзей
+     *
+     * @param userId    идентификатор пользователя
+     * @param limit     максимальное количество рекомендаций
+     * @param friendsOf функция, возвращающая отсортированные идентификаторы друзей пользователя
+     * @param loadUsers функция, загружающая пользователей по идентификаторам в любом порядке
+     * @return рекомендации по убыванию количества общих друзей, при равенстве - по возрастанию id
+     */
+    static List<FriendSuggestion> suggest(int userId, int limit, IntFunction<int[]> friendsOf,
+                                          Function<int[], List<User>> loadUsers) {
+        int[] friends = friendsOf.apply(userId);
+        int[] firstHop = IntArrays.sampleEvenly(friends, MAX_FRIENDS);
+        if (firstHop.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int taskSize = Math.max(MIN_TASK_SIZE, -Math.floorDiv(-firstHop.length, pool.getParallelism()));
+        IntCountMap counts = pool.invoke(new CountTask(firstHop, 0, firstHop.length, taskSize, friendsOf));
+
+        // Место кандидата определяется количеством общих друзей
+        TopIds top = new TopIds(limit);
+        counts.forEach((candidateId, mutual) -> {
+            if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                top.offer(candidateId, mutual);
+            }
+        });
+        int[] ids = top.toArray();
+
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : loadUsers.apply(ids)) {
+            usersById.put(user.getId(), user);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            User user = usersById.get(ids[i]);
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(user, counts.get(ids[i])));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Подсчет упоминаний друзей друзей для части друзей пользователя
+     */
+    private static final class CountTask extends RecursiveTask<IntCountMap> {
+        private final int[] friends;
+        private final int from;
+        private final int to;
+        private final int taskSize;
+        private final IntFunction<int[]> friendsOf;
+
+        CountTask(int[] friends, int from, int to, int taskSize, IntFunction<int[]> friendsOf) {
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+            this.taskSize = taskSize;
+            this.friendsOf = friendsOf;
+        }
+
+        @Override
+        protected IntCountMap compute() {
+            if (to - from <= taskSize) {
+                IntCountMap counts = new IntCountMap();
+                for (int i = from; i < to; i++) {
+                    for (int candidateId : IntArrays.sampleEvenly(friendsOf.apply(friends[i]), MAX_FRIENDS_OF_FRIEND)) {
+                        counts.increment(candidateId);
+                    }
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friends, from, middle, taskSize, friendsOf);
+            left.fork();
+            IntCountMap right = new CountTask(friends, middle, to, taskSize, friendsOf).compute();
+            IntCountMap leftCounts = left.join();
+            // Меньшая таблица вливается в большую
+            if (leftCounts.size() < right.size()) {
+                right.addAll(leftCounts);
+                return right;
+            }
+            leftCounts.addAll(right);
+            return leftCounts;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Граф дружбы в памяти.
+ * Основная часть ребер хранится в сжатом строчном формате (CSR): для исходящих и входящих ребер
+ * по массиву смещений, индексированному идентификатором пользователя, и массиву отсортированных соседей.
+ * Изменения после последнего уплотнения копятся в буфере добавленных и удаленных ребер
+ * и переносятся в CSR методом {@link #compact()}.
+ */
+public class FriendshipGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Delta outgoingDelta = new Delta();
+    private final Delta incomingDelta = new Delta();
+    private Csr outgoing = Csr.EMPTY;
+    private Csr incoming = Csr.EMPTY;
+    private int edgeCount;
+
+    /**
+     * Номер полной замены графа: уплотнение, начатое до замены, отменяется
+     */
+    private long rebuilds;
+
+    /**
+     * Журнал изменений, сделанных во время построения CSR при уплотнении, или null вне уплотнения
+     */
+    private Journal journal;
+
+    /**
+     * Полная замена содержимого графа.
+     * Исходящие и входящие ребра строятся параллельно.
+     *
+     * @param edges ребра графа
+     */
+    public void rebuild(Edges edges) {
+        Csr[] built = build(edges);
+        lock.writeLock().lock();
+        try {
+            outgoing = built[0];
+            incoming = built[1];
+            outgoingDelta.clear();
+            incomingDelta.clear();
+            edgeCount = edges.size;
+            rebuilds++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление ребра
+     *
+     * @param userId   идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если ребро добавлено, false если оно уже было
+     */
+    public boolean addEdge(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            if (containsEdge(userId, friendId)) {
+                return false;
+            }
+            applyAdd(userId, friendId);
+            edgeCount++;
+            if (journal != null) {
+                journal.add(userId, friendId);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление ребра
+     *
+     * @param userId   идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если ребро удалено, false если его не было
+     */
+    public boolean removeEdge(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            if (!containsEdge(userId, friendId)) {
+                return false;
+            }
+            applyRemove(userId, friendId);
+            edgeCount--;
+            if (journal != null) {
+                journal.remove(userId, friendId);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверка наличия ребра
+     *
+     * @param userId   идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если friendId есть среди друзей userId
+     */
+    public boolean isFriend(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            return containsEdge(userId, friendId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение друзей пользователя (исходящие ребра)
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы друзей в порядке возрастания
+     */
+    public int[] getFriends(int userId) {
+        lock.readLock().lock();
+        try {
+            return outgoingDelta.apply(userId, outgoing);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение пользователей, добавивших пользователя в друзья (входящие ребра)
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы пользователей в порядке возрастания
+     */
+    public int[] getFollowers(int userId) {
+        lock.readLock().lock();
+        try {
+            return incomingDelta.apply(userId, incoming);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Получение общих друзей двух пользователей слиянием отсортированных списков
+     *
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return идентификаторы общих друзей в порядке возрастания
+     */
+    public int[] getCommonFriends(int userId, int otherId) {
+        int[] first;
+        int[] second;
+        lock.readLock().lock();
+        try {
+            first = outgoingDelta.apply(userId, outgoing);
+            second = outgoingDelta.apply(otherId, outgoing);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return IntArrays.intersectSorted(first, second);
+    }
+
+    /**
+     * Перенос накопленных изменений в CSR.
+     * Новые массивы строятся без блокировки записи, поэтому чтение и запись не простаивают
+     * на время построения. Изменения, сделанные во время построения, записываются в журнал
+     * и под блокировкой записи применяются к новому CSR как новый буфер изменений, поэтому
+     * уплотнение выполняется и при непрерывном потоке записи. Отменяется уплотнение только
+     * полной заменой графа.
+     *
+     * @return true, если уплотнение выполнено
+     */
+    public synchronized boolean compact() {
+        Edges edges;
+        long generation;
+        lock.readLock().lock();
+        try {
+            if (outgoingDelta.size == 0) {
+                return false;
+            }
+            generation = rebuilds;
+            // Запись ждет снятия блокировки чтения, поэтому все изменения после снимка попадут в журнал
+            journal = new Journal();
+            edges = new Edges(edgeCount);
+            int nodes = Math.max(outgoing.nodeCount(), outgoingDelta.maxNode + 1);
+            for (int userId = 0; userId < nodes; userId++) {
+                for (int friendId : outgoingDelta.apply(userId, outgoing)) {
+                    edges.add(userId, friendId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Csr[] built = null;
+        try {
+            built = build(edges);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                Journal edits = journal;
+                journal = null;
+                if (built != null && rebuilds == generation) {
+                    outgoing = built[0];
+                    incoming = built[1];
+                    outgoingDelta.clear();
+                    incomingDelta.clear();
+                    edits.replay(this);
+                } else {
+                    built = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return built != null;
+    }
+
+    /**
+     * Количество ребер в графе
+     *
+     * @return количество ребер
+     */
+    public int edgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество изменений, накопленных после последнего уплотнения
+     *
+     * @return размер буфера изменений
+     */
+    public int deltaSize() {
+        lock.readLock().lock();
+        try {
+            return outgoingDelta.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean containsEdge(int userId, int friendId) {
+        return outgoingDelta.contains(userId, friendId, outgoing);
+    }
+
+    private void applyAdd(int userId, int friendId) {
+        outgoingDelta.add(userId, friendId, outgoing.contains(userId, friendId));
+        incomingDelta.add(friendId, userId, incoming.contains(friendId, userId));
+    }
+
+    private void applyRemove(int userId, int friendId) {
+        outgoingDelta.remove(userId, friendId, outgoing.contains(userId, friendId));
+        incomingDelta.remove(friendId, userId, incoming.contains(friendId, userId));
+    }
+
+    private static Csr[] build(Edges edges) {
+        int nodes = edges.maxNode + 1;
+        CompletableFuture<Csr> incoming = CompletableFuture.supplyAsync(
+                () -> Csr.build(edges.targets, edges.sources, edges.size, nodes));
+        Csr outgoing = Csr.build(edges.sources, edges.targets, edges.size, nodes);
+        return new Csr[]{outgoing, incoming.join()};
+    }
+
+    /**
+     * Список ребер для построения графа
+     */
+    public static class Edges {
+        private int[] sources;
+        private int[] targets;
+        private int size;
+        private int maxNode = -1;
+
+        public Edges() {
+            this(16);
+        }
+
+        public Edges(int expectedSize) {
+            sources = new int[Math.max(expectedSize, 16)];
+            targets = new int[sources.length];
+        }
+
+        /**
+         * Добавление ребра
+         *
+         * @param userId   идентификатор пользователя
+         * @param friendId идентификатор друга
+         */
+        public void add(int userId, int friendId) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = userId;
+            targets[size] = friendId;
+            size++;
+            maxNode = Math.max(maxNode, Math.max(userId, friendId));
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Изменения графа в порядке их выполнения
+     */
+    private static final class Journal {
+        private final Edges edges = new Edges();
+        private final BitSet removals = new BitSet();
+
+        void add(int userId, int friendId) {
+            edges.add(userId, friendId);
+        }
+
+        void remove(int userId, int friendId) {
+            removals.set(edges.size);
+            edges.add(userId, friendId);
+        }
+
+        /**
+         * Повтор изменений поверх нового CSR. Каждое изменение было допустимо в момент выполнения,
+         * поэтому повтор по порядку приводит к тому же набору ребер.
+         *
+         * @param graph граф, заблокированный для записи
+         */
+        void replay(FriendshipGraph graph) {
+            for (int i = 0; i < edges.size; i++) {
+                if (removals.get(i)) {
+                    graph.applyRemove(edges.sources[i], edges.targets[i]);
+                } else {
+                    graph.applyAdd(edges.sources[i], edges.targets[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Неизменяемая матрица смежности в сжатом строчном формате
+     */
+    private static final class Csr {
+        static final Csr EMPTY = new Csr(new int[1], FriendshipGraph.EMPTY);
+
+        /**
+         * Соседи вершины v занимают targets[offsets[v]..offsets[v + 1])
+         */
+        final int[] offsets;
+        final int[] targets;
+
+        Csr(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        static Csr build(int[] from, int[] to, int size, int nodes) {
+            int[] offsets = new int[nodes + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int v = 0; v < nodes; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] targets = new int[size];
+            int[] cursor = Arrays.copyOf(offsets, nodes);
+            for (int i = 0; i < size; i++) {
+                targets[cursor[from[i]]++] = to[i];
+            }
+            IntStream.range(0, nodes).parallel()
+                    .filter(v -> offsets[v + 1] - offsets[v] > 1)
+                    .forEach(v -> Arrays.sort(targets, offsets[v], offsets[v + 1]));
+            return new Csr(offsets, targets);
+        }
+
+        int nodeCount() {
+            return offsets.length - 1;
+        }
+
+        int[] row(int node) {
+            if (node < 0 || node >= nodeCount()) {
+                return FriendshipGraph.EMPTY;
+            }
+            return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+        }
+
+        boolean contains(int node, int neighbour) {
+            if (node < 0 || node >= nodeCount()) {
+                return false;
+            }
+            return Arrays.binarySearch(targets, offsets[node], offsets[node + 1], neighbour) >= 0;
+        }
+    }
+
+    /**
+     * Буфер изменений одного направления ребер относительно CSR
+     */
+    private static final class Delta {
+        private final Map<Integer, IntHashSet> added = new HashMap<>();
+        private final Map<Integer, IntHashSet> removed = new HashMap<>();
+        private int size;
+        private int maxNode = -1;
+
+        void add(int node, int neighbour, boolean inBase) {
+            if (inBase) {
+                size -= discard(removed, node, neighbour);
+            } else {
+                added.computeIfAbsent(node, key -> new IntHashSet()).add(neighbour);
+                size++;
+                maxNode = Math.max(maxNode, node);
+            }
+        }
+
+        void remove(int node, int neighbour, boolean inBase) {
+            if (inBase) {
+                removed.computeIfAbsent(node, key -> new IntHashSet()).add(neighbour);
+                size++;
+            } else {
+                size -= discard(added, node, neighbour);
+            }
+        }
+
+        boolean contains(int node, int neighbour, Csr base) {
+            IntHashSet nodeAdded = added.get(node);
+            if (nodeAdded != null && nodeAdded.contains(neighbour)) {
+                return true;
+            }
+            IntHashSet nodeRemoved = removed.get(node);
+            return (nodeRemoved == null || !nodeRemoved.contains(neighbour)) && base.contains(node, neighbour);
+        }
+
+        int[] apply(int node, Csr base) {
+            int[] row = base.row(node);
+            IntHashSet nodeAdded = added.get(node);
+            IntHashSet nodeRemoved = removed.get(node);
+            if (nodeAdded == null && nodeRemoved == null) {
+                return row;
+            }
+            int[] extra = nodeAdded == null ? FriendshipGraph.EMPTY : nodeAdded.toSortedArray();
+            int[] result = new int[row.length + extra.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < row.length || j < extra.length) {
+                if (j == extra.length || (i < row.length && row[i] < extra[j])) {
+                    if (nodeRemoved == null || !nodeRemoved.contains(row[i])) {
+                        result[size++] = row[i];
+                    }
+                    i++;
+                } else {
+                    result[size++] = extra[j++];
+                }
+            }
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+
+        void clear() {
+            added.clear();
+            removed.clear();
+            size = 0;
+            maxNode = -1;
+        }
+
+        private static int discard(Map<Integer, IntHashSet> edges, int node, int neighbour) {
+            IntHashSet neighbours = edges.get(node);
+            if (neighbours == null || !neighbours.remove(neighbour)) {
+                return 0;
+            }
+            if (neighbours.isEmpty()) {
+                edges.remove(node);
+            }
+            return 1;
+        }
+    }
+}
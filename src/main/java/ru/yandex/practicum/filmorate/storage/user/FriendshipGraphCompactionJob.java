@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодический перенос изменений графа дружбы из буфера в сжатое представление
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FriendshipGraphCompactionJob {
+    private final UserDbStorage userDbStorage;
+
+    /**
+     * Уплотнение графа дружбы, если с прошлого запуска в нем накопились изменения
+     *
+     * @return true, если уплотнение выполнено
+     */
+    @Scheduled(fixedDelayString = "${filmorate.friendship.compact-delay-ms:60000}")
+    public boolean compact() {
+        boolean compacted = userDbStorage.compactFriendshipGraph();
+        if (compacted) {
+            log.debug("Граф дружбы уплотнен");
+        }
+        return compacted;
+    }
+}
@@ -1,26 +1,55 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.IntSetType;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
- * Реализация хранилища пользователей в памяти
+ * Реализация хранилища пользователей в памяти.
+ * Хранилище потокобезопасно: пользователи лежат в конкурентной упорядоченной карте, идентификаторы
+ * выдаются атомарным счетчиком, а множества друзей (IntSet) сами потокобезопасны.
+ * Их представление задается настройкой filmorate.storage.in-memory.id-set.
  */
 @Component
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int nextId = 1;
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final IntSetType friendSetType;
+
+    public InMemoryUserStorage() {
+        this(IntSetType.HASH);
+    }
+
+    /**
+     * Создание хранилища с заданным представлением множеств друзей
+     *
+     * @param friendSetType представление множеств друзей
+     */
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.in-memory.id-set:HASH}") IntSetType friendSetType) {
+        this.friendSetType = friendSetType;
+    }
 
     @Override
     public List<User> getAllUsers() {
@@ -28,11 +57,25 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        log.debug("Получение страницы пользователей после id {} размером {}", afterId, limit);
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
     @Override
     public User createUser(User user) {
         log.debug("Создание пользователя: {}", user);
         validateUser(user);
-        user.setId(nextId++);
+        user.setId(nextId.getAndIncrement());
+        user.setFriends(friendSetType.copyOf(user.getFriends()));
 
         // Если имя не указано, используем логин
         if (user.getName() == null || user.getName().isBlank()) {
@@ -50,18 +93,22 @@ public class InMemoryUserStorage implements UserStorage {
         log.debug("Обновление пользователя: {}", user);
         validateUser(user);
 
-        if (!users.containsKey(user.getId())) {
-            log.warn("Пользователь с id {} не найден", user.getId());
-            throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
-        }
-
         // Если имя не указано, используем логин
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
             log.debug("Имя пользователя не указано, используется логин: {}", user.getLogin());
         }
 
-        users.put(user.getId(), user);
+        // Друзья изменяются только через addFriend/removeFriend модели. Замена выполняется атомарно,
+        // поэтому друг, добавленный во время обновления, не теряется
+        User updatedUser = users.computeIfPresent(user.getId(), (id, existingUser) -> {
+            user.setFriends(existingUser.getFriends());
+            return user;
+        });
+        if (updatedUser == null) {
+            log.warn("Пользователь с id {} не найден", user.getId());
+            throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+        }
         log.debug("Пользователь успешно обновлен: {}", user);
         return user;
     }
@@ -69,11 +116,75 @@ public class InMemoryUserStorage implements UserStorage {
     @Override
     public Optional<User> getUserById(int id) {
         log.debug("Получение пользователя по id: {}", id);
-        if (!users.containsKey(id)) {
+        User user = users.get(id);
+        if (user == null) {
             log.warn("Пользователь с id {} не найден", id);
-            return Optional.empty();
         }
-        return Optional.of(users.get(id));
+        return Optional.ofNullable(user);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .distinct()
+                .sorted()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getFriends(int userId, boolean withFriendSets) {
+        User user = users.get(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        // Хранимые объекты уже содержат множества друзей, поэтому флаг не влияет на стоимость
+        return Arrays.stream(user.getFriends().toSortedArray())
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Получение общих друзей слиянием отсортированных массивов друзей обоих пользователей.
+     * Пересечение выполняется за один линейный проход без промежуточных хеш-множеств.
+     *
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return общие друзья в порядке возрастания идентификатора
+     */
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        User user = users.get(userId);
+        User otherUser = users.get(otherId);
+        if (user == null || otherUser == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(IntArrays.intersectSorted(user.getFriends().toSortedArray(), otherUser.getFriends().toSortedArray()))
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int limit) {
+        return FriendSuggester.suggest(userId, limit, this::getFriendIds, ids -> Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        User user = users.get(userId);
+        return user != null && user.addFriend(friendId);
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        User user = users.get(userId);
+        return user != null && user.removeFriend(friendId);
     }
 
     @Override
@@ -103,4 +214,15 @@ public class InMemoryUserStorage implements UserStorage {
             throw new ValidationException("Дата рождения не может быть в будущем");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Получение отсортированных идентификаторов друзей пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы друзей или пустой массив, если пользователь не найден
+     */
+    private int[] getFriendIds(int userId) {
+        User user = users.get(userId);
+        return user == null ? new int[0] : user.getFriends().toSortedArray();
+    }
+}
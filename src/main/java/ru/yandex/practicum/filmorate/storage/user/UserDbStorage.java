@@ -1,21 +1,30 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Реализация хранилища пользователей в базе данных
@@ -25,13 +34,72 @@ import java.util.Set;
 @Slf4j
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final DataVersions dataVersions;
+    private final FriendshipGraph friendshipGraph = new FriendshipGraph();
+
+    /**
+     * Загрузка графа дружбы из таблицы friendship
+     */
+    @PostConstruct
+    public void warmUpFriendshipGraph() {
+        FriendshipGraph.Edges edges = new FriendshipGraph.Edges();
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendship", rs -> {
+            edges.add(rs.getInt("user_id"), rs.getInt("friend_id"));
+        });
+        friendshipGraph.rebuild(edges);
+        log.info("Граф дружбы загружен. Количество связей: {}", edges.size());
+    }
+
+    /**
+     * Перенос накопленных изменений графа дружбы в сжатое представление
+     *
+     * @return true, если уплотнение выполнено
+     */
+    public boolean compactFriendshipGraph() {
+        return friendshipGraph.compact();
+    }
 
     @Override
     public List<User> getAllUsers() {
-        String sql = "SELECT * FROM users";
+        String sql = "SELECT * FROM users ORDER BY user_id";
         log.debug("Получение списка всех пользователей");
-        return jdbcTemplate.query(sql, this::mapRowToUser);
+        return loadUsers(sql);
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        log.debug("Получение страницы пользователей после id {} размером {}", afterId, limit);
+        return loadUsers(sql, afterId, limit);
+    }
+
+    /**
+     * Потоковый обход всех пользователей.
+     * Строки читаются курсором с заданным fetch size, друзья догружаются пачками по
+     * EXPORT_CHUNK_SIZE пользователей, поэтому расход памяти не зависит от количества пользователей.
+     *
+     * @param action действие, выполняемое для каждого пользователя в порядке возрастания идентификатора
+     */
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        String sql = "SELECT * FROM users ORDER BY user_id";
+        List<User> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        log.debug("Потоковый обход всех пользователей");
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            chunk.add(mapRowToUser(rs, 0));
+            if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                emitChunk(chunk, action);
+            }
+        });
+        emitChunk(chunk, action);
     }
 
     @Override
@@ -55,6 +123,7 @@ public class UserDbStorage implements UserStorage {
 
         Number key = simpleJdbcInsert.executeAndReturnKey(values);
         user.setId(key.intValue());
+        dataVersions.changed(Table.USER, user.getId());
 
         log.debug("Пользователь успешно создан: {}", user);
         return user;
@@ -80,9 +149,11 @@ public class UserDbStorage implements UserStorage {
             log.warn("Пользователь с id {} не найден", user.getId());
             throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
         }
+        dataVersions.changed(Table.USER, user.getId());
 
-        // Обновляем список друзей
-        updateFriendships(user);
+        // Список друзей меняется только через addFriend и removeFriend
+        user.setFriends(new IntHashSet());
+        loadFriends(List.of(user));
 
         log.debug("Пользователь успешно обновлен: {}", user);
         return user;
@@ -91,16 +162,99 @@ public class UserDbStorage implements UserStorage {
     @Override
     public Optional<User> getUserById(int id) {
         String sql = "SELECT * FROM users WHERE user_id = ?";
-        try {
-            User user = jdbcTemplate.queryForObject(sql, this::mapRowToUser, id);
-            if (user != null) {
-                loadFriends(user);
-            }
-            return Optional.ofNullable(user);
-        } catch (Exception e) {
+        List<User> users = loadUsers(sql, id);
+        if (users.isEmpty()) {
             log.warn("Пользователь с id {} не найден", id);
             return Optional.empty();
         }
+        return Optional.of(users.get(0));
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id";
+        log.debug("Получение {} пользователей по списку идентификаторов", ids.size());
+        return loadUsers(sql, (Object) ids.toArray(new Integer[0]));
+    }
+
+    /**
+     * Получение друзей пользователя.
+     * Идентификаторы друзей берутся из графа дружбы, строки пользователей загружаются одним запросом.
+     *
+     * @param userId         идентификатор пользователя
+     * @param withFriendSets загружать ли множества друзей самих друзей
+     * @return друзья в порядке возрастания идентификатора
+     */
+    @Override
+    public List<User> getFriends(int userId, boolean withFriendSets) {
+        log.debug("Получение друзей пользователя с id {}", userId);
+        return loadUsersByIds(friendshipGraph.getFriends(userId), withFriendSets);
+    }
+
+    /**
+     * Получение общих друзей пересечением списков смежности графа дружбы.
+     * В базу данных передаются только идентификаторы общих друзей.
+     *
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return общие друзья в порядке возрастания идентификатора
+     */
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        log.debug("Получение общих друзей пользователей с id {} и {}", userId, otherId);
+        return loadUsersByIds(friendshipGraph.getCommonFriends(userId, otherId), true);
+    }
+
+    /**
+     * Получение рекомендаций в друзья обходом графа дружбы в памяти.
+     * Из базы данных загружаются только строки рекомендованных пользователей.
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество рекомендаций
+     * @return рекомендации по убыванию количества общих друзей
+     */
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int limit) {
+        log.debug("Получение рекомендаций в друзья для пользователя с id {}", userId);
+        return FriendSuggester.suggest(userId, limit, friendshipGraph::getFriends,
+                ids -> loadUsersByIds(ids, true));
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        String sql = "INSERT INTO friendship (user_id, friend_id) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND friend_id = ?)";
+        boolean added;
+        try {
+            added = jdbcTemplate.update(sql, userId, friendId, userId, friendId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос успел добавить ту же связь
+            added = false;
+        }
+        // Граф обновляется и в случае гонки: связь в базе данных уже есть
+        friendshipGraph.addEdge(userId, friendId);
+        if (added) {
+            dataVersions.changed(Table.USER, userId);
+        }
+        log.debug("Дружба пользователя с id {} с пользователем с id {}: {}",
+                userId, friendId, added ? "добавлена" : "уже была");
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        String sql = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
+        boolean removed = jdbcTemplate.update(sql, userId, friendId) > 0;
+        friendshipGraph.removeEdge(userId, friendId);
+        if (removed) {
+            dataVersions.changed(Table.USER, userId);
+        }
+        log.debug("Дружба пользователя с id {} с пользователем с id {}: {}",
+                userId, friendId, removed ? "удалена" : "отсутствовала");
+        return removed;
     }
 
     @Override
@@ -111,35 +265,60 @@ public class UserDbStorage implements UserStorage {
     }
 
     /**
-     * Загрузка списка друзей пользователя
+     * Загрузка пользователей вместе со списками друзей.
+     * Друзья всех пользователей выборки берутся из графа дружбы.
      *
-     * @param user пользователь
+     * @param sql  запрос на выборку пользователей
+     * @param args параметры запроса
+     * @return список пользователей в порядке, заданном запросом
      */
-    private void loadFriends(User user) {
-        String sql = "SELECT friend_id FROM friendship WHERE user_id = ?";
-        List<Integer> friendIds = jdbcTemplate.query(sql,
-                (rs, rowNum) -> rs.getInt("friend_id"),
-                user.getId());
+    private List<User> loadUsers(String sql, Object... args) {
+        List<User> users = jdbcTemplate.query(sql, this::mapRowToUser, args);
+        if (!users.isEmpty()) {
+            loadFriends(users);
+        }
+        return users;
+    }
 
-        Set<Integer> friends = new HashSet<>(friendIds);
-        user.setFriends(friends);
+    /**
+     * Догрузка друзей для пачки пользователей, передача пользователей обработчику и очистка пачки
+     *
+     * @param chunk  пачка пользователей
+     * @param action обработчик пользователей
+     */
+    private void emitChunk(List<User> chunk, Consumer<User> action) {
+        if (!chunk.isEmpty()) {
+            loadFriends(chunk);
+        }
+        chunk.forEach(action);
+        chunk.clear();
     }
 
     /**
-     * Обновление списка друзей пользователя
+     * Загрузка пользователей по идентификаторам одним запросом
      *
-     * @param user пользователь
+     * @param ids            идентификаторы пользователей в порядке возрастания
+     * @param withFriendSets заполнять ли множества друзей
+     * @return пользователи в порядке возрастания идентификатора
      */
-    private void updateFriendships(User user) {
-        // Удаляем все текущие записи о дружбе
-        String deleteSql = "DELETE FROM friendship WHERE user_id = ?";
-        jdbcTemplate.update(deleteSql, user.getId());
-
-        // Добавляем новые записи о дружбе
-        if (user.getFriends() != null && !user.getFriends().isEmpty()) {
-            String insertSql = "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)";
-            for (Integer friendId : user.getFriends()) {
-                jdbcTemplate.update(insertSql, user.getId(), friendId);
+    private List<User> loadUsersByIds(int[] ids, boolean withFriendSets) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id";
+        Object idsParam = Arrays.stream(ids).boxed().toArray(Integer[]::new);
+        return withFriendSets ? loadUsers(sql, idsParam) : jdbcTemplate.query(sql, this::mapRowToUser, idsParam);
+    }
+
+    /**
+     * Заполнение списков друзей пользователей из графа дружбы без обращения к базе данных
+     *
+     * @param users пользователи
+     */
+    private void loadFriends(List<User> users) {
+        for (User user : users) {
+            for (int friendId : friendshipGraph.getFriends(user.getId())) {
+                user.addFriend(friendId);
             }
         }
     }
@@ -159,10 +338,6 @@ public class UserDbStorage implements UserStorage {
         user.setLogin(rs.getString("login"));
         user.setName(rs.getString("name"));
         user.setBirthday(rs.getDate("birthday").toLocalDate());
-
-        // Загружаем друзей
-        loadFriends(user);
-
         return user;
     }
 }
\ No newline at end of file
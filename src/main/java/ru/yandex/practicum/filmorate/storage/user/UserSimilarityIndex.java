@@ -0,0 +1,255 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.IntCountMap;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.TopIds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс схожести пользователей по лайкам для рекомендаций фильмов.
+ * Хранит разреженную матрицу «пользователь × фильм» в двух направлениях и заранее
+ * вычисленных ближайших соседей каждого пользователя по мере Жаккара:
+ * |A ∩ B| / |A ∪ B|, где A и B - множества фильмов, которые понравились пользователям.
+ * <p>
+ * Лайки сразу попадают в матрицу, а пользователь помечается как требующий пересчета соседей.
+ * Пересчет выполняется фоновой задачей, поэтому запрос рекомендаций сводится к чтению соседей
+ * и слиянию их лайков.
+ */
+public class UserSimilarityIndex {
+    /**
+     * Количество соседей, хранимых для каждого пользователя
+     */
+    static final int NEIGHBOURS = 30;
+
+    /**
+     * Максимальное количество пользователей одного фильма, учитываемых при поиске соседей.
+     * Для очень популярных фильмов берется равномерная выборка.
+     */
+    static final int MAX_USERS_PER_FILM = 1_000;
+
+    /**
+     * Множитель для перевода вещественных оценок в целые счетчики
+     */
+    private static final int SCORE_SCALE = 1_000_000;
+
+    private final Map<Integer, IntHashSet> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, IntHashSet> usersByFilm = new ConcurrentHashMap<>();
+    private final Map<Integer, Neighbourhood> neighbours = new ConcurrentHashMap<>();
+    private final Set<Integer> staleUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Добавление лайка в матрицу
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void addLike(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, key -> new IntHashSet()).add(filmId);
+        usersByFilm.computeIfAbsent(filmId, key -> new IntHashSet()).add(userId);
+        staleUsers.add(userId);
+    }
+
+    /**
+     * Удаление лайка из матрицы
+     *
+     * @param filmId идентификатор фильма
+     * @param userId идентификатор пользователя
+     */
+    public void removeLike(int filmId, int userId) {
+        IntHashSet films = filmsByUser.get(userId);
+        if (films != null) {
+            films.remove(filmId);
+        }
+        IntHashSet users = usersByFilm.get(filmId);
+        if (users != null) {
+            users.remove(userId);
+        }
+        staleUsers.add(userId);
+    }
+
+    /**
+     * Пересчет соседей всех пользователей параллельным потоком по строкам матрицы
+     *
+     * @return количество пересчитанных пользователей
+     */
+    public int refreshAll() {
+        staleUsers.clear();
+        List<Integer> users = new ArrayList<>(filmsByUser.keySet());
+        refresh(users);
+        return users.size();
+    }
+
+    /**
+     * Пересчет соседей пользователей, лайки которых изменились после прошлого пересчета
+     *
+     * @return количество пересчитанных пользователей
+     */
+    public int refreshStale() {
+        List<Integer> users = new ArrayList<>(staleUsers);
+        staleUsers.removeAll(users);
+        refresh(users);
+        return users.size();
+    }
+
+    /**
+     * Количество пользователей, ожидающих пересчета соседей
+     *
+     * @return количество пользователей
+     */
+    public int staleCount() {
+        return staleUsers.size();
+    }
+
+    /**
+     * Получение соседей пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @return идентификаторы соседей по убыванию схожести
+     */
+    public int[] getNeighbours(int userId) {
+        Neighbourhood neighbourhood = neighbours.get(userId);
+        return neighbourhood == null ? new int[0] : neighbourhood.userIds.clone();
+    }
+
+    /**
+     * Рекомендация фильмов: фильмы соседей, которые еще не понравились пользователю,
+     * по убыванию суммы схожести лайкнувших их соседей
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество фильмов
+     * @return идентификаторы фильмов по убыванию оценки, при равенстве - по возрастанию id
+     */
+    public List<Integer> recommend(int userId, int limit) {
+        Neighbourhood neighbourhood = neighbours.get(userId);
+        if (neighbourhood == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        IntHashSet ownFilms = filmsByUser.getOrDefault(userId, new IntHashSet());
+        IntCountMap scores = new IntCountMap();
+        for (int i = 0; i < neighbourhood.userIds.length; i++) {
+            int weight = neighbourhood.weights[i];
+            IntHashSet films = filmsByUser.get(neighbourhood.userIds[i]);
+            if (films != null) {
+                films.forEachInt(filmId -> {
+                    if (!ownFilms.contains(filmId)) {
+                        scores.add(filmId, weight);
+                    }
+                });
+            }
+        }
+        return top(scores, limit, -1);
+    }
+
+    /**
+     * Пересчет соседей группы пользователей параллельным потоком.
+     * Столбцы матрицы (пользователи фильма) копируются один раз на всю группу и переиспользуются
+     * всеми пользователями, которым понравился фильм.
+     *
+     * @param userIds идентификаторы пользователей
+     */
+    private void refresh(List<Integer> userIds) {
+        Map<Integer, int[]> columns = new ConcurrentHashMap<>();
+        IntCountMap likeCounts = new IntCountMap(filmsByUser.size());
+        filmsByUser.forEach((userId, films) -> likeCounts.add(userId, films.size()));
+        userIds.parallelStream().forEach(userId -> refresh(userId, columns, likeCounts));
+    }
+
+    /**
+     * Пересчет соседей одного пользователя
+     *
+     * @param userId     идентификатор пользователя
+     * @param columns    общие для группы выборки пользователей по фильмам
+     * @param likeCounts количество лайков каждого пользователя на момент начала пересчета
+     */
+    private void refresh(int userId, Map<Integer, int[]> columns, IntCountMap likeCounts) {
+        IntHashSet films = filmsByUser.get(userId);
+        if (films == null || films.isEmpty()) {
+            neighbours.remove(userId);
+            return;
+        }
+        int[] ownFilms = films.toSortedArray();
+        // Размер пересечения с каждым пользователем, у которого есть хотя бы один общий фильм
+        int[][] userColumns = new int[ownFilms.length][];
+        int mentions = 0;
+        for (int i = 0; i < ownFilms.length; i++) {
+            userColumns[i] = columns.computeIfAbsent(ownFilms[i], this::sampleUsers);
+            mentions += userColumns[i].length;
+        }
+        // Таблица создается сразу нужного размера, чтобы не расширять ее в процессе подсчета
+        IntCountMap overlaps = new IntCountMap(Math.min(mentions, likeCounts.size()));
+        for (int[] column : userColumns) {
+            for (int otherId : column) {
+                overlaps.increment(otherId);
+            }
+        }
+        IntCountMap similarities = new IntCountMap(overlaps.size());
+        overlaps.forEach((otherId, overlap) -> {
+            int otherLikes = likeCounts.get(otherId);
+            if (otherId == userId || otherLikes == 0) {
+                return;
+            }
+            double jaccard = (double) overlap / Math.max(ownFilms.length + otherLikes - overlap, overlap);
+            similarities.add(otherId, (int) Math.max(1, Math.round(jaccard * SCORE_SCALE)));
+        });
+
+        List<Integer> nearest = top(similarities, NEIGHBOURS, userId);
+        int[] userIds = new int[nearest.size()];
+        int[] weights = new int[nearest.size()];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = nearest.get(i);
+            weights[i] = similarities.get(userIds[i]);
+        }
+        neighbours.put(userId, new Neighbourhood(userIds, weights));
+    }
+
+    /**
+     * Равномерная выборка пользователей, которым понравился фильм
+     *
+     * @param filmId идентификатор фильма
+     * @return не более MAX_USERS_PER_FILM идентификаторов пользователей
+     */
+    private int[] sampleUsers(int filmId) {
+        IntHashSet users = usersByFilm.get(filmId);
+        if (users == null) {
+            return new int[0];
+        }
+        return IntArrays.sampleEvenly(users.toSortedArray(), MAX_USERS_PER_FILM);
+    }
+
+    /**
+     * Выбор ключей с наибольшими счетчиками
+     *
+     * @param counts  счетчики
+     * @param limit   максимальное количество ключей
+     * @param exclude ключ, который не попадает в результат
+     * @return ключи по убыванию счетчика, при равенстве - по возрастанию ключа
+     */
+    private static List<Integer> top(IntCountMap counts, int limit, int exclude) {
+        TopIds top = new TopIds(limit);
+        counts.forEach((key, count) -> {
+            if (key != exclude && count > 0) {
+                top.offer(key, count);
+            }
+        });
+        return top.toList();
+    }
+
+    /**
+     * Соседи пользователя и их веса (схожесть, умноженная на SCORE_SCALE)
+     */
+    private static final class Neighbourhood {
+        final int[] userIds;
+        final int[] weights;
+
+        Neighbourhood(int[] userIds, int[] weights) {
+            this.userIds = userIds;
+            this.weights = weights;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс хранилища пользователей
@@ -16,6 +19,22 @@ public interface UserStorage {
      */
     List<User> getAllUsers();
 
+    /**
+     * Получение страницы пользователей в порядке возрастания идентификатора
+     *
+     * @param afterId идентификатор, после которого начинается страница (0 для первой страницы)
+     * @param limit   максимальное количество пользователей на странице
+     * @return список пользователей
+     */
+    List<User> getUsersPage(int afterId, int limit);
+
+    /**
+     * Последовательный обход всех пользователей без загрузки их в память целиком
+     *
+     * @param action действие, выполняемое для каждого пользователя в порядке возрастания идентификатора
+     */
+    void forEachUser(Consumer<User> action);
+
     /**
      * Создание нового пользователя
      *
@@ -40,6 +59,62 @@ public interface UserStorage {
      */
     Optional<User> getUserById(int id);
 
+    /**
+     * Получение пользователей по набору идентификаторов.
+     * Отсутствующие идентификаторы пропускаются.
+     *
+     * @param ids идентификаторы пользователей
+     * @return пользователи в порядке возрастания идентификатора
+     */
+    List<User> getUsersByIds(Collection<Integer> ids);
+
+    /**
+     * Получение друзей пользователя
+     *
+     * @param userId         идентификатор пользователя
+     * @param withFriendSets загружать ли множества друзей самих друзей
+     *                       (если нет, множества друзей в результате пустые)
+     * @return друзья в порядке возрастания идентификатора
+     */
+    List<User> getFriends(int userId, boolean withFriendSets);
+
+    /**
+     * Получение общих друзей двух пользователей
+     *
+     * @param userId  идентификатор первого пользователя
+     * @param otherId идентификатор второго пользователя
+     * @return общие друзья в порядке возрастания идентификатора
+     */
+    List<User> getCommonFriends(int userId, int otherId);
+
+    /**
+     * Получение рекомендаций в друзья: пользователей, не являющихся друзьями,
+     * с наибольшим количеством общих друзей
+     *
+     * @param userId идентификатор пользователя
+     * @param limit  максимальное количество рекомендаций
+     * @return рекомендации по убыванию количества общих друзей
+     */
+    List<FriendSuggestion> getFriendSuggestions(int userId, int limit);
+
+    /**
+     * Добавление друга (односторонняя дружба)
+     *
+     * @param userId   идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если друг добавлен, false если он уже был в друзьях
+     */
+    boolean addFriend(int userId, int friendId);
+
+    /**
+     * Удаление друга
+     *
+     * @param userId   идентификатор пользователя
+     * @param friendId идентификатор друга
+     * @return true, если друг удален, false если его не было в друзьях
+     */
+    boolean removeFriend(int userId, int friendId);
+
     /**
      * Проверка существования пользователя
      *
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.version;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Версия данных для условных запросов: номер изменения и время, когда оно вступило в силу.
+ * Номера всех таблиц и записей берутся из одной последовательности, поэтому версия ответа,
+ * собранного из нескольких источников, - это наибольшая из их версий.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class DataVersion {
+    /**
+     * Время запуска приложения: отличает номера, выданные до и после перезапуска
+     */
+    private final long epoch;
+
+    /**
+     * Номер изменения (0 - данные не менялись с момента запуска)
+     */
+    private final long number;
+
+    /**
+     * Время изменения в миллисекундах
+     */
+    private final long lastModified;
+
+    public DataVersion(long epoch, long number, long lastModified) {
+        this.epoch = epoch;
+        this.number = number;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Значение заголовка ETag
+     *
+     * @return строгий тег в кавычках
+     */
+    public String getETag() {
+        return "\"" + Long.toString(epoch, 36) + "-" + number + "\"";
+    }
+
+    /**
+     * Версия ответа, собранного из нескольких источников
+     *
+     * @param first    версия первого источника
+     * @param versions версии остальных источников
+     * @return наибольший номер изменения и наибольшее время изменения
+     */
+    public static DataVersion latest(DataVersion first, DataVersion... versions) {
+        long number = first.number;
+        long lastModified = first.lastModified;
+        for (DataVersion version : versions) {
+            number = Math.max(number, version.number);
+            lastModified = Math.max(lastModified, version.lastModified);
+        }
+        return new DataVersion(first.epoch, number, lastModified);
+    }
+}
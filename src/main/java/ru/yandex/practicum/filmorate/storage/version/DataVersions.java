@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.storage.version;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Счетчики версий таблиц и отдельных записей для ответов на условные запросы (ETag, Last-Modified).
+ * Хранилища отмечают изменения при записи, контроллеры сравнивают версию с присланной клиентом
+ * до обращения к базе данных.
+ * <p>
+ * Изменение внутри транзакции учитывается только после ее фиксации: иначе параллельный запрос
+ * мог бы получить новую версию вместе со старыми данными, и клиент кэшировал бы их до следующего изменения.
+ * Номера выдаются и применяются под одной блокировкой, поэтому наибольшая из версий нескольких
+ * источников растет при изменении любого из них.
+ * <p>
+ * Версии хранятся только в памяти: после перезапуска все записи получают версию 0 с новым временем запуска,
+ * а тег включает время запуска, чтобы не совпасть с выданными до перезапуска.
+ */
+@Component
+@Slf4j
+public class DataVersions {
+
+    /**
+     * Таблицы, версии которых отслеживаются
+     */
+    public enum Table {
+        FILM,
+        USER,
+        GENRE,
+        MPA
+    }
+
+    private final LongSupplier clock;
+    private final DataVersion initial;
+    private final Map<Table, DataVersion> tableVersions = new ConcurrentHashMap<>();
+    private final Map<Table, Map<Integer, DataVersion>> entityVersions = new EnumMap<>(Table.class);
+    private long sequence;
+
+    public DataVersions() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Создание счетчиков с заданными часами
+     *
+     * @param clock источник текущего времени в миллисекундах
+     */
+    public DataVersions(LongSupplier clock) {
+        this.clock = clock;
+        long startedAt = clock.getAsLong();
+        this.initial = new DataVersion(startedAt, 0, startedAt);
+        for (Table table : Table.values()) {
+            tableVersions.put(table, initial);
+            entityVersions.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Версия таблицы: последнее изменение любой ее записи
+     *
+     * @param table таблица
+     * @return версия
+     */
+    public DataVersion of(Table table) {
+        return tableVersions.get(table);
+    }
+
+    /**
+     * Версия записи
+     *
+     * @param table таблица
+     * @param id    идентификатор записи
+     * @return версия или начальная версия, если запись не менялась с момента запуска
+     */
+    public DataVersion of(Table table, int id) {
+        return entityVersions.get(table).getOrDefault(id, initial);
+    }
+
+    /**
+     * Отметка изменения таблицы без указания записей (например, перезагрузка справочника)
+     *
+     * @param table таблица
+     */
+    public void changed(Table table) {
+        changed(table, List.of());
+    }
+
+    /**
+     * Отметка изменения записи
+     *
+     * @param table таблица
+     * @param id    идентификатор записи
+     */
+    public void changed(Table table, int id) {
+        changed(table, List.of(id));
+    }
+
+    /**
+     * Отметка изменения записей. Вызванная внутри транзакции, вступает в силу после ее фиксации
+     * и не учитывается при откате.
+     *
+     * @param table таблица
+     * @param ids   идентификаторы записей
+     */
+    public void changed(Table table, Collection<Integer> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(table, ids);
+            return;
+        }
+        List<Integer> changedIds = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(table, changedIds);
+            }
+        });
+    }
+
+    /**
+     * Отметка уже зафиксированного изменения записей: вступает в силу сразу, даже внутри транзакции.
+     * Вызывается из действий после фиксации, которые сначала обновляют данные в памяти,
+     * чтобы новая версия не стала видна раньше них.
+     *
+     * @param table таблица
+     * @param ids   идентификаторы записей
+     */
+    public void committed(Table table, Collection<Integer> ids) {
+        apply(table, ids);
+    }
+
+    private synchronized void apply(Table table, Collection<Integer> ids) {
+        DataVersion version = new DataVersion(initial.getEpoch(), ++sequence, clock.getAsLong());
+        tableVersions.put(table, version);
+        Map<Integer, DataVersion> versions = entityVersions.get(table);
+        for (int id : ids) {
+            versions.put(id, version);
+        }
+        log.trace("Версия таблицы {} для {} записей: {}", table, ids.size(), version.getNumber());
+    }
+}
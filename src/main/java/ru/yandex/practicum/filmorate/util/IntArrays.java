@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами идентификаторов
+ */
+public final class IntArrays {
+
+    private IntArrays() {
+    }
+
+    /**
+     * Равномерная выборка из отсортированного массива, если он длиннее ограничения.
+     * Выборка сохраняет порядок и покрывает весь диапазон идентификаторов, а не только его начало.
+     *
+     * @param ids идентификаторы по возрастанию
+     * @param max максимальный размер выборки
+     * @return исходный массив или выборка из max элементов
+     */
+    public static int[] sampleEvenly(int[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        int[] sample = new int[max];
+        for (int i = 0; i < max; i++) {
+            sample[i] = ids[(int) ((long) i * ids.length / max)];
+        }
+        return sample;
+    }
+
+    /**
+     * Пересечение двух отсортированных по возрастанию массивов без повторов
+     *
+     * @param first  первый массив
+     * @param second второй массив
+     * @return общие элементы в порядке возрастания
+     */
+    public static int[] intersectSorted(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Счетчики по целочисленным ключам на открытой адресации с линейным пробированием.
+ * Ключи и значения хранятся в параллельных массивах int без упаковки, поэтому подсчет
+ * миллионов событий не создает объектов. Удаление ключей не поддерживается.
+ * <p>
+ * Экземпляр не потокобезопасен: при параллельном подсчете каждый поток заполняет свои счетчики,
+ * а затем они объединяются методом {@link #addAll(IntCountMap)}.
+ */
+public class IntCountMap {
+    private static final int MIN_CAPACITY = 8;
+    private static final int EMPTY = 0;
+
+    /**
+     * Ключи таблицы. Ноль обозначает пустую ячейку, счетчик нуля хранится отдельно.
+     */
+    private int[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+    private int zeroCount;
+
+    public IntCountMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создание счетчиков, вмещающих заданное количество ключей без расширения таблицы
+     *
+     * @param expectedSize ожидаемое количество ключей
+     */
+    public IntCountMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Увеличение счетчика ключа на единицу
+     *
+     * @param key ключ
+     */
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    /**
+     * Увеличение счетчика ключа
+     *
+     * @param key   ключ
+     * @param delta приращение
+     */
+    public void add(int key, int delta) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroCount += delta;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = delta;
+        size++;
+        if (size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Получение значения счетчика
+     *
+     * @param key ключ
+     * @return значение счетчика или 0, если ключ не встречался
+     */
+    public int get(int key) {
+        if (key == EMPTY) {
+            return zeroCount;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Прибавление всех счетчиков другой таблицы
+     *
+     * @param other другие счетчики
+     */
+    public void addAll(IntCountMap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Обход всех ключей и их счетчиков в произвольном порядке
+     *
+     * @param action действие, выполняемое для каждого ключа
+     */
+    public void forEach(EntryConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY, zeroCount);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Количество ключей
+     *
+     * @return количество ключей
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 4 * 3;
+    }
+
+    private int slot(int key) {
+        // Перемешивание битов, чтобы последовательные идентификаторы не образовывали длинных цепочек
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Обработчик пары «ключ - счетчик»
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int count);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Множество целых чисел на открытой адресации с линейным пробированием.
+ * Элементы хранятся в массиве int без упаковки: около 5-11 байт на элемент против 40-50 байт
+ * у HashSet&lt;Integer&gt;. Удаление сдвигает следующие элементы цепочки назад, поэтому
+ * таблица не накапливает «надгробий».
+ * <p>
+ * Все операции синхронизированы на самом множестве, итерация идет по снимку,
+ * поэтому множество можно читать и изменять из нескольких потоков.
+ */
+public class IntHashSet extends IntSet {
+    private static final int MIN_CAPACITY = 8;
+    private static final int EMPTY = 0;
+
+    /**
+     * Ячейки таблицы. Ноль обозначает пустую ячейку, сам ноль хранится в отдельном флаге.
+     */
+    private int[] table;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создание множества, вмещающего заданное количество элементов без расширения таблицы
+     *
+     * @param expectedSize ожидаемое количество элементов
+     */
+    public IntHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Создание множества из коллекции
+     *
+     * @param values элементы (null - пустое множество)
+     */
+    public IntHashSet(Collection<Integer> values) {
+        this(values == null ? 0 : values.size());
+        if (values == null) {
+            return;
+        }
+        if (values instanceof IntSet intSet) {
+            for (int value : intSet.toIntArray()) {
+                add(value);
+            }
+        } else {
+            for (Integer value : values) {
+                add(value.intValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean add(int value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        size++;
+        if (size > resizeThreshold) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(int value) {
+        if (value == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                table[slot] = EMPTY;
+                size--;
+                shiftBack(slot);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean contains(int value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(table, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    @Override
+    public int[] toSortedArray() {
+        int[] values = toIntArray();
+        Arrays.sort(values);
+        return values;
+    }
+
+    @Override
+    public synchronized int[] toIntArray() {
+        int[] values = new int[size];
+        int index = 0;
+        if (containsZero) {
+            values[index++] = 0;
+        }
+        for (int value : table) {
+            if (value != EMPTY) {
+                values[index++] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Восстановление цепочки после удаления: элементы, которые при вставке прошли через
+     * освободившуюся ячейку, сдвигаются в нее
+     *
+     * @param freed освободившаяся ячейка
+     */
+    private void shiftBack(int freed) {
+        int slot = (freed + 1) & mask;
+        while (table[slot] != EMPTY) {
+            int home = slot(table[slot]);
+            // Элемент можно перенести, если его исходная ячейка не лежит в интервале (freed, slot]
+            if (((slot - home) & mask) >= ((slot - freed) & mask)) {
+                table[freed] = table[slot];
+                table[slot] = EMPTY;
+                freed = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldTable = table;
+        allocate(capacity);
+        for (int value : oldTable) {
+            if (value != EMPTY) {
+                int slot = slot(value);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 4 * 3;
+    }
+
+    private int slot(int value) {
+        // Перемешивание битов, чтобы последовательные идентификаторы не образовывали длинных цепочек
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Множество целых чисел без упаковки элементов в Integer.
+ * Для совместимости реализует Set&lt;Integer&gt;: упакованные операции делегируют примитивным.
+ * Итерация идет в порядке хранения без сортировки, в JSON элементы пишутся по возрастанию.
+ */
+@JsonSerialize(using = IntSet.AscendingSerializer.class)
+public abstract class IntSet extends AbstractSet<Integer> {
+
+    /**
+     * Добавление элемента
+     *
+     * @param value элемент
+     * @return true, если элемента не было в множестве
+     */
+    public abstract boolean add(int value);
+
+    /**
+     * Удаление элемента
+     *
+     * @param value элемент
+     * @return true, если элемент был в множестве
+     */
+    public abstract boolean remove(int value);
+
+    /**
+     * Проверка наличия элемента
+     *
+     * @param value элемент
+     * @return true, если элемент есть в множестве
+     */
+    public abstract boolean contains(int value);
+
+    /**
+     * Копирование элементов в массив в порядке возрастания
+     *
+     * @return новый отсортированный массив элементов
+     */
+    public abstract int[] toSortedArray();
+
+    /**
+     * Копирование элементов в массив в порядке хранения.
+     * Реализации, хранящие элементы по возрастанию, возвращают отсортированный массив.
+     *
+     * @return новый массив элементов
+     */
+    public int[] toIntArray() {
+        return toSortedArray();
+    }
+
+    /**
+     * Пересечение с другим множеством.
+     * Элементы меньшего множества проверяются на наличие в большем.
+     *
+     * @param other другое множество
+     * @return элементы пересечения по возрастанию
+     */
+    public int[] intersect(IntSet other) {
+        IntSet smaller = size() <= other.size() ? this : other;
+        IntSet larger = smaller == this ? other : this;
+        return Arrays.stream(smaller.toSortedArray())
+                .filter(larger::contains)
+                .toArray();
+    }
+
+    /**
+     * Мощность пересечения с другим множеством без построения результата
+     *
+     * @param other другое множество
+     * @return количество общих элементов
+     */
+    public int intersectionSize(IntSet other) {
+        return intersect(other).length;
+    }
+
+    /**
+     * Выполнение действия для каждого элемента без упаковки
+     *
+     * @param action действие
+     */
+    public void forEachInt(IntConsumer action) {
+        for (int value : toIntArray()) {
+            action.accept(value);
+        }
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer integer && remove(integer.intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer integer && contains(integer.intValue());
+    }
+
+    /**
+     * Итератор по снимку элементов в порядке хранения.
+     * Параллельные изменения множества не влияют на итерацию и не приводят к ConcurrentModificationException.
+     *
+     * @return итератор
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] values = toIntArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                IntSet.this.remove(values[next - 1]);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toIntArray());
+    }
+
+    /**
+     * Запись множества в JSON массивом чисел по возрастанию, чтобы ответ не зависел от порядка хранения
+     */
+    static class AscendingSerializer extends StdSerializer<IntSet> {
+
+        AscendingSerializer() {
+            super(IntSet.class);
+        }
+
+        @Override
+        public void serialize(IntSet set, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            int[] values = set.toSortedArray();
+            generator.writeArray(values, 0, values.length);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+
+/**
+ * Представление множеств идентификаторов (лайков, друзей) в хранилищах в памяти
+ */
+public enum IntSetType {
+    /**
+     * Хеш-таблица на открытой адресации. Подходит для разреженных множеств.
+     */
+    HASH {
+        @Override
+        public IntSet copyOf(Collection<Integer> values) {
+            return new IntHashSet(values);
+        }
+    },
+
+    /**
+     * Сжатая битовая карта. Подходит для плотных диапазонов идентификаторов
+     * и быстрого пересечения больших множеств.
+     */
+    ROARING {
+        @Override
+        public IntSet copyOf(Collection<Integer> values) {
+            return new RoaringIntSet(values);
+        }
+    };
+
+    /**
+     * Создание множества этого представления с заданными элементами
+     *
+     * @param values элементы (null - пустое множество)
+     * @return новое множество
+     */
+    public abstract IntSet copyOf(Collection<Integer> values);
+}
@@ -0,0 +1,907 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Сжатое битовое множество целых чисел в духе Roaring bitmap.
+ * Число делится на старшие и младшие 16 бит: старшие выбирают контейнер, младшие хранятся в нем.
+ * Контейнер выбирается по плотности данных:
+ * <ul>
+ *     <li>массив - отсортированные младшие части, до 4096 элементов (2 байта на элемент);</li>
+ *     <li>битовая карта - 1024 слова long на весь диапазон из 65536 значений (8 КБ);</li>
+ *     <li>серии - пары «начало, длина» для сплошных диапазонов.</li>
+ * </ul>
+ * Мощность пересечения и объединения битовых карт считается по словам через Long.bitCount.
+ * <p>
+ * Все операции синхронизированы на самом множестве, итерация идет по снимку,
+ * поэтому множество можно читать и изменять из нескольких потоков.
+ */
+public class RoaringIntSet extends IntSet {
+    private static final Object TIE_LOCK = new Object();
+
+    /**
+     * Старшие 16 бит элементов по возрастанию
+     */
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int containerCount;
+    private int size;
+
+    public RoaringIntSet() {
+    }
+
+    /**
+     * Создание множества из коллекции
+     *
+     * @param values элементы (null - пустое множество)
+     */
+    public RoaringIntSet(Collection<Integer> values) {
+        if (values == null) {
+            return;
+        }
+        if (values instanceof IntSet intSet) {
+            for (int value : intSet.toSortedArray()) {
+                add(value);
+            }
+        } else {
+            for (Integer value : values) {
+                add(value.intValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean add(int value) {
+        char key = high(value);
+        char low = low(value);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        if (container.contains(low)) {
+            return false;
+        }
+        containers[index] = container.add(low);
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(int value) {
+        int index = indexOf(high(value));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        char low = low(value);
+        if (!container.contains(low)) {
+            return false;
+        }
+        container = container.remove(low);
+        size--;
+        if (container.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = container;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contains(int value) {
+        int index = indexOf(high(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = new char[4];
+        containers = new Container[4];
+        containerCount = 0;
+        size = 0;
+    }
+
+    @Override
+    public synchronized int[] toSortedArray() {
+        int[] values = new int[size];
+        int offset = 0;
+        for (int i = 0; i < containerCount; i++) {
+            offset = containers[i].fill(values, offset, highBits(keys[i]));
+        }
+        return values;
+    }
+
+    /**
+     * Пересечение с другим множеством. Для двух сжатых множеств выполняется по контейнерам.
+     *
+     * @param other другое множество
+     * @return элементы пересечения по возрастанию
+     */
+    @Override
+    public int[] intersect(IntSet other) {
+        if (!(other instanceof RoaringIntSet roaring)) {
+            return super.intersect(other);
+        }
+        return lockBoth(this, roaring, () -> and(this, roaring).toSortedArray());
+    }
+
+    /**
+     * Мощность пересечения с другим множеством без построения результата
+     *
+     * @param other другое множество
+     * @return количество общих элементов
+     */
+    @Override
+    public int intersectionSize(IntSet other) {
+        if (!(other instanceof RoaringIntSet roaring)) {
+            return super.intersectionSize(other);
+        }
+        return lockBoth(this, roaring, () -> {
+            int cardinality = 0;
+            int i = 0;
+            int j = 0;
+            while (i < containerCount && j < roaring.containerCount) {
+                if (keys[i] < roaring.keys[j]) {
+                    i++;
+                } else if (keys[i] > roaring.keys[j]) {
+                    j++;
+                } else {
+                    cardinality += containers[i].andCardinality(roaring.containers[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return cardinality;
+        });
+    }
+
+    /**
+     * Пересечение двух множеств
+     *
+     * @param first  первое множество
+     * @param second второе множество
+     * @return новое множество с общими элементами
+     */
+    public static RoaringIntSet and(RoaringIntSet first, RoaringIntSet second) {
+        return lockBoth(first, second, () -> {
+            RoaringIntSet result = new RoaringIntSet();
+            int i = 0;
+            int j = 0;
+            while (i < first.containerCount && j < second.containerCount) {
+                if (first.keys[i] < second.keys[j]) {
+                    i++;
+                } else if (first.keys[i] > second.keys[j]) {
+                    j++;
+                } else {
+                    result.appendContainer(first.keys[i], first.containers[i].and(second.containers[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Объединение двух множеств
+     *
+     * @param first  первое множество
+     * @param second второе множество
+     * @return новое множество с элементами обоих множеств
+     */
+    public static RoaringIntSet or(RoaringIntSet first, RoaringIntSet second) {
+        return lockBoth(first, second, () -> {
+            RoaringIntSet result = new RoaringIntSet();
+            int i = 0;
+            int j = 0;
+            while (i < first.containerCount || j < second.containerCount) {
+                if (j == second.containerCount
+                        || (i < first.containerCount && first.keys[i] < second.keys[j])) {
+                    result.appendContainer(first.keys[i], first.containers[i].copy());
+                    i++;
+                } else if (i == first.containerCount || first.keys[i] > second.keys[j]) {
+                    result.appendContainer(second.keys[j], second.containers[j].copy());
+                    j++;
+                } else {
+                    result.appendContainer(first.keys[i], first.containers[i].or(second.containers[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Объединение нескольких множеств за один проход: контейнеры с одинаковыми старшими битами
+     * накапливаются в одной битовой карте, поэтому промежуточные множества не создаются
+     *
+     * @param sets множества
+     * @return новое множество с элементами всех множеств
+     */
+    public static RoaringIntSet or(Collection<RoaringIntSet> sets) {
+        RoaringIntSet result = new RoaringIntSet();
+        if (sets.size() == 1) {
+            RoaringIntSet set = sets.iterator().next();
+            synchronized (set) {
+                for (int i = 0; i < set.containerCount; i++) {
+                    result.appendContainer(set.keys[i], set.containers[i].copy());
+                }
+            }
+            return result;
+        }
+        Map<Character, long[]> wordsByKey = new TreeMap<>();
+        for (RoaringIntSet set : sets) {
+            synchronized (set) {
+                for (int i = 0; i < set.containerCount; i++) {
+                    set.containers[i].orInto(wordsByKey.computeIfAbsent(set.keys[i],
+                            key -> new long[Container.BITMAP_WORDS]));
+                }
+            }
+        }
+        wordsByKey.forEach((key, words) -> result.appendContainer(key, Container.fromWords(words)));
+        return result;
+    }
+
+    /**
+     * Элементы больше заданного значения по возрастанию, не более limit штук.
+     * Просматриваются только контейнеры, начиная с содержащего следующее значение.
+     *
+     * @param after значение, после которого начинается выборка
+     * @param limit максимальное количество элементов
+     * @return элементы по возрастанию
+     */
+    public synchronized int[] range(int after, int limit) {
+        if (after == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+        int[] values = new int[Math.min(Math.max(limit, 0), size)];
+        int index = indexOf(high(after + 1));
+        int count = 0;
+        for (int i = index >= 0 ? index : -index - 1; i < containerCount && count < values.length; i++) {
+            int[] chunk = new int[containers[i].cardinality()];
+            containers[i].fill(chunk, 0, highBits(keys[i]));
+            for (int value : chunk) {
+                if (value > after && count < values.length) {
+                    values[count++] = value;
+                }
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Перевод контейнеров со сплошными диапазонами в серии, если так они занимают меньше памяти
+     */
+    public synchronized void runOptimize() {
+        for (int i = 0; i < containerCount; i++) {
+            containers[i] = containers[i].runOptimize();
+        }
+    }
+
+    /**
+     * Приблизительный объем памяти, занятый контейнерами
+     *
+     * @return размер в байтах
+     */
+    public synchronized long sizeInBytes() {
+        long bytes = keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < containerCount; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, containerCount, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (containerCount == keys.length) {
+            keys = Arrays.copyOf(keys, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        containerCount++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1);
+        containerCount--;
+        containers[containerCount] = null;
+    }
+
+    /**
+     * Добавление контейнера в конец при построении результата операции (ключи идут по возрастанию)
+     */
+    private void appendContainer(char key, Container container) {
+        if (container.cardinality() > 0) {
+            insertContainer(containerCount, key, container);
+            size += container.cardinality();
+        }
+    }
+
+    /**
+     * Старшие 16 бит с инвертированным знаковым битом, чтобы беззнаковый порядок ключей
+     * совпадал со знаковым порядком чисел
+     */
+    private static char high(int value) {
+        return (char) ((value >>> 16) ^ 0x8000);
+    }
+
+    private static int highBits(char key) {
+        return (key ^ 0x8000) << 16;
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    /**
+     * Выполнение операции под блокировками двух множеств.
+     * Блокировки берутся в порядке identityHashCode, чтобы встречные операции не взаимоблокировались.
+     */
+    private static <T> T lockBoth(RoaringIntSet first, RoaringIntSet second, Supplier<T> action) {
+        int firstHash = System.identityHashCode(first);
+        int secondHash = System.identityHashCode(second);
+        if (first == second || firstHash < secondHash) {
+            synchronized (first) {
+                synchronized (second) {
+                    return action.get();
+                }
+            }
+        } else if (firstHash > secondHash) {
+            synchronized (second) {
+                synchronized (first) {
+                    return action.get();
+                }
+            }
+        } else {
+            synchronized (TIE_LOCK) {
+                synchronized (first) {
+                    synchronized (second) {
+                        return action.get();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Контейнер младших 16 бит элементов с одинаковыми старшими битами.
+     * Изменяющие операции возвращают контейнер, которым нужно заменить текущий
+     * (при смене представления это новый объект).
+     */
+    private abstract static class Container {
+        /**
+         * Максимальная мощность контейнера-массива, при которой он не больше битовой карты
+         */
+        static final int ARRAY_MAX_SIZE = 4096;
+        static final int BITMAP_WORDS = 1024;
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        /**
+         * Добавление отсутствующего в контейнере значения
+         */
+        abstract Container add(char value);
+
+        /**
+         * Удаление присутствующего в контейнере значения
+         */
+        abstract Container remove(char value);
+
+        abstract int fill(int[] values, int offset, int high);
+
+        abstract long sizeInBytes();
+
+        abstract Container copy();
+
+        /**
+         * Представление контейнера битовой картой из 1024 слов
+         */
+        abstract long[] toWords();
+
+        /**
+         * Добавление элементов контейнера в битовую карту из 1024 слов
+         */
+        void orInto(long[] target) {
+            long[] words = toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                target[i] |= words[i];
+            }
+        }
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer first && other instanceof ArrayContainer second) {
+                return ArrayContainer.intersect(first, second);
+            }
+            if (this instanceof ArrayContainer || other instanceof ArrayContainer) {
+                ArrayContainer array = smallerArray(this, other);
+                Container probe = array == this ? other : this;
+                ArrayContainer result = new ArrayContainer();
+                for (int i = 0; i < array.size; i++) {
+                    if (probe.contains(array.values[i])) {
+                        result.values = ArrayContainer.ensureCapacity(result.values, result.size + 1);
+                        result.values[result.size++] = array.values[i];
+                    }
+                }
+                return result;
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            return fromWords(result);
+        }
+
+        int andCardinality(Container other) {
+            if (this instanceof ArrayContainer || other instanceof ArrayContainer) {
+                ArrayContainer array = smallerArray(this, other);
+                Container probe = array == this ? other : this;
+                int cardinality = 0;
+                for (int i = 0; i < array.size; i++) {
+                    if (probe.contains(array.values[i])) {
+                        cardinality++;
+                    }
+                }
+                return cardinality;
+            }
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                cardinality += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return cardinality;
+        }
+
+        /**
+         * Контейнер-массив, элементы которого проверяются в другом контейнере при пересечении:
+         * из двух массивов выбирается меньший, чтобы число поисков определялось меньшей мощностью
+         */
+        static ArrayContainer smallerArray(Container first, Container second) {
+            if (first instanceof ArrayContainer a && second instanceof ArrayContainer b) {
+                return a.size <= b.size ? a : b;
+            }
+            return first instanceof ArrayContainer a ? a : (ArrayContainer) second;
+        }
+
+        Container or(Container other) {
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] | otherWords[i];
+            }
+            return fromWords(result);
+        }
+
+        /**
+         * Перевод в серии, если они компактнее текущего представления
+         */
+        Container runOptimize() {
+            long[] words = toWords();
+            int runs = countRuns(words);
+            if (RunContainer.sizeInBytes(runs) < sizeInBytes()) {
+                return RunContainer.of(words, runs, cardinality());
+            }
+            return this;
+        }
+
+        /**
+         * Выбор компактного представления для битовой карты: массив или сама карта
+         */
+        static Container fromWords(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > ARRAY_MAX_SIZE) {
+                return new BitmapContainer(words, cardinality);
+            }
+            ArrayContainer array = new ArrayContainer(cardinality);
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array.values[array.size++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+
+        /**
+         * Количество непрерывных серий единичных битов
+         */
+        static int countRuns(long[] words) {
+            int runs = 0;
+            long previousHighBit = 0;
+            for (long word : words) {
+                // Начало серии - установленный бит, перед которым бит не установлен
+                runs += Long.bitCount(word & ~((word << 1) | previousHighBit));
+                previousHighBit = word >>> 63;
+            }
+            return runs;
+        }
+    }
+
+    /**
+     * Контейнер-массив отсортированных значений
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(4);
+        }
+
+        ArrayContainer(int capacity) {
+            values = new char[Math.max(capacity, 1)];
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            if (size == ARRAY_MAX_SIZE) {
+                return new BitmapContainer(toWords(), size).add(value);
+            }
+            int index = -Arrays.binarySearch(values, 0, size, value) - 1;
+            values = ensureCapacity(values, size + 1);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return this;
+        }
+
+        @Override
+        int fill(int[] target, int offset, int high) {
+            for (int i = 0; i < size; i++) {
+                target[offset++] = high | values[i];
+            }
+            return offset;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 2L * values.length + 16;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer(size);
+            System.arraycopy(values, 0, copy.values, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            orInto(words);
+            return words;
+        }
+
+        @Override
+        void orInto(long[] target) {
+            for (int i = 0; i < size; i++) {
+                target[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        /**
+         * Пересечение двух массивов слиянием: последовательный проход быстрее,
+         * чем двоичный поиск каждого элемента с непредсказуемыми переходами
+         */
+        static ArrayContainer intersect(ArrayContainer first, ArrayContainer second) {
+            ArrayContainer result = new ArrayContainer(Math.min(first.size, second.size));
+            int i = 0;
+            int j = 0;
+            while (i < first.size && j < second.size) {
+                char a = first.values[i];
+                char b = second.values[j];
+                if (a == b) {
+                    result.values[result.size++] = a;
+                }
+                i += a <= b ? 1 : 0;
+                j += b <= a ? 1 : 0;
+            }
+            return result;
+        }
+
+        static char[] ensureCapacity(char[] values, int capacity) {
+            if (capacity <= values.length) {
+                return values;
+            }
+            int newLength = Math.min(Math.max(values.length * 2, capacity), ARRAY_MAX_SIZE);
+            return Arrays.copyOf(values, Math.max(newLength, capacity));
+        }
+    }
+
+    /**
+     * Контейнер-битовая карта на весь диапазон младших 16 бит
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            words[value >>> 6] |= 1L << value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            words[value >>> 6] &= ~(1L << value);
+            cardinality--;
+            return cardinality <= ARRAY_MAX_SIZE ? fromWords(words) : this;
+        }
+
+        @Override
+        int fill(int[] target, int offset, int high) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[offset++] = high | (i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 8L * BITMAP_WORDS + 16;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        long[] toWords() {
+            return words;
+        }
+    }
+
+    /**
+     * Контейнер серий: пары (начало, длина - 1) по возрастанию начала, серии не пересекаются и не соприкасаются
+     */
+    private static final class RunContainer extends Container {
+        private char[] runs;
+        private int runCount;
+        private int cardinality;
+
+        private RunContainer(char[] runs, int runCount, int cardinality) {
+            this.runs = runs;
+            this.runCount = runCount;
+            this.cardinality = cardinality;
+        }
+
+        static long sizeInBytes(int runCount) {
+            return 4L * runCount + 16;
+        }
+
+        static RunContainer of(long[] words, int runCount, int cardinality) {
+            char[] runs = new char[runCount * 2];
+            int run = 0;
+            int start = -1;
+            for (int value = 0; value <= BITMAP_WORDS * 64; value++) {
+                boolean set = value < BITMAP_WORDS * 64 && (words[value >>> 6] & (1L << value)) != 0;
+                if (set && start < 0) {
+                    start = value;
+                } else if (!set && start >= 0) {
+                    runs[2 * run] = (char) start;
+                    runs[2 * run + 1] = (char) (value - 1 - start);
+                    run++;
+                    start = -1;
+                }
+            }
+            return new RunContainer(runs, runCount, cardinality);
+        }
+
+        private int start(int run) {
+            return runs[2 * run];
+        }
+
+        private int end(int run) {
+            return runs[2 * run] + runs[2 * run + 1];
+        }
+
+        /**
+         * Индекс последней серии, начинающейся не позже значения, или -1
+         */
+        private int floorRun(int value) {
+            int low = 0;
+            int high = runCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (start(middle) <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+
+        private void setRun(int run, int start, int end) {
+            runs[2 * run] = (char) start;
+            runs[2 * run + 1] = (char) (end - start);
+        }
+
+        private void insertRun(int run, int start, int end) {
+            if (2 * (runCount + 1) > runs.length) {
+                runs = Arrays.copyOf(runs, Math.max(4, runs.length * 2));
+            }
+            System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (runCount - run));
+            runCount++;
+            setRun(run, start, end);
+        }
+
+        private void deleteRun(int run) {
+            System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (runCount - run - 1));
+            runCount--;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int run = floorRun(value);
+            return run >= 0 && value <= end(run);
+        }
+
+        @Override
+        Container add(char value) {
+            int run = floorRun(value);
+            boolean extendsPrevious = run >= 0 && end(run) + 1 == value;
+            boolean extendsNext = run + 1 < runCount && start(run + 1) == value + 1;
+            if (extendsPrevious && extendsNext) {
+                setRun(run, start(run), end(run + 1));
+                deleteRun(run + 1);
+            } else if (extendsPrevious) {
+                setRun(run, start(run), value);
+            } else if (extendsNext) {
+                setRun(run + 1, value, end(run + 1));
+            } else {
+                insertRun(run + 1, value, value);
+            }
+            cardinality++;
+            return compactIfLarge();
+        }
+
+        @Override
+        Container remove(char value) {
+            int run = floorRun(value);
+            int start = start(run);
+            int end = end(run);
+            if (start == end) {
+                deleteRun(run);
+            } else if (value == start) {
+                setRun(run, start + 1, end);
+            } else if (value == end) {
+                setRun(run, start, end - 1);
+            } else {
+                setRun(run, start, value - 1);
+                insertRun(run + 1, value + 1, end);
+            }
+            cardinality--;
+            return compactIfLarge();
+        }
+
+        /**
+         * Переход к массиву или битовой карте, когда серий становится слишком много
+         */
+        private Container compactIfLarge() {
+            long alternative = cardinality <= ARRAY_MAX_SIZE ? 2L * cardinality + 16 : 8L * BITMAP_WORDS + 16;
+            return sizeInBytes() > alternative ? fromWords(toWords()) : this;
+        }
+
+        @Override
+        int fill(int[] target, int offset, int high) {
+            for (int run = 0; run < runCount; run++) {
+                for (int value = start(run); value <= end(run); value++) {
+                    target[offset++] = high | value;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return sizeInBytes(runCount);
+        }
+
+        @Override
+        Container copy() {
+            return new RunContainer(Arrays.copyOf(runs, runs.length), runCount, cardinality);
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int run = 0; run < runCount; run++) {
+                int start = start(run);
+                int end = end(run);
+                int firstWord = start >>> 6;
+                int lastWord = end >>> 6;
+                long firstMask = -1L << start;
+                long lastMask = -1L >>> (63 - (end & 63));
+                if (firstWord == lastWord) {
+                    words[firstWord] |= firstMask & lastMask;
+                } else {
+                    words[firstWord] |= firstMask;
+                    for (int i = firstWord + 1; i < lastWord; i++) {
+                        words[i] = -1L;
+                    }
+                    words[lastWord] |= lastMask;
+                }
+            }
+            return words;
+        }
+
+        @Override
+        Container runOptimize() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Отбор заданного количества идентификаторов с наибольшими счетчиками за один проход.
+ * Идентификатор и счетчик упаковываются в ключ сортировки: счетчик в старших битах, дополнение
+ * идентификатора до Integer.MAX_VALUE в младших. Больший ключ означает более высокое место,
+ * а при равных счетчиках выше меньший идентификатор.
+ * <p>
+ * Экземпляр не потокобезопасен.
+ */
+public final class TopIds {
+    private final int limit;
+    private final PriorityQueue<Long> heap = new PriorityQueue<>();
+
+    /**
+     * Создание отбора
+     *
+     * @param limit максимальное количество идентификаторов в результате
+     */
+    public TopIds(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Учет идентификатора со счетчиком
+     *
+     * @param id    неотрицательный идентификатор
+     * @param count счетчик
+     */
+    public void offer(int id, int count) {
+        if (limit <= 0) {
+            return;
+        }
+        long rank = rank(id, count);
+        if (heap.size() < limit) {
+            heap.add(rank);
+        } else if (rank > heap.peek()) {
+            heap.poll();
+            heap.add(rank);
+        }
+    }
+
+    /**
+     * Отобранные идентификаторы. Опустошает отбор.
+     *
+     * @return идентификаторы по убыванию счетчика, при равенстве - по возрастанию идентификатора
+     */
+    public int[] toArray() {
+        int[] ids = new int[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = idOf(heap.poll());
+        }
+        return ids;
+    }
+
+    /**
+     * Отобранные идентификаторы списком. Опустошает отбор.
+     *
+     * @return идентификаторы по убыванию счетчика, при равенстве - по возрастанию идентификатора
+     */
+    public List<Integer> toList() {
+        int[] ids = toArray();
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    /**
+     * Ключ сортировки идентификатора со счетчиком
+     *
+     * @param id    неотрицательный идентификатор
+     * @param count счетчик
+     * @return ключ: по убыванию ключа идет порядок ответа
+     */
+    public static long rank(int id, int count) {
+        return ((long) count << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    /**
+     * Идентификатор из ключа сортировки
+     *
+     * @param rank ключ
+     * @return идентификатор
+     */
+    public static int idOf(long rank) {
+        return Integer.MAX_VALUE - (int) rank;
+    }
+
+    /**
+     * Счетчик из ключа сортировки
+     *
+     * @param rank ключ
+     * @return счетчик
+     */
+    public static int countOf(long rank) {
+        return (int) (rank >>> 32);
+    }
+}
@@ -27,6 +27,7 @@ CREATE TABLE IF NOT EXISTS film (
     release_date DATE NOT NULL,
     duration INT NOT NULL,
     mpa_id INT NOT NULL,
+    like_count INT NOT NULL DEFAULT 0,
     FOREIGN KEY (mpa_id) REFERENCES mpa(mpa_id)
 );
 
@@ -43,11 +44,26 @@ CREATE TABLE IF NOT EXISTS film_genre (
 CREATE TABLE IF NOT EXISTS likes (
     film_id INT NOT NULL,
     user_id INT NOT NULL,
+    liked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     PRIMARY KEY (film_id, user_id),
     FOREIGN KEY (film_id) REFERENCES film(film_id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
 
+-- Счетчик лайков для баз, созданных до его появления: столбец добавляется пустым и заполняется
+-- по таблице likes, значение по умолчанию и NOT NULL задаются после заполнения
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count INT;
+UPDATE film f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) WHERE like_count IS NULL;
+ALTER TABLE film ALTER COLUMN like_count SET DEFAULT 0;
+ALTER TABLE film ALTER COLUMN like_count SET NOT NULL;
+
+-- Время лайка для баз, созданных до его появления: настоящее время старых лайков неизвестно,
+-- поэтому они получают начало эпохи и не попадают ни в одно окно трендов
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS liked_at TIMESTAMP;
+UPDATE likes SET liked_at = TIMESTAMP '1970-01-01 00:00:00' WHERE liked_at IS NULL;
+ALTER TABLE likes ALTER COLUMN liked_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE likes ALTER COLUMN liked_at SET NOT NULL;
+
 -- Создание таблицы дружбы (односторонняя)
 CREATE TABLE IF NOT EXISTS friendship (
     user_id INT NOT NULL,
@@ -57,11 +73,20 @@ CREATE TABLE IF NOT EXISTS friendship (
     FOREIGN KEY (friend_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
 
+-- MinHash-сигнатуры множеств лайков фильмов (64 значения int) для поиска фильмов с похожей аудиторией
+CREATE TABLE IF NOT EXISTS film_minhash (
+    film_id INT PRIMARY KEY,
+    signature VARBINARY(256) NOT NULL,
+    FOREIGN KEY (film_id) REFERENCES film(film_id) ON DELETE CASCADE
+);
+
 -- Создание индексов для оптимизации запросов
 CREATE INDEX IF NOT EXISTS idx_film_mpa ON film(mpa_id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_film ON film_genre(film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genre_genre ON film_genre(genre_id);
 CREATE INDEX IF NOT EXISTS idx_likes_film ON likes(film_id);
 CREATE INDEX IF NOT EXISTS idx_likes_user ON likes(user_id);
+CREATE INDEX IF NOT EXISTS idx_likes_liked_at ON likes(liked_at);
 CREATE INDEX IF NOT EXISTS idx_friendship_user ON friendship(user_id);
-CREATE INDEX IF NOT EXISTS idx_friendship_friend ON friendship(friend_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_friendship_friend ON friendship(friend_id);
+CREATE INDEX IF NOT EXISTS idx_film_popularity ON film(like_count DESC, film_id DESC);
\ No newline at end of file
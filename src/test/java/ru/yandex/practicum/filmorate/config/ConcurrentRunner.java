@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Запуск задачи одновременно в нескольких потоках для стресс-тестов
+ */
+public final class ConcurrentRunner {
+    private ConcurrentRunner() {
+    }
+
+    /**
+     * Запуск задачи одновременно в нескольких потоках с ожиданием завершения.
+     * Исключение, выброшенное в любом из потоков, пробрасывается в вызывающий поток.
+     *
+     * @param threads количество потоков
+     * @param task    задача, получающая номер потока
+     * @throws Exception если задача завершилась с ошибкой или не уложилась в минуту
+     */
+    public static void run(int threads, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
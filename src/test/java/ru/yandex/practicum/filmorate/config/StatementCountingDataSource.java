@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник данных для тестов, подсчитывающий количество подготовленных SQL-запросов.
+ * Соединения участвуют в текущей транзакции теста, поэтому данные,
+ * добавленные в тесте, видны хранилищу.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+    private final AtomicInteger statementCount = new AtomicInteger();
+
+    public StatementCountingDataSource(DataSource dataSource) {
+        super(new TransactionAwareDataSourceProxy(dataSource));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        statementCount.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * Получение количества запросов с момента последнего сброса
+     *
+     * @return количество запросов
+     */
+    public int getStatementCount() {
+        return statementCount.get();
+    }
+
+    /**
+     * Сброс счетчика запросов
+     */
+    public void reset() {
+        statementCount.set(0);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
 
 /**
  * Конфигурация для тестов
@@ -21,6 +22,6 @@ public class TestConfig {
      */
     @Bean
     public UserDbStorage userDbStorage(JdbcTemplate jdbcTemplate) {
-        return new UserDbStorage(jdbcTemplate);
+        return new UserDbStorage(jdbcTemplate, new DataVersions());
     }
 }
\ No newline at end of file
@@ -1,21 +1,38 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -27,6 +44,9 @@ class FilmControllerTest {
     @Mock
     private FilmService filmService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private FilmController filmController;
 
@@ -285,9 +305,10 @@ class FilmControllerTest {
         expectedFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
         expectedFilm.setDuration(120);
 
+        when(filmService.getFilmVersion(filmId)).thenReturn(new DataVersion(1, 5, 1_000));
         when(filmService.getFilmById(filmId)).thenReturn(expectedFilm);
 
-        ResponseEntity<Film> film = filmController.getFilmById(filmId);
+        ResponseEntity<Film> film = filmController.getFilmById(filmId, getRequest());
 
         assertNotNull(film);
         assertEquals(filmId, film.getBody().getId());
@@ -295,6 +316,65 @@ class FilmControllerTest {
         assertEquals("Описание фильма", film.getBody().getDescription());
     }
 
+    /**
+     * Тест проверяет ответ 304 без загрузки фильма, если клиент прислал тег текущей версии,
+     * и полный ответ с новым тегом после изменения фильма
+     */
+    @Test
+    void shouldAnswerNotModifiedForUnchangedFilm() {
+        int filmId = 1;
+        DataVersion version = new DataVersion(1, 5, 1_000);
+        when(filmService.getFilmVersion(filmId)).thenReturn(version);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/" + filmId);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, version.getETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(filmController.getFilmById(filmId, new ServletWebRequest(request, response)));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(version.getETag(), response.getHeader(HttpHeaders.ETAG));
+        verify(filmService, never()).getFilmById(filmId);
+
+        DataVersion changed = new DataVersion(1, 6, 2_000);
+        when(filmService.getFilmVersion(filmId)).thenReturn(changed);
+        when(filmService.getFilmById(filmId)).thenReturn(new Film());
+        response = new MockHttpServletResponse();
+
+        assertNotNull(filmController.getFilmById(filmId, new ServletWebRequest(request, response)));
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(changed.getETag(), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(2_000, response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    /**
+     * Тест проверяет, что Last-Modified округляется вверх до секунды, а для изменения в текущей секунде
+     * не передается: клиент с одним If-Modified-Since не получает 304 после второго изменения в ту же секунду
+     */
+    @Test
+    void shouldRoundLastModifiedUpAndSkipItWithinCurrentSecond() {
+        int filmId = 1;
+        when(filmService.getFilmVersion(filmId)).thenReturn(new DataVersion(1, 5, 1_500));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/" + filmId);
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, 2_000L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(filmController.getFilmById(filmId, new ServletWebRequest(request, response)));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(2_000, response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+
+        long now = System.currentTimeMillis();
+        when(filmService.getFilmVersion(filmId)).thenReturn(new DataVersion(1, 6, now));
+        when(filmService.getFilmById(filmId)).thenReturn(new Film());
+        request = new MockHttpServletRequest("GET", "/films/" + filmId);
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, now + 1_000);
+        response = new MockHttpServletResponse();
+
+        assertNotNull(filmController.getFilmById(filmId, new ServletWebRequest(request, response)));
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
     /**
      * Тест проверяет добавление лайка фильму
      */
@@ -372,9 +452,10 @@ class FilmControllerTest {
 
         List<Film> expectedFilms = List.of(film1, film2);
 
-        when(filmService.getPopularFilms(count)).thenReturn(expectedFilms);
+        when(filmService.getPopularFilmsVersion()).thenReturn(new DataVersion(1, 5, 1_000));
+        when(filmService.getPopularFilms(count, null, null)).thenReturn(expectedFilms);
 
-        ResponseEntity<List<Film>> popularFilms = filmController.getPopularFilms(count);
+        ResponseEntity<List<Film>> popularFilms = filmController.getPopularFilms(count, null, null, getRequest());
 
         assertNotNull(popularFilms);
         assertEquals(2, popularFilms.getBody().size());
@@ -383,4 +464,36 @@ class FilmControllerTest {
         assertEquals(2, popularFilms.getBody().get(1).getId());
         assertEquals(1, popularFilms.getBody().get(1).getLikesCount());
     }
-}
\ No newline at end of file
+
+    /**
+     * Тест проверяет выгрузку фильмов в формате NDJSON: один фильм на строку
+     */
+    @Test
+    void shouldExportFilmsAsNdjson() throws IOException {
+        doAnswer(invocation -> {
+            Consumer<Film> action = invocation.getArgument(0);
+            for (int id = 1; id <= 2; id++) {
+                Film film = new Film();
+                film.setId(id);
+                film.setName("Фильм " + id);
+                film.setReleaseDate(LocalDate.of(2000, 1, 1));
+                action.accept(film);
+            }
+            return null;
+        }).when(filmService).exportFilms(any());
+
+        ResponseEntity<StreamingResponseBody> response = filmController.exportFilms();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1, objectMapper.readTree(lines[0]).get("id").asInt());
+        assertEquals("Фильм 2", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    private static ServletWebRequest getRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/films"), new MockHttpServletResponse());
+    }
+}
@@ -6,10 +6,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -310,9 +314,11 @@ class UserControllerTest {
         expectedUser.setName("User Name");
         expectedUser.setBirthday(LocalDate.of(2000, 1, 1));
 
+        when(userService.getUserVersion(userId)).thenReturn(new DataVersion(1, 0, 1_000));
         when(userService.getUserById(userId)).thenReturn(expectedUser);
 
-        ResponseEntity<User> user = userController.getUserById(userId);
+        ResponseEntity<User> user = userController.getUserById(userId,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/users/" + userId), new MockHttpServletResponse()));
 
         assertNotNull(user);
         assertEquals(userId, user.getBody().getId());
@@ -394,9 +400,9 @@ class UserControllerTest {
 
         List<User> expectedFriends = List.of(friend1, friend2);
 
-        when(userService.getFriends(userId)).thenReturn(expectedFriends);
+        when(userService.getFriends(userId, true)).thenReturn(expectedFriends);
 
-        ResponseEntity<List<User>> friends = userController.getFriends(userId);
+        ResponseEntity<List<User>> friends = userController.getFriends(userId, true);
 
         assertNotNull(friends);
         assertEquals(2, friends.getBody().size());
@@ -1,18 +1,32 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +44,12 @@ class FilmServiceTest {
     @Mock
     private UserStorage userStorage;
 
+    @Mock
+    private RecommendationService recommendationService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private FilmService filmService;
 
@@ -183,10 +203,13 @@ class FilmServiceTest {
         film.setDescription("Описание фильма");
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
+        film.addLike(userId);
 
         // Настройка моков
-        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.of(film));
+        when(filmStorage.filmExists(filmId)).thenReturn(true);
         when(userStorage.userExists(userId)).thenReturn(true);
+        when(filmStorage.addLike(filmId, userId)).thenReturn(true);
+        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.of(film));
 
         // Вызов тестируемого метода
         Film updatedFilm = filmService.addLike(filmId, userId);
@@ -196,9 +219,27 @@ class FilmServiceTest {
         assertEquals(filmId, updatedFilm.getId());
         assertTrue(updatedFilm.getLikes().contains(userId));
 
-        // Проверка вызова методов хранилищ
+        // Проверка вызова методов хранилищ: фильм загружается один раз, уже после записи лайка
+        verify(filmStorage, times(1)).filmExists(filmId);
         verify(filmStorage, times(1)).getFilmById(filmId);
         verify(userStorage, times(1)).userExists(userId);
+        verify(filmStorage, times(1)).addLike(filmId, userId);
+        verify(filmStorage, never()).updateFilm(any(Film.class));
+        verify(recommendationService, times(1)).onLikeAdded(filmId, userId);
+    }
+
+    /**
+     * Тест проверяет, что для несуществующего фильма не выдается версия,
+     * по которой условный запрос получил бы 304 вместо 404
+     */
+    @Test
+    void shouldThrowExceptionWhenGettingVersionOfNonExistentFilm() {
+        when(filmStorage.filmExists(999)).thenReturn(false);
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> filmService.getFilmVersion(999));
+
+        assertTrue(exception.getMessage().contains("Фильм с id 999 не найден"));
+        verify(filmStorage, never()).getFilmById(anyInt());
     }
 
     /**
@@ -211,7 +252,7 @@ class FilmServiceTest {
         int userId = 1;
 
         // Настройка мока
-        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.empty());
+        when(filmStorage.filmExists(filmId)).thenReturn(false);
 
         // Проверка исключения
         NotFoundException exception = assertThrows(
@@ -221,8 +262,9 @@ class FilmServiceTest {
 
         assertTrue(exception.getMessage().contains("Фильм с id 999 не найден"));
 
-        // Проверка вызова метода хранилища
-        verify(filmStorage, times(1)).getFilmById(filmId);
+        // Проверка вызова методов хранилищ
+        verify(filmStorage, never()).getFilmById(anyInt());
+        verify(filmStorage, never()).addLike(anyInt(), anyInt());
         verify(userStorage, never()).userExists(anyInt());
     }
 
@@ -235,15 +277,8 @@ class FilmServiceTest {
         int filmId = 1;
         int userId = 999;
 
-        Film film = new Film();
-        film.setId(filmId);
-        film.setName("Название фильма");
-        film.setDescription("Описание фильма");
-        film.setReleaseDate(LocalDate.of(2000, 1, 1));
-        film.setDuration(120);
-
         // Настройка моков
-        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.of(film));
+        when(filmStorage.filmExists(filmId)).thenReturn(true);
         when(userStorage.userExists(userId)).thenReturn(false);
 
         // Проверка исключения
@@ -255,7 +290,7 @@ class FilmServiceTest {
         assertTrue(exception.getMessage().contains("Пользователь с id 999 не найден"));
 
         // Проверка вызова методов хранилищ
-        verify(filmStorage, times(1)).getFilmById(filmId);
+        verify(filmStorage, never()).getFilmById(anyInt());
         verify(userStorage, times(1)).userExists(userId);
     }
 
@@ -274,11 +309,12 @@ class FilmServiceTest {
         film.setDescription("Описание фильма");
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
-        film.addLike(userId);
 
         // Настройка моков
-        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.of(film));
+        when(filmStorage.filmExists(filmId)).thenReturn(true);
         when(userStorage.userExists(userId)).thenReturn(true);
+        when(filmStorage.removeLike(filmId, userId)).thenReturn(true);
+        when(filmStorage.getFilmById(filmId)).thenReturn(Optional.of(film));
 
         // Вызов тестируемого метода
         Film updatedFilm = filmService.removeLike(filmId, userId);
@@ -291,6 +327,9 @@ class FilmServiceTest {
         // Проверка вызова методов хранилищ
         verify(filmStorage, times(1)).getFilmById(filmId);
         verify(userStorage, times(1)).userExists(userId);
+        verify(filmStorage, times(1)).removeLike(filmId, userId);
+        verify(filmStorage, never()).updateFilm(any(Film.class));
+        verify(recommendationService, times(1)).onLikeRemoved(filmId, userId);
     }
 
     /**
@@ -335,4 +374,216 @@ class FilmServiceTest {
         // Проверка вызова метода хранилища
         verify(filmStorage, times(1)).getPopularFilms(count);
     }
-}
\ No newline at end of file
+
+    /**
+     * Тест проверяет, что популярные фильмы жанра запрашиваются из таблиц лидеров,
+     * а без жанра и рейтинга - из общего порядка популярности
+     */
+    @Test
+    void shouldGetPopularFilmsByGenre() {
+        Film film = new Film();
+        film.setId(3);
+        when(filmStorage.getPopularFilms(5, 2, null)).thenReturn(List.of(film));
+        when(filmStorage.getPopularFilms(5)).thenReturn(List.of());
+
+        assertEquals(List.of(film), filmService.getPopularFilms(5, 2, null));
+        assertTrue(filmService.getPopularFilms(5, null, null).isEmpty());
+        verify(filmStorage, never()).getPopularFilms(5, null, null);
+    }
+
+    /**
+     * Тест проверяет получение фильмов, набирающих популярность, разбор окна и проверку количества
+     */
+    @Test
+    void shouldGetTrendingFilms() {
+        Film film = new Film();
+        film.setId(5);
+        when(filmStorage.getTrendingFilms(TrendingWindow.HOUR, true, 3)).thenReturn(List.of(film));
+
+        assertEquals(List.of(film), filmService.getTrendingFilms(TrendingWindow.parse("1H"), true, 3));
+        assertEquals(TrendingWindow.DAY, TrendingWindow.parse(null));
+        assertThrows(ValidationException.class, () -> TrendingWindow.parse("3h"));
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms(TrendingWindow.DAY, false, 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.getTrendingFilms(TrendingWindow.DAY, false, FilmService.MAX_TRENDING_FILMS + 1));
+    }
+
+    /**
+     * Тест проверяет получение похожих фильмов и проверку параметров запроса
+     */
+    @Test
+    void shouldGetRelatedFilms() {
+        Film film = new Film();
+        film.setId(2);
+        when(filmStorage.filmExists(1)).thenReturn(true);
+        when(filmStorage.getRelatedFilms(1, 5)).thenReturn(List.of(film));
+
+        assertEquals(List.of(film), filmService.getRelatedFilms(1, 5));
+
+        when(filmStorage.filmExists(9)).thenReturn(false);
+        assertThrows(NotFoundException.class, () -> filmService.getRelatedFilms(9, 5));
+        assertThrows(ValidationException.class, () -> filmService.getRelatedFilms(1, 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.getRelatedFilms(1, FilmStorage.MAX_RELATED_FILMS + 1));
+        verify(filmStorage, never()).getRelatedFilms(9, 5);
+    }
+
+    /**
+     * Тест проверяет получение фильмов с похожей аудиторией и проверку параметров запроса
+     */
+    @Test
+    void shouldGetSimilarAudienceFilms() {
+        Film film = new Film();
+        film.setId(2);
+        List<FilmSimilarity> similarFilms = List.of(new FilmSimilarity(film, 0.75));
+        when(filmStorage.filmExists(1)).thenReturn(true);
+        when(filmStorage.getSimilarAudienceFilms(1, 5)).thenReturn(similarFilms);
+
+        assertEquals(similarFilms, filmService.getSimilarAudienceFilms(1, 5));
+
+        when(filmStorage.filmExists(9)).thenReturn(false);
+        assertThrows(NotFoundException.class, () -> filmService.getSimilarAudienceFilms(9, 5));
+        assertThrows(ValidationException.class, () -> filmService.getSimilarAudienceFilms(1, 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.getSimilarAudienceFilms(1, FilmService.MAX_SIMILAR_AUDIENCE_FILMS + 1));
+    }
+
+    /**
+     * Тест проверяет полнотекстовый поиск и проверку параметров запроса
+     */
+    @Test
+    void shouldSearchFilms() {
+        Film film = new Film();
+        film.setId(3);
+        when(filmStorage.searchFilms("туман", 5)).thenReturn(List.of(film));
+
+        assertEquals(List.of(film), filmService.searchFilms("туман", 5));
+        assertThrows(ValidationException.class, () -> filmService.searchFilms(" ", 5));
+        assertThrows(ValidationException.class, () -> filmService.searchFilms("туман", 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.searchFilms("туман", FilmService.MAX_SEARCH_RESULTS + 1));
+    }
+
+    /**
+     * Тест проверяет автодополнение названий и проверку параметров
+     */
+    @Test
+    void shouldAutocompleteTitles() {
+        List<TitleSuggestion> suggestions = List.of(new TitleSuggestion(3, "Ёжик в тумане", 7));
+        when(filmStorage.autocompleteTitles("ёжик", 5)).thenReturn(suggestions);
+
+        assertEquals(suggestions, filmService.autocompleteTitles("ёжик", 5));
+        assertThrows(ValidationException.class, () -> filmService.autocompleteTitles("", 5));
+        assertThrows(ValidationException.class, () -> filmService.autocompleteTitles("ёжик", 0));
+        assertThrows(ValidationException.class,
+                () -> filmService.autocompleteTitles("ёжик", FilmService.MAX_AUTOCOMPLETE_SUGGESTIONS + 1));
+    }
+
+    /**
+     * Тест проверяет отбор фильмов: курсор при порядке по идентификатору, одну страницу
+     * при порядке по популярности и проверку параметров
+     */
+    @Test
+    void shouldFindFilmsByFilter() {
+        Film film1 = new Film();
+        film1.setId(4);
+        Film film2 = new Film();
+        film2.setId(8);
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(Set.of(2));
+        when(filmStorage.findFilms(filter, 0, 2)).thenReturn(List.of(film1, film2));
+
+        Page<Film> page = filmService.findFilms(filter, null, 1);
+        assertEquals(List.of(film1), page.getItems());
+        assertEquals(4, Page.decodeCursor(page.getNextCursor()));
+
+        filter.setSort(FilmFilter.Sort.POPULAR);
+        when(filmStorage.findFilms(filter, 0, 1)).thenReturn(List.of(film2));
+        assertNull(filmService.findFilms(filter, null, 1).getNextCursor());
+
+        filter.setYearFrom(2000);
+        filter.setYearTo(1990);
+        assertThrows(ValidationException.class, () -> filmService.findFilms(filter, null, 10));
+        assertThrows(ValidationException.class, () -> FilmFilter.Sort.parse("rating"));
+        assertEquals(FilmFilter.Sort.POPULAR, FilmFilter.Sort.parse("Popular"));
+    }
+
+    /**
+     * Тест проверяет получение страницы фильмов с курсором следующей страницы
+     */
+    @Test
+    void shouldGetFilmsPageWithNextCursor() {
+        // Подготовка данных
+        Film film1 = new Film();
+        film1.setId(5);
+        Film film2 = new Film();
+        film2.setId(7);
+        Film film3 = new Film();
+        film3.setId(9);
+
+        // Настройка мока: хранилище возвращает на один фильм больше размера страницы
+        when(filmStorage.getFilmsPage(4, 3)).thenReturn(List.of(film1, film2, film3));
+
+        // Вызов тестируемого метода
+        Page<Film> page = filmService.getFilmsPage(Page.encodeCursor(4), 2);
+
+        // Проверка результатов
+        assertEquals(2, page.getItems().size());
+        assertEquals(7, page.getItems().get(1).getId());
+        assertEquals(7, Page.decodeCursor(page.getNextCursor()));
+    }
+
+    /**
+     * Тест проверяет, что у последней страницы нет курсора, а некорректные параметры отклоняются
+     */
+    @Test
+    void shouldHandleLastPageAndInvalidPageParameters() {
+        Film film = new Film();
+        film.setId(1);
+        when(filmStorage.getFilmsPage(0, 11)).thenReturn(List.of(film));
+
+        Page<Film> page = filmService.getFilmsPage(null, 10);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertThrows(ValidationException.class, () -> filmService.getFilmsPage(null, 0));
+        assertThrows(ValidationException.class, () -> filmService.getFilmsPage("не курсор", 10));
+    }
+
+    /**
+     * Тест проверяет пакетное добавление: фильм с нарушенными ограничениями модели отклоняется,
+     * а позиции ошибок хранилища переводятся в позиции исходного пакета
+     */
+    @Test
+    void shouldAddFilmsAndReportErrorsByPosition() {
+        // Подготовка данных - второй фильм без названия, третий хранилище отклонит
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = new Film();
+            film.setName(i == 1 ? " " : "Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            film.setMpa(new Mpa(1, null));
+            films.add(film);
+        }
+        BatchResult stored = new BatchResult(2);
+        stored.accept(0, 10);
+        stored.reject(1, "Рейтинг MPA с id 1 не найден");
+
+        // Настройка мока: в хранилище передаются только корректные фильмы
+        when(filmStorage.addFilms(List.of(films.get(0), films.get(2)))).thenReturn(stored);
+
+        // Вызов тестируемого метода
+        BatchResult result = filmService.addFilms(films);
+
+        // Проверка результатов
+        assertEquals(Arrays.asList(10, null, null), result.getIds());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("Название фильма не может быть пустым", result.getErrors().get(0).getError());
+        assertEquals(2, result.getErrors().get(1).getIndex());
+        assertEquals("Рейтинг MPA с id 1 не найден", result.getErrors().get(1).getError());
+        assertThrows(ValidationException.class, () -> filmService.addFilms(List.of()));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для сервиса рекомендаций фильмов
+ */
+class RecommendationServiceTest {
+
+    @Mock
+    private FilmStorage filmStorage;
+
+    @Mock
+    private UserStorage userStorage;
+
+    @InjectMocks
+    private RecommendationService recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userStorage.userExists(1)).thenReturn(true);
+    }
+
+    /**
+     * Тест проверяет, что до загрузки индекса рекомендации пусты, а лайки, поставленные и удаленные
+     * во время чтения таблицы лайков, применяются после него и не затираются прочитанными строками
+     */
+    @Test
+    void shouldServeEmptyRecommendationsUntilWarmedUpAndKeepLikesChangedDuringWarmUp() {
+        when(filmStorage.getFilmsByIds(List.of())).thenReturn(List.of());
+        assertTrue(recommendationService.getRecommendations(1, 10).isEmpty());
+        assertFalse(recommendationService.isWarmedUp());
+        assertEquals(0, recommendationService.refreshStaleNeighbours());
+
+        doAnswer(invocation -> {
+            FilmStorage.LikeConsumer action = invocation.getArgument(0);
+            action.accept(10, 1);
+            action.accept(10, 2);
+            // Лайк удален после того, как его строка прочитана, и новый лайк поставлен во время чтения
+            action.accept(20, 2);
+            recommendationService.onLikeRemoved(20, 2);
+            recommendationService.onLikeAdded(30, 2);
+            return null;
+        }).when(filmStorage).forEachLike(any());
+        Film film = new Film();
+        film.setId(30);
+        when(filmStorage.getFilmsByIds(List.of(30))).thenReturn(List.of(film));
+
+        recommendationService.warmUpSimilarityIndex();
+
+        assertTrue(recommendationService.isWarmedUp());
+        assertEquals(List.of(film), recommendationService.getRecommendations(1, 10));
+        verify(filmStorage, never()).getFilmsByIds(List.of(20, 30));
+        verify(filmStorage, never()).getFilmsByIds(List.of(30, 20));
+    }
+}
@@ -6,6 +6,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
@@ -185,16 +188,9 @@ class UserServiceTest {
         user.setName("User Name");
         user.setBirthday(LocalDate.of(2000, 1, 1));
 
-        User friend = new User();
-        friend.setId(friendId);
-        friend.setEmail("friend@example.com");
-        friend.setLogin("friendLogin");
-        friend.setName("Friend Name");
-        friend.setBirthday(LocalDate.of(2001, 1, 1));
-
         // Настройка моков
         when(userStorage.getUserById(userId)).thenReturn(Optional.of(user));
-        when(userStorage.getUserById(friendId)).thenReturn(Optional.of(friend));
+        when(userStorage.userExists(friendId)).thenReturn(true);
 
         // Вызов тестируемого метода
         User updatedUser = userService.addFriend(userId, friendId);
@@ -207,7 +203,8 @@ class UserServiceTest {
 
         // Проверка вызова методов хранилища
         verify(userStorage, times(1)).getUserById(userId);
-        verify(userStorage, times(1)).getUserById(friendId);
+        verify(userStorage, times(1)).addFriend(userId, friendId);
+        verify(userStorage, never()).updateUser(any(User.class));
     }
 
     /**
@@ -228,7 +225,7 @@ class UserServiceTest {
 
         // Настройка моков
         when(userStorage.getUserById(userId)).thenReturn(Optional.of(user));
-        when(userStorage.getUserById(friendId)).thenReturn(Optional.empty());
+        when(userStorage.userExists(friendId)).thenReturn(false);
 
         // Проверка исключения
         NotFoundException exception = assertThrows(
@@ -240,7 +237,7 @@ class UserServiceTest {
 
         // Проверка вызова методов хранилища
         verify(userStorage, times(1)).getUserById(userId);
-        verify(userStorage, times(1)).getUserById(friendId);
+        verify(userStorage, never()).addFriend(anyInt(), anyInt());
     }
 
     /**
@@ -260,17 +257,9 @@ class UserServiceTest {
         user.setBirthday(LocalDate.of(2000, 1, 1));
         user.addFriend(friendId);
 
-        User friend = new User();
-        friend.setId(friendId);
-        friend.setEmail("friend@example.com");
-        friend.setLogin("friendLogin");
-        friend.setName("Friend Name");
-        friend.setBirthday(LocalDate.of(2001, 1, 1));
-        friend.addFriend(userId);
-
         // Настройка моков
         when(userStorage.getUserById(userId)).thenReturn(Optional.of(user));
-        when(userStorage.getUserById(friendId)).thenReturn(Optional.of(friend));
+        when(userStorage.userExists(friendId)).thenReturn(true);
 
         // Вызов тестируемого метода
         User updatedUser = userService.removeFriend(userId, friendId);
@@ -283,7 +272,8 @@ class UserServiceTest {
 
         // Проверка вызова методов хранилища
         verify(userStorage, times(1)).getUserById(userId);
-        verify(userStorage, times(1)).getUserById(friendId);
+        verify(userStorage, times(1)).removeFriend(userId, friendId);
+        verify(userStorage, never()).updateUser(any(User.class));
     }
 
     /**
@@ -320,9 +310,8 @@ class UserServiceTest {
         friend2.setBirthday(LocalDate.of(2002, 2, 2));
 
         // Настройка моков
-        when(userStorage.getUserById(userId)).thenReturn(Optional.of(user));
-        when(userStorage.getUserById(friendId1)).thenReturn(Optional.of(friend1));
-        when(userStorage.getUserById(friendId2)).thenReturn(Optional.of(friend2));
+        when(userStorage.userExists(userId)).thenReturn(true);
+        when(userStorage.getFriends(userId, true)).thenReturn(List.of(friend1, friend2));
 
         // Вызов тестируемого метода
         List<User> friends = userService.getFriends(userId);
@@ -333,10 +322,63 @@ class UserServiceTest {
         assertEquals(friendId1, friends.get(0).getId());
         assertEquals(friendId2, friends.get(1).getId());
 
-        // Проверка вызова методов хранилища
-        verify(userStorage, times(1)).getUserById(userId);
-        verify(userStorage, times(1)).getUserById(friendId1);
-        verify(userStorage, times(1)).getUserById(friendId2);
+        // Проверка вызова методов хранилища: друзья загружаются одним вызовом, без запросов по каждому другу
+        verify(userStorage, times(1)).getFriends(userId, true);
+        verify(userStorage, never()).getUserById(anyInt());
+    }
+
+    /**
+     * Тест проверяет, что для несуществующего пользователя список друзей не загружается
+     */
+    @Test
+    void shouldThrowExceptionWhenGettingFriendsOfNonExistentUser() {
+        when(userStorage.userExists(99)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getFriends(99, false));
+        verify(userStorage, never()).getFriends(anyInt(), anyBoolean());
+    }
+
+    /**
+     * Тест проверяет, что для несуществующего пользователя не выдается версия,
+     * по которой условный запрос получил бы 304 вместо 404
+     */
+    @Test
+    void shouldThrowExceptionWhenGettingVersionOfNonExistentUser() {
+        when(userStorage.userExists(99)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getUserVersion(99));
+        verify(userStorage, never()).getUserById(anyInt());
+    }
+
+    /**
+     * Тест проверяет получение рекомендаций в друзья из хранилища
+     */
+    @Test
+    void shouldGetFriendSuggestions() {
+        User suggested = new User();
+        suggested.setId(5);
+        when(userStorage.userExists(1)).thenReturn(true);
+        when(userStorage.getFriendSuggestions(1, 10)).thenReturn(List.of(new FriendSuggestion(suggested, 3)));
+
+        List<FriendSuggestion> suggestions = userService.getFriendSuggestions(1, 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals(5, suggestions.get(0).getUser().getId());
+        assertEquals(3, suggestions.get(0).getMutualFriends());
+    }
+
+    /**
+     * Тест проверяет проверку количества рекомендаций и существования пользователя
+     */
+    @Test
+    void shouldRejectInvalidFriendSuggestionsRequest() {
+        when(userStorage.userExists(99)).thenReturn(false);
+
+        assertThrows(ValidationException.class, () -> userService.getFriendSuggestions(1, 0));
+        assertThrows(ValidationException.class,
+                () -> userService.getFriendSuggestions(1, UserService.MAX_SUGGESTIONS + 1));
+        assertThrows(NotFoundException.class, () -> userService.getFriendSuggestions(99, 10));
+        verify(userStorage, never()).getFriendSuggestions(anyInt(), anyInt());
     }
 
     /**
@@ -373,9 +415,9 @@ class UserServiceTest {
         commonFriend.setBirthday(LocalDate.of(2002, 2, 2));
 
         // Настройка моков
-        when(userStorage.getUserById(userId)).thenReturn(Optional.of(user));
-        when(userStorage.getUserById(otherId)).thenReturn(Optional.of(otherUser));
-        when(userStorage.getUserById(commonFriendId)).thenReturn(Optional.of(commonFriend));
+        when(userStorage.userExists(userId)).thenReturn(true);
+        when(userStorage.userExists(otherId)).thenReturn(true);
+        when(userStorage.getCommonFriends(userId, otherId)).thenReturn(List.of(commonFriend));
 
         // Вызов тестируемого метода
         List<User> commonFriends = userService.getCommonFriends(userId, otherId);
@@ -387,8 +429,43 @@ class UserServiceTest {
         assertEquals("Common Friend", commonFriends.get(0).getName());
 
         // Проверка вызова методов хранилища
-        verify(userStorage, times(1)).getUserById(userId);
-        verify(userStorage, times(1)).getUserById(otherId);
-        verify(userStorage, times(1)).getUserById(commonFriendId);
+        verify(userStorage, times(1)).getCommonFriends(userId, otherId);
+        verify(userStorage, never()).getUserById(anyInt());
+    }
+
+    /**
+     * Тест проверяет выброс исключения при получении общих друзей с несуществующим пользователем
+     */
+    @Test
+    void shouldThrowExceptionWhenGettingCommonFriendsWithNonExistentUser() {
+        when(userStorage.userExists(1)).thenReturn(true);
+        when(userStorage.userExists(999)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getCommonFriends(1, 999));
+
+        verify(userStorage, never()).getCommonFriends(anyInt(), anyInt());
+    }
+
+    /**
+     * Тест проверяет получение страницы пользователей с курсором следующей страницы
+     */
+    @Test
+    void shouldGetUsersPageWithNextCursor() {
+        // Подготовка данных
+        User user1 = new User();
+        user1.setId(2);
+        User user2 = new User();
+        user2.setId(3);
+
+        // Настройка мока: хранилище возвращает на одного пользователя больше размера страницы
+        when(userStorage.getUsersPage(0, 2)).thenReturn(List.of(user1, user2));
+
+        // Вызов тестируемого метода
+        Page<User> page = userService.getUsersPage(null, 1);
+
+        // Проверка результатов
+        assertEquals(1, page.getItems().size());
+        assertEquals(2, Page.decodeCursor(page.getNextCursor()));
+        assertThrows(ValidationException.class, () -> userService.getUsersPage(null, PageLimits.MAX_PAGE_SIZE + 1));
     }
-}
\ No newline at end of file
+}
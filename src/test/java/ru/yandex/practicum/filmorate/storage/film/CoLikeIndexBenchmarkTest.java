@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер построения индекса совместных лайков, обновления при лайке и запроса похожих фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class CoLikeIndexBenchmarkTest {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 5_000;
+    private static final int LIKES_PER_USER = 50;
+    private static final int REQUESTS = 10_000;
+
+    @Test
+    void shouldServeRelatedFilmsFromBoundedCounters() {
+        // Популярность фильмов неравномерна: квадрат равномерной величины смещает лайки к фильмам с малыми id
+        Random random = new Random(42);
+        Map<Integer, IntHashSet> likes = new HashMap<>();
+        for (int userId = 1; userId <= USERS; userId++) {
+            IntHashSet films = new IntHashSet();
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                double skew = random.nextDouble();
+                films.add(1 + (int) (skew * skew * FILMS));
+            }
+            likes.put(userId, films);
+        }
+
+        CoLikeIndex index = new CoLikeIndex();
+        long rebuildStart = System.nanoTime();
+        index.rebuild(likes);
+        long rebuildNanos = System.nanoTime() - rebuildStart;
+
+        long likeStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            index.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+        }
+        long likeNanos = (System.nanoTime() - likeStart) / REQUESTS;
+
+        long requestStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(10, index.getRelated(1 + random.nextInt(FILMS / 2), 10).size());
+        }
+        long requestNanos = (System.nanoTime() - requestStart) / REQUESTS;
+
+        System.out.printf("Пользователей: %d, фильмов: %d, потоков: %d, построение: %.0f мс, " +
+                        "лайк: %.1f мкс, запрос похожих фильмов: %.1f мкс%n",
+                USERS, index.size(), Runtime.getRuntime().availableProcessors(),
+                rebuildNanos / 1e6, likeNanos / 1e3, requestNanos / 1e3);
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса совместных лайков фильмов
+ */
+class CoLikeIndexTest {
+
+    private CoLikeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CoLikeIndex();
+    }
+
+    /**
+     * Тест проверяет порядок похожих фильмов: по количеству совместных лайков, затем по id
+     */
+    @Test
+    void shouldOrderRelatedFilmsByCoLikes() {
+        like(1, 1, 2, 3);
+        like(2, 1, 3);
+        like(3, 1, 4);
+        like(4, 2, 3);
+
+        assertEquals(List.of(3, 2, 4), index.getRelated(1, 10));
+        assertEquals(List.of(3), index.getRelated(1, 1));
+        assertEquals(List.of(1, 2), index.getRelated(3, 10));
+        assertTrue(index.getRelated(5, 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что повторный лайк не меняет счетчики, а удаление лайка их уменьшает
+     */
+    @Test
+    void shouldAdjustCountsOnRepeatedAndRemovedLikes() {
+        like(1, 1, 2);
+        like(2, 1, 3);
+        index.addLike(2, 1);
+
+        assertEquals(List.of(2, 3), index.getRelated(1, 10));
+
+        index.removeLike(2, 1);
+        index.removeLike(2, 1);
+        assertEquals(List.of(3), index.getRelated(1, 10));
+        assertTrue(index.getRelated(2, 10).isEmpty());
+
+        index.removeLike(7, 99);
+        assertEquals(List.of(1), index.getRelated(3, 10));
+    }
+
+    /**
+     * Тест проверяет, что полное построение дает тот же порядок, что и последовательные лайки
+     */
+    @Test
+    void shouldRebuildFromUserLikes() {
+        like(1, 1, 2, 3);
+        like(2, 1, 3);
+        like(3, 2, 4);
+
+        CoLikeIndex rebuilt = new CoLikeIndex();
+        Map<Integer, IntHashSet> likes = new HashMap<>();
+        likes.put(1, setOf(1, 2, 3));
+        likes.put(2, setOf(1, 3));
+        likes.put(3, setOf(2, 4));
+        rebuilt.rebuild(likes);
+
+        for (int filmId = 1; filmId <= 4; filmId++) {
+            assertEquals(index.getRelated(filmId, 10), rebuilt.getRelated(filmId, 10));
+        }
+        rebuilt.addLike(4, 1);
+        // Пользователь 3 уже лайкал фильмы 2 и 4
+        assertEquals(List.of(2, 1, 3), rebuilt.getRelated(4, 10));
+    }
+
+    /**
+     * Тест проверяет, что число счетчиков фильма ограничено, а частые пары не вытесняются редкими
+     */
+    @Test
+    void shouldKeepFrequentFilmsWithinCapacity() {
+        // Фильм 2 нравится вместе с фильмом 1 десяти пользователям, остальные фильмы - по одному
+        for (int userId = 1; userId <= 10; userId++) {
+            like(userId, 1, 2);
+        }
+        for (int filmId = 100; filmId < 100 + CoLikeIndex.CAPACITY * 3; filmId++) {
+            like(1000 + filmId, 1, filmId);
+        }
+
+        List<Integer> related = index.getRelated(1, FilmStorage.MAX_RELATED_FILMS + 10);
+        assertEquals(FilmStorage.MAX_RELATED_FILMS, related.size());
+        assertEquals(2, related.get(0));
+    }
+
+    /**
+     * Тест проверяет, что у пользователя хранится ограниченная выборка фильмов, которая зависит только
+     * от идентификаторов фильмов: удаление и повторный лайк фильма вне выборки не меняют счетчики
+     */
+    @Test
+    void shouldKeepStableBoundedSampleOfUserLikes() {
+        int[] films = new int[CoLikeIndex.MAX_LIKES_PER_USER + 200];
+        IntHashSet likes = new IntHashSet();
+        for (int i = 0; i < films.length; i++) {
+            films[i] = i + 1;
+            likes.add(i + 1);
+            index.addLike(i + 1, 1);
+        }
+        CoLikeIndex rebuilt = new CoLikeIndex();
+        rebuilt.rebuild(Map.of(1, likes));
+
+        int[] sample = index.sampleOf(1);
+        assertEquals(CoLikeIndex.MAX_LIKES_PER_USER, sample.length);
+        assertArrayEquals(sample, rebuilt.sampleOf(1));
+
+        int outside = 1;
+        while (Arrays.binarySearch(sample, outside) >= 0) {
+            outside++;
+        }
+        List<List<Integer>> related = new ArrayList<>();
+        for (int filmId : films) {
+            related.add(index.getRelated(filmId, FilmStorage.MAX_RELATED_FILMS));
+        }
+        index.removeLike(outside, 1);
+        index.addLike(outside, 1);
+        assertArrayEquals(sample, index.sampleOf(1));
+        for (int i = 0; i < films.length; i++) {
+            assertEquals(related.get(i), index.getRelated(films[i], FilmStorage.MAX_RELATED_FILMS));
+        }
+
+        // Фильм из выборки после удаления и повторного лайка возвращается в нее
+        index.removeLike(sample[0], 1);
+        assertEquals(CoLikeIndex.MAX_LIKES_PER_USER - 1, index.sampleOf(1).length);
+        index.addLike(sample[0], 1);
+        assertArrayEquals(sample, index.sampleOf(1));
+    }
+
+    private static IntHashSet setOf(int... filmIds) {
+        IntHashSet films = new IntHashSet();
+        for (int filmId : filmIds) {
+            films.add(filmId);
+        }
+        return films;
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            index.addLike(filmId, userId);
+        }
+    }
+}
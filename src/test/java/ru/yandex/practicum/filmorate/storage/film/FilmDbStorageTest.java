@@ -0,0 +1,637 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.config.StatementCountingDataSource;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSimilarity;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.version.DataVersion;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Интеграционные тесты для хранилища фильмов в базе данных.
+ * Тесты выполняются без общей транзакции: индексы в памяти изменяются только после фиксации,
+ * которой в откатываемой транзакции теста не было бы.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmDbStorageTest {
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final DataVersions dataVersions = new DataVersions();
+
+    private StatementCountingDataSource countingDataSource;
+    private FilmDbStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        deleteAll();
+
+        countingDataSource = new StatementCountingDataSource(dataSource);
+        JdbcTemplate countingTemplate = new JdbcTemplate(countingDataSource);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(countingTemplate);
+        referenceDataCache.reload();
+        filmStorage = new FilmDbStorage(countingTemplate,
+                new GenreDbStorage(countingTemplate, referenceDataCache),
+                new MpaDbStorage(referenceDataCache),
+                new TransactionTemplate(transactionManager), dataVersions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll();
+    }
+
+    /**
+     * Тест проверяет, что получение всех фильмов выполняет фиксированное число запросов
+     */
+    @Test
+    void shouldLoadAllFilmsWithFixedNumberOfStatements() {
+        createFilms(2);
+        countingDataSource.reset();
+        filmStorage.getAllFilms();
+        int statementsForTwoFilms = countingDataSource.getStatementCount();
+
+        createFilms(20);
+        countingDataSource.reset();
+        List<Film> films = filmStorage.getAllFilms();
+
+        assertThat(films).hasSize(22);
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(statementsForTwoFilms).isEqualTo(3);
+    }
+
+    /**
+     * Тест проверяет, что получение популярных фильмов выполняет фиксированное число запросов
+     */
+    @Test
+    void shouldLoadPopularFilmsWithFixedNumberOfStatements() {
+        List<Integer> filmIds = createFilms(15);
+        int userId = createUser(1);
+        filmStorage.addLike(filmIds.get(3), userId);
+
+        countingDataSource.reset();
+        List<Film> films = filmStorage.getPopularFilms(10);
+
+        assertThat(films).hasSize(10);
+        assertThat(films.get(0).getId()).isEqualTo(filmIds.get(3));
+        assertThat(films.get(0).getLikes()).containsExactly(userId);
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+    }
+
+    /**
+     * Тест проверяет, что фильм загружается вместе с рейтингом, жанрами и лайками
+     */
+    @Test
+    void shouldLoadFilmWithMpaGenresAndLikes() {
+        int filmId = createFilms(1).get(0);
+        int firstUserId = createUser(1);
+        int secondUserId = createUser(2);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmId, 2);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmId, 1);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId, firstUserId);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId, secondUserId);
+
+        countingDataSource.reset();
+        Optional<Film> filmOptional = filmStorage.getFilmById(filmId);
+
+        assertThat(filmOptional).isPresent();
+        Film film = filmOptional.get();
+        assertThat(film.getMpa().getName()).isEqualTo("PG-13");
+        assertThat(film.getGenres()).extracting("id").containsExactly(1, 2);
+        assertThat(film.getLikes()).containsExactlyInAnyOrder(firstUserId, secondUserId);
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+    }
+
+    /**
+     * Тест проверяет, что для несуществующего фильма возвращается пустой Optional,
+     * а проверка существования фильма не обращается к базе данных
+     */
+    @Test
+    void shouldReturnEmptyOptionalForUnknownFilm() {
+        assertThat(filmStorage.getFilmById(999)).isEmpty();
+
+        int filmId = createFilms(1).get(0);
+        countingDataSource.reset();
+        assertThat(filmStorage.filmExists(filmId)).isTrue();
+        assertThat(filmStorage.filmExists(filmId + 1)).isFalse();
+        assertThat(countingDataSource.getStatementCount()).isZero();
+    }
+
+    /**
+     * Тест проверяет, что лайк записывается одной строкой и повторные операции ничего не меняют
+     */
+    @Test
+    void shouldAddAndRemoveSingleLike() {
+        int filmId = createFilms(1).get(0);
+        int userId = createUser(1);
+
+        countingDataSource.reset();
+        assertThat(filmStorage.addLike(filmId, userId)).isTrue();
+        // Лайк, счетчик, чтение и запись MinHash-сигнатуры (первый лайк фильма всегда меняет сигнатуру)
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(4);
+        assertThat(likeCount(filmId)).isEqualTo(1);
+        assertThat(filmStorage.addLike(filmId, userId)).isFalse();
+        assertThat(filmStorage.getFilmById(filmId).orElseThrow().getLikes()).containsExactly(userId);
+
+        assertThat(likeCount(filmId)).isEqualTo(1);
+
+        assertThat(filmStorage.removeLike(filmId, userId)).isTrue();
+        assertThat(filmStorage.removeLike(filmId, userId)).isFalse();
+        assertThat(filmStorage.getFilmById(filmId).orElseThrow().getLikes()).isEmpty();
+        assertThat(likeCount(filmId)).isZero();
+    }
+
+    /**
+     * Тест проверяет, что индексы в памяти учитывают лайк только после фиксации транзакции,
+     * а откат транзакции их не меняет
+     */
+    @Test
+    void shouldApplyLikesToIndexesAfterCommitOnly() {
+        List<Integer> filmIds = createFilms(3);
+        int userId = createUser(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            filmStorage.addLike(filmIds.get(0), userId);
+            assertThat(filmStorage.getPopularFilms(1)).extracting("id").containsExactly(filmIds.get(2));
+            status.setRollbackOnly();
+        });
+        assertThat(filmStorage.getPopularFilms(1)).extracting("id").containsExactly(filmIds.get(2));
+        assertThat(likeCount(filmIds.get(0))).isZero();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            filmStorage.addLike(filmIds.get(0), userId);
+            assertThat(filmStorage.getPopularFilms(1)).extracting("id").containsExactly(filmIds.get(2));
+        });
+        assertThat(filmStorage.getPopularFilms(1)).extracting("id").containsExactly(filmIds.get(0));
+
+        transactionTemplate.executeWithoutResult(status -> filmStorage.removeLike(filmIds.get(0), userId));
+        assertThat(filmStorage.getPopularFilms(1)).extracting("id").containsExactly(filmIds.get(2));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_minhash", Integer.class)).isZero();
+    }
+
+    /**
+     * Тест проверяет, что версия фильма меняется только после фиксации и уже после индексов:
+     * запрос, получивший новый тег, видит и новый порядок популярности
+     */
+    @Test
+    void shouldBumpFilmVersionAfterIndexes() {
+        List<Integer> filmIds = createFilms(3);
+        int userId = createUser(1);
+        List<Integer> topAtBump = new ArrayList<>();
+        DataVersions observedVersions = new DataVersions() {
+            @Override
+            public void committed(Table table, Collection<Integer> ids) {
+                topAtBump.add(filmStorage.getPopularFilms(1).get(0).getId());
+                super.committed(table, ids);
+            }
+        };
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.reload();
+        filmStorage = new FilmDbStorage(jdbcTemplate, new GenreDbStorage(jdbcTemplate, referenceDataCache),
+                new MpaDbStorage(referenceDataCache), new TransactionTemplate(transactionManager), observedVersions);
+        filmStorage.warmUpIndexes();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        DataVersion initial = observedVersions.of(Table.FILM, filmIds.get(0));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            filmStorage.addLike(filmIds.get(0), userId);
+            assertThat(observedVersions.of(Table.FILM, filmIds.get(0))).isEqualTo(initial);
+        });
+
+        assertThat(topAtBump).containsExactly(filmIds.get(0));
+        assertThat(observedVersions.of(Table.FILM, filmIds.get(0))).isNotEqualTo(initial);
+    }
+
+    /**
+     * Тест проверяет, что сверка исправляет разошедшиеся счетчики лайков, а в индексах меняет только
+     * исправленные фильмы: фильм, добавленный после прогрева, из них не пропадает
+     */
+    @Test
+    void shouldReconcileDriftedLikeCounts() {
+        List<Integer> filmIds = createFilms(3);
+        int userId = createUser(1);
+        filmStorage.addLike(filmIds.get(0), userId);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmIds.get(1), userId);
+        jdbcTemplate.update("UPDATE film SET like_count = like_count + 5 WHERE film_id = ?", filmIds.get(2));
+        int addedId = filmStorage.addFilm(film("Новый фильм", 1)).getId();
+
+        assertThat(filmStorage.reconcileLikeCounts()).isEqualTo(2);
+
+        assertThat(likeCount(filmIds.get(0))).isEqualTo(1);
+        assertThat(likeCount(filmIds.get(1))).isEqualTo(1);
+        assertThat(likeCount(filmIds.get(2))).isZero();
+        assertThat(filmStorage.reconcileLikeCounts()).isZero();
+        assertThat(filmStorage.getPopularFilms(2)).extracting("id")
+                .containsExactly(filmIds.get(1), filmIds.get(0));
+        assertThat(filmStorage.filmExists(addedId)).isTrue();
+        assertThat(filmStorage.getPopularFilms(10)).hasSize(4);
+    }
+
+    /**
+     * Тест проверяет, что обновление фильма не затирает его лайки
+     */
+    @Test
+    void shouldKeepLikesWhenUpdatingFilm() {
+        int filmId = createFilms(1).get(0);
+        int userId = createUser(1);
+        filmStorage.addLike(filmId, userId);
+
+        Film film = filmStorage.getFilmById(filmId).orElseThrow();
+        film.setName("Новое название");
+        film.getLikes().clear();
+        Film updatedFilm = filmStorage.updateFilm(film);
+
+        assertThat(updatedFilm.getName()).isEqualTo("Новое название");
+        assertThat(updatedFilm.getLikes()).containsExactly(userId);
+    }
+
+    /**
+     * Тест проверяет, что фильм с неизвестным жанром не записывается, а обновление с неизвестным жанром
+     * не меняет ни строку фильма, ни его жанры
+     */
+    @Test
+    void shouldRejectUnknownGenreBeforeWriting() {
+        assertThatThrownBy(() -> filmStorage.addFilm(film("Новый фильм", 1, 1, 999)))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("Жанр с id 999 не найден");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film", Integer.class)).isZero();
+
+        Film film = filmStorage.addFilm(film("Фильм", 1, 1));
+        Film update = film("Новое название", 1, 2, 999);
+        update.setId(film.getId());
+
+        assertThatThrownBy(() -> filmStorage.updateFilm(update)).isInstanceOf(NotFoundException.class);
+        Film stored = filmStorage.getFilmById(film.getId()).orElseThrow();
+        assertThat(stored.getName()).isEqualTo("Фильм");
+        assertThat(stored.getGenres()).extracting("id").containsExactly(1);
+    }
+
+    /**
+     * Тест проверяет потоковый обход фильмов: жанры и лайки догружаются пачками
+     */
+    @Test
+    void shouldStreamAllFilmsInChunks() {
+        List<Integer> filmIds = createFilms(501);
+        int userId = createUser(1);
+        filmStorage.addLike(filmIds.get(500), userId);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmIds.get(0), 1);
+
+        List<Film> streamed = new ArrayList<>();
+        countingDataSource.reset();
+        filmStorage.forEachFilm(streamed::add);
+
+        assertThat(streamed).extracting("id").containsExactlyElementsOf(filmIds);
+        assertThat(streamed.get(0).getGenres()).extracting("id").containsExactly(1);
+        assertThat(streamed.get(500).getLikes()).containsExactly(userId);
+        // Один запрос на фильмы и по два запроса (жанры и лайки) на каждую из двух пачек
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(5);
+    }
+
+    /**
+     * Тест проверяет обход всех лайков одним запросом и получение фильмов в заданном порядке
+     */
+    @Test
+    void shouldStreamLikesAndLoadFilmsByIds() {
+        List<Integer> filmIds = createFilms(3);
+        int userId = createUser(1);
+        int otherUserId = createUser(2);
+        filmStorage.addLike(filmIds.get(0), userId);
+        filmStorage.addLike(filmIds.get(2), userId);
+        filmStorage.addLike(filmIds.get(2), otherUserId);
+
+        List<String> likes = new ArrayList<>();
+        countingDataSource.reset();
+        filmStorage.forEachLike((filmId, likeUserId) -> likes.add(filmId + ":" + likeUserId));
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(likes).containsExactlyInAnyOrder(filmIds.get(0) + ":" + userId,
+                filmIds.get(2) + ":" + userId, filmIds.get(2) + ":" + otherUserId);
+        assertThat(filmStorage.getFilmsByIds(List.of(filmIds.get(2), -1, filmIds.get(0))))
+                .extracting("id").containsExactly(filmIds.get(2), filmIds.get(0));
+    }
+
+    /**
+     * Тест проверяет, что похожие фильмы строятся по лайкам из базы при прогреве, обновляются
+     * при добавлении и удалении лайков и загружаются без обхода таблицы likes
+     */
+    @Test
+    void shouldServeRelatedFilmsFromCoLikeIndex() {
+        List<Integer> filmIds = createFilms(4);
+        int userId = createUser(1);
+        int otherUserId = createUser(2);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?), (?, ?), (?, ?)",
+                filmIds.get(0), userId, filmIds.get(1), userId, filmIds.get(0), otherUserId);
+        filmStorage.warmUpIndexes();
+
+        filmStorage.addLike(filmIds.get(2), otherUserId);
+        filmStorage.addLike(filmIds.get(2), userId);
+        filmStorage.removeLike(filmIds.get(1), userId);
+
+        countingDataSource.reset();
+        List<Film> related = filmStorage.getRelatedFilms(filmIds.get(0), 10);
+
+        assertThat(related).extracting("id").containsExactly(filmIds.get(2));
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+        assertThat(filmStorage.getRelatedFilms(filmIds.get(3), 10)).isEmpty();
+    }
+
+    /**
+     * Тест проверяет, что MinHash-сигнатуры сохраняются при изменении лайков и загружаются при старте
+     * без пересчета по таблице likes
+     */
+    @Test
+    void shouldPersistMinHashSignatures() {
+        List<Integer> filmIds = createFilms(3);
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            userIds.add(createUser(i));
+        }
+        for (int userId : userIds) {
+            filmStorage.addLike(filmIds.get(0), userId);
+            filmStorage.addLike(filmIds.get(1), userId);
+        }
+        filmStorage.addLike(filmIds.get(2), userIds.get(0));
+        filmStorage.removeLike(filmIds.get(2), userIds.get(0));
+
+        assertThat(filmStorage.getSimilarAudienceFilms(filmIds.get(0), 10))
+                .extracting(similarity -> similarity.getFilm().getId(), FilmSimilarity::getSimilarity)
+                .containsExactly(tuple(filmIds.get(1), 1.0));
+        assertThat(jdbcTemplate.queryForList("SELECT film_id FROM film_minhash ORDER BY film_id", Integer.class))
+                .containsExactly(filmIds.get(0), filmIds.get(1));
+
+        // Лайки второго фильма удалены в обход хранилища: сохраненная сигнатура не пересчитывается
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", filmIds.get(1));
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.reload();
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate,
+                new GenreDbStorage(jdbcTemplate, referenceDataCache),
+                new MpaDbStorage(referenceDataCache),
+                new TransactionTemplate(transactionManager), dataVersions);
+        restarted.warmUpIndexes();
+
+        assertThat(restarted.getSimilarAudienceFilms(filmIds.get(0), 10))
+                .extracting(similarity -> similarity.getFilm().getId())
+                .containsExactly(filmIds.get(1));
+    }
+
+    /**
+     * Тест проверяет, что поиск видит добавленные, обновленные и загруженные при старте фильмы,
+     * а найденные фильмы загружаются фиксированным числом запросов
+     */
+    @Test
+    void shouldSearchFilmsByNameAndDescription() {
+        Film added = filmStorage.addFilm(film("Ёжик в тумане", 1));
+        Film other = filmStorage.addFilm(film("Сказка сказок", 1));
+        other.setDescription("Мультфильм: ёжик и волчок");
+        filmStorage.updateFilm(other);
+
+        countingDataSource.reset();
+        assertThat(filmStorage.searchFilms("ежик", 10)).extracting("id").containsExactly(added.getId(), other.getId());
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+
+        jdbcTemplate.update("INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", "Туманность Андромеды", "Описание", LocalDate.of(1967, 1, 1), 77, 1);
+        filmStorage.warmUpIndexes();
+        assertThat(filmStorage.searchFilms("туманность", 10)).extracting("name")
+                .containsExactly("Туманность Андромеды");
+        assertThat(filmStorage.searchFilms("мультфильм", 10)).extracting("id").containsExactly(other.getId());
+    }
+
+    /**
+     * Тест проверяет автодополнение названий по популярности без запросов к базе данных,
+     * обновление индекса при переименовании и его построение при запуске
+     */
+    @Test
+    void shouldAutocompleteTitlesByPopularity() {
+        int userId = createUser(1);
+        Film first = filmStorage.addFilm(film("Матрица", 1));
+        Film second = filmStorage.addFilm(film("Матрица: Перезагрузка", 1));
+        Film renamed = filmStorage.addFilm(film("Мастер и Маргарита", 1));
+        filmStorage.addLike(second.getId(), userId);
+
+        countingDataSource.reset();
+        assertThat(filmStorage.autocompleteTitles("матр", 10)).extracting("filmId")
+                .containsExactly(second.getId(), first.getId());
+        assertThat(countingDataSource.getStatementCount()).isZero();
+
+        renamed.setName("Матрица: Революция");
+        filmStorage.updateFilm(renamed);
+        assertThat(filmStorage.autocompleteTitles("мастер", 10)).isEmpty();
+        assertThat(filmStorage.autocompleteTitles("матрица р", 1)).extracting("name")
+                .containsExactly("Матрица: Революция");
+        assertThat(filmStorage.autocompleteTitles("матрицв", 1)).extracting("likes").containsExactly(1);
+
+        jdbcTemplate.update("INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", "Матрёшка", "Описание", LocalDate.of(1967, 1, 1), 77, 1);
+        filmStorage.warmUpIndexes();
+        assertThat(filmStorage.autocompleteTitles("матре", 1)).extracting("name").containsExactly("Матрёшка");
+        assertThat(filmStorage.autocompleteTitles("матр", 10)).extracting("filmId").startsWith(second.getId());
+    }
+
+    /**
+     * Тест проверяет отбор по жанрам, рейтингу и годам по индексам в памяти: к базе данных
+     * обращается только загрузка найденных фильмов, изменения фильмов и построение при запуске учитываются
+     */
+    @Test
+    void shouldFindFilmsByGenreMpaAndYear() {
+        int userId = createUser(1);
+        Film comedy = filmStorage.addFilm(film("Комедия", 1, 1));
+        Film drama = filmStorage.addFilm(film("Драма", 2, 2));
+        Film both = filmStorage.addFilm(film("Трагикомедия", 2, 1, 2));
+        filmStorage.addLike(drama.getId(), userId);
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(Set.of(1, 2));
+        filter.setMpaIds(Set.of(2));
+
+        countingDataSource.reset();
+        assertThat(filmStorage.findFilms(filter, 0, 10)).extracting("id").containsExactly(drama.getId(), both.getId());
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+
+        filter.setSort(FilmFilter.Sort.POPULAR);
+        assertThat(filmStorage.findFilms(filter, 0, 1)).extracting("id").containsExactly(drama.getId());
+
+        comedy.setMpa(new Mpa(2, null));
+        comedy.setReleaseDate(LocalDate.of(1985, 1, 1));
+        filmStorage.updateFilm(comedy);
+        filter.setSort(FilmFilter.Sort.ID);
+        filter.setYearTo(1990);
+        assertThat(filmStorage.findFilms(filter, 0, 10)).extracting("id").containsExactly(comedy.getId());
+
+        jdbcTemplate.update("UPDATE film SET release_date = ? WHERE film_id = ?", LocalDate.of(1980, 1, 1), both.getId());
+        filmStorage.warmUpIndexes();
+        assertThat(filmStorage.findFilms(filter, comedy.getId(), 10)).extracting("id").containsExactly(both.getId());
+    }
+
+    /**
+     * Тест проверяет популярные фильмы жанра и рейтинга: порядок берется из таблиц лидеров в памяти,
+     * которые следуют за лайками и сменой жанров при обновлении фильма
+     */
+    @Test
+    void shouldGetPopularFilmsByGenreAndMpa() {
+        int firstUserId = createUser(1);
+        int secondUserId = createUser(2);
+        Film comedy = filmStorage.addFilm(film("Комедия", 1, 1));
+        Film drama = filmStorage.addFilm(film("Драма", 2, 2));
+        Film both = filmStorage.addFilm(film("Трагикомедия", 2, 1, 2));
+        filmStorage.addLike(both.getId(), firstUserId);
+
+        countingDataSource.reset();
+        assertThat(filmStorage.getPopularFilms(10, 1, null)).extracting("id")
+                .containsExactly(both.getId(), comedy.getId());
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+        assertThat(filmStorage.getPopularFilms(10, 2, 2)).extracting("id")
+                .containsExactly(both.getId(), drama.getId());
+
+        filmStorage.addLike(comedy.getId(), firstUserId);
+        filmStorage.addLike(comedy.getId(), secondUserId);
+        assertThat(filmStorage.getPopularFilms(1, 1, null)).extracting("id").containsExactly(comedy.getId());
+
+        both.setGenres(List.of(new Genre(2, null)));
+        filmStorage.updateFilm(both);
+        assertThat(filmStorage.getPopularFilms(10, 1, null)).extracting("id").containsExactly(comedy.getId());
+        assertThat(filmStorage.getPopularFilms(10, null, 2)).extracting("id")
+                .containsExactly(both.getId(), drama.getId());
+        assertThat(filmStorage.getPopularFilms(10, 99, null)).isEmpty();
+    }
+
+    /**
+     * Тест проверяет фильмы, набирающие популярность: лайки учитываются со временем их записи,
+     * отмена лайка вычитается, а при прогреве давние лайки в окна не попадают
+     */
+    @Test
+    void shouldGetTrendingFilms() {
+        int firstUserId = createUser(1);
+        int secondUserId = createUser(2);
+        Film oldHit = filmStorage.addFilm(film("Старый хит", 1));
+        Film newRelease = filmStorage.addFilm(film("Новинка", 1));
+        filmStorage.addLike(oldHit.getId(), firstUserId);
+        filmStorage.addLike(oldHit.getId(), secondUserId);
+        filmStorage.addLike(newRelease.getId(), firstUserId);
+
+        countingDataSource.reset();
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.DAY, false, 10)).extracting("id")
+                .containsExactly(oldHit.getId(), newRelease.getId());
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(3);
+
+        filmStorage.removeLike(oldHit.getId(), secondUserId);
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.HOUR, true, 1)).extracting("id")
+                .containsExactly(newRelease.getId());
+
+        jdbcTemplate.update("UPDATE likes SET liked_at = ? WHERE film_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)), oldHit.getId());
+        filmStorage.warmUpIndexes();
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.DAY, false, 10)).extracting("id")
+                .containsExactly(newRelease.getId());
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.WEEK, false, 10)).extracting("id")
+                .containsExactly(newRelease.getId(), oldHit.getId());
+    }
+
+    /**
+     * Тест проверяет пакетное добавление: фильмы и жанры записываются пакетами по частям,
+     * а фильм с неизвестным рейтингом MPA отклоняется без влияния на остальные
+     */
+    @Test
+    void shouldAddFilmsInChunkedBatches() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            films.add(film("Фильм " + i, 3, 2, 1, 2));
+        }
+        films.set(7, film("Без рейтинга", 99));
+
+        countingDataSource.reset();
+        BatchResult result = filmStorage.addFilms(films);
+
+        // Две части по 500 фильмов: в каждой один пакет фильмов и один пакет жанров
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(4);
+        assertThat(result.getErrors()).extracting("index").containsExactly(7);
+        assertThat(result.getErrors().get(0).getError()).contains("Рейтинг MPA с id 99 не найден");
+        assertThat(result.getIds().get(7)).isNull();
+
+        List<Integer> ids = new ArrayList<>(result.getIds());
+        ids.remove(7);
+        assertThat(ids).isSorted().doesNotContainNull().hasSize(1000);
+        Film stored = filmStorage.getFilmById(ids.get(999)).orElseThrow();
+        assertThat(stored.getName()).isEqualTo("Фильм 1000");
+        assertThat(stored.getGenres()).extracting("id").containsExactly(1, 2);
+        assertThat(filmStorage.getPopularFilms(2000)).hasSize(1000);
+    }
+
+    private Film film(String name, int mpaId, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(mpaId, null));
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return film;
+    }
+
+    private List<Integer> createFilms(int count) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+                    "VALUES (?, ?, ?, ?, ?)", "Фильм " + i, "Описание", LocalDate.of(2000, 1, 1), 100, 3);
+        }
+        filmStorage.warmUpIndexes();
+        return jdbcTemplate.queryForList("SELECT film_id FROM film ORDER BY film_id", Integer.class);
+    }
+
+    private int likeCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private void deleteAll() {
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM film_genre");
+        jdbcTemplate.update("DELETE FROM film");
+        jdbcTemplate.update("DELETE FROM friendship");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    private int createUser(int number) {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                "user" + number + "@example.com", "user" + number, "User " + number, LocalDate.of(2000, 1, 1));
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE login = ?", Integer.class,
+                "user" + number);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер отбора фильмов по жанрам, рейтингу MPA и годам выхода на каталоге из миллиона фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class FilmFilterIndexBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final int REQUESTS = 200;
+    private static final int WARM_UP_REQUESTS = 1_000;
+
+    @Test
+    void shouldFilterMillionFilms() {
+        Random random = new Random(42);
+        FilmFilterIndex index = new FilmFilterIndex();
+        Map<Integer, Integer> likes = new HashMap<>();
+        long buildStart = System.nanoTime();
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            int first = 1 + random.nextInt(GENRES);
+            List<Integer> genres = random.nextBoolean() ? List.of(first) : List.of(first, 1 + random.nextInt(GENRES));
+            index.put(filmId, 1 + random.nextInt(MPA_RATINGS), 1900 + random.nextInt(125), genres);
+            likes.put(filmId, (int) (Math.pow(random.nextDouble(), 4) * 10_000));
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+        PopularityIndex popularityIndex = new PopularityIndex();
+        popularityIndex.rebuild(likes);
+
+        FilmFilter broad = filter(Set.of(2, 4), Set.of(), null, null);
+        FilmFilter typical = filter(Set.of(2, 4), Set.of(3), 1990, 2000);
+        FilmFilter narrow = filter(Set.of(5), Set.of(1), 2005, 2005);
+        System.out.printf("Фильмов: %d, построение: %.1f с%n", index.size(), buildNanos / 1e9);
+        for (FilmFilter filter : List.of(broad, typical, narrow)) {
+            int matches = index.filter(filter).size();
+            filter.setSort(FilmFilter.Sort.ID);
+            long byId = measure(index, filter, popularityIndex, matches);
+            filter.setSort(FilmFilter.Sort.POPULAR);
+            long popular = measure(index, filter, popularityIndex, matches);
+            System.out.printf("Подходит фильмов: %d, по идентификатору: %.2f мс, по популярности: %.2f мс%n",
+                    matches, byId / 1e6, popular / 1e6);
+        }
+    }
+
+    private static long measure(FilmFilterIndex index, FilmFilter filter, PopularityIndex popularityIndex,
+                                int matches) {
+        // Прогрев JIT-компилятора на тех же запросах
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            index.find(filter, 0, 100, popularityIndex);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(Math.min(matches, 100), index.find(filter, 0, 100, popularityIndex).size());
+        }
+        return (System.nanoTime() - start) / REQUESTS;
+    }
+
+    private static FilmFilter filter(Set<Integer> genreIds, Set<Integer> mpaIds, Integer yearFrom, Integer yearTo) {
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(genreIds);
+        filter.setMpaIds(mpaIds);
+        filter.setYearFrom(yearFrom);
+        filter.setYearTo(yearTo);
+        return filter;
+    }
+}
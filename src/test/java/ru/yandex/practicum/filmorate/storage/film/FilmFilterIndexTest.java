@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индексов отбора фильмов по жанру, рейтингу MPA и году выхода
+ */
+class FilmFilterIndexTest {
+
+    private FilmFilterIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmFilterIndex();
+        index.put(1, 1, 1990, List.of(1, 2));
+        index.put(2, 3, 1995, List.of(2));
+        index.put(3, 3, 2000, List.of(4));
+        index.put(4, 3, 2010, List.of(4, 2));
+        index.put(5, 2, 1999, List.of());
+    }
+
+    /**
+     * Тест проверяет объединение значений одного условия и пересечение разных условий
+     */
+    @Test
+    void shouldCombineConditions() {
+        assertArrayEquals(new int[]{1, 2, 3, 4}, index.filter(filter(Set.of(2, 4), Set.of(), null, null)).toSortedArray());
+        assertArrayEquals(new int[]{2, 3, 4}, index.filter(filter(Set.of(2, 4), Set.of(3), null, null)).toSortedArray());
+        assertArrayEquals(new int[]{2, 3}, index.filter(filter(Set.of(2, 4), Set.of(3), 1990, 2000)).toSortedArray());
+        assertArrayEquals(new int[]{3, 4}, index.filter(filter(Set.of(), Set.of(), 2000, null)).toSortedArray());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, index.filter(new FilmFilter()).toSortedArray());
+        assertEquals(0, index.filter(filter(Set.of(99), Set.of(), null, null)).size());
+        assertEquals(0, index.filter(filter(Set.of(), Set.of(), 2001, 2000)).size());
+    }
+
+    /**
+     * Тест проверяет, что изменение фильма убирает его из прежних множеств
+     */
+    @Test
+    void shouldMoveUpdatedFilmBetweenSets() {
+        index.put(4, 1, 1990, List.of(1));
+        index.addGenre(4, 3);
+        index.addGenre(99, 3);
+
+        assertArrayEquals(new int[]{1, 4}, index.filter(filter(Set.of(1), Set.of(1), 1990, 1990)).toSortedArray());
+        assertArrayEquals(new int[]{1, 2}, index.filter(filter(Set.of(2), Set.of(), null, null)).toSortedArray());
+        assertArrayEquals(new int[]{4}, index.filter(filter(Set.of(3), Set.of(), null, null)).toSortedArray());
+        assertEquals(0, index.filter(filter(Set.of(), Set.of(), 2010, 2010)).size());
+        assertEquals(5, index.size());
+    }
+
+    /**
+     * Тест проверяет постраничную выдачу по идентификатору и порядок по популярности
+     */
+    @Test
+    void shouldFindInRequestedOrder() {
+        PopularityIndex popularityIndex = new PopularityIndex();
+        popularityIndex.rebuild(Map.of(1, 0, 2, 5, 3, 1, 4, 5, 5, 9));
+        FilmFilter filter = filter(Set.of(2, 4), Set.of(), null, null);
+
+        assertEquals(List.of(1, 2), index.find(filter, 0, 2, popularityIndex));
+        assertEquals(List.of(3, 4), index.find(filter, 2, 2, popularityIndex));
+        assertTrue(index.find(filter, 4, 2, popularityIndex).isEmpty());
+
+        filter.setSort(FilmFilter.Sort.POPULAR);
+        assertEquals(List.of(4, 2, 3), index.find(filter, 0, 3, popularityIndex));
+    }
+
+    private static FilmFilter filter(Set<Integer> genreIds, Set<Integer> mpaIds, Integer yearFrom, Integer yearTo) {
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(genreIds);
+        filter.setMpaIds(mpaIds);
+        filter.setYearFrom(yearFrom);
+        filter.setYearTo(yearTo);
+        return filter;
+    }
+}
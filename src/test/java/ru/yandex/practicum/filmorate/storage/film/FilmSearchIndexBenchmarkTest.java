@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер построения поискового индекса и полнотекстового поиска на каталоге из миллиона фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class FilmSearchIndexBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int NAME_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 20;
+    private static final int REQUESTS = 200;
+    private static final int CHUNK_SIZE = 10_000;
+
+    @Test
+    void shouldSearchMillionFilms() {
+        // Частоты слов близки к закону Ципфа: куб равномерной величины смещает выбор к словам с малыми номерами
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = (i % 2 == 0 ? "слово" : "word") + Integer.toString(i, 36);
+        }
+        // Тексты генерируются частями вне замера, чтобы учитывать только построение индекса
+        FilmSearchIndex index = new FilmSearchIndex();
+        String[] names = new String[CHUNK_SIZE];
+        String[] descriptions = new String[CHUNK_SIZE];
+        long buildNanos = 0;
+        for (int from = 1; from <= FILMS; from += CHUNK_SIZE) {
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                names[i] = text(words, NAME_WORDS, random);
+                descriptions[i] = text(words, DESCRIPTION_WORDS, random);
+            }
+            long chunkStart = System.nanoTime();
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                index.put(from + i, names[i], descriptions[i]);
+            }
+            buildNanos += System.nanoTime() - chunkStart;
+        }
+
+        long rareNanos = measure(index, words, random, 1_000);
+        long commonNanos = measure(index, words, random, 20);
+
+        System.out.printf("Фильмов: %d, построение: %.1f с, поиск по двум словам средней частоты: %.2f мс, " +
+                        "по двум словам из самых частых: %.2f мс%n",
+                index.size(), buildNanos / 1e9, rareNanos / 1e6, commonNanos / 1e6);
+    }
+
+    private static long measure(FilmSearchIndex index, String[] words, Random random, int topWords) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            String query = words[random.nextInt(topWords)] + " " + words[random.nextInt(topWords)];
+            assertEquals(10, index.search(query, 10).size());
+        }
+        return (System.nanoTime() - start) / REQUESTS;
+    }
+
+    private static String text(String[] words, int length, Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double skew = random.nextDouble();
+            text.append(words[(int) (skew * skew * skew * words.length)]).append(' ');
+        }
+        return text.toString();
+    }
+}
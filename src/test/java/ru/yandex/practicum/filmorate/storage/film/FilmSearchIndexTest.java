@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentRunner;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для поискового индекса фильмов
+ */
+class FilmSearchIndexTest {
+
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmSearchIndex();
+    }
+
+    /**
+     * Тест проверяет нормализацию регистра, буквы ё и диакритики в кириллице и латинице
+     */
+    @Test
+    void shouldTokenizeAndNormalizeText() {
+        assertEquals(List.of("елки", "палки", "2", "cafe", "noir"),
+                FilmSearchIndex.tokenize("Ёлки-ПАЛКИ 2: Café  noir!"));
+        assertTrue(FilmSearchIndex.tokenize(null).isEmpty());
+        assertTrue(FilmSearchIndex.tokenize(" ,.- ").isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что совпадение в названии весит больше, чем в описании,
+     * а совпадение нескольких слов запроса - больше, чем одного
+     */
+    @Test
+    void shouldRankByBm25WithNameBoost() {
+        index.put(1, "Вечерний звон", "Фильм о колоколах");
+        index.put(2, "Колокола", "Вечерний выпуск новостей");
+        index.put(3, "Утро", "Утренний выпуск новостей");
+        index.put(4, "Вечерний звон", null);
+
+        assertEquals(List.of(4, 1, 2), index.search("вечерний звон", 10));
+        assertEquals(List.of(2, 3), index.search("ВЫПУСК новостей", 10));
+        assertEquals(List.of(4), index.search("вечерний звон", 1));
+        assertTrue(index.search("неизвестное", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что обновленный фильм ищется только по новому тексту, в том числе после уплотнения
+     */
+    @Test
+    void shouldReplaceUpdatedFilmAndCompact() {
+        index.put(1, "Старое название", "Описание");
+        index.put(2, "Другой фильм", "Описание");
+        index.put(1, "Новое название", "Описание");
+
+        assertTrue(index.search("старое", 10).isEmpty());
+        assertEquals(List.of(1), index.search("новое", 10));
+        assertEquals(List.of(1, 2), index.search("описание", 10));
+        assertEquals(2, index.size());
+        assertEquals(1, index.deletedCount());
+
+        assertTrue(index.compact());
+        assertFalse(index.compact());
+        assertEquals(0, index.deletedCount());
+        assertTrue(index.search("старое", 10).isEmpty());
+        assertEquals(List.of(1, 2), index.search("описание название", 10));
+
+        index.put(3, "Третий фильм", "Новое описание");
+        assertEquals(List.of(1, 3), index.search("новое", 10));
+    }
+
+    /**
+     * Тест проверяет, что уплотнение выполняется при непрерывном обновлении фильмов
+     * и не теряет версий, записанных во время построения
+     */
+    @Test
+    void shouldCompactUnderConcurrentUpdates() throws Exception {
+        int films = 5_000;
+        int[] versions = new int[films];
+        for (int filmId = 0; filmId < films; filmId++) {
+            index.put(filmId, "Фильм " + filmId, description(filmId, 0));
+        }
+
+        // Первый поток непрерывно обновляет фильмы, второй уплотняет индекс, пока не выполнит пять уплотнений
+        AtomicBoolean running = new AtomicBoolean(true);
+        int[] compactions = {0};
+        ConcurrentRunner.run(2, thread -> {
+            if (thread == 0) {
+                Random random = new Random(3);
+                while (running.get()) {
+                    int filmId = random.nextInt(films);
+                    int version = ++versions[filmId];
+                    index.put(filmId, "Фильм " + filmId, description(filmId, version));
+                }
+                return;
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            try {
+                while (compactions[0] < 5 && System.nanoTime() < deadline) {
+                    if (index.compact()) {
+                        compactions[0]++;
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+        });
+        assertEquals(5, compactions[0]);
+        index.compact();
+
+        FilmSearchIndex expected = new FilmSearchIndex();
+        for (int filmId = 0; filmId < films; filmId++) {
+            expected.put(filmId, "Фильм " + filmId, description(filmId, versions[filmId]));
+            assertEquals(List.of(filmId), index.search("v" + filmId + "x" + versions[filmId], 10));
+        }
+        assertEquals(films, index.size());
+        assertEquals(0, index.deletedCount());
+        assertEquals(expected.search("слово фильм", 100), index.search("слово фильм", 100));
+    }
+
+    private static String description(int filmId, int version) {
+        return "версия v" + filmId + "x" + version + " " + "слово ".repeat((filmId + version) % 7);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentRunner;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер масштабирования чтения из хранилища фильмов в памяти по числу потоков.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class InMemoryFilmStorageBenchmarkTest {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_FILM = 20;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    /**
+     * Пропускная способность чтения фильмов по id и популярных фильмов при параллельной записи лайков
+     */
+    @Test
+    void shouldScaleReadsAcrossThreads() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            int filmId = filmStorage.addFilm(film).getId();
+            for (int user = 0; user < LIKES_PER_FILM; user++) {
+                filmStorage.addLike(filmId, ThreadLocalRandom.current().nextInt(100_000));
+            }
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double singleThread = 0;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            double opsPerSecond = measureReads(filmStorage, threads);
+            if (threads == 1) {
+                singleThread = opsPerSecond;
+            }
+            System.out.printf("Потоков: %d, чтений в секунду: %.0f, ускорение: %.2f%n",
+                    threads, opsPerSecond, opsPerSecond / singleThread);
+        }
+        assertTrue(singleThread > 0);
+    }
+
+    private double measureReads(InMemoryFilmStorage filmStorage, int threads) throws Exception {
+        LongAdder operations = new LongAdder();
+        long start = System.nanoTime();
+        ConcurrentRunner.run(threads, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long deadline = start + MEASURE_NANOS;
+            long count = 0;
+            while (System.nanoTime() < deadline) {
+                if (count % 100 == 0) {
+                    filmStorage.getPopularFilms(10);
+                } else {
+                    filmStorage.getFilmById(1 + random.nextInt(FILMS)).orElseThrow().getLikesCount();
+                }
+                count++;
+            }
+            operations.add(count);
+        });
+        return operations.sum() * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -2,11 +2,17 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentRunner;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IntSetType;
+import ru.yandex.practicum.filmorate.util.RoaringIntSet;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -269,4 +275,211 @@ class InMemoryFilmStorageTest {
         assertTrue(filmStorage.filmExists(addedFilm.getId()));
         assertFalse(filmStorage.filmExists(999));
     }
-}
\ No newline at end of file
+
+    /**
+     * Тест проверяет, что повторный лайк и удаление отсутствующего лайка ничего не меняют
+     */
+    @Test
+    void shouldAddAndRemoveLikeIdempotently() {
+        // Подготовка данных - добавляем фильм
+        Film film = new Film();
+        film.setName("Название фильма");
+        film.setDescription("Описание фильма");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        Film addedFilm = filmStorage.addFilm(film);
+
+        // Проверка результатов
+        assertTrue(filmStorage.addLike(addedFilm.getId(), 1));
+        assertFalse(filmStorage.addLike(addedFilm.getId(), 1));
+        assertEquals(1, filmStorage.getFilmById(addedFilm.getId()).orElseThrow().getLikesCount());
+        assertTrue(filmStorage.removeLike(addedFilm.getId(), 1));
+        assertFalse(filmStorage.removeLike(addedFilm.getId(), 1));
+        assertEquals(0, filmStorage.getFilmById(addedFilm.getId()).orElseThrow().getLikesCount());
+    }
+
+    /**
+     * Тест проверяет, что при лайке несуществующему фильму выбрасывается исключение
+     */
+    @Test
+    void shouldThrowExceptionWhenLikingNonExistentFilm() {
+        NotFoundException exception = assertThrows(
+                NotFoundException.class,
+                () -> filmStorage.addLike(999, 1)
+        );
+
+        assertTrue(exception.getMessage().contains("Фильм с id 999 не найден"));
+    }
+
+    /**
+     * Тест проверяет порядок популярных фильмов после изменения лайков
+     */
+    @Test
+    void shouldGetPopularFilmsOrderedByLikes() {
+        // Подготовка данных - добавляем три фильма
+        int[] filmIds = new int[3];
+        for (int i = 0; i < filmIds.length; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            filmIds[i] = filmStorage.addFilm(film).getId();
+        }
+        filmStorage.addLike(filmIds[0], 1);
+        filmStorage.addLike(filmIds[0], 2);
+        filmStorage.addLike(filmIds[1], 1);
+        filmStorage.removeLike(filmIds[0], 2);
+
+        // Вызов тестируемого метода
+        List<Film> popularFilms = filmStorage.getPopularFilms(2);
+
+        // Проверка результатов: при равном количестве лайков первым идет фильм с большим id
+        assertEquals(2, popularFilms.size());
+        assertEquals(filmIds[1], popularFilms.get(0).getId());
+        assertEquals(filmIds[0], popularFilms.get(1).getId());
+    }
+
+    /**
+     * Тест проверяет постраничное получение фильмов
+     */
+    @Test
+    void shouldGetFilmsPageAfterId() {
+        // Подготовка данных - добавляем пять фильмов
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            filmStorage.addFilm(film);
+        }
+
+        // Вызов тестируемого метода
+        List<Film> firstPage = filmStorage.getFilmsPage(0, 2);
+        List<Film> lastPage = filmStorage.getFilmsPage(4, 2);
+
+        // Проверка результатов
+        assertEquals(List.of(1, 2), firstPage.stream().map(Film::getId).toList());
+        assertEquals(List.of(5), lastPage.stream().map(Film::getId).toList());
+    }
+
+    /**
+     * Тест проверяет пакетное добавление: некорректный фильм отклоняется, остальные добавляются
+     */
+    @Test
+    void shouldAddFilmsAndRejectInvalidOnes() {
+        // Подготовка данных - второй фильм без названия
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = new Film();
+            film.setName(i == 1 ? "" : "Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            films.add(film);
+        }
+
+        // Вызов тестируемого метода
+        BatchResult result = filmStorage.addFilms(films);
+
+        // Проверка результатов
+        assertEquals(Arrays.asList(1, null, 2), result.getIds());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("Название фильма не может быть пустым", result.getErrors().get(0).getError());
+        assertEquals(2, filmStorage.getAllFilms().size());
+    }
+
+    /**
+     * Стресс-тест: параллельные добавления и удаления лайков не теряются,
+     * а счетчики индекса популярности совпадают с множествами лайков
+     */
+    @Test
+    void shouldNotLoseLikesUnderConcurrentLoad() throws Exception {
+        // Подготовка данных - десять фильмов
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            filmIds.add(filmStorage.addFilm(film).getId());
+        }
+        int threads = 8;
+        int usersPerThread = 500;
+
+        // Вызов тестируемого метода - каждый поток ставит лайки всем фильмам от своих пользователей,
+        // а каждый второй лайк тут же снимает и ставит повторно
+        ConcurrentRunner.run(threads, thread -> {
+            for (int user = 0; user < usersPerThread; user++) {
+                int userId = thread * usersPerThread + user;
+                for (int filmId : filmIds) {
+                    filmStorage.addLike(filmId, userId);
+                    if (user % 2 == 0) {
+                        filmStorage.removeLike(filmId, userId);
+                        filmStorage.addLike(filmId, userId);
+                    }
+                }
+            }
+        });
+
+        // Проверка результатов
+        for (Film film : filmStorage.getAllFilms()) {
+            assertEquals(threads * usersPerThread, film.getLikesCount());
+        }
+        assertEquals(filmIds.size(), filmStorage.getPopularFilms(100).size());
+    }
+
+    /**
+     * Стресс-тест: параллельное добавление фильмов выдает уникальные идентификаторы без пропусков
+     */
+    @Test
+    void shouldAssignUniqueIdsUnderConcurrentLoad() throws Exception {
+        int threads = 8;
+        int filmsPerThread = 1000;
+
+        // Вызов тестируемого метода
+        ConcurrentRunner.run(threads, thread -> {
+            for (int i = 0; i < filmsPerThread; i++) {
+                Film film = new Film();
+                film.setName("Фильм " + thread + "-" + i);
+                film.setReleaseDate(LocalDate.of(2000, 1, 1));
+                film.setDuration(120);
+                filmStorage.addFilm(film);
+            }
+        });
+
+        // Проверка результатов
+        List<Film> films = filmStorage.getAllFilms();
+        assertEquals(threads * filmsPerThread, films.size());
+        assertEquals(threads * filmsPerThread, films.get(films.size() - 1).getId());
+    }
+
+    /**
+     * Тест проверяет хранение лайков в сжатом битовом множестве
+     */
+    @Test
+    void shouldStoreLikesInRoaringSet() {
+        // Подготовка данных
+        InMemoryFilmStorage roaringStorage = new InMemoryFilmStorage(IntSetType.ROARING);
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        int filmId = roaringStorage.addFilm(film).getId();
+
+        // Вызов тестируемого метода
+        for (int userId = 1; userId <= 10_000; userId++) {
+            roaringStorage.addLike(filmId, userId);
+        }
+        roaringStorage.removeLike(filmId, 5_000);
+
+        // Проверка результатов
+        Film storedFilm = roaringStorage.getFilmById(filmId).orElseThrow();
+        assertInstanceOf(RoaringIntSet.class, storedFilm.getLikes());
+        assertEquals(9_999, storedFilm.getLikesCount());
+        assertFalse(storedFilm.getLikes().contains(5_000));
+        assertEquals(filmId, roaringStorage.getPopularFilms(1).get(0).getId());
+    }
+}
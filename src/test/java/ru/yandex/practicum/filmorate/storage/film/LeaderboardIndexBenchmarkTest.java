@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер выдачи популярных фильмов жанра и рейтинга MPA из таблиц лидеров в сравнении с отбором
+ * по битовым индексам на каталоге из миллиона фильмов, а также стоимости обновления таблиц при лайке.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class LeaderboardIndexBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final int REQUESTS = 2_000;
+    private static final int WARM_UP_REQUESTS = 2_000;
+    private static final int LIKES = 200_000;
+
+    @Test
+    void shouldServeLeaderboardsForMillionFilms() {
+        Random random = new Random(42);
+        FilmFilterIndex filterIndex = new FilmFilterIndex();
+        Map<Integer, Integer> likes = new HashMap<>();
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            int first = 1 + random.nextInt(GENRES);
+            List<Integer> genres = random.nextBoolean() ? List.of(first) : List.of(first, 1 + random.nextInt(GENRES));
+            filterIndex.put(filmId, 1 + random.nextInt(MPA_RATINGS), 1900 + random.nextInt(125), genres);
+            likes.put(filmId, (int) (Math.pow(random.nextDouble(), 4) * 10_000));
+        }
+        PopularityIndex popularityIndex = new PopularityIndex();
+        popularityIndex.rebuild(likes);
+        LeaderboardIndex leaderboards = new LeaderboardIndex(popularityIndex, filterIndex);
+
+        long genreBoard = measure(() -> leaderboards.getTop(10, 1 + random.nextInt(GENRES), null));
+        long genreFilter = measure(() -> popularityIndex.getTop(10,
+                filterIndex.filter(filter(1 + random.nextInt(GENRES), null))));
+        long bothBoard = measure(() -> leaderboards.getTop(10, 1 + random.nextInt(GENRES),
+                1 + random.nextInt(MPA_RATINGS)));
+        long bothFilter = measure(() -> popularityIndex.getTop(10,
+                filterIndex.filter(filter(1 + random.nextInt(GENRES), 1 + random.nextInt(MPA_RATINGS)))));
+
+        // Лайки и их отмена приходятся на популярные фильмы чаще, чем на остальные
+        long likeStart = System.nanoTime();
+        for (int i = 0; i < LIKES; i++) {
+            double skew = random.nextDouble();
+            int filmId = 1 + (int) (skew * skew * skew * FILMS);
+            if (random.nextInt(3) == 0) {
+                popularityIndex.decrement(filmId);
+            } else {
+                popularityIndex.increment(filmId);
+            }
+            leaderboards.update(filmId);
+            if (i % 100 == 0) {
+                leaderboards.getTop(10, 1 + random.nextInt(GENRES), null);
+            }
+        }
+        long likeNanos = (System.nanoTime() - likeStart) / LIKES;
+        for (int genreId = 1; genreId <= GENRES; genreId++) {
+            assertEquals(popularityIndex.getTop(100, filterIndex.filter(filter(genreId, null))),
+                    leaderboards.getTop(100, genreId, null));
+        }
+
+        System.out.printf("Фильмов: %d, топ-10 жанра: %.1f мкс (отбор по индексам: %.1f мкс), " +
+                        "топ-10 жанра и рейтинга: %.1f мкс (отбор по индексам: %.1f мкс), " +
+                        "лайк с обновлением %d таблиц: %.1f мкс%n",
+                FILMS, genreBoard / 1e3, genreFilter / 1e3, bothBoard / 1e3, bothFilter / 1e3,
+                leaderboards.size(), likeNanos / 1e3);
+    }
+
+    private static long measure(Runnable request) {
+        // Прогрев JIT-компилятора на тех же запросах
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            request.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.run();
+        }
+        return (System.nanoTime() - start) / REQUESTS;
+    }
+
+    private static FilmFilter filter(Integer genreId, Integer mpaId) {
+        FilmFilter filter = new FilmFilter();
+        if (genreId != null) {
+            filter.setGenreIds(Set.of(genreId));
+        }
+        if (mpaId != null) {
+            filter.setMpaIds(Set.of(mpaId));
+        }
+        return filter;
+    }
+}
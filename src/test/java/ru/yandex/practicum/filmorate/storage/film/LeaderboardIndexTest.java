@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для таблиц лидеров по жанрам и рейтингам MPA
+ */
+class LeaderboardIndexTest {
+
+    private PopularityIndex popularityIndex;
+    private FilmFilterIndex filterIndex;
+    private LeaderboardIndex leaderboards;
+
+    @BeforeEach
+    void setUp() {
+        popularityIndex = new PopularityIndex();
+        filterIndex = new FilmFilterIndex();
+        leaderboards = new LeaderboardIndex(popularityIndex, filterIndex, 2);
+        put(1, 1, 5, List.of(1));
+        put(2, 1, 4, List.of(1, 2));
+        put(3, 2, 3, List.of(1));
+        put(4, 2, 2, List.of(2));
+        put(5, 2, 1, List.of(1));
+    }
+
+    /**
+     * Тест проверяет выдачу по жанру, рейтингу, обоим условиям и запрос больше размера таблицы
+     */
+    @Test
+    void shouldGetTopByGenreAndMpa() {
+        assertEquals(List.of(1, 2), leaderboards.getTop(2, 1, null));
+        assertEquals(List.of(3, 4), leaderboards.getTop(2, null, 2));
+        assertEquals(List.of(3, 5), leaderboards.getTop(2, 1, 2));
+        assertEquals(List.of(1, 2, 3, 5), leaderboards.getTop(10, 1, null));
+        assertEquals(List.of(1, 2, 3), leaderboards.getTop(3, null, null));
+        assertTrue(leaderboards.getTop(2, 99, null).isEmpty());
+        assertTrue(leaderboards.getTop(0, 1, null).isEmpty());
+        assertEquals(2, leaderboards.size());
+    }
+
+    /**
+     * Тест проверяет, что лайки и смена жанров перемещают фильмы между таблицами,
+     * а фильм, вытесненный из таблицы, возвращается в нее после ухода лидеров
+     */
+    @Test
+    void shouldFollowLikesAndGenreChanges() {
+        assertEquals(List.of(1, 2), leaderboards.getTop(2, 1, null));
+
+        like(5, 10);
+        assertEquals(List.of(5, 1), leaderboards.getTop(2, 1, null));
+
+        // Фильм 3 вне таблицы: после потери лайков лидерами таблица заполняется заново
+        like(5, -10);
+        like(1, -5);
+        assertEquals(List.of(2, 3), leaderboards.getTop(2, 1, null));
+
+        put(2, 1, 4, List.of(2));
+        assertEquals(List.of(3, 5), leaderboards.getTop(2, 1, null));
+        assertEquals(List.of(2, 4), leaderboards.getTop(2, 2, null));
+    }
+
+    /**
+     * Тест сравнивает таблицы лидеров со следованием по всему индексу популярности
+     * на случайной последовательности лайков и смен жанров
+     */
+    @Test
+    void shouldMatchFullScanOnRandomChanges() {
+        Random random = new Random(7);
+        popularityIndex = new PopularityIndex();
+        filterIndex = new FilmFilterIndex();
+        leaderboards = new LeaderboardIndex(popularityIndex, filterIndex, 8);
+        Map<Integer, Integer> likes = new HashMap<>();
+        for (int filmId = 1; filmId <= 200; filmId++) {
+            likes.put(filmId, random.nextInt(20));
+            put(filmId, 1 + random.nextInt(3), likes.get(filmId), List.of(1 + random.nextInt(4)));
+        }
+        for (int step = 0; step < 5000; step++) {
+            int filmId = 1 + random.nextInt(200);
+            if (random.nextInt(10) == 0) {
+                put(filmId, 1 + random.nextInt(3), likes.get(filmId), List.of(1 + random.nextInt(4)));
+            } else {
+                int delta = random.nextBoolean() ? 1 : -1;
+                likes.put(filmId, Math.max(likes.get(filmId) + delta, 0));
+                like(filmId, delta);
+            }
+            int genreId = 1 + random.nextInt(4);
+            int count = 1 + random.nextInt(8);
+            assertEquals(fullScan(count, genreId), leaderboards.getTop(count, genreId, null));
+        }
+    }
+
+    private List<Integer> fullScan(int count, int genreId) {
+        FilmFilter filter = new FilmFilter();
+        filter.setGenreIds(Set.of(genreId));
+        List<Integer> filmIds = new ArrayList<>();
+        for (int filmId : filterIndex.filter(filter).toSortedArray()) {
+            filmIds.add(filmId);
+        }
+        filmIds.sort(Comparator.comparingLong((Integer filmId) ->
+                PopularityIndex.key(filmId, popularityIndex.getLikes(filmId))).reversed());
+        return filmIds.subList(0, Math.min(count, filmIds.size()));
+    }
+
+    private void put(int filmId, int mpaId, int likes, List<Integer> genreIds) {
+        popularityIndex.put(filmId, likes);
+        filterIndex.put(filmId, mpaId, 2000, genreIds);
+        leaderboards.update(filmId);
+    }
+
+    private void like(int filmId, int delta) {
+        for (int i = 0; i < Math.abs(delta); i++) {
+            if (delta > 0) {
+                popularityIndex.increment(filmId);
+            } else {
+                popularityIndex.decrement(filmId);
+            }
+            leaderboards.update(filmId);
+        }
+    }
+}
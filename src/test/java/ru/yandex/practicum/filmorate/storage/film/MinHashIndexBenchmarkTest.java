@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер обновления MinHash-сигнатур при лайках и поиска фильмов с похожей аудиторией
+ * в сравнении с попарным сравнением сигнатур со всеми фильмами.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class MinHashIndexBenchmarkTest {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 5_000;
+    private static final int LIKES = 1_000_000;
+    private static final int REQUESTS = 1_000;
+
+    @Test
+    void shouldFindSimilarAudienceWithoutComparingAllPairs() {
+        // Популярность фильмов неравномерна: квадрат равномерной величины смещает лайки к фильмам с малыми id.
+        // У каждого десятого фильма есть копия с id, увеличенным на FILMS, и той же аудиторией.
+        Random random = new Random(42);
+        MinHashIndex index = new MinHashIndex();
+        long likeStart = System.nanoTime();
+        for (int i = 0; i < LIKES; i++) {
+            double skew = random.nextDouble();
+            int filmId = 1 + (int) (skew * skew * FILMS);
+            int userId = 1 + random.nextInt(USERS);
+            index.addLike(filmId, userId);
+            if (filmId % 10 == 0) {
+                index.addLike(filmId + FILMS, userId);
+            }
+        }
+        long likeNanos = (System.nanoTime() - likeStart) / LIKES;
+
+        int found = 0;
+        long lshStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int filmId = 10 * (1 + random.nextInt(FILMS / 10));
+            if (index.findSimilar(filmId, 10).contains(filmId + FILMS)) {
+                found++;
+            }
+        }
+        long lshNanos = (System.nanoTime() - lshStart) / REQUESTS;
+
+        long scanStart = System.nanoTime();
+        double sink = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            int filmId = 10 * (1 + random.nextInt(FILMS / 10));
+            for (int otherId = 1; otherId <= 2 * FILMS; otherId++) {
+                sink += index.similarity(filmId, otherId);
+            }
+        }
+        long scanNanos = (System.nanoTime() - scanStart) / REQUESTS;
+
+        assertTrue(found > REQUESTS / 2);
+        System.out.printf("Фильмов: %d, лайков: %d, лайк: %.2f мкс, поиск по LSH: %.1f мкс (копия найдена в %d " +
+                        "из %d), перебор всех фильмов: %.1f мкс (%.0f)%n",
+                index.size(), LIKES, likeNanos / 1e3, lshNanos / 1e3, found, REQUESTS, scanNanos / 1e3, sink);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса MinHash-сигнатур фильмов
+ */
+class MinHashIndexTest {
+
+    private MinHashIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MinHashIndex();
+    }
+
+    /**
+     * Тест проверяет, что последовательные лайки дают ту же сигнатуру, что и вычисление по множеству
+     */
+    @Test
+    void shouldMaintainSignatureIncrementally() {
+        int[] users = IntStream.rangeClosed(1, 200).toArray();
+        for (int userId : users) {
+            index.addLike(1, userId);
+        }
+
+        assertArrayEquals(MinHashIndex.signatureOf(users), index.signature(1));
+        assertFalse(index.addLike(1, 7));
+        assertTrue(MinHashIndex.isEmpty(index.signature(2)));
+    }
+
+    /**
+     * Тест проверяет, что фильмы с почти одинаковой аудиторией находятся, а с непересекающейся - нет
+     */
+    @Test
+    void shouldFindFilmsWithSimilarAudience() {
+        // Фильмы 1 и 2: 900 общих пользователей из 1000 (мера Жаккара 0.9), фильм 3 - другие пользователи
+        like(1, 1, 950);
+        like(2, 51, 1000);
+        like(3, 5001, 6000);
+
+        assertEquals(List.of(2), index.findSimilar(1, 10));
+        assertEquals(0.9, index.similarity(1, 2), 0.15);
+        assertTrue(index.findSimilar(3, 10).isEmpty());
+        assertTrue(index.findSimilar(4, 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что удаление лайка пересчитывает сигнатуру только тогда, когда пользователь
+     * давал один из минимумов, а удаление последнего лайка убирает фильм из индекса
+     */
+    @Test
+    void shouldRecomputeSignatureOnlyWhenRemovedUserHoldsMinimum() {
+        int[] users = IntStream.rangeClosed(1, 1000).toArray();
+        for (int userId : users) {
+            index.addLike(1, userId);
+        }
+        int[] signature = index.signature(1);
+        int[] recomputations = {0};
+
+        int changed = 0;
+        for (int userId = 1; userId <= 1000; userId++) {
+            int removed = userId;
+            int[] remaining = IntStream.rangeClosed(1, 1000).filter(id -> id != removed).toArray();
+            if (index.removeLike(1, removed, () -> {
+                recomputations[0]++;
+                return remaining;
+            })) {
+                changed++;
+                assertArrayEquals(MinHashIndex.signatureOf(remaining), index.signature(1));
+            }
+            index.addLike(1, removed);
+        }
+
+        // Каждый минимум держит один пользователь, поэтому пересчетов не больше длины сигнатуры
+        assertTrue(recomputations[0] <= MinHashIndex.HASHES);
+        assertEquals(recomputations[0], changed);
+        assertArrayEquals(signature, index.signature(1));
+
+        MinHashIndex single = new MinHashIndex();
+        single.addLike(1, 5);
+        assertTrue(single.removeLike(1, 5, () -> new int[0]));
+        assertFalse(single.contains(1));
+    }
+
+    /**
+     * Тест проверяет, что лайк, поставленный во время загрузки оставшихся пользователей,
+     * не теряется при замене сигнатуры
+     */
+    @Test
+    void shouldKeepLikeAddedWhileRemainingUsersLoad() {
+        like(1, 1, 100);
+        int removed = IntStream.rangeClosed(1, 100)
+                .filter(userId -> !Arrays.equals(index.signature(1), signatureWithout(userId)))
+                .findFirst()
+                .orElseThrow();
+        int[] remaining = usersWithout(removed);
+        int added = IntStream.iterate(101, userId -> userId + 1)
+                .filter(userId -> !Arrays.equals(MinHashIndex.signatureOf(remaining),
+                        MinHashIndex.signatureOf(IntStream.concat(Arrays.stream(remaining), IntStream.of(userId))
+                                .toArray())))
+                .findFirst()
+                .orElseThrow();
+
+        // Первая загрузка видит лайки до параллельного лайка, повторная - после него
+        int[] loads = {0};
+        index.removeLike(1, removed, () -> {
+            if (loads[0]++ == 0) {
+                index.addLike(1, added);
+                return remaining;
+            }
+            return IntStream.concat(Arrays.stream(remaining), IntStream.of(added)).toArray();
+        });
+
+        assertArrayEquals(MinHashIndex.signatureOf(IntStream.concat(Arrays.stream(remaining), IntStream.of(added))
+                .toArray()), index.signature(1));
+    }
+
+    private static int[] usersWithout(int removed) {
+        return IntStream.rangeClosed(1, 100).filter(userId -> userId != removed).toArray();
+    }
+
+    private static int[] signatureWithout(int removed) {
+        return MinHashIndex.signatureOf(usersWithout(removed));
+    }
+
+    private void like(int filmId, int fromUserId, int toUserId) {
+        for (int userId = fromUserId; userId <= toUserId; userId++) {
+            index.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ru.yandex.practicum.filmorate.util.RoaringIntSet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса популярности фильмов
+ */
+class PopularityIndexTest {
+
+    private PopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PopularityIndex();
+    }
+
+    /**
+     * Тест проверяет порядок: по количеству лайков, затем по id (оба по убыванию)
+     */
+    @Test
+    void shouldOrderByLikesThenByIdDescending() {
+        index.put(1, 5);
+        index.put(2, 7);
+        index.put(3, 5);
+        index.put(4, 0);
+
+        assertEquals(List.of(2, 3, 1, 4), index.getTop(10));
+        assertEquals(List.of(2, 3), index.getTop(2));
+        assertTrue(index.getTop(0).isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что изменение лайков перемещает фильм в рейтинге
+     */
+    @Test
+    void shouldMoveFilmWhenLikesChange() {
+        index.put(1, 1);
+        index.put(2, 1);
+
+        index.increment(1);
+        assertEquals(List.of(1, 2), index.getTop(2));
+        assertEquals(2, index.getLikes(1));
+
+        index.decrement(1);
+        index.decrement(1);
+        assertEquals(List.of(2, 1), index.getTop(2));
+        assertEquals(0, index.getLikes(1));
+
+        index.decrement(1);
+        assertEquals(0, index.getLikes(1));
+        assertEquals(2, index.size());
+    }
+
+    /**
+     * Тест проверяет, что приращения складываются в любом порядке, а количество не становится отрицательным
+     */
+    @Test
+    void shouldAddDeltaToLikes() {
+        index.put(1, 5);
+        index.put(2, 3);
+
+        index.increment(1);
+        index.add(1, -4);
+        assertEquals(2, index.getLikes(1));
+        assertEquals(List.of(2, 1), index.getTop(2));
+
+        index.add(2, -10);
+        assertEquals(0, index.getLikes(2));
+        assertEquals(List.of(1, 2), index.getTop(2));
+    }
+
+    /**
+     * Тест проверяет полную перестройку индекса
+     */
+    @Test
+    void shouldRebuildIndex() {
+        index.put(1, 10);
+
+        index.rebuild(Map.of(2, 3, 3, 4));
+
+        assertEquals(List.of(3, 2), index.getTop(5));
+        assertEquals(0, index.getLikes(1));
+    }
+
+    /**
+     * Тест проверяет выборку самых популярных фильмов из множества: и обходом порядка популярности
+     * для широкого множества, и сортировкой для узкого
+     */
+    @Test
+    void shouldGetTopAmongGivenFilms() {
+        for (int filmId = 1; filmId <= 100; filmId++) {
+            index.put(filmId, filmId % 10);
+        }
+        RoaringIntSet wide = new RoaringIntSet(IntStream.rangeClosed(1, 100).filter(id -> id % 2 == 1).boxed().toList());
+        RoaringIntSet narrow = new RoaringIntSet(List.of(5, 11, 19, 200));
+
+        assertEquals(List.of(99, 89, 79), index.getTop(3, wide));
+        assertEquals(List.of(19, 5, 11), index.getTop(10, narrow));
+        assertTrue(index.getTop(3, new RoaringIntSet()).isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты обновления схемы базы данных, созданной до появления новых столбцов
+ */
+class SchemaUpgradeTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+
+        // Таблицы в том виде, в каком они были до счетчика лайков и времени лайка
+        jdbcTemplate.execute("CREATE TABLE mpa (mpa_id INT PRIMARY KEY, name VARCHAR(10) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE users (user_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "email VARCHAR(255) NOT NULL UNIQUE, login VARCHAR(100) NOT NULL UNIQUE, name VARCHAR(100), " +
+                "birthday DATE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE film (film_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "name VARCHAR(255) NOT NULL, description VARCHAR(200), release_date DATE NOT NULL, " +
+                "duration INT NOT NULL, mpa_id INT NOT NULL, FOREIGN KEY (mpa_id) REFERENCES mpa(mpa_id))");
+        jdbcTemplate.execute("CREATE TABLE likes (film_id INT NOT NULL, user_id INT NOT NULL, " +
+                "PRIMARY KEY (film_id, user_id), FOREIGN KEY (film_id) REFERENCES film(film_id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE)");
+
+        jdbcTemplate.update("INSERT INTO mpa (mpa_id, name) VALUES (1, 'G')");
+        for (int i = 1; i <= 3; i++) {
+            jdbcTemplate.update("INSERT INTO users (user_id, email, login, birthday) VALUES (?, ?, ?, ?)",
+                    i, "user" + i + "@example.com", "user" + i, LocalDate.of(2000, 1, 1));
+            jdbcTemplate.update("INSERT INTO film (film_id, name, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, 1)",
+                    i, "Фильм " + i, LocalDate.of(2000, 1, 1), 100);
+        }
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (1, 2), (1, 3), (2, 1)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Тест проверяет, что счетчики лайков существующих фильмов заполняются по таблице likes,
+     * а повторный запуск схемы их не меняет
+     */
+    @Test
+    void shouldFillLikeCountsOfExistingFilms() {
+        runSchema();
+
+        assertThat(likeCount(1)).isEqualTo(3);
+        assertThat(likeCount(2)).isEqualTo(1);
+        assertThat(likeCount(3)).isZero();
+
+        jdbcTemplate.update("UPDATE film SET like_count = like_count + 1 WHERE film_id = 3");
+        runSchema();
+        assertThat(likeCount(3)).isEqualTo(1);
+
+        // Новые фильмы получают счетчик по умолчанию
+        jdbcTemplate.update("INSERT INTO film (film_id, name, release_date, duration, mpa_id) VALUES (4, ?, ?, ?, 1)",
+                "Новый фильм", LocalDate.of(2000, 1, 1), 100);
+        assertThat(likeCount(4)).isZero();
+    }
+
+    /**
+     * Тест проверяет, что лайки, поставленные до появления времени лайка, не считаются новыми
+     * и не попадают в тренды, а новые лайки получают текущее время
+     */
+    @Test
+    void shouldKeepLikesWithoutTimeOutOfTrends() {
+        runSchema();
+        runSchema();
+
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT liked_at FROM likes", Timestamp.class))
+                .containsExactly(Timestamp.valueOf("1970-01-01 00:00:00"));
+
+        DataVersions dataVersions = new DataVersions();
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.reload();
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate,
+                new GenreDbStorage(jdbcTemplate, referenceDataCache),
+                new MpaDbStorage(referenceDataCache),
+                new TransactionTemplate(new JdbcTransactionManager(database)), dataVersions);
+        filmStorage.warmUpIndexes();
+
+        assertThat(filmStorage.getPopularFilms(10)).extracting("id").containsExactly(1, 2, 3);
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.WEEK, false, 10)).isEmpty();
+
+        filmStorage.addLike(3, 2);
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.WEEK, false, 10)).extracting("id")
+                .containsExactly(3);
+
+        // Отмена старого лайка не задевает окна трендов
+        filmStorage.removeLike(1, 1);
+        assertThat(filmStorage.getTrendingFilms(TrendingWindow.WEEK, false, 10)).extracting("id")
+                .containsExactly(3);
+    }
+
+    private void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(database);
+    }
+
+    private int likeCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE film_id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Замер построения индекса автодополнения и подсказок при наборе на каталоге из миллиона фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class TitleAutocompleteIndexBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int REQUESTS = 2_000;
+    private static final int UPDATES = 100_000;
+
+    @Test
+    void shouldCompleteMillionTitles() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = (i % 2 == 0 ? "слово" : "word") + Integer.toString(i, 36);
+        }
+        int[] ids = new int[FILMS];
+        String[] names = new String[FILMS];
+        int[] likes = new int[FILMS + UPDATES + 1];
+        for (int i = 0; i < FILMS; i++) {
+            ids[i] = i + 1;
+            names[i] = title(words, random);
+            likes[i + 1] = random.nextInt(1_000);
+        }
+        TitleAutocompleteIndex index = new TitleAutocompleteIndex(filmId -> likes[filmId]);
+
+        long buildStart = System.nanoTime();
+        index.rebuild(ids, names);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        long putStart = System.nanoTime();
+        for (int filmId = FILMS + 1; filmId <= FILMS + UPDATES; filmId++) {
+            index.put(filmId, title(words, random));
+        }
+        long putNanos = (System.nanoTime() - putStart) / UPDATES;
+
+        // Каждый запрос - начало существующего названия длиной от 1 до 8 символов, как при наборе
+        long prefixStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            String name = names[random.nextInt(FILMS)];
+            assertFalse(index.complete(name.substring(0, 1 + i % 8), 10).isEmpty());
+        }
+        long prefixNanos = (System.nanoTime() - prefixStart) / REQUESTS;
+
+        // Ввод с заменой одного символа: точных совпадений нет, срабатывает поиск по триграммам
+        long fuzzyStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            char[] typo = names[random.nextInt(FILMS)].substring(0, 8).toCharArray();
+            typo[3] = 'ъ';
+            assertFalse(index.complete(new String(typo), 10).isEmpty());
+        }
+        long fuzzyNanos = (System.nanoTime() - fuzzyStart) / REQUESTS;
+
+        System.out.printf("Фильмов: %d, построение: %.1f с, добавление: %.1f мкс, подсказка по началу: %.3f мс, " +
+                        "подсказка с опечаткой: %.3f мс%n",
+                index.size(), buildNanos / 1e9, putNanos / 1e3, prefixNanos / 1e6, fuzzyNanos / 1e6);
+    }
+
+    private static String title(String[] words, Random random) {
+        double skew = random.nextDouble();
+        return words[(int) (skew * skew * words.length)] + " " + words[random.nextInt(words.length)];
+    }
+}
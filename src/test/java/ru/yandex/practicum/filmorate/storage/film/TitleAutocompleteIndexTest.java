@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.TitleSuggestion;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса автодополнения названий фильмов
+ */
+class TitleAutocompleteIndexTest {
+
+    private final Map<Integer, Integer> likes = new HashMap<>();
+    private TitleAutocompleteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TitleAutocompleteIndex(filmId -> likes.getOrDefault(filmId, 0));
+    }
+
+    /**
+     * Тест проверяет порядок по количеству лайков, затем по алфавиту, и обновление после изменения лайков
+     */
+    @Test
+    void shouldCompleteByLikesThenAlphabetically() {
+        index.rebuild(new int[]{1, 2, 3, 4}, new String[]{"Звёздные войны", "Звездная пыль", "Зверополис", "Дюна"});
+        likes.put(2, 5);
+        index.refreshLikes();
+
+        assertEquals(List.of(2, 1, 3), ids(index.complete("ЗВЕ", 10)));
+        assertEquals(List.of(2, 1), ids(index.complete("звезд", 10)));
+        assertEquals(List.of(2), ids(index.complete("зв", 1)));
+        assertEquals(List.of(1), ids(index.complete("звездные  войны!", 10)));
+        assertTrue(index.complete("   ", 10).isEmpty());
+
+        likes.put(3, 9);
+        index.likesChanged(3);
+        assertEquals(new TitleSuggestion(3, "Зверополис", 9), index.complete("зве", 1).get(0));
+    }
+
+    /**
+     * Тест проверяет, что новые и переименованные фильмы находятся и до, и после слияния буфера с массивом
+     */
+    @Test
+    void shouldKeepRenamedFilmsConsistentAcrossMerges() {
+        index.put(1, "Старое название");
+        index.put(2, "Старый фильм");
+        index.put(1, "Новое название");
+        assertEquals(List.of(2), ids(index.complete("стар", 10)));
+        assertEquals(List.of(1), ids(index.complete("нов", 10)));
+
+        for (int filmId = 3; filmId <= 2000; filmId++) {
+            index.put(filmId, "Фильм " + filmId);
+        }
+        index.put(2, "Новый фильм");
+        likes.put(2, 1);
+        index.likesChanged(2);
+        assertTrue(index.complete("стар", 10).isEmpty());
+        assertEquals(List.of(2, 1), ids(index.complete("нов", 10)));
+        assertEquals(List.of(100, 1000), ids(index.complete("фильм 100", 2)));
+        assertEquals(2000, index.size());
+    }
+
+    /**
+     * Тест проверяет исправление опечаток: сначала точные совпадения, затем ближайшие по расстоянию
+     */
+    @Test
+    void shouldFallBackToFuzzyMatches() {
+        index.rebuild(new int[]{1, 2, 3, 4}, new String[]{"Терминатор", "Титаник", "Терминал", "Интерстеллар"});
+        likes.put(3, 2);
+        index.refreshLikes();
+
+        assertEquals(List.of(1), ids(index.complete("терминатро", 10)));
+        assertEquals(List.of(3, 1), ids(index.complete("тирмин", 10)));
+        assertEquals(List.of(2), ids(index.complete("титан", 10)));
+        assertTrue(index.complete("тит", 10).stream().allMatch(suggestion -> suggestion.getFilmId() == 2));
+        assertTrue(index.complete("xyzxyz", 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет расстояние Левенштейна до ближайшего начала строки с ограничением числа правок
+     */
+    @Test
+    void shouldComputeBoundedPrefixDistance() {
+        assertEquals(0, TitleAutocompleteIndex.prefixDistance("терм", "терминатор", 2));
+        assertEquals(1, TitleAutocompleteIndex.prefixDistance("тирм", "терминатор", 2));
+        assertEquals(1, TitleAutocompleteIndex.prefixDistance("термиинатор", "терминатор", 2));
+        assertEquals(1, TitleAutocompleteIndex.prefixDistance("терминатро", "терминатор", 2));
+        assertEquals(2, TitleAutocompleteIndex.prefixDistance("тирминатро", "терминатор", 2));
+        assertEquals(3, TitleAutocompleteIndex.prefixDistance("абвгд", "терминатор", 2));
+    }
+
+    private static List<Integer> ids(List<TitleSuggestion> suggestions) {
+        return suggestions.stream().map(TitleSuggestion::getFilmId).toList();
+    }
+}
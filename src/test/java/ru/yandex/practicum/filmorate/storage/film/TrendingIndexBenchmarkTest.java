@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер учета лайков и выдачи набирающих популярность фильмов на потоке лайков за неделю
+ * по каталогу из миллиона фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class TrendingIndexBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final int LIKES = 5_000_000;
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final int REQUESTS = 2_000;
+
+    @Test
+    void shouldTrackWeekOfLikes() {
+        Random random = new Random(42);
+        AtomicLong clock = new AtomicLong(0);
+        TrendingIndex index = new TrendingIndex(clock::get);
+        // Лайки равномерно распределены по неделе, фильмы выбираются со смещением к популярным
+        long likeStart = System.nanoTime();
+        for (int i = 0; i < LIKES; i++) {
+            clock.set(WEEK_MILLIS * i / LIKES);
+            double skew = random.nextDouble();
+            index.addLike(1 + (int) (skew * skew * skew * FILMS), clock.get());
+        }
+        long likeNanos = (System.nanoTime() - likeStart) / LIKES;
+
+        // Построение при запуске по тем же лайкам, как при чтении таблицы likes
+        Random replay = new Random(42);
+        long rebuildStart = System.nanoTime();
+        new TrendingIndex(clock::get).rebuild(action -> {
+            for (int i = 0; i < LIKES; i++) {
+                double skew = replay.nextDouble();
+                action.accept(1 + (int) (skew * skew * skew * FILMS), WEEK_MILLIS * i / LIKES);
+            }
+        });
+        long rebuildNanos = System.nanoTime() - rebuildStart;
+
+        System.out.printf("Лайков за неделю: %d, фильмов с лайками: %d, учет лайка: %.2f мкс, " +
+                        "построение: %.1f с%n", LIKES, index.size(), likeNanos / 1e3, rebuildNanos / 1e9);
+        for (TrendingWindow window : TrendingWindow.values()) {
+            long byLikes = measure(index, window, false);
+            long byScore = measure(index, window, true);
+            System.out.printf("Окно %s: топ-10 по количеству лайков: %.2f мкс, с затуханием: %.2f мкс%n",
+                    window.getCode(), byLikes / 1e3, byScore / 1e3);
+        }
+    }
+
+    private static long measure(TrendingIndex index, TrendingWindow window, boolean decay) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(10, index.getTop(window, decay, 10).size());
+        }
+        return (System.nanoTime() - start) / REQUESTS;
+    }
+}
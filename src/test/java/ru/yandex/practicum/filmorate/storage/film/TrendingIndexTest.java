@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса фильмов, набирающих популярность
+ */
+class TrendingIndexTest {
+    private static final long MINUTE = 60_000;
+
+    private AtomicLong clock;
+    private TrendingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(28_000_000 * MINUTE);
+        index = new TrendingIndex(clock::get);
+    }
+
+    /**
+     * Тест проверяет, что лайки выходят из окна по истечении его длины, а отмена лайка
+     * вычитается из той минуты, в которую он учтен
+     */
+    @Test
+    void shouldSlideWindowsAndRemoveLikes() {
+        index.addLike(1, clock.get());
+        index.addLike(1, clock.get());
+        index.addLike(2, clock.get() - 30 * MINUTE);
+        index.addLike(3, clock.get() - 8 * 24 * 60 * MINUTE);
+
+        assertEquals(List.of(1, 2), index.getTop(TrendingWindow.HOUR, false, 10));
+        assertEquals(2, index.getLikes(TrendingWindow.WEEK, 1));
+        assertEquals(0, index.getLikes(TrendingWindow.WEEK, 3));
+
+        clock.addAndGet(31 * MINUTE);
+        assertEquals(List.of(1), index.getTop(TrendingWindow.HOUR, false, 10));
+        assertEquals(List.of(1, 2), index.getTop(TrendingWindow.DAY, false, 10));
+
+        index.removeLike(1, clock.get() - 31 * MINUTE);
+        index.removeLike(2, clock.get());
+        assertEquals(1, index.getLikes(TrendingWindow.DAY, 1));
+        assertEquals(1, index.getLikes(TrendingWindow.DAY, 2));
+
+        index.removeLatestLike(2);
+        assertEquals(List.of(1), index.getTop(TrendingWindow.WEEK, false, 10));
+
+        clock.addAndGet(24 * 60 * MINUTE);
+        assertTrue(index.getTop(TrendingWindow.DAY, false, 10).isEmpty());
+        assertEquals(List.of(1), index.getTop(TrendingWindow.WEEK, false, 10));
+
+        clock.addAndGet(30 * 24 * 60 * MINUTE);
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Тест проверяет порядок по оценке с затуханием, в том числе после переноса опоры весов
+     */
+    @Test
+    void shouldRankByDecayedScore() {
+        // Пять суток - больше 256 периодов полураспада часового окна
+        for (int i = 0; i < 5 * 24 * 2; i++) {
+            index.addLike(9, clock.get());
+            clock.addAndGet(30 * MINUTE);
+        }
+        index.addLike(3, clock.get() - 40 * MINUTE);
+        index.addLike(3, clock.get() - 40 * MINUTE);
+        index.addLike(2, clock.get() - 20 * MINUTE);
+        index.addLike(1, clock.get());
+
+        assertEquals(List.of(3, 9, 2, 1), index.getTop(TrendingWindow.HOUR, false, 10));
+        assertEquals(List.of(1, 2, 3, 9), index.getTop(TrendingWindow.HOUR, true, 10));
+        assertEquals(List.of(9, 3, 2), index.getTop(TrendingWindow.DAY, false, 3));
+    }
+
+    /**
+     * Тест сравнивает рейтинг по количеству лайков с пересчетом по всем лайкам
+     * на случайной последовательности лайков, отмен и хода времени, а также с построением индекса заново
+     */
+    @Test
+    void shouldMatchRecountOnRandomLikes() {
+        Random random = new Random(11);
+        List<long[]> likes = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            clock.addAndGet(random.nextInt(3) * MINUTE + random.nextInt(60_000));
+            int filmId = 1 + random.nextInt(50);
+            if (random.nextInt(4) == 0 && !likes.isEmpty()) {
+                long[] like = likes.remove(random.nextInt(likes.size()));
+                index.removeLike((int) like[0], like[1]);
+            } else {
+                long likedAt = clock.get() - random.nextInt(90) * MINUTE;
+                likes.add(new long[]{filmId, likedAt});
+                index.addLike(filmId, likedAt);
+            }
+            if (step % 100 == 0) {
+                for (TrendingWindow window : TrendingWindow.values()) {
+                    assertEquals(recount(likes, window), index.getTop(window, false, 10));
+                }
+            }
+        }
+
+        TrendingIndex rebuilt = new TrendingIndex(clock::get);
+        rebuilt.rebuild(action -> likes.forEach(like -> action.accept((int) like[0], like[1])));
+        for (TrendingWindow window : TrendingWindow.values()) {
+            assertEquals(recount(likes, window), rebuilt.getTop(window, false, 10));
+            assertEquals(index.getTop(window, true, 10), rebuilt.getTop(window, true, 10));
+        }
+    }
+
+    private List<Integer> recount(List<long[]> likes, TrendingWindow window) {
+        long now = clock.get() / MINUTE;
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (long[] like : likes) {
+            if (like[1] / MINUTE > now - window.getMinutes()) {
+                counts.merge((int) like[0], 1, Integer::sum);
+            }
+        }
+        return counts.keySet().stream()
+                .sorted(Comparator.comparing((Integer filmId) -> counts.get(filmId))
+                        .thenComparing(filmId -> filmId).reversed())
+                .limit(10)
+                .toList();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.StatementCountingDataSource;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataCache;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные тесты для хранилища жанров в базе данных
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class GenreDbStorageTest {
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    private StatementCountingDataSource countingDataSource;
+    private GenreDbStorage genreStorage;
+    private int filmId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM film_genre");
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM film");
+        jdbcTemplate.update("INSERT INTO film (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100, 1);
+        filmId = jdbcTemplate.queryForObject("SELECT MAX(film_id) FROM film", Integer.class);
+
+        countingDataSource = new StatementCountingDataSource(dataSource);
+        JdbcTemplate countingTemplate = new JdbcTemplate(countingDataSource);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(countingTemplate);
+        referenceDataCache.reload();
+        genreStorage = new GenreDbStorage(countingTemplate, referenceDataCache);
+    }
+
+    /**
+     * Тест проверяет, что жанры проверяются по справочнику и записываются одним пакетом без дубликатов
+     */
+    @Test
+    void shouldAddGenresWithOneBatch() {
+        List<Genre> genres = List.of(new Genre(3, null), new Genre(1, null), new Genre(3, null),
+                new Genre(6, null), new Genre(1, null));
+
+        countingDataSource.reset();
+        genreStorage.addGenresToFilm(filmId, genres);
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(genreStorage.getGenresByFilmId(filmId)).extracting("id").containsExactly(1, 3, 6);
+    }
+
+    /**
+     * Тест проверяет, что при неизвестном жанре ничего не записывается
+     */
+    @Test
+    void shouldRejectUnknownGenre() {
+        List<Genre> genres = List.of(new Genre(1, null), new Genre(99, null));
+
+        assertThatThrownBy(() -> genreStorage.addGenresToFilm(filmId, genres))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("Жанр с id 99 не найден");
+        assertThat(genreStorage.getGenresByFilmId(filmId)).isEmpty();
+    }
+
+    /**
+     * Тест проверяет, что справочник жанров читается без обращения к базе данных
+     * и не меняется через выданные экземпляры
+     */
+    @Test
+    void shouldReadGenresWithoutQueries() {
+        countingDataSource.reset();
+        List<Genre> genres = genreStorage.getAllGenres();
+        Genre comedy = genreStorage.getGenreById(1).orElseThrow();
+
+        assertThat(countingDataSource.getStatementCount()).isZero();
+        assertThat(genres).hasSize(6);
+        assertThat(comedy).isEqualTo(genres.get(0));
+        assertThat(genreStorage.getGenreById(99)).isEmpty();
+
+        // Изменение выданного экземпляра не меняет справочник
+        String name = comedy.getName();
+        comedy.setName("Изменено");
+        genres.get(1).setName("Изменено");
+        assertThat(genreStorage.getGenreById(1).orElseThrow().getName()).isEqualTo(name);
+        assertThat(genreStorage.getAllGenres()).extracting("name").doesNotContain("Изменено");
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер подбора рекомендаций в друзья по графу дружбы для пользователя с тысячами друзей.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class FriendSuggesterBenchmarkTest {
+    private static final int USERS = 200_000;
+    private static final int FRIENDS = 5_000;
+    private static final int FRIENDS_OF_FRIEND = 500;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    void shouldSuggestFriendsForUserWithThousandsOfFriends() {
+        // Пользователь 1 дружит с 5000 пользователями, у каждого из них по 500 случайных друзей
+        Random random = new Random(42);
+        FriendshipGraph.Edges edges = new FriendshipGraph.Edges(FRIENDS * (FRIENDS_OF_FRIEND + 1));
+        for (int i = 0; i < FRIENDS; i++) {
+            int friendId = 2 + i;
+            edges.add(1, friendId);
+            for (int j = 0; j < FRIENDS_OF_FRIEND; j++) {
+                edges.add(friendId, 2 + random.nextInt(USERS));
+            }
+        }
+        FriendshipGraph graph = new FriendshipGraph();
+        graph.rebuild(edges);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(10, suggest(graph).size());
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            suggest(graph);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+
+        System.out.printf("Друзей: %d, ребер второго шага (с ограничением): %d, потоков: %d, " +
+                        "среднее время: %.2f мс, лучшее: %.2f мс%n",
+                FRIENDS, (long) FriendSuggester.MAX_FRIENDS * FRIENDS_OF_FRIEND,
+                Runtime.getRuntime().availableProcessors(), total / 1e6 / ITERATIONS, best / 1e6);
+    }
+
+    private static List<FriendSuggestion> suggest(FriendshipGraph graph) {
+        return FriendSuggester.suggest(1, 10, graph::getFriends, ids -> Arrays.stream(ids).mapToObj(id -> {
+            User user = new User();
+            user.setId(id);
+            return user;
+        }).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для подбора рекомендаций в друзья
+ */
+class FriendSuggesterTest {
+
+    /**
+     * Тест проверяет ранжирование по количеству общих друзей и исключение самого пользователя и его друзей
+     */
+    @Test
+    void shouldRankNonFriendsByMutualFriends() {
+        Map<Integer, int[]> graph = new HashMap<>();
+        graph.put(1, new int[]{2, 3, 4});
+        graph.put(2, new int[]{1, 3, 5, 6});
+        graph.put(3, new int[]{5, 6, 7});
+        graph.put(4, new int[]{5, 8});
+
+        List<FriendSuggestion> suggestions = suggest(graph, 1, 10);
+
+        // 5 - общий для 2, 3 и 4; 6 - для 2 и 3; 7 и 8 - по одному, при равенстве меньший id выше
+        assertEquals(List.of(5, 6, 7, 8), ids(suggestions));
+        assertEquals(List.of(3, 2, 1, 1), suggestions.stream().map(FriendSuggestion::getMutualFriends).toList());
+        assertEquals(List.of(5, 6), ids(suggest(graph, 1, 2)));
+        assertTrue(suggest(graph, 8, 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет ограничение обхода для пользователя с числом друзей больше допустимого
+     */
+    @Test
+    void shouldCapFanOut() {
+        int friends = FriendSuggester.MAX_FRIENDS * 2;
+        Map<Integer, int[]> graph = new HashMap<>();
+        int[] userFriends = new int[friends];
+        for (int i = 0; i < friends; i++) {
+            userFriends[i] = 2 + i;
+            graph.put(2 + i, new int[]{1_000_000});
+        }
+        graph.put(1, userFriends);
+
+        List<FriendSuggestion> suggestions = suggest(graph, 1, 10);
+
+        assertEquals(List.of(1_000_000), ids(suggestions));
+        assertEquals(FriendSuggester.MAX_FRIENDS, suggestions.get(0).getMutualFriends());
+    }
+
+    private static List<FriendSuggestion> suggest(Map<Integer, int[]> graph, int userId, int limit) {
+        return FriendSuggester.suggest(userId, limit,
+                id -> graph.getOrDefault(id, new int[0]),
+                ids -> Arrays.stream(ids).mapToObj(id -> {
+                    User user = new User();
+                    user.setId(id);
+                    return user;
+                }).collect(Collectors.toList()));
+    }
+
+    private static List<Integer> ids(List<FriendSuggestion> suggestions) {
+        return suggestions.stream().map(suggestion -> suggestion.getUser().getId()).toList();
+    }
+}
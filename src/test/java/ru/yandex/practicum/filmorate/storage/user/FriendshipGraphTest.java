@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentRunner;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для графа дружбы в памяти
+ */
+class FriendshipGraphTest {
+
+    private FriendshipGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendshipGraph();
+        FriendshipGraph.Edges edges = new FriendshipGraph.Edges();
+        edges.add(1, 4);
+        edges.add(1, 2);
+        edges.add(1, 3);
+        edges.add(2, 3);
+        edges.add(3, 1);
+        graph.rebuild(edges);
+    }
+
+    /**
+     * Тест проверяет построение исходящих и входящих списков смежности
+     */
+    @Test
+    void shouldBuildSortedAdjacency() {
+        assertArrayEquals(new int[]{2, 3, 4}, graph.getFriends(1));
+        assertArrayEquals(new int[]{1, 2}, graph.getFollowers(3));
+        assertArrayEquals(new int[0], graph.getFriends(4));
+        assertArrayEquals(new int[0], graph.getFriends(100));
+        assertTrue(graph.isFriend(1, 4));
+        assertFalse(graph.isFriend(4, 1));
+        assertEquals(5, graph.edgeCount());
+    }
+
+    /**
+     * Тест проверяет, что изменения из буфера видны до уплотнения и сохраняются после него
+     */
+    @Test
+    void shouldApplyDeltaBeforeAndAfterCompaction() {
+        assertTrue(graph.addEdge(1, 5));
+        assertFalse(graph.addEdge(1, 5));
+        assertTrue(graph.removeEdge(1, 3));
+        assertFalse(graph.removeEdge(1, 3));
+        assertTrue(graph.addEdge(7, 2));
+        // Удаление и повторное добавление ребра из CSR взаимно сокращаются в буфере
+        assertTrue(graph.removeEdge(2, 3));
+        assertTrue(graph.addEdge(2, 3));
+
+        assertArrayEquals(new int[]{2, 4, 5}, graph.getFriends(1));
+        assertArrayEquals(new int[]{1, 7}, graph.getFollowers(2));
+        assertArrayEquals(new int[]{2}, graph.getFollowers(3));
+        assertEquals(3, graph.deltaSize());
+        assertEquals(6, graph.edgeCount());
+
+        assertTrue(graph.compact());
+
+        assertEquals(0, graph.deltaSize());
+        assertFalse(graph.compact());
+        assertArrayEquals(new int[]{2, 4, 5}, graph.getFriends(1));
+        assertArrayEquals(new int[]{2}, graph.getFriends(7));
+        assertArrayEquals(new int[]{1, 7}, graph.getFollowers(2));
+        assertTrue(graph.isFriend(2, 3));
+        assertFalse(graph.isFriend(1, 3));
+        assertEquals(6, graph.edgeCount());
+    }
+
+    /**
+     * Тест проверяет получение общих друзей с учетом буфера изменений
+     */
+    @Test
+    void shouldGetCommonFriends() {
+        graph.addEdge(2, 4);
+        graph.removeEdge(1, 2);
+
+        assertArrayEquals(new int[]{3, 4}, graph.getCommonFriends(1, 2));
+        assertArrayEquals(new int[0], graph.getCommonFriends(1, 100));
+    }
+
+    /**
+     * Тест проверяет, что уплотнение выполняется при непрерывной записи и не теряет изменений,
+     * сделанных во время построения
+     */
+    @Test
+    void shouldCompactUnderConcurrentWrites() throws Exception {
+        int users = 2_000;
+        Random random = new Random(5);
+        FriendshipGraph.Edges edges = new FriendshipGraph.Edges();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            int userId = random.nextInt(users);
+            int friendId = random.nextInt(users);
+            if (expected.add(edge(userId, friendId))) {
+                edges.add(userId, friendId);
+            }
+        }
+        graph.rebuild(edges);
+
+        // Первый поток непрерывно меняет граф, второй уплотняет его, пока не выполнит пять уплотнений
+        AtomicBoolean running = new AtomicBoolean(true);
+        int[] compactions = {0};
+        ConcurrentRunner.run(2, thread -> {
+            if (thread == 0) {
+                Random writes = new Random(6);
+                while (running.get()) {
+                    int userId = writes.nextInt(users);
+                    int friendId = writes.nextInt(users);
+                    if (expected.remove(edge(userId, friendId))) {
+                        assertTrue(graph.removeEdge(userId, friendId));
+                    } else {
+                        expected.add(edge(userId, friendId));
+                        assertTrue(graph.addEdge(userId, friendId));
+                    }
+                }
+                return;
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            try {
+                while (compactions[0] < 5 && System.nanoTime() < deadline) {
+                    if (graph.compact()) {
+                        compactions[0]++;
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+        });
+        assertEquals(5, compactions[0]);
+
+        assertEquals(expected.size(), graph.edgeCount());
+        long[] sorted = expected.stream().mapToLong(Long::longValue).sorted().toArray();
+        int position = 0;
+        int followers = 0;
+        for (int userId = 0; userId < users; userId++) {
+            int from = position;
+            while (position < sorted.length && (int) (sorted[position] >>> 32) == userId) {
+                position++;
+            }
+            int[] friends = Arrays.stream(sorted, from, position).mapToInt(key -> (int) key).toArray();
+            assertArrayEquals(friends, graph.getFriends(userId), "Друзья пользователя " + userId);
+            followers += graph.getFollowers(userId).length;
+        }
+        assertEquals(expected.size(), followers);
+    }
+
+    private static long edge(int userId, int friendId) {
+        return ((long) userId << 32) | friendId;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер получения общих друзей в хранилище пользователей в памяти для пользователей с большим числом друзей.
+ * Сравнивается слияние отсортированных массивов и прежний подход: пересечение HashSet
+ * с поиском каждого общего друга по идентификатору.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class InMemoryUserStorageBenchmarkTest {
+    private static final int USERS = 30_002;
+    private static final int FRIENDS = 20_000;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    void shouldIntersectLargeFriendLists() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.createUser(user);
+        }
+        // Пользователь 1 дружит с 3..20002, пользователь 2 - с 10003..30002: общих друзей 10 000
+        User user = userStorage.getUserById(1).orElseThrow();
+        User otherUser = userStorage.getUserById(2).orElseThrow();
+        for (int i = 0; i < FRIENDS; i++) {
+            user.addFriend(3 + i);
+            otherUser.addFriend(USERS - i);
+        }
+        int expected = 2 * FRIENDS - (USERS - 2);
+
+        long mergeNanos = measure(() -> userStorage.getCommonFriends(1, 2), expected);
+        long hashSetNanos = measure(() -> {
+            Set<Integer> common = new HashSet<>(userStorage.getUserById(1).orElseThrow().getFriends());
+            common.retainAll(new HashSet<>(userStorage.getUserById(2).orElseThrow().getFriends()));
+            return common.stream().map(id -> userStorage.getUserById(id).orElseThrow()).toList();
+        }, expected);
+
+        System.out.printf("Общих друзей: %d, слияние массивов: %.2f мс, пересечение HashSet: %.2f мс%n",
+                expected, mergeNanos / 1e6, hashSetNanos / 1e6);
+    }
+
+    private long measure(Supplier<List<User>> query, int expected) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(expected, query.get().size());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ConcurrentRunner;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
@@ -330,4 +331,95 @@ class InMemoryUserStorageTest {
         assertTrue(userStorage.userExists(createdUser.getId()));
         assertFalse(userStorage.userExists(999));
     }
-}
\ No newline at end of file
+
+    /**
+     * Тест проверяет постраничное получение пользователей
+     */
+    @Test
+    void shouldGetUsersPageAfterId() {
+        // Подготовка данных - создаем трех пользователей
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.createUser(user);
+        }
+
+        // Вызов тестируемого метода
+        List<User> page = userStorage.getUsersPage(1, 5);
+
+        // Проверка результатов
+        assertEquals(List.of(2, 3), page.stream().map(User::getId).toList());
+    }
+
+    /**
+     * Тест проверяет получение общих друзей в порядке возрастания идентификатора
+     */
+    @Test
+    void shouldGetCommonFriends() {
+        // Подготовка данных - пользователи 1 и 2 дружат с пользователями 3..10
+        for (int i = 0; i < 10; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            userStorage.createUser(user);
+        }
+        User user = userStorage.getUserById(1).orElseThrow();
+        User otherUser = userStorage.getUserById(2).orElseThrow();
+        for (int friendId : new int[]{9, 3, 4, 6, 10}) {
+            user.addFriend(friendId);
+        }
+        for (int friendId : new int[]{5, 6, 10, 3, 8}) {
+            otherUser.addFriend(friendId);
+        }
+
+        // Вызов тестируемого метода
+        List<User> commonFriends = userStorage.getCommonFriends(1, 2);
+
+        // Проверка результатов
+        assertEquals(List.of(3, 6, 10), commonFriends.stream().map(User::getId).toList());
+        assertTrue(userStorage.getCommonFriends(1, 99).isEmpty());
+    }
+
+    /**
+     * Стресс-тест: друзья, добавленные параллельно с обновлением пользователя, не теряются,
+     * а параллельно созданные пользователи получают уникальные идентификаторы
+     */
+    @Test
+    void shouldNotLoseFriendsUnderConcurrentLoad() throws Exception {
+        // Подготовка данных
+        User user = new User();
+        user.setEmail("user@example.com");
+        user.setLogin("userLogin");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        int userId = userStorage.createUser(user).getId();
+        int threads = 8;
+        int friendsPerThread = 500;
+
+        // Вызов тестируемого метода - потоки создают пользователей и добавляют их в друзья,
+        // попутно обновляя данные пользователя
+        ConcurrentRunner.run(threads, thread -> {
+            for (int i = 0; i < friendsPerThread; i++) {
+                User friend = new User();
+                friend.setEmail("friend" + thread + "_" + i + "@example.com");
+                friend.setLogin("friend" + thread + "_" + i);
+                friend.setBirthday(LocalDate.of(2000, 1, 1));
+                int friendId = userStorage.createUser(friend).getId();
+                userStorage.getUserById(userId).orElseThrow().addFriend(friendId);
+
+                User update = new User();
+                update.setId(userId);
+                update.setEmail("user@example.com");
+                update.setLogin("userLogin");
+                update.setName("Обновление " + thread);
+                userStorage.updateUser(update);
+            }
+        });
+
+        // Проверка результатов
+        assertEquals(threads * friendsPerThread + 1, userStorage.getAllUsers().size());
+        assertEquals(threads * friendsPerThread, userStorage.getUserById(userId).orElseThrow().getFriends().size());
+    }
+}
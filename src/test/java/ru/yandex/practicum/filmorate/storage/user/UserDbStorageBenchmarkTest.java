@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер получения общих друзей в хранилище пользователей в базе данных для пользователей с большим числом друзей.
+ * Сравнивается пересечение по графу дружбы в памяти и самосоединение friendship в SQL.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class UserDbStorageBenchmarkTest {
+    private static final int USERS = 30_002;
+    private static final int FRIENDS = 20_000;
+    private static final int ITERATIONS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldIntersectLargeFriendLists() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate, new DataVersions());
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{"user" + i + "@example.com", "user" + i, "User " + i, LocalDate.of(2000, 1, 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", users);
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Integer.class);
+
+        // Первый пользователь дружит с первыми FRIENDS остальными, второй - с последними FRIENDS
+        int userId = userIds.get(0);
+        int otherId = userIds.get(1);
+        List<Object[]> friendships = new ArrayList<>();
+        for (int i = 0; i < FRIENDS; i++) {
+            friendships.add(new Object[]{userId, userIds.get(2 + i)});
+            friendships.add(new Object[]{otherId, userIds.get(USERS - 1 - i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", friendships);
+        int expected = 2 * FRIENDS - (USERS - 2);
+
+        long warmUpStart = System.nanoTime();
+        userStorage.warmUpFriendshipGraph();
+        long warmUpNanos = System.nanoTime() - warmUpStart;
+
+        long graphNanos = measure(() -> userStorage.getCommonFriends(userId, otherId), expected);
+        long joinNanos = measure(() -> jdbcTemplate.query("SELECT u.* FROM friendship f1 " +
+                "JOIN friendship f2 ON f2.friend_id = f1.friend_id AND f2.user_id = ? " +
+                "JOIN users u ON u.user_id = f1.friend_id " +
+                "WHERE f1.user_id = ? ORDER BY u.user_id", (rs, rowNum) -> {
+                    User user = new User();
+                    user.setId(rs.getInt("user_id"));
+                    user.setEmail(rs.getString("email"));
+                    user.setLogin(rs.getString("login"));
+                    user.setName(rs.getString("name"));
+                    user.setBirthday(rs.getDate("birthday").toLocalDate());
+                    return user;
+                }, otherId, userId), expected);
+
+        FriendshipGraph graph = new FriendshipGraph();
+        FriendshipGraph.Edges edges = new FriendshipGraph.Edges(friendships.size());
+        friendships.forEach(edge -> edges.add((Integer) edge[0], (Integer) edge[1]));
+        graph.rebuild(edges);
+        long intersectStart = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(expected, graph.getCommonFriends(userId, otherId).length);
+        }
+        long intersectNanos = (System.nanoTime() - intersectStart) / ITERATIONS;
+
+        System.out.printf("Общих друзей: %d, загрузка графа: %.2f мс, пересечение в графе: %.3f мс, " +
+                        "граф + строки пользователей: %.2f мс, самосоединение в SQL: %.2f мс%n",
+                expected, warmUpNanos / 1e6, intersectNanos / 1e6, graphNanos / 1e6, joinNanos / 1e6);
+    }
+
+    private long measure(Supplier<List<User>> query, int expected) {
+        assertEquals(expected, query.get().size());
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.config.StatementCountingDataSource;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционные тесты для хранилища пользователей в базе данных
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class UserDbStorageTest {
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    private StatementCountingDataSource countingDataSource;
+    private UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM friendship");
+        jdbcTemplate.update("DELETE FROM users");
+
+        countingDataSource = new StatementCountingDataSource(dataSource);
+        userStorage = new UserDbStorage(new JdbcTemplate(countingDataSource), new DataVersions());
+    }
+
+    /**
+     * Тест проверяет, что друзья загружаются одним запросом независимо от их количества
+     */
+    @Test
+    void shouldLoadFriendsWithFixedNumberOfStatements() {
+        List<Integer> userIds = createUsers(1001);
+        int userId = userIds.get(0);
+        List<Integer> friendIds = userIds.subList(1, userIds.size());
+        for (int friendId : friendIds) {
+            addFriend(userId, friendId);
+        }
+        addFriend(friendIds.get(0), userId);
+        userStorage.warmUpFriendshipGraph();
+
+        countingDataSource.reset();
+        List<User> friends = userStorage.getFriends(userId, true);
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(friends).extracting("id").containsExactlyElementsOf(friendIds);
+        assertThat(friends.get(0).getFriends()).containsExactly(userId);
+
+        countingDataSource.reset();
+        List<User> friendsWithoutSets = userStorage.getFriends(userId, false);
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(friendsWithoutSets).hasSize(1000);
+        assertThat(friendsWithoutSets.get(0).getFriends()).isEmpty();
+    }
+
+    /**
+     * Тест проверяет, что общие друзья вычисляются по графу дружбы, а из базы данных загружаются только их строки
+     */
+    @Test
+    void shouldGetCommonFriends() {
+        List<Integer> userIds = createUsers(6);
+        int userId = userIds.get(0);
+        int otherId = userIds.get(1);
+        for (int i : new int[]{2, 3, 4}) {
+            userStorage.addFriend(userId, userIds.get(i));
+        }
+        for (int i : new int[]{3, 4, 5}) {
+            userStorage.addFriend(otherId, userIds.get(i));
+        }
+        userStorage.addFriend(userIds.get(3), userId);
+
+        countingDataSource.reset();
+        List<User> commonFriends = userStorage.getCommonFriends(userId, otherId);
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(commonFriends).extracting("id").containsExactly(userIds.get(3), userIds.get(4));
+        assertThat(commonFriends.get(0).getFriends()).containsExactly(userId);
+        assertThat(userStorage.getCommonFriends(userId, userIds.get(2))).isEmpty();
+    }
+
+    /**
+     * Тест проверяет, что добавление и удаление друга меняет одну строку friendship и граф дружбы,
+     * а обновление пользователя не затрагивает его друзей
+     */
+    @Test
+    void shouldAddAndRemoveFriendIncrementally() {
+        List<Integer> userIds = createUsers(3);
+        int userId = userIds.get(0);
+
+        assertThat(userStorage.addFriend(userId, userIds.get(1))).isTrue();
+        assertThat(userStorage.addFriend(userId, userIds.get(1))).isFalse();
+        assertThat(userStorage.addFriend(userId, userIds.get(2))).isTrue();
+        assertThat(userStorage.removeFriend(userId, userIds.get(1))).isTrue();
+        assertThat(userStorage.removeFriend(userId, userIds.get(1))).isFalse();
+
+        User update = userStorage.getUserById(userId).orElseThrow();
+        update.setName("Новое имя");
+        update.setFriends(new IntHashSet());
+        userStorage.updateUser(update);
+
+        assertThat(update.getFriends()).containsExactly(userIds.get(2));
+        assertThat(jdbcTemplate.queryForList("SELECT friend_id FROM friendship WHERE user_id = ?",
+                Integer.class, userId)).containsExactly(userIds.get(2));
+
+        // Граф, построенный заново из таблицы, совпадает с инкрементально обновленным
+        assertThat(userStorage.compactFriendshipGraph()).isTrue();
+        assertThat(userStorage.getUserById(userId).orElseThrow().getFriends()).containsExactly(userIds.get(2));
+        userStorage.warmUpFriendshipGraph();
+        assertThat(userStorage.getUserById(userId).orElseThrow().getFriends()).containsExactly(userIds.get(2));
+    }
+
+    /**
+     * Тест проверяет получение пользователей по набору идентификаторов с пропуском отсутствующих
+     */
+    @Test
+    void shouldGetUsersByIds() {
+        List<Integer> userIds = createUsers(3);
+
+        countingDataSource.reset();
+        List<User> users = userStorage.getUsersByIds(List.of(userIds.get(2), userIds.get(0), -1));
+
+        assertThat(countingDataSource.getStatementCount()).isEqualTo(1);
+        assertThat(users).extracting("id").containsExactly(userIds.get(0), userIds.get(2));
+        assertThat(userStorage.getUsersByIds(List.of())).isEmpty();
+    }
+
+    private List<Integer> createUsers(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"user" + i + "@example.com", "user" + i, "User " + i, LocalDate.of(2000, 1, 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+        return jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Integer.class);
+    }
+
+    private void addFriend(int userId, int friendId) {
+        jdbcTemplate.update("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", userId, friendId);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер предварительного вычисления соседей и запроса рекомендаций фильмов.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class UserSimilarityIndexBenchmarkTest {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 5_000;
+    private static final int LIKES_PER_USER = 50;
+    private static final int REQUESTS = 10_000;
+
+    @Test
+    void shouldRecommendWithPrecomputedNeighbours() {
+        // Популярность фильмов неравномерна: квадрат равномерной величины смещает лайки к фильмам с малыми id
+        Random random = new Random(42);
+        UserSimilarityIndex index = new UserSimilarityIndex();
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                double skew = random.nextDouble();
+                index.addLike(1 + (int) (skew * skew * FILMS), userId);
+            }
+        }
+
+        long refreshStart = System.nanoTime();
+        assertEquals(USERS, index.refreshAll());
+        long refreshNanos = System.nanoTime() - refreshStart;
+
+        for (int i = 0; i < 50; i++) {
+            index.addLike(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+        }
+        long staleStart = System.nanoTime();
+        int stale = index.refreshStale();
+        long staleNanos = System.nanoTime() - staleStart;
+
+        long requestStart = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(10, index.recommend(1 + random.nextInt(USERS), 10).size());
+        }
+        long requestNanos = (System.nanoTime() - requestStart) / REQUESTS;
+
+        System.out.printf("Пользователей: %d, лайков: %d, потоков: %d, полный пересчет: %.0f мс, " +
+                        "пересчет %d измененных: %.1f мс, запрос рекомендаций: %.1f мкс%n",
+                USERS, USERS * LIKES_PER_USER, Runtime.getRuntime().availableProcessors(),
+                refreshNanos / 1e6, stale, staleNanos / 1e6, requestNanos / 1e3);
+    }
+}
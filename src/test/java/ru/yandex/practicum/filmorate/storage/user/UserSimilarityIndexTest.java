@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для индекса схожести пользователей по лайкам
+ */
+class UserSimilarityIndexTest {
+
+    private UserSimilarityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Пользователь 1 лайкнул фильмы 10, 11, 12
+        // Пользователь 2 - 10, 11, 12, 13 (Жаккар с 1: 3/4)
+        // Пользователь 3 - 10, 14, 15 (Жаккар с 1: 1/5)
+        // Пользователь 4 - 20 (общих фильмов с 1 нет)
+        index = new UserSimilarityIndex();
+        like(1, 10, 11, 12);
+        like(2, 10, 11, 12, 13);
+        like(3, 10, 14, 15);
+        like(4, 20);
+        index.refreshAll();
+    }
+
+    /**
+     * Тест проверяет поиск соседей по мере Жаккара
+     */
+    @Test
+    void shouldFindNeighboursByJaccardSimilarity() {
+        assertArrayEquals(new int[]{2, 3}, index.getNeighbours(1));
+        assertArrayEquals(new int[0], index.getNeighbours(4));
+        assertArrayEquals(new int[0], index.getNeighbours(99));
+    }
+
+    /**
+     * Тест проверяет, что рекомендуются фильмы соседей, которые еще не понравились пользователю,
+     * по убыванию схожести лайкнувших их соседей
+     */
+    @Test
+    void shouldRecommendFilmsOfNeighbours() {
+        assertEquals(List.of(13, 14, 15), index.recommend(1, 10));
+        assertEquals(List.of(13), index.recommend(1, 1));
+        assertTrue(index.recommend(4, 10).isEmpty());
+    }
+
+    /**
+     * Тест проверяет, что новые лайки попадают в матрицу сразу, а соседи пересчитываются только для изменившихся пользователей
+     */
+    @Test
+    void shouldRefreshOnlyStaleUsers() {
+        index.addLike(20, 1);
+        index.removeLike(13, 2);
+        assertEquals(2, index.staleCount());
+
+        // Лайки соседей читаются из матрицы, поэтому рекомендации меняются и до пересчета
+        assertEquals(List.of(14, 15), index.recommend(1, 10));
+
+        assertEquals(2, index.refreshStale());
+        assertEquals(0, index.staleCount());
+        // Жаккар с 1: у 2 - 3/4, у 4 - 1/4, у 3 - 1/6
+        assertArrayEquals(new int[]{2, 4, 3}, index.getNeighbours(1));
+        assertEquals(List.of(14, 15), index.recommend(1, 10));
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            index.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.storage.version;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.yandex.practicum.filmorate.storage.version.DataVersions.Table;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для счетчиков версий таблиц и записей
+ */
+class DataVersionsTest {
+    private AtomicLong clock;
+    private DataVersions dataVersions;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000_000);
+        dataVersions = new DataVersions(clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Тест проверяет, что изменение записи меняет версию записи и ее таблицы, но не других записей и таблиц,
+     * а версия из нескольких источников растет при изменении любого из них
+     */
+    @Test
+    void shouldBumpTableAndEntityVersions() {
+        DataVersion initial = dataVersions.of(Table.FILM, 1);
+        assertEquals(0, initial.getNumber());
+        assertEquals(1_000_000, initial.getLastModified());
+        DataVersion film = DataVersion.latest(initial, dataVersions.of(Table.GENRE));
+
+        clock.set(2_000_000);
+        dataVersions.changed(Table.FILM, List.of(1, 3));
+
+        assertEquals(1, dataVersions.of(Table.FILM, 1).getNumber());
+        assertEquals(1, dataVersions.of(Table.FILM, 3).getNumber());
+        assertEquals(2_000_000, dataVersions.of(Table.FILM).getLastModified());
+        assertEquals(initial, dataVersions.of(Table.FILM, 2));
+        assertEquals(initial, dataVersions.of(Table.USER, 1));
+        assertNotEquals(film.getETag(),
+                DataVersion.latest(dataVersions.of(Table.FILM, 1), dataVersions.of(Table.GENRE)).getETag());
+
+        film = DataVersion.latest(dataVersions.of(Table.FILM, 1), dataVersions.of(Table.GENRE));
+        dataVersions.changed(Table.GENRE);
+        DataVersion reloaded = DataVersion.latest(dataVersions.of(Table.FILM, 1), dataVersions.of(Table.GENRE));
+        assertEquals(2, reloaded.getNumber());
+        assertNotEquals(film.getETag(), reloaded.getETag());
+
+        // После перезапуска теги не совпадают с выданными раньше, даже при тех же номерах
+        clock.set(3_000_000);
+        assertNotEquals(initial.getETag(), new DataVersions(clock::get).of(Table.FILM, 1).getETag());
+    }
+
+    /**
+     * Тест проверяет, что изменение внутри транзакции учитывается только после ее фиксации
+     */
+    @Test
+    void shouldApplyChangesAfterCommitOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        dataVersions.changed(Table.USER, 7);
+        assertEquals(0, dataVersions.of(Table.USER, 7).getNumber());
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(1, dataVersions.of(Table.USER, 7).getNumber());
+
+        // Откат: синхронизация снимается без фиксации
+        TransactionSynchronizationManager.initSynchronization();
+        dataVersions.changed(Table.USER, 8);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(0, dataVersions.of(Table.USER, 8).getNumber());
+        assertEquals(1, dataVersions.of(Table.USER).getNumber());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для операций над отсортированными массивами и отбора наибольших счетчиков
+ */
+class IntArraysTest {
+
+    /**
+     * Тест проверяет, что выборка сохраняет короткий массив и равномерно покрывает длинный
+     */
+    @Test
+    void shouldSampleEvenly() {
+        int[] shortIds = {1, 5, 9};
+        assertSame(shortIds, IntArrays.sampleEvenly(shortIds, 3));
+
+        int[] ids = IntStream.rangeClosed(1, 100).toArray();
+        assertArrayEquals(new int[]{1, 26, 51, 76}, IntArrays.sampleEvenly(ids, 4));
+    }
+
+    /**
+     * Тест проверяет пересечение отсортированных массивов, в том числе пустых
+     */
+    @Test
+    void shouldIntersectSortedArrays() {
+        assertArrayEquals(new int[]{3, 7}, IntArrays.intersectSorted(new int[]{1, 3, 5, 7}, new int[]{2, 3, 7, 9}));
+        assertArrayEquals(new int[0], IntArrays.intersectSorted(new int[0], new int[]{1, 2}));
+    }
+
+    /**
+     * Тест проверяет порядок отбора: по убыванию счетчика, при равенстве - по возрастанию идентификатора
+     */
+    @Test
+    void shouldSelectTopIds() {
+        TopIds top = new TopIds(3);
+        top.offer(10, 2);
+        top.offer(4, 5);
+        top.offer(7, 2);
+        top.offer(1, 1);
+        top.offer(3, 2);
+
+        assertArrayEquals(new int[]{4, 3, 7}, top.toArray());
+        assertEquals(42, TopIds.idOf(TopIds.rank(42, 9)));
+        assertEquals(9, TopIds.countOf(TopIds.rank(42, 9)));
+
+        TopIds none = new TopIds(0);
+        none.offer(1, 1);
+        assertTrue(none.toList().isEmpty());
+    }
+}
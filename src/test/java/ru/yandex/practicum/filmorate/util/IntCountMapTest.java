@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для примитивных счетчиков по целочисленным ключам
+ */
+class IntCountMapTest {
+
+    /**
+     * Тест проверяет подсчет, включая ноль и отрицательные ключи, и объединение счетчиков
+     */
+    @Test
+    void shouldCountAndMerge() {
+        IntCountMap counts = new IntCountMap();
+        counts.increment(5);
+        counts.increment(5);
+        counts.increment(0);
+        counts.add(-3, 4);
+
+        IntCountMap other = new IntCountMap();
+        other.increment(5);
+        other.increment(7);
+        counts.addAll(other);
+
+        assertEquals(3, counts.get(5));
+        assertEquals(1, counts.get(0));
+        assertEquals(4, counts.get(-3));
+        assertEquals(1, counts.get(7));
+        assertEquals(0, counts.get(8));
+        assertEquals(4, counts.size());
+    }
+
+    /**
+     * Тест сравнивает счетчики с HashMap на случайных данных с расширением таблицы
+     */
+    @Test
+    void shouldMatchHashMapOnRandomKeys() {
+        IntCountMap counts = new IntCountMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(20_000);
+            counts.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        Map<Integer, Integer> actual = new HashMap<>();
+        counts.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), counts.size());
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для множества целых чисел на открытой адресации
+ */
+class IntHashSetTest {
+
+    /**
+     * Тест проверяет добавление, удаление и проверку наличия элементов, включая ноль и отрицательные числа
+     */
+    @Test
+    void shouldAddRemoveAndContain() {
+        IntHashSet set = new IntHashSet();
+
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.add(0));
+        assertTrue(set.add(-7));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-7));
+        assertFalse(set.contains(6));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertArrayEquals(new int[]{-7, 5}, set.toSortedArray());
+    }
+
+    /**
+     * Тест проверяет совпадение с HashSet на случайной последовательности операций,
+     * в том числе при расширении таблицы и удалении элементов из середины цепочек
+     */
+    @Test
+    void shouldMatchHashSetOnRandomOperations() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, set);
+        for (int value = 0; value < 5_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    /**
+     * Тест проверяет, что множество из null пустое и остается изменяемым
+     */
+    @Test
+    void shouldCreateEmptySetFromNull() {
+        IntHashSet set = new IntHashSet((List<Integer>) null);
+
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(1));
+        assertEquals(Set.of(1), set);
+    }
+
+    /**
+     * Тест проверяет итерацию по всем элементам и удаление через итератор,
+     * а также сортировку только там, где порядок обещан
+     */
+    @Test
+    void shouldIterateOverAllElements() {
+        IntHashSet set = new IntHashSet(List.of(30, 10, 20));
+
+        Iterator<Integer> iterator = set.iterator();
+        int removed = iterator.next();
+        iterator.remove();
+
+        assertFalse(set.contains(removed));
+        assertEquals(2, set.size());
+        Set<Integer> remaining = new HashSet<>(Set.of(10, 20, 30));
+        remaining.remove(removed);
+        assertEquals(remaining, new HashSet<>(set));
+        assertArrayEquals(remaining.stream().mapToInt(Integer::intValue).sorted().toArray(), set.toSortedArray());
+    }
+
+    /**
+     * Тест проверяет, что JSON лайков фильма остается массивом идентификаторов
+     */
+    @Test
+    void shouldKeepJsonShapeOfLikes() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        Film film = new Film();
+        film.addLike(3);
+        film.addLike(1);
+
+        String json = objectMapper.writeValueAsString(film);
+        Film parsed = objectMapper.readValue(json, Film.class);
+
+        assertTrue(json.contains("\"likes\":[1,3]"));
+        assertInstanceOf(IntHashSet.class, parsed.getLikes());
+        assertEquals(Set.of(1, 3), parsed.getLikes());
+
+        // Порядок хранения в хеш-таблице не совпадает с возрастанием, а JSON - по возрастанию
+        IntHashSet many = new IntHashSet();
+        for (int userId = 64; userId >= 1; userId--) {
+            many.add(userId);
+        }
+        assertFalse(Arrays.equals(many.toSortedArray(), many.toIntArray()));
+        assertEquals(Arrays.toString(many.toSortedArray()).replace(" ", ""), objectMapper.writeValueAsString(many));
+    }
+}
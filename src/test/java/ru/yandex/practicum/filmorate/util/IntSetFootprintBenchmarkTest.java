@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер занимаемой памяти множеством из миллиона лайков: HashSet&lt;Integer&gt;, IntHashSet
+ * и RoaringIntSet (лайки от пользователей с идущими подряд идентификаторами).
+ * Запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class IntSetFootprintBenchmarkTest {
+    private static final int LIKES = 1_000_000;
+
+    /**
+     * Сравнение объема кучи, занятого множествами лайков одного фильма
+     */
+    @Test
+    void shouldUseLessHeapThanHashSet() {
+        long boxedBytes = retainedBytes(() -> {
+            Set<Integer> likes = new HashSet<>();
+            for (int userId = 1; userId <= LIKES; userId++) {
+                likes.add(userId);
+            }
+            return likes;
+        });
+        long primitiveBytes = retainedBytes(() -> {
+            IntHashSet likes = new IntHashSet();
+            for (int userId = 1; userId <= LIKES; userId++) {
+                likes.add(userId);
+            }
+            return likes;
+        });
+
+        long roaringBytes = retainedBytes(() -> {
+            RoaringIntSet likes = new RoaringIntSet();
+            for (int userId = 1; userId <= LIKES; userId++) {
+                likes.add(userId);
+            }
+            likes.runOptimize();
+            return likes;
+        });
+
+        System.out.printf("HashSet<Integer>: %.1f байт на лайк, IntHashSet: %.1f байт на лайк, "
+                        + "RoaringIntSet: %.3f байт на лайк%n",
+                (double) boxedBytes / LIKES, (double) primitiveBytes / LIKES, (double) roaringBytes / LIKES);
+        assertTrue(primitiveBytes * 3 < boxedBytes);
+        assertTrue(roaringBytes < primitiveBytes);
+    }
+
+    private static long retainedBytes(Supplier<Object> factory) {
+        long before = usedHeap();
+        Object retained = factory.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(retained);
+        return Math.max(after - before, 0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для сжатого битового множества
+ */
+class RoaringIntSetTest {
+
+    /**
+     * Тест проверяет совпадение с TreeSet на случайных операциях во всех типах контейнеров,
+     * включая отрицательные числа и переходы массив - битовая карта - серии
+     */
+    @Test
+    void shouldMatchTreeSetOnRandomOperations() {
+        RoaringIntSet set = new RoaringIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 100_000; i++) {
+                // Плотный диапазон в первом контейнере, разреженные значения в остальных
+                int value = random.nextBoolean() ? random.nextInt(10_000) : random.nextInt() >> 8;
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(value), set.remove(value));
+                } else {
+                    assertEquals(expected.add(value), set.add(value));
+                }
+            }
+            set.runOptimize();
+            assertEquals(expected.size(), set.size());
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toSortedArray());
+        }
+    }
+
+    /**
+     * Тест проверяет, что сплошной диапазон хранится сериями и занимает меньше битовой карты
+     */
+    @Test
+    void shouldCompressDenseRanges() {
+        RoaringIntSet set = new RoaringIntSet();
+        for (int value = 1; value <= 1_000_000; value++) {
+            set.add(value);
+        }
+        long bitmapBytes = set.sizeInBytes();
+        set.runOptimize();
+
+        assertEquals(1_000_000, set.size());
+        assertTrue(set.sizeInBytes() * 100 < bitmapBytes);
+        assertTrue(set.contains(500_000));
+        assertFalse(set.contains(1_000_001));
+
+        // Удаление из середины серии разбивает ее на две
+        assertTrue(set.remove(500_000));
+        assertFalse(set.contains(500_000));
+        assertTrue(set.contains(499_999));
+        assertTrue(set.contains(500_001));
+        assertEquals(999_999, set.size());
+    }
+
+    /**
+     * Тест проверяет пересечение, мощность пересечения и объединение
+     */
+    @Test
+    void shouldIntersectAndUnite() {
+        RoaringIntSet dense = new RoaringIntSet();
+        RoaringIntSet sparse = new RoaringIntSet();
+        for (int value = 0; value < 200_000; value++) {
+            dense.add(value);
+            if (value % 3 == 0) {
+                sparse.add(value);
+            }
+        }
+        sparse.add(1_000_000);
+        dense.runOptimize();
+
+        int[] common = dense.intersect(sparse);
+
+        assertEquals(66_667, common.length);
+        assertEquals(66_667, dense.intersectionSize(sparse));
+        assertEquals(66_667, sparse.intersectionSize(new IntHashSet(dense)));
+        assertEquals(0, common[0]);
+        assertEquals(199_998, common[common.length - 1]);
+        RoaringIntSet union = RoaringIntSet.or(dense, sparse);
+        assertEquals(200_001, union.size());
+        assertTrue(union.contains(1_000_000));
+        assertEquals(Arrays.toString(RoaringIntSet.and(dense, sparse).toSortedArray()), Arrays.toString(common));
+    }
+
+    /**
+     * Тест проверяет объединение нескольких множеств за один проход, пересечение двух массивов
+     * и выборку элементов после заданного значения
+     */
+    @Test
+    void shouldUniteManyAndReadRange() {
+        Random random = new Random(11);
+        List<RoaringIntSet> sets = new ArrayList<>();
+        TreeSet<Integer> union = new TreeSet<>();
+        for (int i = 0; i < 5; i++) {
+            RoaringIntSet set = new RoaringIntSet();
+            for (int j = 0; j < 3_000; j++) {
+                int value = random.nextInt(300_000) - 1_000;
+                set.add(value);
+                union.add(value);
+            }
+            sets.add(set);
+        }
+
+        RoaringIntSet united = RoaringIntSet.or(sets);
+        assertArrayEquals(union.stream().mapToInt(Integer::intValue).toArray(), united.toSortedArray());
+        assertArrayEquals(sets.get(0).toSortedArray(), RoaringIntSet.or(List.of(sets.get(0))).toSortedArray());
+        assertEquals(0, RoaringIntSet.or(List.of()).size());
+
+        TreeSet<Integer> common = new TreeSet<>();
+        for (int value : sets.get(0).toSortedArray()) {
+            if (sets.get(1).contains(value)) {
+                common.add(value);
+            }
+        }
+        assertArrayEquals(common.stream().mapToInt(Integer::intValue).toArray(),
+                RoaringIntSet.and(sets.get(0), sets.get(1)).toSortedArray());
+
+        int after = union.ceiling(150_000);
+        assertArrayEquals(union.tailSet(after, false).stream().limit(10).mapToInt(Integer::intValue).toArray(),
+                united.range(after, 10));
+        assertArrayEquals(union.stream().limit(3).mapToInt(Integer::intValue).toArray(),
+                united.range(Integer.MIN_VALUE, 3));
+        assertEquals(0, united.range(Integer.MAX_VALUE, 10).length);
+    }
+
+    /**
+     * Тест проверяет, что множества всех представлений из null пустые и остаются изменяемыми
+     */
+    @Test
+    void shouldCreateEmptySetsFromNull() {
+        assertTrue(new RoaringIntSet(null).isEmpty());
+        for (IntSetType type : IntSetType.values()) {
+            IntSet set = type.copyOf(null);
+            assertTrue(set.isEmpty());
+            assertTrue(set.add(5));
+            assertArrayEquals(new int[]{5}, set.toSortedArray());
+        }
+    }
+}